@@ -0,0 +1,14 @@
+package com.tarea;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Un hilo virtual por sesión. Solo se compila con el perfil java21;
+ * ServidorSesiones lo busca por nombre para que el build de Java 17 siga
+ * funcionando sin él.
+ */
+class EjecutorVirtual {
+    static ExecutorService crear() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("triage-sesion-", 1).factory());
+    }
+}
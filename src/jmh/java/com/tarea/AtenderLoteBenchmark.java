@@ -0,0 +1,69 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vaciar una sala de espera llena de a k pacientes, con k llamadas a
+ * atender() o con una llamada a atenderLote(k), en un sistema secuencial o
+ * concurrente. El puntaje es el tiempo de vaciar toda la sala; los
+ * pacientes atendidos por segundo son pacientes / puntaje.
+ *
+ *   java -jar target/benchmarks.jar AtenderLoteBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class AtenderLoteBenchmark {
+    @Param({"100000"})
+    public int pacientes;
+
+    @Param({"10", "100", "1000"})
+    public int k;
+
+    @Param({"false", "true"})
+    public boolean concurrente;
+
+    private List<SolicitudRegistro> solicitudes;
+    private SistemaTriageUrgencias sistema;
+
+    @Setup(Level.Trial)
+    public void prepararSolicitudes() {
+        solicitudes = new ArrayList<>(pacientes);
+        for (int i = 0; i < pacientes; i++) {
+            solicitudes.add(new SolicitudRegistro("Paciente " + i, 1 + i % 3, "Síntoma de prueba"));
+        }
+    }
+
+    // Cada invocación tarda milisegundos, así que el costo de este setup no distorsiona
+    @Setup(Level.Invocation)
+    public void llenarSala() {
+        sistema = new SistemaTriageUrgencias(concurrente);
+        sistema.registrarPacientes(solicitudes);
+    }
+
+    @Benchmark
+    public int individual() {
+        int atendidos = 0;
+        while (sistema.totalEnEspera() > 0) {
+            for (int i = 0; i < k && sistema.atender().isPresent(); i++) {
+                atendidos++;
+            }
+        }
+        return atendidos;
+    }
+
+    @Benchmark
+    public int lote() {
+        int atendidos = 0;
+        while (sistema.totalEnEspera() > 0) {
+            atendidos += sistema.atenderLote(k).size();
+        }
+        return atendidos;
+    }
+}
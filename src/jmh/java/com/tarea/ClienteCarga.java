@@ -0,0 +1,152 @@
+package com.tarea;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga para ServidorTriage. Reparte una tasa fija de pedidos
+ * entre varias conexiones y mide la latencia desde el momento en que cada
+ * pedido debía salir (no desde que salió), así un servidor lento no
+ * esconde su demora frenando al cliente. Mezcla: 45% REGISTRAR,
+ * 45% ATENDER, 5% SIGUIENTE y 5% CONTADORES, para que la cola no crezca.
+ *
+ * Es una herramienta de medición, como los benchmarks, y se compila con
+ * ellos (perfil jmh), fuera de la aplicación:
+ *
+ *   java -cp target/benchmarks.jar com.tarea.ClienteCarga &lt;host&gt; &lt;puerto&gt;
+ *        &lt;pedidos/s&gt; &lt;segundos&gt; [conexiones] [segundos de calentamiento]
+ */
+public class ClienteCarga {
+    private static final int PEDIDOS_EN_VUELO = 1 << 16;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Uso: ClienteCarga <host> <puerto> <pedidos/s> <segundos>"
+                    + " [conexiones] [segundos de calentamiento]");
+            System.exit(2);
+        }
+        String host = args[0];
+        int puerto = Integer.parseInt(args[1]);
+        int tasa = Integer.parseInt(args[2]);
+        int segundos = Integer.parseInt(args[3]);
+        int conexiones = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+        int calentamiento = args.length > 5 ? Integer.parseInt(args[5]) : 2;
+        if (tasa <= 0 || segundos <= 0 || conexiones <= 0 || calentamiento < 0) {
+            throw new IllegalArgumentException("la tasa, la duración y las conexiones deben ser positivas");
+        }
+
+        HistogramaTiempos latencias = new HistogramaTiempos();
+        AtomicLong errores = new AtomicLong();
+        long intervalo = TimeUnit.SECONDS.toNanos(1) * conexiones / tasa;
+        long inicio = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        long inicioMedicion = inicio + TimeUnit.SECONDS.toNanos(calentamiento);
+        long pedidosPorConexion = (long) (calentamiento + segundos) * tasa / conexiones;
+
+        Thread[] hilos = new Thread[conexiones * 2];
+        Socket[] sockets = new Socket[conexiones];
+        for (int c = 0; c < conexiones; c++) {
+            Socket socket = new Socket(host, puerto);
+            socket.setTcpNoDelay(true);
+            sockets[c] = socket;
+            BlockingQueue<Long> enVuelo = new ArrayBlockingQueue<>(PEDIDOS_EN_VUELO);
+            // Las conexiones arrancan desfasadas para no enviar todas a la vez
+            long desfase = intervalo * c / conexiones;
+            long semilla = c;
+            hilos[2 * c] = new Thread(() -> enviar(socket, enVuelo, inicio + desfase, intervalo,
+                    pedidosPorConexion, new SplittableRandom(semilla)), "carga-envio-" + c);
+            hilos[2 * c + 1] = new Thread(() -> recibir(socket, enVuelo, pedidosPorConexion,
+                    inicioMedicion, latencias, errores), "carga-recepcion-" + c);
+        }
+        for (Thread hilo : hilos) {
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        long fin = System.nanoTime();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+
+        HistogramaTiempos.Resumen resumen = latencias.resumen();
+        double medidos = (fin - inicioMedicion) / 1e9;
+        System.out.printf("Tasa pedida: %d/s  lograda: %.0f/s  conexiones: %d  medidos: %d  errores: %d%n",
+                tasa, resumen.getTotal() / medidos, conexiones, resumen.getTotal(), errores.get());
+        System.out.printf("Latencia (µs)  p50: %.1f  p90: %.1f  p99: %.1f  p99.9: %.1f  máx: %.1f%n",
+                resumen.percentil(50) / 1e3, resumen.percentil(90) / 1e3, resumen.percentil(99) / 1e3,
+                resumen.percentil(99.9) / 1e3, resumen.getMaximo() / 1e3);
+    }
+
+    private static void enviar(Socket socket, BlockingQueue<Long> enVuelo, long inicio, long intervalo,
+                               long pedidos, SplittableRandom azar) {
+        StringBuilder linea = new StringBuilder(64);
+        byte[] bytes;
+        try {
+            OutputStream salida = socket.getOutputStream();
+            for (long k = 0; k < pedidos; k++) {
+                long previsto = inicio + k * intervalo;
+                long espera;
+                while ((espera = previsto - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(espera);
+                }
+                linea.setLength(0);
+                int tirada = azar.nextInt(100);
+                if (tirada < 45) {
+                    linea.append("REGISTRAR ").append(1 + azar.nextInt(ColaTriage.NIVELES))
+                            .append(" Paciente ").append(k).append("|Carga sintética\n");
+                } else if (tirada < 90) {
+                    linea.append("ATENDER\n");
+                } else if (tirada < 95) {
+                    linea.append("SIGUIENTE\n");
+                } else {
+                    linea.append("CONTADORES\n");
+                }
+                // Se anota antes de enviar para que la respuesta nunca llegue primero
+                enVuelo.put(previsto);
+                bytes = linea.toString().getBytes(StandardCharsets.UTF_8);
+                salida.write(bytes);
+            }
+            salida.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void recibir(Socket socket, BlockingQueue<Long> enVuelo, long pedidos, long inicioMedicion,
+                                HistogramaTiempos latencias, AtomicLong errores) {
+        try {
+            BufferedReader entrada = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (long k = 0; k < pedidos; k++) {
+                String respuesta = entrada.readLine();
+                long ahora = System.nanoTime();
+                if (respuesta == null) {
+                    throw new IOException("el servidor cerró la conexión");
+                }
+                long previsto = enVuelo.take();
+                if (respuesta.startsWith("ERROR")) {
+                    errores.incrementAndGet();
+                }
+                if (previsto >= inicioMedicion) {
+                    latencias.registrar(ahora - previsto);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Operaciones por segundo del sistema con diario de escritura anticipada,
+ * para cada política de sincronización, comparadas con el sistema sin diario.
+ * Con varios hilos se aprecia el group commit de CADA_OPERACION.
+ *
+ *   java -jar target/benchmarks.jar DiarioBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiarioBenchmark {
+    @Param({"SIN_DIARIO", "CADA_OPERACION", "CADA_N_MS", "SISTEMA"})
+    public String politica;
+
+    private Path directorio;
+    private DiarioTriage diario;
+    private SistemaTriageUrgencias sistema;
+
+    @Setup(Level.Iteration)
+    public void preparar() throws IOException {
+        directorio = Files.createTempDirectory("diario-bench");
+        // Modo concurrente para poder medir también con varios hilos
+        sistema = new SistemaTriageUrgencias(true);
+        if (!politica.equals("SIN_DIARIO")) {
+            diario = DiarioTriage.abrir(directorio.resolve("triage.wal"),
+                    DiarioTriage.PoliticaSincronizacion.valueOf(politica), 10, sistema);
+            sistema.usarDiario(diario);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void cerrar() throws IOException {
+        if (diario != null) {
+            diario.close();
+            diario = null;
+        }
+        // El diario es un directorio de segmentos e instantáneas
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            for (Path archivo : (Iterable<Path>) archivos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+    }
+
+    @Benchmark
+    public Optional<Paciente> registrarYAtender() {
+        sistema.registrarPaciente("Paciente", 2, "Síntoma de prueba");
+        return sistema.atender();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<Paciente> registrarYAtender8Hilos() {
+        sistema.registrarPaciente("Paciente", 2, "Síntoma de prueba");
+        return sistema.atender();
+    }
+}
@@ -0,0 +1,72 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importar un archivo de llegadas de un millón de filas (CSV o NDJSON) a un
+ * sistema vacío con 1 o 4 hilos de análisis. El puntaje es el tiempo de la
+ * importación completa, incluido el registro; las filas por segundo son
+ * filas / puntaje. El heap es grande porque todos los pacientes importados
+ * quedan vivos en la cola.
+ *
+ *   java -jar target/benchmarks.jar ImportadorBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ImportadorBenchmark {
+    @Param({"1000000"})
+    public int filas;
+
+    @Param({"CSV", "NDJSON"})
+    public String formato;
+
+    @Param({"1", "4"})
+    public int hilos;
+
+    private Path archivo;
+    private SistemaTriageUrgencias sistema;
+
+    @Setup(Level.Trial)
+    public void escribirArchivo() throws IOException {
+        ImportadorPacientes.Formato f = ImportadorPacientes.Formato.valueOf(formato);
+        archivo = Files.createTempFile("llegadas", f == ImportadorPacientes.Formato.CSV ? ".csv" : ".ndjson");
+        try (BufferedWriter salida = Files.newBufferedWriter(archivo)) {
+            if (f == ImportadorPacientes.Formato.CSV) {
+                salida.write("nombre,prioridad,sintomas\n");
+            }
+            for (int i = 0; i < filas; i++) {
+                int prioridad = 1 + i % 3;
+                if (f == ImportadorPacientes.Formato.CSV) {
+                    salida.write("Paciente " + i + "," + prioridad + ",Síntoma de prueba " + i + "\n");
+                } else {
+                    salida.write("{\"nombre\":\"Paciente " + i + "\",\"prioridad\":" + prioridad
+                            + ",\"sintomas\":\"Síntoma de prueba " + i + "\"}\n");
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void borrarArchivo() throws IOException {
+        Files.deleteIfExists(archivo);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepararSistema() {
+        sistema = new SistemaTriageUrgencias();
+    }
+
+    @Benchmark
+    public ImportadorPacientes.Resultado importar() throws IOException {
+        return new ImportadorPacientes(sistema, hilos).importar(archivo);
+    }
+}
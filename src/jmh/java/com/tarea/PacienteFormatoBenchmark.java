@@ -0,0 +1,46 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la forma anterior de mostrar un paciente (DateTimeFormatter nuevo
+ * y String.format en cada llamada) con toString() y appendTo() actuales.
+ * Con -prof gc se ve la diferencia en gc.alloc.rate.norm por operación.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PacienteFormatoBenchmark {
+    private Paciente paciente;
+    private StringBuilder buffer;
+
+    @Setup
+    public void preparar() {
+        paciente = new Paciente(12345, 1, "Ana García", 1, "Paro cardíaco");
+        buffer = new StringBuilder(256);
+    }
+
+    @Benchmark
+    public String formatoAnterior() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
+        return String.format("[ID:%d] %s - %s - Llegada: %s - Síntomas: %s",
+                paciente.getId(), paciente.getNombre(), paciente.getNivelPrioridadTexto(),
+                paciente.getHoraLlegada().format(formatter), paciente.getSintomas());
+    }
+
+    @Benchmark
+    public String toStringActual() {
+        return paciente.toString();
+    }
+
+    @Benchmark
+    public int appendToBufferReutilizado() {
+        buffer.setLength(0);
+        return paciente.appendTo(buffer).length();
+    }
+}
@@ -0,0 +1,57 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registrar un manifiesto completo de pacientes uno por uno
+ * (registrarPaciente) o como bloque (registrarPacientes), en un sistema
+ * vacío, secuencial o concurrente.
+ *
+ *   java -jar target/benchmarks.jar RegistroLoteBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RegistroLoteBenchmark {
+    @Param({"10000", "1000000"})
+    public int pacientes;
+
+    @Param({"false", "true"})
+    public boolean concurrente;
+
+    private List<SolicitudRegistro> solicitudes;
+    private SistemaTriageUrgencias sistema;
+
+    @Setup(Level.Trial)
+    public void prepararSolicitudes() {
+        solicitudes = new ArrayList<>(pacientes);
+        for (int i = 0; i < pacientes; i++) {
+            solicitudes.add(new SolicitudRegistro("Paciente " + i, 1 + i % 3, "Síntoma de prueba"));
+        }
+    }
+
+    // Cada invocación tarda milisegundos, así que el costo de este setup no distorsiona
+    @Setup(Level.Invocation)
+    public void prepararSistema() {
+        sistema = new SistemaTriageUrgencias(concurrente);
+    }
+
+    @Benchmark
+    public SistemaTriageUrgencias individual() {
+        for (SolicitudRegistro s : solicitudes) {
+            sistema.registrarPaciente(s.getNombre(), s.getPrioridad(), s.getSintomas());
+        }
+        return sistema;
+    }
+
+    @Benchmark
+    public List<Paciente> lote() {
+        return sistema.registrarPacientes(solicitudes);
+    }
+}
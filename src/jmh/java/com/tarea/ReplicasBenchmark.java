@@ -0,0 +1,52 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escalado de ReplicasSimulacion con la cantidad de hilos: el mismo lote de
+ * réplicas de una guardia de un día con 20 médicos, repartido en 1 a 8
+ * hilos. El contador auxiliar eventos da la tasa total de eventos; con
+ * escalado lineal crece en proporción a los hilos hasta llegar a los
+ * núcleos de la máquina.
+ *
+ *   java -jar target/benchmarks.jar ReplicasBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ReplicasBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int hilos;
+
+    @Param({"64"})
+    public int replicas;
+
+    private ReplicasSimulacion simulacion;
+    private long semilla;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Eventos {
+        public long eventos;
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        SimuladorTriage simulador = new SimuladorTriage(20, new ProcesoLlegadas[]{
+                new LlegadasPoisson(5), new LlegadasPoisson(20), new LlegadasPoisson(24)},
+                new double[]{60, 25, 15});
+        simulacion = new ReplicasSimulacion(simulador, Duration.ofHours(24), hilos);
+    }
+
+    @Benchmark
+    public ReplicasSimulacion.Resultado replicar(Eventos eventos) {
+        ReplicasSimulacion.Resultado resultado = simulacion.ejecutar(replicas, semilla++);
+        eventos.eventos += resultado.getEventos();
+        return resultado;
+    }
+}
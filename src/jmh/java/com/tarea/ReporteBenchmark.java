@@ -0,0 +1,67 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de generar el reporte de un turno grande con el heap limitado a
+ * 64 MB. El 90% de los pacientes queda atendido y, con el desborde activo,
+ * casi todo el historial vive en disco; si algún formato copiara las listas
+ * completas, el benchmark terminaría en OutOfMemoryError.
+ *
+ *   java -jar target/benchmarks.jar ReporteBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+@State(Scope.Benchmark)
+public class ReporteBenchmark {
+    @Param({"100000", "1000000"})
+    public int pacientes;
+
+    @Param({"TEXTO", "CSV", "JSON"})
+    public String formato;
+
+    private Path desborde;
+    private SistemaTriageUrgencias sistema;
+    private VistaConsola vista;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        PrintStream descartado = new PrintStream(OutputStream.nullOutputStream());
+        vista = new VistaConsola(descartado, descartado);
+
+        desborde = Files.createTempFile("atendidos-bench", ".bin");
+        sistema = new SistemaTriageUrgencias();
+        sistema.desbordarAtendidos(desborde, 4 * HistorialAtendidos.TAMANO_BLOQUE);
+        for (int i = 0; i < pacientes; i++) {
+            sistema.registrarPaciente("Paciente de prueba", 1 + i % 3, "Síntoma de prueba");
+            if (i % 10 != 0) {
+                sistema.atender();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        sistema.cerrarDesbordeAtendidos();
+        Files.deleteIfExists(desborde);
+    }
+
+    @Benchmark
+    public void generarReporte() throws IOException {
+        if (formato.equals("TEXTO")) {
+            vista.generarReporte(sistema);
+        } else {
+            ReporteTriage.escribir(sistema, ReporteTriage.Formato.valueOf(formato), Writer.nullWriter());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de abrir miles de sesiones de terminal ociosas con un hilo de
+ * plataforma o un hilo virtual por sesión. Cada sesión muestra el menú y
+ * queda bloqueada esperando una opción que nunca llega; el puntaje es el
+ * tiempo hasta que todas están esperando y los contadores auxiliares dan el
+ * heap y la memoria residente por sesión y los hilos del sistema operativo.
+ * Las terminales son flujos en memoria para no depender del límite de
+ * descriptores de archivo. El heap fijo y pretocado evita que la memoria
+ * residente varíe por el heap, así su aumento refleja las pilas nativas;
+ * como glibc reutiliza las pilas de los hilos que terminaron, después de la
+ * primera iteración PLATAFORMA muestra menos memoria residente de la real.
+ *
+ * VIRTUAL necesita Java 21 y el perfil java21:
+ *   mvn -P java21,jmh package && java -jar target/benchmarks.jar SesionesBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:+AlwaysPreTouch"})
+@State(Scope.Benchmark)
+public class SesionesBenchmark {
+    @Param({"PLATAFORMA", "VIRTUAL"})
+    public String modelo;
+
+    @Param({"10000"})
+    public int sesiones;
+
+    private ServidorSesiones servidor;
+    private TerminalOciosa[] terminales;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Memoria {
+        public double heapKbPorSesion;
+        public double rssKbPorSesion;
+        public long hilosPlataforma;
+    }
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        servidor = new ServidorSesiones(new SistemaTriageUrgencias(true),
+                ServidorSesiones.ModeloHilos.valueOf(modelo));
+        terminales = new TerminalOciosa[sesiones];
+    }
+
+    @TearDown(Level.Iteration)
+    public void cerrar() throws IOException {
+        servidor.close();
+    }
+
+    @Benchmark
+    public void abrirSesiones(Memoria memoria) throws InterruptedException {
+        long heapAntes = heapTrasGc();
+        long rssAntes = rssKb();
+        for (int i = 0; i < sesiones; i++) {
+            TerminalOciosa terminal = new TerminalOciosa();
+            terminales[i] = terminal;
+            servidor.iniciar(terminal.entrada, terminal.salida, terminal);
+        }
+        for (TerminalOciosa terminal : terminales) {
+            terminal.menuMostrado.await();
+        }
+        memoria.heapKbPorSesion = (heapTrasGc() - heapAntes) / 1024.0 / sesiones;
+        memoria.rssKbPorSesion = (double) (rssKb() - rssAntes) / sesiones;
+        memoria.hilosPlataforma = ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    private static long heapTrasGc() {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        return memoria.getHeapMemoryUsage().getUsed();
+    }
+
+    // Memoria residente del proceso en KB (Linux); 0 si no se puede leer
+    private static long rssKb() {
+        try {
+            for (String linea : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (linea.startsWith("VmRSS:")) {
+                    return Long.parseLong(linea.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fuera de Linux no hay /proc
+        }
+        return 0;
+    }
+
+    /**
+     * Terminal que nunca escribe: la lectura se bloquea hasta que se cierra.
+     * La sesión vacía su salida justo antes de leer, así el primer flush
+     * marca que el menú ya se mostró.
+     */
+    private static final class TerminalOciosa implements Closeable {
+        final CountDownLatch menuMostrado = new CountDownLatch(1);
+        private final CountDownLatch cerrada = new CountDownLatch(1);
+
+        final InputStream entrada = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                esperarCierre();
+                return -1;
+            }
+
+            @Override
+            public int read(byte[] destino, int desde, int largo) throws IOException {
+                esperarCierre();
+                return -1;
+            }
+        };
+
+        final OutputStream salida = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] datos, int desde, int largo) {
+            }
+
+            @Override
+            public void flush() {
+                menuMostrado.countDown();
+            }
+        };
+
+        private void esperarCierre() throws IOException {
+            try {
+                cerrada.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("sesión interrumpida", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            cerrada.countDown();
+            menuMostrado.countDown();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eventos por segundo del simulador en una guardia larga con la sala cerca
+ * de saturarse (utilización ~97%): unos dos millones de llegadas y fines de
+ * atención por corrida. El contador auxiliar eventos da la tasa de eventos;
+ * el puntaje principal es de corridas por segundo.
+ *
+ *   java -jar target/benchmarks.jar SimuladorBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SimuladorBenchmark {
+    @Param({"20", "200"})
+    public int medicos;
+
+    private SimuladorTriage simulador;
+    private Duration duracion;
+    private long semilla;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Eventos {
+        public long eventos;
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        // La misma carga relativa con cualquier cantidad de médicos
+        double escala = medicos / 200.0;
+        simulador = new SimuladorTriage(medicos, new ProcesoLlegadas[]{
+                new LlegadasPoisson(50 * escala), new LlegadasPoisson(200 * escala),
+                new LlegadasPoisson(240 * escala)}, new double[]{60, 25, 15});
+        duracion = Duration.ofHours((long) (2000 / escala));
+    }
+
+    @Benchmark
+    public SimuladorTriage.Resultado simular(Eventos eventos) {
+        SimuladorTriage.Resultado resultado = simulador.ejecutar(duracion, semilla++);
+        eventos.eventos += resultado.getEventos();
+        return resultado;
+    }
+}
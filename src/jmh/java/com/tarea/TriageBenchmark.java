@@ -0,0 +1,111 @@
+package com.tarea;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de las operaciones de SistemaTriageUrgencias.
+ *
+ * Ejecutar con:
+ *   mvn -P jmh package
+ *   java -jar target/benchmarks.jar TriageBenchmark -prof gc
+ *
+ * Cada operación se mide con la cola precargada a distintas profundidades y
+ * mezclas de prioridad ("rojo/amarillo/verde" en porcentaje). Para que la
+ * profundidad se mantenga estable, registrar se mide junto con atender y
+ * atender junto con deshacer. Listar y generar el reporte se miden con la
+ * VistaConsola escribiendo a un flujo descartado.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class TriageBenchmark {
+    // Las prioridades se precalculan para no medir el generador aleatorio
+    private static final int TAMANO_PATRON = 1024;
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int profundidad;
+
+    @Param({"5/25/70", "33/33/34", "100/0/0"})
+    public String mezcla;
+
+    private SistemaTriageUrgencias sistema;
+    private VistaConsola vista;
+    private int[] prioridades;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        PrintStream descartado = new PrintStream(OutputStream.nullOutputStream());
+        vista = new VistaConsola(descartado, descartado);
+
+        prioridades = generarPatron(mezcla, new Random(42));
+        sistema = new SistemaTriageUrgencias();
+        for (int i = 0; i < profundidad; i++) {
+            sistema.registrarPaciente("Paciente " + i, siguientePrioridad(), "Síntoma de prueba");
+        }
+        // Deja historial para que deshacer siempre tenga algo que reinsertar
+        sistema.atender();
+    }
+
+    @Benchmark
+    public Optional<Paciente> registrarYAtender() {
+        sistema.registrarPaciente("Nuevo", siguientePrioridad(), "Síntoma de prueba");
+        return sistema.atender();
+    }
+
+    @Benchmark
+    public Optional<Paciente> atenderYDeshacer() {
+        sistema.atender();
+        return sistema.deshacerUltimaAtencion();
+    }
+
+    @Benchmark
+    public Optional<Paciente> verSiguiente() {
+        return sistema.verSiguiente();
+    }
+
+    @Benchmark
+    public void listarPacientesEnEspera() {
+        vista.listarPacientesEnEspera(sistema);
+    }
+
+    @Benchmark
+    public List<Paciente> primerosEnEspera50() {
+        return sistema.primerosEnEspera(50);
+    }
+
+    @Benchmark
+    public void generarReporte() {
+        vista.generarReporte(sistema);
+    }
+
+    private int siguientePrioridad() {
+        int prioridad = prioridades[siguiente];
+        siguiente = (siguiente + 1) & (TAMANO_PATRON - 1);
+        return prioridad;
+    }
+
+    /**
+     * Reparte TAMANO_PATRON prioridades según la mezcla "r/a/v" (porcentajes)
+     */
+    static int[] generarPatron(String mezcla, Random random) {
+        String[] partes = mezcla.split("/");
+        int rojo = Integer.parseInt(partes[0]);
+        int amarillo = Integer.parseInt(partes[1]);
+        int[] patron = new int[TAMANO_PATRON];
+        for (int i = 0; i < TAMANO_PATRON; i++) {
+            int r = random.nextInt(100);
+            patron[i] = r < rojo ? 1 : (r < rojo + amarillo ? 2 : 3);
+        }
+        return patron;
+    }
+}
@@ -0,0 +1,169 @@
+package com.tarea;
+
+/**
+ * Pila acotada de atenciones recientes sobre un buffer circular. Cuando se
+ * llena, agregar pisa a la más antigua en O(1); quitar la última también es
+ * O(1), sin desplazar elementos. Cada entrada guarda el instante (epoch ms
+ * del reloj del sistema) de la atención, para poder aplicar una ventana de
+ * tiempo también después de reabrir el estado, y si continúa el lote de la
+ * entrada anterior (atenderLote), para deshacerlo entero.
+ * Con capacidad 0 no guarda nada: el deshacer queda desactivado.
+ * No es segura para uso concurrente.
+ */
+class AnilloDeshacer {
+    private final Paciente[] pacientes;
+    private final long[] instantes;
+    private final boolean[] continuaLote;
+    private int siguiente; // Posición donde se escribe la próxima entrada
+    private int tamano;
+
+    public AnilloDeshacer(int capacidad) {
+        if (capacidad < 0) {
+            throw new IllegalArgumentException("La capacidad de deshacer no puede ser negativa");
+        }
+        this.pacientes = new Paciente[capacidad];
+        this.instantes = new long[capacidad];
+        this.continuaLote = new boolean[capacidad];
+    }
+
+    public void agregar(Paciente paciente, long instante) {
+        agregar(paciente, instante, false);
+    }
+
+    /**
+     * @param continua true si pertenece al mismo lote que la entrada anterior
+     */
+    public void agregar(Paciente paciente, long instante, boolean continua) {
+        if (pacientes.length == 0) {
+            return;
+        }
+        pacientes[siguiente] = paciente;
+        instantes[siguiente] = instante;
+        continuaLote[siguiente] = continua;
+        siguiente = avanzar(siguiente);
+        if (tamano < pacientes.length) {
+            tamano++;
+        }
+    }
+
+    /**
+     * Última entrada agregada, o null si está vacío
+     */
+    public Paciente ultimo() {
+        return tamano == 0 ? null : pacientes[retroceder(siguiente)];
+    }
+
+    public long instanteUltimo() {
+        return instantes[retroceder(siguiente)];
+    }
+
+    /**
+     * true si la última entrada es parte de un lote y la anterior también.
+     * Si el comienzo del lote ya se pisó, el lote termina donde empieza el anillo.
+     */
+    public boolean ultimoContinuaLote() {
+        return tamano > 1 && continuaLote[retroceder(siguiente)];
+    }
+
+    /**
+     * Quita y devuelve la última entrada, o null si está vacío
+     */
+    public Paciente quitarUltimo() {
+        if (tamano == 0) {
+            return null;
+        }
+        siguiente = retroceder(siguiente);
+        Paciente paciente = pacientes[siguiente];
+        pacientes[siguiente] = null;
+        tamano--;
+        return paciente;
+    }
+
+    /**
+     * Quita la entrada más reciente del paciente indicado desplazando las
+     * posteriores. Es O(n); solo se usa al reproducir el diario.
+     */
+    public boolean quitar(long id) {
+        for (int i = 0, posicion = retroceder(siguiente); i < tamano; i++, posicion = retroceder(posicion)) {
+            if (pacientes[posicion].getId() != id) {
+                continue;
+            }
+            for (int j = posicion, k = avanzar(j); k != siguiente; j = k, k = avanzar(k)) {
+                pacientes[j] = pacientes[k];
+                instantes[j] = instantes[k];
+                continuaLote[j] = continuaLote[k];
+            }
+            siguiente = retroceder(siguiente);
+            pacientes[siguiente] = null;
+            tamano--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Libera solo las entradas ocupadas: O(tamano), no O(capacidad)
+     */
+    public void vaciar() {
+        while (tamano > 0) {
+            quitarUltimo();
+        }
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Entrada i, contando desde la más antigua (0) hasta la última (tamano - 1)
+     */
+    public Paciente paciente(int i) {
+        return pacientes[posicion(i)];
+    }
+
+    public long instante(int i) {
+        return instantes[posicion(i)];
+    }
+
+    public boolean continuaLote(int i) {
+        return continuaLote[posicion(i)];
+    }
+
+    public int capacidad() {
+        return pacientes.length;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    /**
+     * Copia las entradas de otro anillo, de la más antigua a la más reciente;
+     * si no caben, quedan las más recientes
+     */
+    public void copiarDe(AnilloDeshacer otro) {
+        int posicion = otro.siguiente - otro.tamano;
+        if (posicion < 0) {
+            posicion += otro.pacientes.length;
+        }
+        for (int i = 0; i < otro.tamano; i++, posicion = otro.avanzar(posicion)) {
+            agregar(otro.pacientes[posicion], otro.instantes[posicion], otro.continuaLote[posicion]);
+        }
+    }
+
+    private int posicion(int i) {
+        if (i < 0 || i >= tamano) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        int posicion = siguiente - tamano + i;
+        return posicion < 0 ? posicion + pacientes.length : posicion;
+    }
+
+    private int avanzar(int posicion) {
+        return posicion + 1 == pacientes.length ? 0 : posicion + 1;
+    }
+
+    private int retroceder(int posicion) {
+        return posicion == 0 ? pacientes.length - 1 : posicion - 1;
+    }
+}
@@ -0,0 +1,193 @@
+package com.tarea;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+ * Cola de pacientes en espera ordenada por triage: primero por prioridad
+ * (1=Rojo, 2=Amarillo, 3=Verde) y dentro de cada nivel por orden de llegada
+ * (secuenciaLlegada del paciente, no la hora de reloj, que puede empatar).
+ */
+interface ColaTriage extends Iterable<Paciente> {
+    int NIVELES = 3;
+
+    /**
+     * Encola al paciente al final de su nivel de prioridad
+     */
+    void offer(Paciente paciente);
+
+    /**
+     * Encola un bloque de pacientes, que debe venir en orden de llegada.
+     * Equivale a llamar a offer con cada uno; las implementaciones pueden
+     * anexarlo de una vez a cada nivel.
+     */
+    default void offerTodos(List<Paciente> pacientes) {
+        for (Paciente paciente : pacientes) {
+            offer(paciente);
+        }
+    }
+
+    /**
+     * Rechaza, antes de asignar ID y secuencia, los textos que esta cola no
+     * puede guardar. Las colas en el heap aceptan cualquier largo.
+     *
+     * @throws IllegalArgumentException si el nombre o los síntomas no caben
+     */
+    default void validarTextos(String nombre, String sintomas) {
+    }
+
+    /**
+     * Reinserta al paciente en su nivel delante de los que llegaron después
+     * (según secuenciaLlegada). Se usa al deshacer una atención; casi
+     * siempre es el más antiguo de su nivel y queda al frente en O(1), pero
+     * en modo concurrente dos médicos pueden anotar sus atenciones en otro
+     * orden que el de la cola, y deshacer ambas no debe invertirlos.
+     */
+    void reinsertar(Paciente paciente);
+
+    /**
+     * Saca a un paciente concreto aunque no sea el siguiente; se busca desde
+     * el frente de su nivel, así que es O(1) si está primero y O(n) si no.
+     * Se usa al rehacer (el paciente quedó primero al deshacer) y al
+     * recuperar el estado, cuando el diario de un sistema concurrente
+     * registró las atenciones en otro orden que la cola.
+     */
+    boolean quitar(Paciente paciente);
+
+    /**
+     * Devuelve el siguiente paciente sin sacarlo, o null si no hay ninguno
+     */
+    Paciente peek();
+
+    /**
+     * Saca al siguiente paciente según triage, o null si la cola está vacía
+     */
+    Paciente poll();
+
+    /**
+     * Saca hasta k pacientes en el mismo orden que k llamadas a poll
+     */
+    default List<Paciente> pollTodos(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        List<Paciente> lote = new ArrayList<>(Math.min(k, size()));
+        Paciente paciente;
+        while (lote.size() < k && (paciente = poll()) != null) {
+            lote.add(paciente);
+        }
+        return lote;
+    }
+
+    /**
+     * Cantidad de pacientes en espera con la prioridad indicada (1..3)
+     */
+    int tamano(int prioridad);
+
+    default int size() {
+        int total = 0;
+        for (int prioridad = 1; prioridad <= NIVELES; prioridad++) {
+            total += tamano(prioridad);
+        }
+        return total;
+    }
+
+    default boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * Recorre los pacientes en espera en orden de triage sin copiar ni
+     * ordenar: basta con recorrer los niveles uno tras otro.
+     */
+    @Override
+    Iterator<Paciente> iterator();
+
+    /**
+     * Copia los pacientes en espera ya ordenados por triage (sin reordenar)
+     */
+    default List<Paciente> aLista() {
+        List<Paciente> lista = new ArrayList<>(size());
+        for (Paciente paciente : this) {
+            lista.add(paciente);
+        }
+        return lista;
+    }
+
+    /**
+     * Copia solo los primeros k pacientes en orden de triage, en O(k)
+     */
+    default List<Paciente> primeros(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        List<Paciente> lista = new ArrayList<>(Math.min(k, size()));
+        Iterator<Paciente> it = iterator();
+        while (lista.size() < k && it.hasNext()) {
+            lista.add(it.next());
+        }
+        return lista;
+    }
+
+    /**
+     * Reparte un bloque entre los niveles conservando su orden (un único
+     * recorrido, como un counting sort de tres valores)
+     */
+    static List<Paciente>[] separarPorNivel(List<Paciente> pacientes) {
+        int[] cantidades = new int[NIVELES];
+        for (Paciente paciente : pacientes) {
+            cantidades[paciente.getPrioridad() - 1]++;
+        }
+        List<Paciente>[] niveles = arregloPorNivel(List.class, i -> new ArrayList<>(cantidades[i]));
+        for (Paciente paciente : pacientes) {
+            niveles[paciente.getPrioridad() - 1].add(paciente);
+        }
+        return niveles;
+    }
+
+    /**
+     * Arreglo con un elemento por nivel, cada uno creado por crear(nivel).
+     * Java no deja crear arreglos de un tipo genérico, así que el único cast
+     * sin verificar de las colas queda acá: tipo debe ser la clase de T.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T[] arregloPorNivel(Class<?> tipo, IntFunction<T> crear) {
+        T[] niveles = (T[]) Array.newInstance(tipo, NIVELES);
+        for (int i = 0; i < NIVELES; i++) {
+            niveles[i] = crear.apply(i);
+        }
+        return niveles;
+    }
+
+    /**
+     * Encadena los iteradores de cada nivel, del Rojo al Verde
+     */
+    static Iterator<Paciente> recorrerNiveles(Iterable<Paciente>[] niveles) {
+        return new Iterator<Paciente>() {
+            private int nivel = 0;
+            private Iterator<Paciente> actual = niveles[0].iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!actual.hasNext()) {
+                    if (++nivel >= niveles.length) {
+                        return false;
+                    }
+                    actual = niveles[nivel].iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public Paciente next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return actual.next();
+            }
+        };
+    }
+}
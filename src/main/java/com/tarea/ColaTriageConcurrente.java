@@ -0,0 +1,195 @@
+package com.tarea;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cola de triage para varios puestos de registro y varios médicos a la vez.
+ * Cada nivel de prioridad es una cola MPMC sin bloqueos (ConcurrentLinkedDeque)
+ * y los tamaños se llevan con LongAdder, porque size() de la deque es O(n).
+ * El orden de triage se mantiene porque poll() siempre intenta primero el
+ * nivel Rojo, luego Amarillo y por último Verde.
+ *
+ * Los pacientes cuya atención se deshizo no vuelven al frente de la deque
+ * sino a un mapa ordenado por secuencia de llegada de su nivel (vacío casi
+ * siempre): cada nivel entrega primero al más antiguo entre la cabeza del
+ * mapa y la de la deque, así deshacer en cualquier orden respeta el FIFO.
+ */
+class ColaTriageConcurrente implements ColaTriage {
+    // Una cola por color: [0]=Rojo, [1]=Amarillo, [2]=Verde
+    private final ConcurrentLinkedDeque<Paciente>[] niveles;
+    // Atenciones deshechas por nivel, por secuencia de llegada
+    private final ConcurrentSkipListMap<Long, Paciente>[] devueltos;
+    private final LongAdder[] tamanos;
+
+    public ColaTriageConcurrente() {
+        this.niveles = ColaTriage.arregloPorNivel(ConcurrentLinkedDeque.class, i -> new ConcurrentLinkedDeque<>());
+        this.devueltos = ColaTriage.arregloPorNivel(ConcurrentSkipListMap.class, i -> new ConcurrentSkipListMap<>());
+        this.tamanos = new LongAdder[NIVELES];
+        for (int i = 0; i < NIVELES; i++) {
+            tamanos[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void offer(Paciente paciente) {
+        int nivel = paciente.getPrioridad() - 1;
+        niveles[nivel].addLast(paciente);
+        tamanos[nivel].increment();
+    }
+
+    /**
+     * addAll de ConcurrentLinkedDeque enlaza el bloque aparte y lo engancha
+     * al final con un único CAS, en vez de un CAS por paciente. Los de un
+     * mismo nivel quedan contiguos aunque otros hilos registren a la vez.
+     */
+    @Override
+    public void offerTodos(List<Paciente> pacientes) {
+        List<Paciente>[] porNivel = ColaTriage.separarPorNivel(pacientes);
+        for (int i = 0; i < NIVELES; i++) {
+            if (!porNivel[i].isEmpty()) {
+                niveles[i].addAll(porNivel[i]);
+                tamanos[i].add(porNivel[i].size());
+            }
+        }
+    }
+
+    @Override
+    public void reinsertar(Paciente paciente) {
+        int nivel = paciente.getPrioridad() - 1;
+        devueltos[nivel].put(paciente.getSecuenciaLlegada(), paciente);
+        tamanos[nivel].increment();
+    }
+
+    @Override
+    public boolean quitar(Paciente paciente) {
+        int nivel = paciente.getPrioridad() - 1;
+        if (devueltos[nivel].remove(paciente.getSecuenciaLlegada(), paciente)
+                || niveles[nivel].removeFirstOccurrence(paciente)) {
+            tamanos[nivel].decrement();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Paciente peek() {
+        for (int i = 0; i < NIVELES; i++) {
+            Paciente primero = niveles[i].peekFirst();
+            Map.Entry<Long, Paciente> devuelto = devueltos[i].firstEntry();
+            if (devuelto != null && (primero == null || devuelto.getKey() < primero.getSecuenciaLlegada())) {
+                return devuelto.getValue();
+            }
+            if (primero != null) {
+                return primero;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Paciente poll() {
+        for (int i = 0; i < NIVELES; i++) {
+            Paciente primero = sacarPrimero(i);
+            if (primero != null) {
+                tamanos[i].decrement();
+                return primero;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saca al más antiguo del nivel: el primero de la deque o, si hay uno
+     * anterior, el primero de los devueltos. Si otro médico se lleva al
+     * devuelto en el medio, se sigue con la deque.
+     */
+    private Paciente sacarPrimero(int nivel) {
+        ConcurrentSkipListMap<Long, Paciente> devueltosNivel = devueltos[nivel];
+        if (!devueltosNivel.isEmpty()) {
+            Paciente primero = niveles[nivel].peekFirst();
+            Map.Entry<Long, Paciente> devuelto = devueltosNivel.firstEntry();
+            if (devuelto != null && (primero == null || devuelto.getKey() < primero.getSecuenciaLlegada())) {
+                Map.Entry<Long, Paciente> sacado = devueltosNivel.pollFirstEntry();
+                if (sacado != null) {
+                    return sacado.getValue();
+                }
+            }
+        }
+        return niveles[nivel].pollFirst();
+    }
+
+    /**
+     * Cada nivel descuenta su tamaño una sola vez. Con otros médicos
+     * atendiendo a la vez, el lote puede intercalarse con sus atenciones.
+     */
+    @Override
+    public List<Paciente> pollTodos(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        List<Paciente> lote = new ArrayList<>(Math.min(k, size()));
+        for (int i = 0; i < NIVELES && lote.size() < k; i++) {
+            int antes = lote.size();
+            Paciente primero;
+            while (lote.size() < k && (primero = sacarPrimero(i)) != null) {
+                lote.add(primero);
+            }
+            if (lote.size() > antes) {
+                tamanos[i].add(antes - lote.size());
+            }
+        }
+        return lote;
+    }
+
+    @Override
+    public int tamano(int prioridad) {
+        // Entre el addLast y el increment puede haber un desfase transitorio
+        return (int) Math.max(0, tamanos[prioridad - 1].sum());
+    }
+
+    @Override
+    public Iterator<Paciente> iterator() {
+        Iterable<Paciente>[] enOrden = ColaTriage.arregloPorNivel(Iterable.class, nivel -> devueltos[nivel].isEmpty()
+                ? niveles[nivel]
+                : () -> mezclarPorLlegada(devueltos[nivel].values().iterator(), niveles[nivel].iterator()));
+        return ColaTriage.recorrerNiveles(enOrden);
+    }
+
+    /**
+     * Intercala dos recorridos ya ordenados por secuencia de llegada
+     */
+    private static Iterator<Paciente> mezclarPorLlegada(Iterator<Paciente> a, Iterator<Paciente> b) {
+        return new Iterator<Paciente>() {
+            private Paciente siguienteA = a.hasNext() ? a.next() : null;
+            private Paciente siguienteB = b.hasNext() ? b.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return siguienteA != null || siguienteB != null;
+            }
+
+            @Override
+            public Paciente next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Paciente siguiente;
+                if (siguienteB == null || (siguienteA != null
+                        && siguienteA.getSecuenciaLlegada() < siguienteB.getSecuenciaLlegada())) {
+                    siguiente = siguienteA;
+                    siguienteA = a.hasNext() ? a.next() : null;
+                } else {
+                    siguiente = siguienteB;
+                    siguienteB = b.hasNext() ? b.next() : null;
+                }
+                return siguiente;
+            }
+        };
+    }
+}
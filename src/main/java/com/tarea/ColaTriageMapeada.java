@@ -0,0 +1,588 @@
+package com.tarea;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Cola de triage cuyos pacientes viven fuera del heap, en un archivo mapeado
+ * en memoria. Cada paciente es un registro de ancho fijo y los niveles de
+ * prioridad solo guardan el número de registro (un long), así millones de
+ * pacientes en espera no generan presión sobre el recolector de basura.
+ * Los objetos Paciente se crean solo al consultarlos (peek, poll, recorrer).
+ *
+ * El archivo guarda también el estado (en espera / atendido / libre) y el
+ * orden de atención de cada registro, de modo que al reabrirlo se recupera la
+ * cola y los atendidos. Los atendidos se consultan desde los registros (ver
+ * historial()) y solo se conservan los últimos maximoAtendidos: los más
+ * antiguos se liberan y sus registros se reusan para los que llegan, así el
+ * archivo no crece con cada atención. No es segura para uso concurrente.
+ *
+ * Los textos tienen un máximo de bytes UTF-8 (ver MAX_NOMBRE y MAX_SINTOMAS);
+ * los más largos se rechazan (ver validarTextos).
+ */
+class ColaTriageMapeada implements ColaTriage, AutoCloseable {
+    static final int MAX_NOMBRE = 79;
+    static final int MAX_SINTOMAS = 127;
+
+    private static final int MAGIA = 0x4D415041; // "MAPA"
+    private static final int VERSION = 2;
+
+    // Registro de 256 bytes; el registro 0 es la cabecera del archivo
+    private static final int TAMANO_REGISTRO = 256;
+    private static final int REGISTROS_POR_REGION = 256 * 1024; // 64 MB por región
+    private static final long TAMANO_REGION = (long) TAMANO_REGISTRO * REGISTROS_POR_REGION;
+
+    // Cabecera
+    private static final int CAB_MAGIA = 0;
+    private static final int CAB_VERSION = 4;
+    private static final int CAB_CANTIDAD = 8;
+    private static final int CAB_ORDEN_ATENCION = 16;
+
+    // Campos del registro
+    private static final int REG_ID = 0;
+    private static final int REG_SECUENCIA = 8;
+    private static final int REG_SEGUNDOS = 16;
+    private static final int REG_NANOS = 24;
+    private static final int REG_PRIORIDAD = 28;
+    private static final int REG_ESTADO = 29;
+    private static final int REG_LOTE = 30;      // 1 si siguió a la atención anterior en un pollTodos
+    private static final int REG_ORDEN_ATENCION = 32;
+    private static final int REG_NOMBRE = 40;    // 1 byte de largo + MAX_NOMBRE
+    private static final int REG_INSTANTE_ATENCION = 120; // Epoch ms, para la ventana de deshacer
+    private static final int REG_SINTOMAS = 128; // 1 byte de largo + MAX_SINTOMAS
+
+    private static final byte EN_ESPERA = 0;
+    private static final byte ATENDIDO = 1;
+    private static final byte LIBRE = 2;
+
+    private final FileChannel canal;
+    private final List<MappedByteBuffer> regiones = new ArrayList<>();
+    private final DequeLong[] niveles = new DequeLong[NIVELES];
+    // Registros atendidos en orden de atención; la cima es el último
+    private final DequeLong atendidos = new DequeLong();
+    // Registros liberados, que se reusan antes de agrandar el archivo
+    private final DequeLong libres = new DequeLong();
+    private final int maximoAtendidos;
+    private final Historial historial = new Historial();
+
+    private long cantidad;        // Registros de pacientes usados
+    private long ordenAtencion;   // Último número de orden de atención entregado
+    private long ultimaSecuencia;
+    private long ultimoId;
+    private int tamano;
+
+    private ColaTriageMapeada(FileChannel canal, int maximoAtendidos) {
+        this.canal = canal;
+        this.maximoAtendidos = maximoAtendidos;
+        for (int i = 0; i < NIVELES; i++) {
+            niveles[i] = new DequeLong();
+        }
+    }
+
+    /**
+     * Abre el almacén o lo crea si el archivo no existe o está vacío; conserva
+     * todos los atendidos
+     */
+    public static ColaTriageMapeada abrir(Path archivo) throws IOException {
+        return abrir(archivo, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Abre el almacén conservando solo los últimos maximoAtendidos atendidos.
+     * Si el archivo tenía más, los sobrantes se liberan al abrirlo.
+     */
+    public static ColaTriageMapeada abrir(Path archivo, int maximoAtendidos) throws IOException {
+        if (maximoAtendidos < 1) {
+            throw new IllegalArgumentException("Se debe conservar al menos un atendido");
+        }
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ColaTriageMapeada cola = new ColaTriageMapeada(canal, maximoAtendidos);
+        try {
+            boolean nuevo = canal.size() == 0;
+            ByteBuffer cabecera = cola.region(0);
+            if (nuevo) {
+                cabecera.putInt(CAB_MAGIA, MAGIA).putInt(CAB_VERSION, VERSION);
+            } else if (cabecera.getInt(CAB_MAGIA) != MAGIA || cabecera.getInt(CAB_VERSION) != VERSION) {
+                throw new IOException("El archivo " + archivo + " no es un almacén de triage válido");
+            }
+            cola.cargar();
+            return cola;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reconstruye los niveles, los atendidos y los registros libres
+     * recorriendo los registros usados. Como los registros se reusan, su
+     * número no sigue la llegada: la espera se ordena por secuencia y los
+     * atendidos por orden de atención.
+     */
+    private void cargar() {
+        ByteBuffer cabecera = region(0);
+        cantidad = cabecera.getLong(CAB_CANTIDAD);
+        ordenAtencion = cabecera.getLong(CAB_ORDEN_ATENCION);
+
+        DequeLong enEspera = new DequeLong();
+        DequeLong atendidosLeidos = new DequeLong();
+        for (long registro = 1; registro <= cantidad; registro++) {
+            ByteBuffer region = region(registro);
+            int base = desplazamiento(registro);
+            byte estado = region.get(base + REG_ESTADO);
+            if (estado == LIBRE) {
+                libres.addLast(registro);
+                continue;
+            }
+            ultimaSecuencia = Math.max(ultimaSecuencia, region.getLong(base + REG_SECUENCIA));
+            ultimoId = Math.max(ultimoId, region.getLong(base + REG_ID));
+            if (estado == EN_ESPERA) {
+                enEspera.addLast(registro);
+            } else {
+                atendidosLeidos.addLast(registro);
+            }
+        }
+        for (long registro : ordenarPor(enEspera, REG_SECUENCIA)) {
+            niveles[region(registro).get(desplazamiento(registro) + REG_PRIORIDAD) - 1].addLast(registro);
+            tamano++;
+        }
+        for (long registro : ordenarPor(atendidosLeidos, REG_ORDEN_ATENCION)) {
+            atendidos.addLast(registro);
+        }
+        liberarExcedente();
+    }
+
+    /**
+     * Los registros ordenados por el campo long indicado (único en cada
+     * registro), sin crear un objeto por registro
+     */
+    private long[] ordenarPor(DequeLong registros, int campo) {
+        int n = registros.size();
+        long[] claves = new long[n];
+        long[] ordenados = new long[n];
+        boolean enOrden = true;
+        for (int i = 0; i < n; i++) {
+            ordenados[i] = registros.get(i);
+            claves[i] = region(ordenados[i]).getLong(desplazamiento(ordenados[i]) + campo);
+            enOrden &= i == 0 || claves[i - 1] < claves[i];
+        }
+        if (enOrden) {
+            // Lo habitual si no se reusaron registros
+            return ordenados;
+        }
+        // Heapsort sobre los dos arreglos a la vez
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            hundir(claves, ordenados, i, n);
+        }
+        for (int fin = n - 1; fin > 0; fin--) {
+            intercambiar(claves, ordenados, 0, fin);
+            hundir(claves, ordenados, 0, fin);
+        }
+        return ordenados;
+    }
+
+    private static void hundir(long[] claves, long[] valores, int i, int n) {
+        while (2 * i + 1 < n) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < n && claves[hijo + 1] > claves[hijo]) {
+                hijo++;
+            }
+            if (claves[i] >= claves[hijo]) {
+                return;
+            }
+            intercambiar(claves, valores, i, hijo);
+            i = hijo;
+        }
+    }
+
+    private static void intercambiar(long[] claves, long[] valores, int i, int j) {
+        long clave = claves[i];
+        claves[i] = claves[j];
+        claves[j] = clave;
+        long valor = valores[i];
+        valores[i] = valores[j];
+        valores[j] = valor;
+    }
+
+    /**
+     * Rechaza los textos que no caben en un registro
+     *
+     * @throws IllegalArgumentException si el nombre o los síntomas son demasiado largos
+     */
+    @Override
+    public void validarTextos(String nombre, String sintomas) {
+        if (nombre != null && nombre.getBytes(StandardCharsets.UTF_8).length > MAX_NOMBRE) {
+            throw new IllegalArgumentException("El nombre no puede superar " + MAX_NOMBRE + " bytes");
+        }
+        if (sintomas != null && sintomas.getBytes(StandardCharsets.UTF_8).length > MAX_SINTOMAS) {
+            throw new IllegalArgumentException("Los síntomas no pueden superar " + MAX_SINTOMAS + " bytes");
+        }
+    }
+
+    @Override
+    public void offer(Paciente paciente) {
+        validarTextos(paciente.getNombre(), paciente.getSintomas());
+        boolean reusado = !libres.isEmpty();
+        long registro = reusado ? libres.pollLast() : cantidad + 1;
+        ByteBuffer region = region(registro);
+        int base = desplazamiento(registro);
+        LocalDateTime hora = paciente.getHoraLlegada();
+        region.putLong(base + REG_ID, paciente.getId())
+                .putLong(base + REG_SECUENCIA, paciente.getSecuenciaLlegada())
+                .putLong(base + REG_SEGUNDOS, hora.toEpochSecond(ZoneOffset.UTC))
+                .putInt(base + REG_NANOS, hora.getNano())
+                .put(base + REG_PRIORIDAD, (byte) paciente.getPrioridad())
+                .putLong(base + REG_ORDEN_ATENCION, 0);
+        escribirTexto(region, base + REG_NOMBRE, paciente.getNombre());
+        escribirTexto(region, base + REG_SINTOMAS, paciente.getSintomas());
+
+        // El estado y la cantidad se escriben al final: un registro a medio
+        // escribir sigue libre o fuera de la cantidad
+        region.put(base + REG_ESTADO, EN_ESPERA);
+        if (!reusado) {
+            cantidad = registro;
+            region(0).putLong(CAB_CANTIDAD, cantidad);
+        }
+        niveles[paciente.getPrioridad() - 1].addLast(registro);
+        ultimaSecuencia = Math.max(ultimaSecuencia, paciente.getSecuenciaLlegada());
+        ultimoId = Math.max(ultimoId, paciente.getId());
+        tamano++;
+    }
+
+    @Override
+    public void reinsertar(Paciente paciente) {
+        // El deshacer es LIFO: normalmente es la cima de la pila de atendidos
+        for (int i = atendidos.size() - 1; i >= 0; i--) {
+            long registro = atendidos.get(i);
+            if (leerId(registro) == paciente.getId()) {
+                atendidos.removeAt(i);
+                marcar(registro, EN_ESPERA, 0);
+                volverAEspera(niveles[paciente.getPrioridad() - 1], registro, paciente.getSecuenciaLlegada());
+                tamano++;
+                return;
+            }
+        }
+        throw new IllegalStateException("El paciente " + paciente.getId() + " no figura como atendido");
+    }
+
+    /**
+     * Pone el registro delante de los de su nivel que llegaron después;
+     * normalmente es el más antiguo y va al frente
+     */
+    private void volverAEspera(DequeLong nivel, long registro, long secuencia) {
+        DequeLong anteriores = null;
+        while (!nivel.isEmpty() && leerSecuencia(nivel.peekFirst()) < secuencia) {
+            if (anteriores == null) {
+                anteriores = new DequeLong();
+            }
+            anteriores.addLast(nivel.pollFirst());
+        }
+        nivel.addFirst(registro);
+        while (anteriores != null && !anteriores.isEmpty()) {
+            nivel.addFirst(anteriores.pollLast());
+        }
+    }
+
+    @Override
+    public boolean quitar(Paciente paciente) {
+        DequeLong nivel = niveles[paciente.getPrioridad() - 1];
+        for (int i = 0; i < nivel.size(); i++) {
+            long registro = nivel.get(i);
+            if (leerId(registro) == paciente.getId()) {
+                nivel.removeAt(i);
+                registrarAtencion(registro, false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Paciente peek() {
+        for (DequeLong nivel : niveles) {
+            if (!nivel.isEmpty()) {
+                return leer(nivel.peekFirst());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Paciente poll() {
+        return poll(false);
+    }
+
+    /**
+     * Como k llamadas a poll, pero las atenciones quedan marcadas como un
+     * lote, así se deshacen juntas también después de reabrir
+     */
+    @Override
+    public List<Paciente> pollTodos(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        List<Paciente> lote = new ArrayList<>(Math.min(k, size()));
+        Paciente paciente;
+        while (lote.size() < k && (paciente = poll(!lote.isEmpty())) != null) {
+            lote.add(paciente);
+        }
+        return lote;
+    }
+
+    private Paciente poll(boolean continuaLote) {
+        for (DequeLong nivel : niveles) {
+            if (!nivel.isEmpty()) {
+                long registro = nivel.pollFirst();
+                registrarAtencion(registro, continuaLote);
+                return leer(registro);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int tamano(int prioridad) {
+        return niveles[prioridad - 1].size();
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    @Override
+    public Iterator<Paciente> iterator() {
+        return new Iterator<Paciente>() {
+            private int nivel = 0;
+            private int posicion = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (nivel < NIVELES && posicion >= niveles[nivel].size()) {
+                    nivel++;
+                    posicion = 0;
+                }
+                return nivel < NIVELES;
+            }
+
+            @Override
+            public Paciente next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return leer(niveles[nivel].get(posicion++));
+            }
+        };
+    }
+
+    /**
+     * Los atendidos conservados, leídos de los registros
+     */
+    public RegistroAtendidos historial() {
+        return historial;
+    }
+
+    /**
+     * true si la atención en esa posición del historial siguió a la
+     * anterior en un mismo lote
+     */
+    public boolean continuaLote(int posicion) {
+        long registro = atendidos.get(posicion);
+        return region(registro).get(desplazamiento(registro) + REG_LOTE) == 1;
+    }
+
+    /**
+     * Instante (epoch ms) de la atención en esa posición del historial
+     */
+    public long instanteAtencion(int posicion) {
+        long registro = atendidos.get(posicion);
+        return region(registro).getLong(desplazamiento(registro) + REG_INSTANTE_ATENCION);
+    }
+
+    public long ultimaSecuencia() {
+        return ultimaSecuencia;
+    }
+
+    public long ultimoId() {
+        return ultimoId;
+    }
+
+    /**
+     * Fuerza al disco las páginas modificadas
+     */
+    public void forzar() {
+        for (MappedByteBuffer region : regiones) {
+            region.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        forzar();
+        canal.close();
+    }
+
+    private void registrarAtencion(long registro, boolean continuaLote) {
+        ordenAtencion++;
+        region(registro).put(desplazamiento(registro) + REG_LOTE, (byte) (continuaLote ? 1 : 0));
+        marcar(registro, ATENDIDO, ordenAtencion);
+        region(0).putLong(CAB_ORDEN_ATENCION, ordenAtencion);
+        atendidos.addLast(registro);
+        tamano--;
+        liberarExcedente();
+    }
+
+    /**
+     * Libera los atendidos más antiguos que excedan maximoAtendidos
+     */
+    private void liberarExcedente() {
+        while (atendidos.size() > maximoAtendidos) {
+            long registro = atendidos.pollFirst();
+            marcar(registro, LIBRE, 0);
+            libres.addLast(registro);
+        }
+    }
+
+    private void marcar(long registro, byte estado, long orden) {
+        ByteBuffer region = region(registro);
+        int base = desplazamiento(registro);
+        region.putLong(base + REG_ORDEN_ATENCION, orden).put(base + REG_ESTADO, estado);
+    }
+
+    private long leerId(long registro) {
+        return region(registro).getLong(desplazamiento(registro) + REG_ID);
+    }
+
+    private long leerSecuencia(long registro) {
+        return region(registro).getLong(desplazamiento(registro) + REG_SECUENCIA);
+    }
+
+    private Paciente leer(long registro) {
+        ByteBuffer region = region(registro);
+        int base = desplazamiento(registro);
+        LocalDateTime hora = LocalDateTime.ofEpochSecond(region.getLong(base + REG_SEGUNDOS),
+                region.getInt(base + REG_NANOS), ZoneOffset.UTC);
+        return new Paciente(region.getLong(base + REG_ID), region.getLong(base + REG_SECUENCIA),
+                leerTexto(region, base + REG_NOMBRE), region.get(base + REG_PRIORIDAD),
+                leerTexto(region, base + REG_SINTOMAS), hora);
+    }
+
+    /**
+     * Región mapeada que contiene al registro, mapeándola si hace falta
+     */
+    private MappedByteBuffer region(long registro) {
+        int indice = (int) (registro / REGISTROS_POR_REGION);
+        while (regiones.size() <= indice) {
+            try {
+                regiones.add(canal.map(FileChannel.MapMode.READ_WRITE,
+                        regiones.size() * TAMANO_REGION, TAMANO_REGION));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo ampliar el almacén de pacientes", e);
+            }
+        }
+        return regiones.get(indice);
+    }
+
+    private static int desplazamiento(long registro) {
+        return (int) (registro % REGISTROS_POR_REGION) * TAMANO_REGISTRO;
+    }
+
+    // El largo ya se validó (validarTextos)
+    private static void escribirTexto(ByteBuffer region, int posicion, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        region.put(posicion, (byte) bytes.length);
+        region.put(posicion + 1, bytes);
+    }
+
+    private static String leerTexto(ByteBuffer region, int posicion) {
+        int largo = region.get(posicion) & 0xFF;
+        byte[] bytes = new byte[largo];
+        region.get(posicion + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Vista de los atendidos sobre los registros: el heap solo guarda sus
+     * números de registro, y los pacientes se crean al copiarlos. Las
+     * atenciones ya las anota la cola al sacar a cada paciente y los
+     * deshacer las revierte reinsertar, así que agregar solo guarda el
+     * instante y quitar solo comprueba que la atención esté entre las
+     * últimas.
+     */
+    private final class Historial implements RegistroAtendidos {
+
+        @Override
+        public void agregar(Paciente paciente, long instante) {
+            anotarInstante(atendidos.size() - 1, paciente, instante);
+        }
+
+        @Override
+        public void agregarTodos(List<Paciente> pacientes, long instante) {
+            // Si el lote no cupo entero, sus primeros ya se liberaron
+            int primero = atendidos.size() - pacientes.size();
+            for (int i = Math.max(0, -primero); i < pacientes.size(); i++) {
+                anotarInstante(primero + i, pacientes.get(i), instante);
+            }
+        }
+
+        private void anotarInstante(int posicion, Paciente paciente, long instante) {
+            long registro = atendidos.get(posicion);
+            if (leerId(registro) != paciente.getId()) {
+                throw new IllegalStateException("El paciente " + paciente.getId() + " no es el último atendido");
+            }
+            region(registro).putLong(desplazamiento(registro) + REG_INSTANTE_ATENCION, instante);
+        }
+
+        @Override
+        public boolean quitar(long id) {
+            int limite = Math.max(0, atendidos.size() - HistorialAtendidos.LIMITE_BUSQUEDA);
+            for (int i = atendidos.size() - 1; i >= limite; i--) {
+                if (leerId(atendidos.get(i)) == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int tamano() {
+            return atendidos.size();
+        }
+
+        @Override
+        public int copiar(int desde, Paciente[] destino) {
+            int cantidad = Math.max(0, Math.min(destino.length, atendidos.size() - desde));
+            for (int i = 0; i < cantidad; i++) {
+                destino[i] = leer(atendidos.get(desde + i));
+            }
+            return cantidad;
+        }
+
+        @Override
+        public int retencion() {
+            return maximoAtendidos;
+        }
+
+        // El almacén lo cierra quien lo abrió
+        @Override
+        public void close() {
+        }
+    }
+}
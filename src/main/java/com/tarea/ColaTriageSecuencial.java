@@ -0,0 +1,129 @@
+package com.tarea;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Cola de triage con un buffer circular FIFO por cada nivel de prioridad.
+ * Como la prioridad solo toma los valores 1..3 y los pacientes llegan en
+ * orden de tiempo, basta con atender primero el buffer de menor prioridad
+ * no vacío: se obtiene el mismo orden que la PriorityQueue anterior
+ * (prioridad ascendente y luego secuencia de llegada) con offer y poll en O(1).
+ * No es segura para uso concurrente (ver ColaTriageConcurrente).
+ */
+class ColaTriageSecuencial implements ColaTriage {
+    // Un buffer por color: [0]=Rojo, [1]=Amarillo, [2]=Verde
+    private final ArrayDeque<Paciente>[] niveles;
+    private int tamano;
+
+    public ColaTriageSecuencial() {
+        this.niveles = ColaTriage.arregloPorNivel(ArrayDeque.class, i -> new ArrayDeque<>());
+        this.tamano = 0;
+    }
+
+    @Override
+    public void offer(Paciente paciente) {
+        niveles[paciente.getPrioridad() - 1].addLast(paciente);
+        tamano++;
+    }
+
+    /**
+     * Cada nivel crece una sola vez para todo el bloque
+     */
+    @Override
+    public void offerTodos(List<Paciente> pacientes) {
+        List<Paciente>[] porNivel = ColaTriage.separarPorNivel(pacientes);
+        for (int i = 0; i < NIVELES; i++) {
+            niveles[i].addAll(porNivel[i]);
+        }
+        tamano += pacientes.size();
+    }
+
+    @Override
+    public void reinsertar(Paciente paciente) {
+        ArrayDeque<Paciente> nivel = niveles[paciente.getPrioridad() - 1];
+        ArrayDeque<Paciente> anteriores = null;
+        while (!nivel.isEmpty() && nivel.peekFirst().getSecuenciaLlegada() < paciente.getSecuenciaLlegada()) {
+            if (anteriores == null) {
+                anteriores = new ArrayDeque<>();
+            }
+            anteriores.push(nivel.pollFirst());
+        }
+        nivel.addFirst(paciente);
+        while (anteriores != null && !anteriores.isEmpty()) {
+            nivel.addFirst(anteriores.pop());
+        }
+        tamano++;
+    }
+
+    @Override
+    public boolean quitar(Paciente paciente) {
+        if (niveles[paciente.getPrioridad() - 1].removeFirstOccurrence(paciente)) {
+            tamano--;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Paciente peek() {
+        for (ArrayDeque<Paciente> nivel : niveles) {
+            Paciente primero = nivel.peekFirst();
+            if (primero != null) {
+                return primero;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Paciente poll() {
+        for (ArrayDeque<Paciente> nivel : niveles) {
+            Paciente primero = nivel.pollFirst();
+            if (primero != null) {
+                tamano--;
+                return primero;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Vacía los niveles en orden y descuenta el tamaño una sola vez
+     */
+    @Override
+    public List<Paciente> pollTodos(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        List<Paciente> lote = new ArrayList<>(Math.min(k, tamano));
+        for (ArrayDeque<Paciente> nivel : niveles) {
+            while (lote.size() < k && !nivel.isEmpty()) {
+                lote.add(nivel.pollFirst());
+            }
+        }
+        tamano -= lote.size();
+        return lote;
+    }
+
+    @Override
+    public int tamano(int prioridad) {
+        return niveles[prioridad - 1].size();
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    @Override
+    public Iterator<Paciente> iterator() {
+        return ColaTriage.recorrerNiveles(niveles);
+    }
+}
@@ -0,0 +1,107 @@
+package com.tarea;
+import java.util.NoSuchElementException;
+
+/**
+ * Buffer circular de valores long sin objetos intermedios (a diferencia de
+ * ArrayDeque&lt;Long&gt;, que guarda un Long en el heap por elemento).
+ * No es seguro para uso concurrente.
+ */
+class DequeLong {
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private long[] elementos;
+    private int cabeza; // Índice del primero
+    private int tamano;
+
+    public DequeLong() {
+        this.elementos = new long[CAPACIDAD_INICIAL];
+    }
+
+    public void addFirst(long valor) {
+        asegurarEspacio();
+        cabeza = (cabeza - 1) & (elementos.length - 1);
+        elementos[cabeza] = valor;
+        tamano++;
+    }
+
+    public void addLast(long valor) {
+        asegurarEspacio();
+        elementos[(cabeza + tamano) & (elementos.length - 1)] = valor;
+        tamano++;
+    }
+
+    public long peekFirst() {
+        if (tamano == 0) {
+            throw new NoSuchElementException();
+        }
+        return elementos[cabeza];
+    }
+
+    public long pollFirst() {
+        long valor = peekFirst();
+        cabeza = (cabeza + 1) & (elementos.length - 1);
+        tamano--;
+        return valor;
+    }
+
+    public long peekLast() {
+        if (tamano == 0) {
+            throw new NoSuchElementException();
+        }
+        return elementos[(cabeza + tamano - 1) & (elementos.length - 1)];
+    }
+
+    public long pollLast() {
+        long valor = peekLast();
+        tamano--;
+        return valor;
+    }
+
+    /**
+     * Elemento en la posición i contando desde el primero
+     */
+    public long get(int i) {
+        if (i < 0 || i >= tamano) {
+            throw new IndexOutOfBoundsException("Índice " + i + " con tamaño " + tamano);
+        }
+        return elementos[(cabeza + i) & (elementos.length - 1)];
+    }
+
+    /**
+     * Quita el elemento en la posición i desplazando los siguientes, en O(n)
+     */
+    public long removeAt(int i) {
+        long valor = get(i);
+        for (int j = i; j < tamano - 1; j++) {
+            elementos[(cabeza + j) & (elementos.length - 1)] = elementos[(cabeza + j + 1) & (elementos.length - 1)];
+        }
+        tamano--;
+        return valor;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    public void clear() {
+        cabeza = 0;
+        tamano = 0;
+    }
+
+    // La capacidad es siempre potencia de dos para usar máscaras en lugar de módulo
+    private void asegurarEspacio() {
+        if (tamano < elementos.length) {
+            return;
+        }
+        long[] nuevos = new long[elementos.length * 2];
+        for (int i = 0; i < tamano; i++) {
+            nuevos[i] = elementos[(cabeza + i) & (elementos.length - 1)];
+        }
+        elementos = nuevos;
+        cabeza = 0;
+    }
+}
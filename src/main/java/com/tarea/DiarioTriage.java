@@ -0,0 +1,683 @@
+package com.tarea;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de escritura anticipada (write-ahead log) del sistema de triage.
+ * Cada registro, atención y deshacer se anota en un archivo de solo anexado
+ * antes de aplicarse en memoria; al arrancar, el estado se reconstruye
+ * reproduciendo el diario.
+ *
+ * Formato de cada entrada: [int longitud][int crc32][byte tipo][datos].
+ * Si el proceso muere a mitad de una escritura, la última entrada queda
+ * incompleta o con CRC inválido y se descarta al reproducir.
+ *
+ * El diario vive en un directorio y se parte en segmentos (diario-N.wal).
+ * Al superar el tamaño de segmento se abre uno nuevo y, en segundo plano,
+ * se genera la instantánea N (instantanea-N.snap) con el estado previo al
+ * segmento N: se carga la instantánea anterior en un sistema aparte y se le
+ * reproducen los segmentos cerrados, sin tocar ni pausar el sistema en uso.
+ * Después se borran los segmentos e instantáneas anteriores, así el arranque
+ * lee una instantánea y una cola corta de diario.
+ */
+class DiarioTriage implements AutoCloseable {
+    /**
+     * Cuándo se fuerza el diario al disco (fsync)
+     */
+    enum PoliticaSincronizacion {
+        // Cada operación espera a estar en disco. Las operaciones concurrentes
+        // comparten un mismo fsync (group commit).
+        CADA_OPERACION,
+        // Las entradas se acumulan en memoria y un hilo las escribe y sincroniza
+        // cada N ms: un fallo puede perder como máximo ese intervalo.
+        CADA_N_MS,
+        // Cada entrada se entrega al sistema operativo sin fsync; sobrevive a
+        // la caída de la JVM pero no a la del equipo.
+        SISTEMA
+    }
+
+    static final byte REGISTRO = 1;
+    static final byte ATENCION = 2;
+    static final byte DESHACER = 3;
+    // Atención que sigue a la anterior en un mismo atenderLote
+    static final byte ATENCION_LOTE = 4;
+
+    private static final int MAGIA = 0x54524941; // "TRIA"
+    private static final int VERSION = 1;
+    private static final int TAMANO_CABECERA = 8;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    static final long TAMANO_SEGMENTO_DEFECTO = 8L * 1024 * 1024;
+
+    private static final Pattern NOMBRE_SEGMENTO = Pattern.compile("diario-(\\d+)\\.wal");
+    private static final Pattern NOMBRE_INSTANTANEA = Pattern.compile("instantanea-(\\d+)\\.snap");
+
+    private final Path directorio;
+    private final PoliticaSincronizacion politica;
+    private final long tamanoSegmento;
+    private final ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService sincronizador;
+    private final ExecutorService compactador;
+
+    // Segmento abierto y sus bytes; protegidos por this
+    private FileChannel canal;
+    private long segmentoActual;
+    private long bytesSegmento;
+    private volatile boolean rotacionPendiente;
+
+    // Bytes anotados (incluye lo que aún está en el buffer); protegido por this
+    private long escrito;
+    // Bytes que ya están en disco; protegido por candadoSincronizacion
+    private volatile long durable;
+    // fsync hechos; protegido por candadoSincronizacion
+    private long sincronizaciones;
+    private final Object candadoSincronizacion = new Object();
+    private volatile IOException errorSincronizacion;
+    private volatile IOException errorCompactacion;
+
+    private DiarioTriage(Path directorio, long segmento, PoliticaSincronizacion politica,
+                         long intervaloMs, long tamanoSegmento) throws IOException {
+        this.directorio = directorio;
+        this.politica = politica;
+        this.tamanoSegmento = tamanoSegmento;
+        this.segmentoActual = segmento;
+        this.canal = crearSegmento(directorio, segmento);
+        this.bytesSegmento = TAMANO_CABECERA;
+        this.compactador = Executors.newSingleThreadExecutor(r -> {
+            Thread hilo = new Thread(r, "diario-triage-compactador");
+            hilo.setDaemon(true);
+            hilo.setPriority(Thread.MIN_PRIORITY);
+            return hilo;
+        });
+        if (politica == PoliticaSincronizacion.CADA_N_MS) {
+            this.sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "diario-triage-sync");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            sincronizador.scheduleWithFixedDelay(this::sincronizarPeriodico,
+                    intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.sincronizador = null;
+        }
+    }
+
+    /**
+     * Abre (o crea) el diario con el tamaño de segmento por defecto
+     *
+     * @see #abrir(Path, PoliticaSincronizacion, long, long, SistemaTriageUrgencias)
+     */
+    public static DiarioTriage abrir(Path directorio, PoliticaSincronizacion politica, long intervaloMs,
+                                     SistemaTriageUrgencias sistema) throws IOException {
+        return abrir(directorio, politica, intervaloMs, TAMANO_SEGMENTO_DEFECTO, sistema);
+    }
+
+    /**
+     * Abre (o crea) el diario en el directorio y reconstruye en el sistema el
+     * estado que contiene: la instantánea más reciente que sea válida y los
+     * segmentos posteriores. El sistema debe estar vacío y sin otro diario.
+     *
+     * @param intervaloMs    período de sincronización para CADA_N_MS (ignorado en las demás)
+     * @param tamanoSegmento bytes a partir de los cuales se abre un segmento nuevo
+     */
+    public static DiarioTriage abrir(Path directorio, PoliticaSincronizacion politica, long intervaloMs,
+                                     long tamanoSegmento, SistemaTriageUrgencias sistema) throws IOException {
+        Files.createDirectories(directorio);
+        List<Long> segmentos = numerosDeArchivos(directorio, NOMBRE_SEGMENTO);
+        List<Long> instantaneas = numerosDeArchivos(directorio, NOMBRE_INSTANTANEA);
+
+        long base = cargarInstantanea(directorio, instantaneas, sistema);
+        Map<Long, Paciente> pacientes = indexarPacientes(sistema);
+        long ultimo = base - 1;
+        for (long segmento : segmentos) {
+            if (segmento >= base) {
+                reproducir(rutaSegmento(directorio, segmento), sistema, pacientes);
+            }
+            ultimo = Math.max(ultimo, segmento);
+        }
+        borrarAnteriores(directorio, base);
+        // Se empieza siempre un segmento nuevo: el último pudo quedar con una
+        // entrada a medio escribir, que ya se descartó al reproducir
+        return new DiarioTriage(directorio, ultimo + 1, politica, intervaloMs, tamanoSegmento);
+    }
+
+    /**
+     * Carga la instantánea válida más reciente
+     *
+     * @return número de segmento desde el que hay que reproducir (1 si no hay instantánea)
+     */
+    private static long cargarInstantanea(Path directorio, List<Long> instantaneas,
+                                          SistemaTriageUrgencias sistema) {
+        for (int i = instantaneas.size() - 1; i >= 0; i--) {
+            long numero = instantaneas.get(i);
+            try {
+                InstantaneaTriage.leer(rutaInstantanea(directorio, numero), sistema);
+                return numero;
+            } catch (IOException e) {
+                // Dañada o incompleta: se prueba con la anterior
+            }
+        }
+        return 1;
+    }
+
+    private static Map<Long, Paciente> indexarPacientes(SistemaTriageUrgencias sistema) {
+        Map<Long, Paciente> pacientes = new HashMap<>();
+        for (Paciente p : sistema.enEspera()) {
+            pacientes.put(p.getId(), p);
+        }
+        for (Paciente p : sistema.atendidos()) {
+            pacientes.put(p.getId(), p);
+        }
+        return pacientes;
+    }
+
+    /**
+     * Lee las entradas válidas de un segmento y las aplica al sistema; se
+     * detiene en la primera entrada incompleta o con CRC inválido.
+     */
+    private static void reproducir(Path archivo, SistemaTriageUrgencias sistema,
+                                   Map<Long, Paciente> pacientes) throws IOException {
+        try (InputStream entrada = new BufferedInputStream(Files.newInputStream(archivo), TAMANO_BUFFER);
+             DataInputStream datos = new DataInputStream(entrada)) {
+            try {
+                if (datos.readInt() != MAGIA || datos.readInt() != VERSION) {
+                    throw new IOException("El archivo " + archivo + " no es un diario de triage válido");
+                }
+            } catch (EOFException e) {
+                return;
+            }
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] entradaBytes;
+                int crcEsperado;
+                try {
+                    int longitud = datos.readInt();
+                    crcEsperado = datos.readInt();
+                    if (longitud <= 0 || longitud > TAMANO_BUFFER) {
+                        return;
+                    }
+                    entradaBytes = new byte[longitud];
+                    datos.readFully(entradaBytes);
+                } catch (EOFException e) {
+                    return;
+                }
+                crc.reset();
+                crc.update(entradaBytes);
+                if ((int) crc.getValue() != crcEsperado) {
+                    return;
+                }
+                aplicar(ByteBuffer.wrap(entradaBytes), sistema, pacientes);
+            }
+        }
+    }
+
+    private static void aplicar(ByteBuffer entrada, SistemaTriageUrgencias sistema,
+                                Map<Long, Paciente> pacientes) throws IOException {
+        byte tipo = entrada.get();
+        long id = entrada.getLong();
+        if (tipo == REGISTRO) {
+            long secuencia = entrada.getLong();
+            int prioridad = entrada.get();
+            long segundos = entrada.getLong();
+            int nanos = entrada.getInt();
+            String nombre = leerTexto(entrada);
+            String sintomas = leerTexto(entrada);
+            LocalDateTime hora = LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC);
+            Paciente paciente = new Paciente(id, secuencia, nombre, prioridad, sintomas, hora);
+            pacientes.put(id, paciente);
+            sistema.reponerRegistro(paciente);
+            return;
+        }
+
+        Paciente paciente = pacientes.get(id);
+        if (paciente == null) {
+            throw new IOException("El diario referencia al paciente " + id + " sin registrarlo");
+        }
+        if (tipo == ATENCION || tipo == ATENCION_LOTE) {
+            // Las entradas sin instante quedan fuera de cualquier ventana de deshacer
+            long instante = entrada.remaining() >= 8 ? entrada.getLong() : 0;
+            sistema.reponerAtencion(paciente, tipo == ATENCION_LOTE, instante);
+        } else if (tipo == DESHACER) {
+            sistema.reponerDeshacer(paciente);
+        } else {
+            throw new IOException("Tipo de entrada desconocido en el diario: " + tipo);
+        }
+    }
+
+    public void registrar(Paciente paciente) {
+        esperar(anotarRegistro(paciente));
+    }
+
+    /**
+     * Anota un bloque de registros tomando el candado una vez y esperando al
+     * disco una sola vez. Cada paciente sigue siendo una entrada REGISTRO,
+     * así la reproducción no cambia.
+     */
+    public void registrarLote(List<Paciente> pacientes) {
+        esperar(anotarRegistros(pacientes));
+    }
+
+    /**
+     * Anota el registro sin esperar al disco, para que quien registra pueda
+     * encolar al paciente en el mismo orden en que quedó en el diario
+     *
+     * @return posición que hay que pasarle a esperar
+     */
+    long anotarRegistro(Paciente paciente) {
+        synchronized (this) {
+            long fin = escribirRegistro(paciente);
+            entregarSiCorresponde();
+            return fin;
+        }
+    }
+
+    /**
+     * Como anotarRegistro, para un bloque
+     */
+    long anotarRegistros(List<Paciente> pacientes) {
+        long fin = 0;
+        synchronized (this) {
+            for (Paciente paciente : pacientes) {
+                fin = escribirRegistro(paciente);
+            }
+            entregarSiCorresponde();
+        }
+        return fin;
+    }
+
+    /**
+     * Espera, según la política, a que lo anotado hasta fin llegue al disco
+     */
+    void esperar(long fin) {
+        if (fin > 0) {
+            asegurar(fin);
+        }
+    }
+
+    /**
+     * Requiere el candado de this
+     */
+    private long escribirRegistro(Paciente paciente) {
+        byte[] nombre = paciente.getNombre().getBytes(StandardCharsets.UTF_8);
+        byte[] sintomas = paciente.getSintomas().getBytes(StandardCharsets.UTF_8);
+        LocalDateTime hora = paciente.getHoraLlegada();
+        int longitud = 1 + 8 + 8 + 1 + 8 + 4 + 4 + nombre.length + 4 + sintomas.length;
+        ByteBuffer datos = reservar(longitud);
+        datos.put(REGISTRO).putLong(paciente.getId()).putLong(paciente.getSecuenciaLlegada())
+                .put((byte) paciente.getPrioridad())
+                .putLong(hora.toEpochSecond(ZoneOffset.UTC)).putInt(hora.getNano())
+                .putInt(nombre.length).put(nombre)
+                .putInt(sintomas.length).put(sintomas);
+        return cerrarEntrada(datos, longitud);
+    }
+
+    /**
+     * @param instante reloj.millis() de la atención, para la ventana de
+     *                 deshacer al reproducir
+     */
+    public void atencion(Paciente paciente, long instante) {
+        atencionLote(List.of(paciente), instante);
+    }
+
+    public void deshacer(Paciente paciente) {
+        anotarId(DESHACER, paciente.getId());
+    }
+
+    /**
+     * Una entrada ATENCION para el primero y ATENCION_LOTE para cada uno de
+     * los demás, con una sola espera al disco
+     */
+    public void atencionLote(List<Paciente> pacientes, long instante) {
+        long fin = 0;
+        synchronized (this) {
+            byte tipo = ATENCION;
+            for (Paciente paciente : pacientes) {
+                ByteBuffer datos = reservar(1 + 8 + 8);
+                datos.put(tipo).putLong(paciente.getId()).putLong(instante);
+                fin = cerrarEntrada(datos, 1 + 8 + 8);
+                tipo = ATENCION_LOTE;
+            }
+            entregarSiCorresponde();
+        }
+        esperar(fin);
+    }
+
+    /**
+     * Una entrada DESHACER por paciente, en el orden en que se reinsertan,
+     * con una sola espera al disco
+     */
+    public void deshacerLote(List<Paciente> pacientes) {
+        anotarIds(DESHACER, pacientes);
+    }
+
+    private void anotarIds(byte tipo, List<Paciente> pacientes) {
+        if (pacientes.isEmpty()) {
+            return;
+        }
+        long fin = 0;
+        synchronized (this) {
+            for (Paciente paciente : pacientes) {
+                ByteBuffer datos = reservar(1 + 8);
+                datos.put(tipo).putLong(paciente.getId());
+                fin = cerrarEntrada(datos, 1 + 8);
+            }
+            entregarSiCorresponde();
+        }
+        asegurar(fin);
+    }
+
+    private void anotarId(byte tipo, long id) {
+        long fin;
+        synchronized (this) {
+            ByteBuffer datos = reservar(1 + 8);
+            datos.put(tipo).putLong(id);
+            fin = cerrarEntrada(datos, 1 + 8);
+            entregarSiCorresponde();
+        }
+        asegurar(fin);
+    }
+
+    /**
+     * Deja espacio para la cabecera de la entrada y devuelve el buffer
+     * posicionado donde empiezan los datos. Requiere el candado de this.
+     */
+    private ByteBuffer reservar(int longitud) {
+        if (8 + longitud > TAMANO_BUFFER) {
+            throw new IllegalArgumentException("Entrada demasiado grande para el diario");
+        }
+        if (buffer.remaining() < 8 + longitud) {
+            vaciarBuffer();
+        }
+        buffer.position(buffer.position() + 8);
+        return buffer;
+    }
+
+    /**
+     * Completa longitud y CRC de la entrada recién escrita. Requiere el candado de this.
+     *
+     * @return posición lógica del diario al final de la entrada
+     */
+    private long cerrarEntrada(ByteBuffer datos, int longitud) {
+        int inicioDatos = datos.position() - longitud;
+        crc.reset();
+        crc.update(datos.array(), inicioDatos, longitud);
+        datos.putInt(inicioDatos - 8, longitud).putInt(inicioDatos - 4, (int) crc.getValue());
+        escrito += 8 + longitud;
+        bytesSegmento += 8 + longitud;
+        if (bytesSegmento >= tamanoSegmento) {
+            rotacionPendiente = true;
+        }
+        return escrito;
+    }
+
+    /**
+     * Con SISTEMA, cada operación (o bloque) llega al sistema operativo antes
+     * de volver. Requiere el candado de this.
+     */
+    private void entregarSiCorresponde() {
+        if (politica == PoliticaSincronizacion.SISTEMA) {
+            vaciarBuffer();
+        }
+    }
+
+    /**
+     * Entrega al sistema operativo lo acumulado en el buffer. Requiere el candado de this.
+     */
+    private void vaciarBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el diario de triage", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void asegurar(long fin) {
+        if (politica == PoliticaSincronizacion.CADA_OPERACION) {
+            sincronizarHasta(fin);
+        } else if (errorSincronizacion != null) {
+            throw new UncheckedIOException("Falló la sincronización del diario", errorSincronizacion);
+        }
+        if (rotacionPendiente) {
+            rotar();
+        }
+    }
+
+    /**
+     * Cierra el segmento actual, abre el siguiente y encarga en segundo plano
+     * la instantánea correspondiente. Solo la apertura del archivo nuevo ocurre
+     * con el diario bloqueado; el sistema no se copia ni se detiene.
+     */
+    private void rotar() {
+        long nuevo;
+        synchronized (candadoSincronizacion) {
+            synchronized (this) {
+                if (!rotacionPendiente) {
+                    return;
+                }
+                rotacionPendiente = false;
+                vaciarBuffer();
+                try {
+                    canal.force(false);
+                    canal.close();
+                    canal = crearSegmento(directorio, segmentoActual + 1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("No se pudo abrir un segmento nuevo del diario", e);
+                }
+                segmentoActual++;
+                bytesSegmento = TAMANO_CABECERA;
+                durable = escrito;
+                nuevo = segmentoActual;
+            }
+        }
+        compactador.execute(() -> compactar(nuevo));
+    }
+
+    /**
+     * Fuerza un segmento nuevo y su instantánea aunque no se haya llegado al
+     * tamaño de segmento (por ejemplo, al cerrar el turno)
+     */
+    public void compactarAhora() {
+        rotacionPendiente = true;
+        rotar();
+    }
+
+    /**
+     * Genera la instantánea N a partir de la anterior y de los segmentos
+     * cerrados, y borra lo que deja de hacer falta. Corre en el hilo compactador.
+     */
+    private void compactar(long hasta) {
+        try {
+            SistemaTriageUrgencias sombra = new SistemaTriageUrgencias();
+            List<Long> instantaneas = numerosDeArchivos(directorio, NOMBRE_INSTANTANEA);
+            instantaneas.removeIf(n -> n > hasta);
+            long base = cargarInstantanea(directorio, instantaneas, sombra);
+            Map<Long, Paciente> pacientes = indexarPacientes(sombra);
+            for (long segmento : numerosDeArchivos(directorio, NOMBRE_SEGMENTO)) {
+                if (segmento >= base && segmento < hasta) {
+                    reproducir(rutaSegmento(directorio, segmento), sombra, pacientes);
+                }
+            }
+            InstantaneaTriage.escribir(rutaInstantanea(directorio, hasta), sombra);
+            borrarAnteriores(directorio, hasta);
+        } catch (IOException | RuntimeException e) {
+            errorCompactacion = e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    /**
+     * Error de la última compactación en segundo plano, o null. Un fallo no
+     * pierde datos: los segmentos se conservan hasta que haya una instantánea.
+     */
+    public IOException errorCompactacion() {
+        return errorCompactacion;
+    }
+
+    /**
+     * Group commit: el primer hilo que entra hace un solo fsync que cubre
+     * todo lo anotado hasta ese momento; los que esperaban detrás suelen
+     * encontrar su entrada ya en disco y salen sin otro fsync.
+     */
+    private void sincronizarHasta(long fin) {
+        if (durable >= fin) {
+            return;
+        }
+        synchronized (candadoSincronizacion) {
+            if (durable >= fin) {
+                return;
+            }
+            long hasta;
+            synchronized (this) {
+                vaciarBuffer();
+                hasta = escrito;
+            }
+            try {
+                canal.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo sincronizar el diario de triage", e);
+            }
+            durable = hasta;
+            sincronizaciones++;
+        }
+    }
+
+    /**
+     * Cuántos fsync hizo el diario (sin contar los de rotar segmentos); con
+     * CADA_OPERACION las operaciones concurrentes comparten uno
+     */
+    long sincronizaciones() {
+        synchronized (candadoSincronizacion) {
+            return sincronizaciones;
+        }
+    }
+
+    private void sincronizarPeriodico() {
+        try {
+            long pendiente;
+            synchronized (this) {
+                pendiente = escrito;
+            }
+            sincronizarHasta(pendiente);
+        } catch (UncheckedIOException e) {
+            errorSincronizacion = e.getCause();
+        }
+    }
+
+    /**
+     * Escribe y sincroniza todo lo pendiente y cierra el archivo
+     */
+    @Override
+    public void close() throws IOException {
+        compactador.shutdown();
+        try {
+            compactador.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (sincronizador != null) {
+            sincronizador.shutdown();
+            try {
+                sincronizador.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            long pendiente;
+            synchronized (this) {
+                pendiente = escrito;
+            }
+            sincronizarHasta(pendiente);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            synchronized (this) {
+                canal.close();
+            }
+        }
+    }
+
+    private static FileChannel crearSegmento(Path directorio, long numero) throws IOException {
+        FileChannel nuevo = FileChannel.open(rutaSegmento(directorio, numero), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA).putInt(MAGIA).putInt(VERSION);
+        cabecera.flip();
+        while (cabecera.hasRemaining()) {
+            nuevo.write(cabecera);
+        }
+        return nuevo;
+    }
+
+    /**
+     * Borra los segmentos e instantáneas anteriores a la instantánea indicada
+     */
+    private static void borrarAnteriores(Path directorio, long instantanea) throws IOException {
+        for (long segmento : numerosDeArchivos(directorio, NOMBRE_SEGMENTO)) {
+            if (segmento < instantanea) {
+                Files.deleteIfExists(rutaSegmento(directorio, segmento));
+            }
+        }
+        for (long numero : numerosDeArchivos(directorio, NOMBRE_INSTANTANEA)) {
+            if (numero < instantanea) {
+                Files.deleteIfExists(rutaInstantanea(directorio, numero));
+            }
+        }
+    }
+
+    private static List<Long> numerosDeArchivos(Path directorio, Pattern patron) throws IOException {
+        List<Long> numeros = new ArrayList<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio)) {
+            for (Path archivo : archivos) {
+                Matcher m = patron.matcher(archivo.getFileName().toString());
+                if (m.matches()) {
+                    numeros.add(Long.parseLong(m.group(1)));
+                }
+            }
+        }
+        Collections.sort(numeros);
+        return numeros;
+    }
+
+    private static Path rutaSegmento(Path directorio, long numero) {
+        return directorio.resolve(String.format("diario-%016d.wal", numero));
+    }
+
+    private static Path rutaInstantanea(Path directorio, long numero) {
+        return directorio.resolve(String.format("instantanea-%016d.snap", numero));
+    }
+
+    private static String leerTexto(ByteBuffer entrada) {
+        byte[] bytes = new byte[entrada.getInt()];
+        entrada.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,217 @@
+package com.tarea;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estadísticas en vivo del triage: tiempo de espera (de la llegada a la
+ * atención) por prioridad, atenciones por minuto y profundidad de la cola
+ * por minuto. Cada atención y cada registro las actualizan en O(1) y sin
+ * candados, desde el hilo que hizo la operación.
+ *
+ * Deshacer no descuenta la espera ya registrada: las estadísticas cuentan
+ * las atenciones realizadas. Las esperas se miden entre instantes (no entre
+ * horas locales), así un cambio de horario no les suma ni les resta una hora.
+ */
+class EstadisticasTriage {
+    // Minutos de historia que se guardan para atenciones y profundidad
+    static final int MINUTOS = 60;
+
+    private final Clock reloj;
+    private final HistogramaTiempos[] esperas = new HistogramaTiempos[ColaTriage.NIVELES];
+    private final SeriePorMinuto atenciones = new SeriePorMinuto();
+    private final SerieProfundidad profundidad = new SerieProfundidad();
+
+    public EstadisticasTriage(Clock reloj) {
+        this.reloj = reloj;
+        for (int i = 0; i < esperas.length; i++) {
+            esperas[i] = new HistogramaTiempos();
+        }
+    }
+
+    /**
+     * @param enEspera pacientes que quedaron en espera tras la atención
+     */
+    public void atencion(Paciente paciente, int enEspera) {
+        long ahora = reloj.millis();
+        esperas[paciente.getPrioridad() - 1].registrar(ahora - paciente.getLlegadaEpochMilli());
+        long minuto = ahora / 60_000;
+        atenciones.sumar(minuto, 1);
+        profundidad.observar(minuto, enEspera);
+    }
+
+    /**
+     * Un lote atendido de una vez: una lectura del reloj y un solo
+     * incremento de las atenciones del minuto
+     *
+     * @param enEspera pacientes que quedaron en espera tras el lote
+     */
+    public void atencionLote(List<Paciente> pacientes, int enEspera) {
+        long ahora = reloj.millis();
+        for (Paciente paciente : pacientes) {
+            esperas[paciente.getPrioridad() - 1].registrar(ahora - paciente.getLlegadaEpochMilli());
+        }
+        long minuto = ahora / 60_000;
+        atenciones.sumar(minuto, pacientes.size());
+        profundidad.observar(minuto, enEspera);
+    }
+
+    /**
+     * @param enEspera pacientes en espera tras el registro
+     */
+    public void registro(int enEspera) {
+        profundidad.observar(reloj.millis() / 60_000, enEspera);
+    }
+
+    public Resumen resumen() {
+        HistogramaTiempos.Resumen[] porPrioridad = new HistogramaTiempos.Resumen[esperas.length];
+        for (int i = 0; i < esperas.length; i++) {
+            porPrioridad[i] = esperas[i].resumen();
+        }
+        long minuto = reloj.millis() / 60_000;
+        return new Resumen(porPrioridad, atenciones.ultimos(minuto), profundidad.ultimos(minuto));
+    }
+
+    /**
+     * Foto de las estadísticas. Las series por minuto empiezan por el minuto
+     * en curso (índice 0) y siguen hacia atrás.
+     */
+    static final class Resumen {
+        private final HistogramaTiempos.Resumen[] esperas;
+        private final long[] atencionesPorMinuto;
+        private final long[] profundidadPorMinuto;
+
+        private Resumen(HistogramaTiempos.Resumen[] esperas, long[] atencionesPorMinuto,
+                        long[] profundidadPorMinuto) {
+            this.esperas = esperas;
+            this.atencionesPorMinuto = atencionesPorMinuto;
+            this.profundidadPorMinuto = profundidadPorMinuto;
+        }
+
+        /**
+         * Tiempos de espera en milisegundos de los pacientes de una prioridad
+         */
+        public HistogramaTiempos.Resumen espera(int prioridad) {
+            return esperas[prioridad - 1];
+        }
+
+        /**
+         * Atenciones del último minuto completo
+         */
+        public long atencionesUltimoMinuto() {
+            return atencionesPorMinuto[1];
+        }
+
+        public long[] atencionesPorMinuto() {
+            return atencionesPorMinuto.clone();
+        }
+
+        /**
+         * Máxima cantidad en espera en cada minuto. Un minuto sin
+         * operaciones repite la cantidad que dejó la última anterior, y uno
+         * con operaciones cuenta también la que tenía al empezar.
+         */
+        public long[] profundidadPorMinuto() {
+            return profundidadPorMinuto.clone();
+        }
+    }
+
+    /**
+     * Un valor por minuto en un anillo de MINUTOS ranuras. Cada ranura
+     * recuerda a qué minuto pertenece y se reinicia al reutilizarse; en el
+     * cambio de minuto puede perderse algún incremento concurrente.
+     */
+    private static class SeriePorMinuto {
+        final AtomicLongArray valores = new AtomicLongArray(MINUTOS);
+        final AtomicLongArray minutos = new AtomicLongArray(MINUTOS);
+
+        void sumar(long minuto, long delta) {
+            int ranura = ranura(minuto);
+            if (ranura >= 0) {
+                valores.addAndGet(ranura, delta);
+            }
+        }
+
+        long[] ultimos(long minutoActual) {
+            long[] serie = new long[MINUTOS];
+            for (int i = 0; i < MINUTOS; i++) {
+                long minuto = minutoActual - i;
+                int ranura = (int) Math.floorMod(minuto, (long) MINUTOS);
+                serie[i] = minutos.get(ranura) == minuto ? valores.get(ranura) : 0;
+            }
+            return serie;
+        }
+
+        // -1 si el minuto es anterior al que ya ocupa la ranura
+        int ranura(long minuto) {
+            int ranura = (int) Math.floorMod(minuto, (long) MINUTOS);
+            long visto = minutos.get(ranura);
+            if (visto == minuto) {
+                return ranura;
+            }
+            if (visto > minuto) {
+                return -1;
+            }
+            if (minutos.compareAndSet(ranura, visto, minuto)) {
+                reiniciar(ranura);
+            }
+            return ranura;
+        }
+
+        void reiniciar(int ranura) {
+            valores.set(ranura, 0);
+        }
+    }
+
+    /**
+     * Profundidad de la cola: además del máximo de cada minuto guarda la
+     * última cantidad observada, que se arrastra a los minutos sin
+     * operaciones. La ranura más reciente que ya salió de la ventana da la
+     * cantidad con la que empieza la serie.
+     */
+    private static final class SerieProfundidad extends SeriePorMinuto {
+        private final AtomicLongArray finales = new AtomicLongArray(MINUTOS);
+
+        void observar(long minuto, long enEspera) {
+            int ranura = ranura(minuto);
+            if (ranura >= 0) {
+                finales.set(ranura, enEspera);
+                if (valores.get(ranura) < enEspera) {
+                    valores.accumulateAndGet(ranura, enEspera, Math::max);
+                }
+            }
+        }
+
+        @Override
+        void reiniciar(int ranura) {
+            super.reiniciar(ranura);
+            finales.set(ranura, 0);
+        }
+
+        @Override
+        long[] ultimos(long minutoActual) {
+            long primero = minutoActual - (MINUTOS - 1);
+            long arrastre = 0;
+            long minutoArrastre = Long.MIN_VALUE;
+            for (int ranura = 0; ranura < MINUTOS; ranura++) {
+                long minuto = minutos.get(ranura);
+                if (minuto < primero && minuto > minutoArrastre && (minuto != 0 || valores.get(ranura) != 0)) {
+                    minutoArrastre = minuto;
+                    arrastre = finales.get(ranura);
+                }
+            }
+            long[] serie = new long[MINUTOS];
+            for (int i = MINUTOS - 1; i >= 0; i--) {
+                long minuto = minutoActual - i;
+                int ranura = (int) Math.floorMod(minuto, (long) MINUTOS);
+                if (minutos.get(ranura) == minuto) {
+                    serie[i] = Math.max(arrastre, valores.get(ranura));
+                    arrastre = finales.get(ranura);
+                } else {
+                    serie[i] = arrastre;
+                }
+            }
+            return serie;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.tarea;
+
+/**
+ * Estrategia para asignar identificadores únicos a los pacientes.
+ * Las implementaciones deben ser seguras para llamarse desde varios hilos.
+ */
+interface GeneradorId {
+    /**
+     * Devuelve un identificador nuevo, distinto de todos los anteriores
+     */
+    long siguienteId();
+
+    /**
+     * Llena el arreglo con IDs nuevos para registrar un bloque de pacientes.
+     * Las implementaciones lo hacen con una sola reserva en vez de una por ID.
+     */
+    default void siguientesIds(long[] destino) {
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] = siguienteId();
+        }
+    }
+
+    /**
+     * Mayor identificador entregado hasta ahora (0 si ninguno). Al persistir
+     * el estado se guarda este valor para continuar la numeración tras reiniciar.
+     */
+    long ultimoAsignado();
+
+    /**
+     * Garantiza que los próximos IDs sean mayores que el indicado. Se usa al
+     * recuperar el estado persistido para no repetir IDs ya entregados.
+     */
+    void continuarDesde(long ultimoId);
+}
@@ -0,0 +1,44 @@
+package com.tarea;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de IDs consecutivos basado en un AtomicLong.
+ * Es el más simple y da IDs 1, 2, 3... como el contador original.
+ */
+class GeneradorIdAtomico implements GeneradorId {
+    private final AtomicLong ultimo;
+
+    public GeneradorIdAtomico() {
+        this(0);
+    }
+
+    /**
+     * @param ultimoAsignado último ID usado antes de reiniciar (0 si es nuevo)
+     */
+    public GeneradorIdAtomico(long ultimoAsignado) {
+        this.ultimo = new AtomicLong(ultimoAsignado);
+    }
+
+    @Override
+    public long siguienteId() {
+        return ultimo.incrementAndGet();
+    }
+
+    @Override
+    public void siguientesIds(long[] destino) {
+        long primero = ultimo.getAndAdd(destino.length) + 1;
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] = primero + i;
+        }
+    }
+
+    @Override
+    public long ultimoAsignado() {
+        return ultimo.get();
+    }
+
+    @Override
+    public void continuarDesde(long ultimoId) {
+        ultimo.accumulateAndGet(ultimoId, Math::max);
+    }
+}
@@ -0,0 +1,74 @@
+package com.tarea;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de IDs que reparte bloques de IDs a cada hilo. Cada hilo toma
+ * un rango completo del contador compartido y luego asigna IDs de su rango
+ * sin tocar memoria compartida, de modo que varios puestos de registro no
+ * compiten por la misma línea de caché. Los IDs son únicos pero no siguen
+ * el orden global de llegada.
+ */
+class GeneradorIdPorRangos implements GeneradorId {
+    private static final int TAMANO_RANGO_DEFECTO = 1024;
+
+    private final AtomicLong siguienteRango;
+    private final int tamanoRango;
+    private final ThreadLocal<long[]> rangoDelHilo;
+
+    public GeneradorIdPorRangos() {
+        this(0, TAMANO_RANGO_DEFECTO);
+    }
+
+    /**
+     * @param ultimoAsignado último ID usado antes de reiniciar (0 si es nuevo)
+     * @param tamanoRango    cantidad de IDs que toma cada hilo de una vez
+     */
+    public GeneradorIdPorRangos(long ultimoAsignado, int tamanoRango) {
+        if (tamanoRango < 1) {
+            throw new IllegalArgumentException("El tamaño de rango debe ser positivo");
+        }
+        this.siguienteRango = new AtomicLong(ultimoAsignado + 1);
+        this.tamanoRango = tamanoRango;
+        // [0] = próximo ID libre del hilo, [1] = fin exclusivo del rango
+        this.rangoDelHilo = ThreadLocal.withInitial(() -> new long[2]);
+    }
+
+    @Override
+    public long siguienteId() {
+        long[] rango = rangoDelHilo.get();
+        if (rango[0] == rango[1]) {
+            rango[0] = siguienteRango.getAndAdd(tamanoRango);
+            rango[1] = rango[0] + tamanoRango;
+        }
+        return rango[0]++;
+    }
+
+    /**
+     * Un bloque toma su propio rango a medida, sin gastar el rango del hilo
+     */
+    @Override
+    public void siguientesIds(long[] destino) {
+        long primero = siguienteRango.getAndAdd(destino.length);
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] = primero + i;
+        }
+    }
+
+    /**
+     * Cota superior de los IDs entregados: incluye los rangos ya reservados
+     * aunque algún hilo no los haya agotado, así al reiniciar nunca se repiten.
+     */
+    @Override
+    public long ultimoAsignado() {
+        return siguienteRango.get() - 1;
+    }
+
+    /**
+     * Solo afecta a los rangos que se reserven después; debe llamarse antes
+     * de que los hilos empiecen a registrar pacientes.
+     */
+    @Override
+    public void continuarDesde(long ultimoId) {
+        siguienteRango.accumulateAndGet(ultimoId + 1, Math::max);
+    }
+}
@@ -0,0 +1,153 @@
+package com.tarea;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de duraciones sin candados, al estilo HdrHistogram: los valores
+ * menores que 2^BITS_SUBCUBETA tienen una cubeta cada uno y a partir de ahí
+ * cada potencia de dos se divide en 2^BITS_SUBCUBETA cubetas, así el error
+ * relativo es menor al 3% en todo el rango. Registrar es O(1) (un índice por
+ * desplazamientos y un incremento atómico).
+ *
+ * Las lecturas no detienen a los escritores: un resumen tomado mientras se
+ * registran valores puede no incluir los más recientes.
+ */
+class HistogramaTiempos {
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int CUBETAS = (64 - BITS_SUBCUBETA) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final AtomicLong maximo = new AtomicLong();
+    private final LongAdder suma = new LongAdder();
+
+    /**
+     * Registra un valor; los negativos (relojes desfasados) cuentan como 0
+     */
+    public void registrar(long valor) {
+        long v = Math.max(0, valor);
+        cubetas.incrementAndGet(indice(v));
+        suma.add(v);
+        if (v > maximo.get()) {
+            maximo.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    /**
+     * Copia de los conteos para calcular percentiles sin tocar el original
+     */
+    public Resumen resumen() {
+        long[] conteos = new long[CUBETAS];
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            long c = cubetas.get(i);
+            conteos[i] = c;
+            total += c;
+        }
+        return new Resumen(conteos, total, suma.sum(), maximo.get());
+    }
+
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int sub = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + sub;
+    }
+
+    static long limiteInferior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int exponente = indice / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        long sub = indice % SUBCUBETAS;
+        return (SUBCUBETAS + sub) << (exponente - BITS_SUBCUBETA);
+    }
+
+    /**
+     * Conteos congelados de un histograma
+     */
+    static final class Resumen {
+        private final long[] conteos;
+        private final long total;
+        private final long suma;
+        private final long maximo;
+
+        private Resumen(long[] conteos, long total, long suma, long maximo) {
+            this.conteos = conteos;
+            this.total = total;
+            this.suma = suma;
+            this.maximo = maximo;
+        }
+
+        /**
+         * Resumen sin muestras, neutro para combinar
+         */
+        static Resumen vacio() {
+            return new Resumen(new long[CUBETAS], 0, 0, 0);
+        }
+
+        /**
+         * Resumen de las muestras de ambos, como si se hubieran registrado en
+         * un solo histograma. Es una suma exacta, así que el resultado no
+         * depende del orden en que se combinen muchos resúmenes.
+         */
+        public Resumen combinar(Resumen otro) {
+            long[] suma = conteos.clone();
+            for (int i = 0; i < suma.length; i++) {
+                suma[i] += otro.conteos[i];
+            }
+            return new Resumen(suma, total + otro.total, this.suma + otro.suma, Math.max(maximo, otro.maximo));
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getSuma() {
+            return suma;
+        }
+
+        public double getPromedio() {
+            return total == 0 ? 0 : (double) suma / total;
+        }
+
+        public long getMaximo() {
+            return maximo;
+        }
+
+        /**
+         * Valor bajo el cual queda el porcentaje indicado de las muestras
+         * (límite inferior de su cubeta), o 0 si no hay muestras
+         */
+        public long percentil(double porcentaje) {
+            if (total == 0) {
+                return 0;
+            }
+            long rango = Math.max(1, (long) Math.ceil(total * porcentaje / 100.0));
+            long acumulado = 0;
+            for (int i = 0; i < conteos.length; i++) {
+                acumulado += conteos[i];
+                if (acumulado >= rango) {
+                    return Math.min(limiteInferior(i), maximo);
+                }
+            }
+            return maximo;
+        }
+
+        /**
+         * Muestras menores o iguales que el límite, contando cada cubeta
+         * entera si su último valor no lo supera (para exportar cubetas
+         * acumuladas al estilo Prometheus)
+         */
+        public long hasta(long limite) {
+            long acumulado = 0;
+            for (int i = 0; i < conteos.length - 1 && limiteInferior(i + 1) - 1 <= limite; i++) {
+                acumulado += conteos[i];
+            }
+            return acumulado;
+        }
+    }
+}
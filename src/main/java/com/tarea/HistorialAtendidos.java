@@ -0,0 +1,399 @@
+package com.tarea;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Registro único de pacientes atendidos, en orden de atención. Sirve a la
+ * vez de lista para los reportes (se recorre desde el primero) y de pila
+ * para deshacer (se quita desde el último), así cada paciente se guarda una
+ * sola vez.
+ *
+ * Se guarda en bloques de TAMANO_BLOQUE atenciones: un registro primitivo de
+ * IDs y, en la misma posición, la tabla de datos del paciente en columnas
+ * (long, int y byte; solo nombre y síntomas son referencias). No se guardan
+ * los objetos Paciente ni su LocalDateTime: se crean al leer, así que cada
+ * lectura devuelve objetos nuevos.
+ *
+ * Si se activa el desborde, cuando hay más de cierta cantidad en memoria los
+ * bloques más antiguos se escriben a un archivo y se liberan; se vuelven a
+ * leer al recorrer el registro o si los deshacer llegan hasta ellos.
+ * No es seguro para uso concurrente.
+ */
+class HistorialAtendidos implements Iterable<Paciente>, RegistroAtendidos {
+    static final int TAMANO_BLOQUE = 4096;
+    // Atenciones, desde la última, entre las que quitar(id) busca
+    static final int LIMITE_BUSQUEDA = TAMANO_BLOQUE;
+
+    // Bloques en memoria, del más antiguo al más reciente; todos llenos salvo el último
+    private final List<Bloque> bloques = new ArrayList<>();
+    private int enUltimo;   // Ocupados en el último bloque
+    private int enMemoria;
+
+    // Bloques volcados a disco: posición de inicio de cada uno en el archivo
+    private FileChannel desborde;
+    private int maximoEnMemoria = Integer.MAX_VALUE;
+    private final DequeLong iniciosEnDisco = new DequeLong();
+    private long finDisco;
+
+    /**
+     * Vuelca a un archivo temporal los bloques antiguos cuando hay más de
+     * maximoEnMemoria atendidos en memoria. El archivo se borra al cerrar.
+     */
+    @Override
+    public void desbordarEn(Path archivo, int maximoEnMemoria) throws IOException {
+        if (maximoEnMemoria < TAMANO_BLOQUE) {
+            throw new IllegalArgumentException("Se deben mantener al menos " + TAMANO_BLOQUE
+                    + " atendidos en memoria");
+        }
+        if (desborde != null) {
+            throw new IllegalStateException("El desborde ya está activo");
+        }
+        this.desborde = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        this.maximoEnMemoria = maximoEnMemoria;
+        volcarExcedente();
+    }
+
+    public void agregar(Paciente paciente) {
+        anexar(paciente);
+        volcarExcedente();
+    }
+
+    // El instante no se guarda: el deshacer lo lleva en su anillo
+    @Override
+    public void agregar(Paciente paciente, long instante) {
+        agregar(paciente);
+    }
+
+    @Override
+    public void agregarTodos(List<Paciente> pacientes, long instante) {
+        agregarTodos(pacientes);
+    }
+
+    /**
+     * Agrega un lote con un solo volcado al final
+     */
+    public void agregarTodos(List<Paciente> pacientes) {
+        for (Paciente paciente : pacientes) {
+            anexar(paciente);
+        }
+        volcarExcedente();
+    }
+
+    private void anexar(Paciente paciente) {
+        if (bloques.isEmpty() || enUltimo == TAMANO_BLOQUE) {
+            bloques.add(new Bloque());
+            enUltimo = 0;
+        }
+        bloques.get(bloques.size() - 1).poner(enUltimo++, paciente);
+        enMemoria++;
+    }
+
+    /**
+     * Quita y devuelve el último atendido, o null si no hay ninguno
+     */
+    public Paciente quitarUltimo() {
+        if (enMemoria == 0) {
+            if (iniciosEnDisco.isEmpty()) {
+                return null;
+            }
+            recuperarUltimoBloque();
+        }
+        Paciente paciente = bloques.get(bloques.size() - 1).leer(enUltimo - 1);
+        descartarUltimo();
+        return paciente;
+    }
+
+    /**
+     * Quita la atención más reciente del paciente indicado. Con varios
+     * médicos puede no ser la última, pero está entre las últimas: se busca
+     * solo entre las LIMITE_BUSQUEDA más recientes (trayendo a lo sumo un
+     * bloque del disco) y las posteriores se corren un lugar.
+     *
+     * @return false si el paciente no figura entre esas atenciones
+     */
+    @Override
+    public boolean quitar(long id) {
+        while (enMemoria < LIMITE_BUSQUEDA && !iniciosEnDisco.isEmpty()) {
+            recuperarUltimoBloque();
+        }
+        int limite = Math.max(0, enMemoria - LIMITE_BUSQUEDA);
+        for (int posicion = enMemoria - 1; posicion >= limite; posicion--) {
+            if (bloque(posicion).ids[posicion % TAMANO_BLOQUE] == id) {
+                for (int i = posicion; i < enMemoria - 1; i++) {
+                    bloque(i + 1).copiarA((i + 1) % TAMANO_BLOQUE, bloque(i), i % TAMANO_BLOQUE);
+                }
+                descartarUltimo();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int tamano() {
+        return enMemoria + iniciosEnDisco.size() * TAMANO_BLOQUE;
+    }
+
+    public boolean isEmpty() {
+        return tamano() == 0;
+    }
+
+    /**
+     * Copia del registro en orden de atención
+     */
+    @Override
+    public List<Paciente> aLista() {
+        List<Paciente> lista = new ArrayList<>(tamano());
+        for (Paciente paciente : this) {
+            lista.add(paciente);
+        }
+        return lista;
+    }
+
+    /**
+     * Copia a destino los atendidos desde la posición indicada (en orden de
+     * atención), sin pasar del bloque que la contiene. Permite recorrer el
+     * registro por páginas soltando el candado entre una y otra.
+     *
+     * @return cuántos copió; 0 si desde ya está al final
+     */
+    @Override
+    public int copiar(int desde, Paciente[] destino) {
+        int enDisco = iniciosEnDisco.size() * TAMANO_BLOQUE;
+        if (desde >= tamano()) {
+            return 0;
+        }
+        Bloque origen;
+        int ocupados;
+        if (desde < enDisco) {
+            origen = leerBloque(desde / TAMANO_BLOQUE);
+            ocupados = TAMANO_BLOQUE;
+        } else {
+            int bloque = (desde - enDisco) / TAMANO_BLOQUE;
+            origen = bloques.get(bloque);
+            ocupados = bloque == bloques.size() - 1 ? enUltimo : TAMANO_BLOQUE;
+        }
+        // Los bloques en disco están llenos: el desplazamiento es el mismo
+        int inicio = desde % TAMANO_BLOQUE;
+        int cantidad = Math.min(destino.length, ocupados - inicio);
+        for (int i = 0; i < cantidad; i++) {
+            destino[i] = origen.leer(inicio + i);
+        }
+        return cantidad;
+    }
+
+    /**
+     * Recorre en orden de atención; los bloques en disco se leen de a uno
+     */
+    @Override
+    public Iterator<Paciente> iterator() {
+        return new Iterator<Paciente>() {
+            private final int bloquesEnDisco = iniciosEnDisco.size();
+            private int bloque = 0;
+            private Bloque actual;
+            private int ocupados;
+            private int posicion;
+
+            @Override
+            public boolean hasNext() {
+                while (posicion >= ocupados) {
+                    int total = bloquesEnDisco + bloques.size();
+                    if (bloque >= total) {
+                        return false;
+                    }
+                    if (bloque < bloquesEnDisco) {
+                        actual = leerBloque(bloque);
+                        ocupados = TAMANO_BLOQUE;
+                    } else {
+                        actual = bloques.get(bloque - bloquesEnDisco);
+                        ocupados = bloque == total - 1 ? enUltimo : TAMANO_BLOQUE;
+                    }
+                    bloque++;
+                    posicion = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public Paciente next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return actual.leer(posicion++);
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (desborde != null) {
+            desborde.close();
+        }
+    }
+
+    /**
+     * Bloque en memoria que contiene la posición (contada desde el primero en memoria)
+     */
+    private Bloque bloque(int posicion) {
+        return bloques.get(posicion / TAMANO_BLOQUE);
+    }
+
+    private void descartarUltimo() {
+        Bloque ultimo = bloques.get(bloques.size() - 1);
+        ultimo.limpiar(--enUltimo);
+        enMemoria--;
+        if (enUltimo == 0) {
+            bloques.remove(bloques.size() - 1);
+            enUltimo = bloques.isEmpty() ? 0 : TAMANO_BLOQUE;
+        }
+    }
+
+    private void volcarExcedente() {
+        while (desborde != null && enMemoria > maximoEnMemoria && bloques.size() > 1) {
+            Bloque bloque = bloques.remove(0);
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(TAMANO_BLOQUE * 64);
+                bloque.escribir(new DataOutputStream(bytes));
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                long inicio = finDisco;
+                while (buffer.hasRemaining()) {
+                    desborde.write(buffer, finDisco + buffer.position());
+                }
+                iniciosEnDisco.addLast(inicio);
+                finDisco = inicio + buffer.limit();
+            } catch (IOException e) {
+                bloques.add(0, bloque);
+                throw new UncheckedIOException("No se pudo volcar el historial de atendidos", e);
+            }
+            enMemoria -= TAMANO_BLOQUE;
+        }
+    }
+
+    /**
+     * Trae a memoria el último bloque volcado y lo borra del archivo
+     */
+    private void recuperarUltimoBloque() {
+        Bloque bloque = leerBloque(iniciosEnDisco.size() - 1);
+        finDisco = iniciosEnDisco.pollLast();
+        try {
+            desborde.truncate(finDisco);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el historial de atendidos", e);
+        }
+        bloques.add(0, bloque);
+        if (bloques.size() == 1) {
+            enUltimo = TAMANO_BLOQUE;
+        }
+        enMemoria += TAMANO_BLOQUE;
+    }
+
+    private Bloque leerBloque(int indice) {
+        long inicio = iniciosEnDisco.get(indice);
+        long fin = indice + 1 < iniciosEnDisco.size() ? iniciosEnDisco.get(indice + 1) : finDisco;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (fin - inicio));
+        try {
+            while (buffer.hasRemaining()) {
+                if (desborde.read(buffer, inicio + buffer.position()) < 0) {
+                    throw new IOException("Archivo de desborde truncado");
+                }
+            }
+            return Bloque.leer(new DataInputStream(new ByteArrayInputStream(buffer.array())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el historial de atendidos", e);
+        }
+    }
+
+    /**
+     * TAMANO_BLOQUE atenciones en columnas: ids es el registro de atención y
+     * el resto, en la misma posición, los datos del paciente
+     */
+    private static final class Bloque {
+        final long[] ids = new long[TAMANO_BLOQUE];
+        final long[] secuencias = new long[TAMANO_BLOQUE];
+        final long[] llegadas = new long[TAMANO_BLOQUE];  // Instante, en ms
+        final long[] segundos = new long[TAMANO_BLOQUE];  // Hora local que se muestra
+        final int[] nanos = new int[TAMANO_BLOQUE];
+        final byte[] prioridades = new byte[TAMANO_BLOQUE];
+        final String[] nombres = new String[TAMANO_BLOQUE];
+        final String[] sintomas = new String[TAMANO_BLOQUE];
+
+        void poner(int i, Paciente p) {
+            LocalDateTime hora = p.getHoraLlegada();
+            ids[i] = p.getId();
+            secuencias[i] = p.getSecuenciaLlegada();
+            llegadas[i] = p.getLlegadaEpochMilli();
+            segundos[i] = hora.toEpochSecond(ZoneOffset.UTC);
+            nanos[i] = hora.getNano();
+            prioridades[i] = (byte) p.getPrioridad();
+            nombres[i] = p.getNombre();
+            sintomas[i] = p.getSintomas();
+        }
+
+        Paciente leer(int i) {
+            return new Paciente(ids[i], secuencias[i], nombres[i], prioridades[i], sintomas[i],
+                    LocalDateTime.ofEpochSecond(segundos[i], nanos[i], ZoneOffset.UTC), llegadas[i]);
+        }
+
+        void copiarA(int i, Bloque destino, int j) {
+            destino.ids[j] = ids[i];
+            destino.secuencias[j] = secuencias[i];
+            destino.llegadas[j] = llegadas[i];
+            destino.segundos[j] = segundos[i];
+            destino.nanos[j] = nanos[i];
+            destino.prioridades[j] = prioridades[i];
+            destino.nombres[j] = nombres[i];
+            destino.sintomas[j] = sintomas[i];
+        }
+
+        void limpiar(int i) {
+            nombres[i] = null;
+            sintomas[i] = null;
+        }
+
+        // Los bloques volcados siempre están llenos
+        void escribir(DataOutputStream datos) throws IOException {
+            for (int i = 0; i < TAMANO_BLOQUE; i++) {
+                datos.writeLong(ids[i]);
+                datos.writeLong(secuencias[i]);
+                datos.writeLong(llegadas[i]);
+                datos.writeLong(segundos[i]);
+                datos.writeInt(nanos[i]);
+                datos.writeByte(prioridades[i]);
+                datos.writeUTF(nombres[i]);
+                datos.writeUTF(sintomas[i]);
+            }
+            datos.flush();
+        }
+
+        static Bloque leer(DataInputStream datos) throws IOException {
+            Bloque bloque = new Bloque();
+            for (int i = 0; i < TAMANO_BLOQUE; i++) {
+                bloque.ids[i] = datos.readLong();
+                bloque.secuencias[i] = datos.readLong();
+                bloque.llegadas[i] = datos.readLong();
+                bloque.segundos[i] = datos.readLong();
+                bloque.nanos[i] = datos.readInt();
+                bloque.prioridades[i] = datos.readByte();
+                bloque.nombres[i] = datos.readUTF();
+                bloque.sintomas[i] = datos.readUTF();
+            }
+            return bloque;
+        }
+    }
+}
@@ -0,0 +1,844 @@
+package com.tarea;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Importa archivos de llegadas (CSV con encabezado o NDJSON, un objeto por
+ * línea) con millones de filas. El archivo se lee por un FileChannel en
+ * trozos de TAMANO_TROZO bytes cortados en un límite de fila; varios hilos
+ * analizan los trozos directamente sobre los bytes, sin pasar por String
+ * salvo para el nombre y los síntomas, y el hilo que importa registra cada
+ * trozo en orden con registrarPacientes, así el orden de llegada es el del
+ * archivo. Las filas inválidas no detienen la importación: se cuentan y se
+ * guardan las primeras MAXIMO_INVALIDAS_GUARDADAS con su línea y motivo.
+ *
+ * CSV: columnas nombre, prioridad y (opcional) sintomas, en cualquier orden;
+ * las demás se ignoran, así también se lee el CSV de ReporteTriage.
+ * NDJSON: {"nombre": "...", "prioridad": 1, "sintomas": "..."}.
+ */
+class ImportadorPacientes {
+    enum Formato {
+        CSV, NDJSON;
+
+        /**
+         * Por la extensión: .csv es CSV; .ndjson, .jsonl y .json son NDJSON
+         */
+        static Formato deArchivo(Path archivo) {
+            String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (nombre.endsWith(".csv")) {
+                return CSV;
+            }
+            if (nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl") || nombre.endsWith(".json")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("No se reconoce el formato de " + nombre + " (use .csv o .ndjson)");
+        }
+    }
+
+    static final int MAXIMO_INVALIDAS_GUARDADAS = 100;
+    private static final int TAMANO_TROZO = 4 << 20;
+    // Las filas inválidas se muestran recortadas a este largo
+    private static final int LARGO_MAXIMO_TEXTO = 120;
+    private static final byte[] CAMPO_NOMBRE = "nombre".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CAMPO_PRIORIDAD = "prioridad".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CAMPO_SINTOMAS = "sintomas".getBytes(StandardCharsets.US_ASCII);
+
+    private final SistemaTriageUrgencias sistema;
+    private final int hilos;
+
+    public ImportadorPacientes(SistemaTriageUrgencias sistema) {
+        this(sistema, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ImportadorPacientes(SistemaTriageUrgencias sistema, int hilos) {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("La cantidad de hilos debe ser positiva");
+        }
+        this.sistema = sistema;
+        this.hilos = hilos;
+    }
+
+    public Resultado importar(Path archivo) throws IOException {
+        return importar(archivo, Formato.deArchivo(archivo));
+    }
+
+    /**
+     * @throws IOException si no se puede leer el archivo o al CSV le faltan
+     *                     columnas obligatorias en el encabezado
+     */
+    public Resultado importar(Path archivo, Formato formato) throws IOException {
+        long inicio = System.nanoTime();
+        Resultado resultado = new Resultado();
+        AtomicInteger numero = new AtomicInteger();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "triage-importador-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ArrayDeque<Future<Trozo>> pendientes = new ArrayDeque<>();
+            int[] columnas = null;
+            byte[] resto = new byte[0];
+            long linea = 1;
+            boolean fin = false;
+            while (!fin) {
+                byte[] datos = new byte[Math.max(TAMANO_TROZO, resto.length * 2)];
+                System.arraycopy(resto, 0, datos, 0, resto.length);
+                int largo = resto.length;
+                while (largo < datos.length) {
+                    int leidos = canal.read(ByteBuffer.wrap(datos, largo, datos.length - largo));
+                    if (leidos < 0) {
+                        fin = true;
+                        break;
+                    }
+                    largo += leidos;
+                }
+
+                int desde = 0;
+                if (linea == 1 && largo >= 3 && (datos[0] & 0xFF) == 0xEF && (datos[1] & 0xFF) == 0xBB
+                        && (datos[2] & 0xFF) == 0xBF) {
+                    desde = 3;
+                }
+                if (formato == Formato.CSV && columnas == null) {
+                    int finEncabezado = buscar(datos, desde, largo, (byte) '\n');
+                    if (finEncabezado < 0 && !fin) {
+                        // El encabezado no entró entero: se reintenta con más espacio
+                        resto = Arrays.copyOf(datos, largo);
+                        continue;
+                    }
+                    int hasta = finEncabezado < 0 ? largo : finEncabezado;
+                    columnas = columnasCsv(datos, desde, hasta);
+                    desde = finEncabezado < 0 ? largo : finEncabezado + 1;
+                    linea++;
+                }
+
+                int corte = fin ? largo
+                        : formato == Formato.CSV ? ultimoLimiteCsv(datos, desde, largo)
+                        : ultimoLimiteLineas(datos, desde, largo);
+                if (corte < 0 && formato == Formato.CSV) {
+                    // Ninguna fila cierra en todo un trozo: casi seguro unas comillas sin
+                    // cerrar, que se informan como fila inválida cortando en cualquier línea
+                    corte = ultimoLimiteLineas(datos, desde, largo);
+                }
+                if (corte < 0) {
+                    // Una sola línea más larga que el trozo
+                    resto = Arrays.copyOfRange(datos, desde, largo);
+                    continue;
+                }
+                if (corte > desde) {
+                    int[] columnasTrozo = columnas;
+                    int inicioTrozo = desde;
+                    int finTrozo = corte;
+                    long primeraLinea = linea;
+                    pendientes.add(ejecutor.submit(() -> formato == Formato.CSV
+                            ? analizarCsv(datos, inicioTrozo, finTrozo, primeraLinea, columnasTrozo)
+                            : analizarNdjson(datos, inicioTrozo, finTrozo, primeraLinea)));
+                }
+                linea += contar(datos, desde, corte, (byte) '\n');
+                resto = Arrays.copyOfRange(datos, corte, largo);
+                // Pocos trozos en vuelo: la memoria no depende del tamaño del archivo
+                while (pendientes.size() >= 2 * hilos) {
+                    registrar(pendientes.poll(), resultado);
+                }
+            }
+            while (!pendientes.isEmpty()) {
+                registrar(pendientes.poll(), resultado);
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+        resultado.nanos = System.nanoTime() - inicio;
+        return resultado;
+    }
+
+    private void registrar(Future<Trozo> pendiente, Resultado resultado) throws IOException {
+        Trozo trozo;
+        try {
+            trozo = pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importación interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        sistema.registrarPacientes(trozo.solicitudes);
+        resultado.importados += trozo.solicitudes.size();
+        resultado.invalidas += trozo.invalidas;
+        for (FilaInvalida fila : trozo.ejemplos) {
+            if (resultado.ejemplos.size() < MAXIMO_INVALIDAS_GUARDADAS) {
+                resultado.ejemplos.add(fila);
+            }
+        }
+    }
+
+    /**
+     * Posición de nombre, prioridad y sintomas (-1 si falta) en el encabezado
+     */
+    private static int[] columnasCsv(byte[] datos, int desde, int hasta) throws IOException {
+        int[] columnas = {-1, -1, -1};
+        int columna = 0;
+        int inicio = desde;
+        for (int i = desde; i <= hasta; i++) {
+            if (i == hasta || datos[i] == ',') {
+                String nombre = new String(datos, inicio, i - inicio, StandardCharsets.UTF_8).trim()
+                        .replace("\"", "").toLowerCase(Locale.ROOT);
+                if (nombre.equals("nombre")) {
+                    columnas[0] = columna;
+                } else if (nombre.equals("prioridad")) {
+                    columnas[1] = columna;
+                } else if (nombre.equals("sintomas") || nombre.equals("síntomas")) {
+                    columnas[2] = columna;
+                }
+                columna++;
+                inicio = i + 1;
+            }
+        }
+        if (columnas[0] < 0 || columnas[1] < 0) {
+            throw new IOException("El encabezado del CSV debe tener las columnas nombre y prioridad");
+        }
+        return columnas;
+    }
+
+    /**
+     * Posición siguiente al último salto de línea que termina una fila CSV
+     * (fuera de comillas), o -1 si no hay ninguno. Recorre el trozo con la
+     * misma máquina de estados que el análisis, desde un inicio de fila.
+     */
+    private static int ultimoLimiteCsv(byte[] datos, int desde, int hasta) {
+        int corte = -1;
+        boolean enComillas = false;
+        boolean inicioCampo = true;
+        for (int i = desde; i < hasta; i++) {
+            byte b = datos[i];
+            if (enComillas) {
+                if (b == '"') {
+                    // Una comilla doble dentro de comillas es una comilla escrita
+                    if (i + 1 < hasta && datos[i + 1] == '"') {
+                        i++;
+                    } else {
+                        enComillas = false;
+                    }
+                }
+            } else if (b == '\n') {
+                corte = i + 1;
+                inicioCampo = true;
+            } else if (b == ',') {
+                inicioCampo = true;
+            } else {
+                enComillas = inicioCampo && b == '"';
+                inicioCampo = false;
+            }
+        }
+        return corte;
+    }
+
+    private static int ultimoLimiteLineas(byte[] datos, int desde, int hasta) {
+        for (int i = hasta - 1; i >= desde; i--) {
+            if (datos[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int buscar(byte[] datos, int desde, int hasta, byte buscado) {
+        for (int i = desde; i < hasta; i++) {
+            if (datos[i] == buscado) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long contar(byte[] datos, int desde, int hasta, byte buscado) {
+        long cantidad = 0;
+        for (int i = desde; i < hasta; i++) {
+            if (datos[i] == buscado) {
+                cantidad++;
+            }
+        }
+        return cantidad;
+    }
+
+    private static Trozo analizarCsv(byte[] datos, int desde, int hasta, long primeraLinea, int[] columnas) {
+        Trozo trozo = new Trozo(hasta - desde);
+        LectorCsv lector = new LectorCsv(datos, desde, hasta, primeraLinea, columnas);
+        while (lector.pos < hasta) {
+            int inicioFila = lector.pos;
+            long lineaFila = lector.linea;
+            if (lector.filaVacia()) {
+                continue;
+            }
+            try {
+                trozo.solicitudes.add(lector.fila());
+            } catch (FilaMalformada e) {
+                if (!lector.terminada) {
+                    if (lector.pos >= hasta) {
+                        // Comillas sin cerrar: se descarta solo la primera línea de la fila
+                        lector.pos = inicioFila;
+                        lector.linea = lineaFila;
+                    }
+                    lector.saltarLinea();
+                }
+                trozo.invalida(new FilaInvalida(lineaFila, e.getMessage(), texto(datos, inicioFila, hasta)));
+            }
+        }
+        return trozo;
+    }
+
+    private static Trozo analizarNdjson(byte[] datos, int desde, int hasta, long primeraLinea) {
+        Trozo trozo = new Trozo(hasta - desde);
+        LectorJson lector = new LectorJson(datos);
+        long linea = primeraLinea;
+        int pos = desde;
+        while (pos < hasta) {
+            int finLinea = buscar(datos, pos, hasta, (byte) '\n');
+            int siguiente = finLinea < 0 ? hasta : finLinea + 1;
+            int fin = finLinea < 0 ? hasta : finLinea;
+            try {
+                SolicitudRegistro solicitud = lector.objeto(pos, fin);
+                if (solicitud != null) {
+                    trozo.solicitudes.add(solicitud);
+                }
+            } catch (FilaMalformada e) {
+                trozo.invalida(new FilaInvalida(linea, e.getMessage(), texto(datos, pos, hasta)));
+            }
+            pos = siguiente;
+            linea++;
+        }
+        return trozo;
+    }
+
+    // La fila desde inicio hasta el fin de su línea, recortada para mostrarla
+    private static String texto(byte[] datos, int inicio, int hasta) {
+        int fin = inicio;
+        while (fin < hasta && fin - inicio < LARGO_MAXIMO_TEXTO && datos[fin] != '\n' && datos[fin] != '\r') {
+            fin++;
+        }
+        return new String(datos, inicio, fin - inicio, StandardCharsets.UTF_8);
+    }
+
+    private static SolicitudRegistro solicitud(String nombre, int prioridad, String sintomas)
+            throws FilaMalformada {
+        try {
+            return new SolicitudRegistro(nombre, prioridad, sintomas);
+        } catch (IllegalArgumentException e) {
+            throw new FilaMalformada(e.getMessage());
+        }
+    }
+
+    /**
+     * Motivo de rechazo de una fila; sin traza, porque puede haber millones
+     */
+    private static final class FilaMalformada extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        FilaMalformada(String motivo) {
+            super(motivo, null, false, false);
+        }
+    }
+
+    /**
+     * Campos de una fila CSV como posiciones dentro del trozo. Los valores
+     * entre comillas se copian solo si tienen comillas dobles adentro.
+     */
+    private static final class LectorCsv {
+        private final byte[] datos;
+        private final int hasta;
+        private final int[] columnas;
+        private final int ultimaColumna;
+        private final int[] inicios = new int[3];
+        private final int[] fines = new int[3];
+        private final boolean[] escapados = new boolean[3];
+        int pos;
+        long linea;
+        // Si la última fila leída llegó hasta su fin de línea
+        boolean terminada;
+
+        LectorCsv(byte[] datos, int desde, int hasta, long primeraLinea, int[] columnas) {
+            this.datos = datos;
+            this.pos = desde;
+            this.hasta = hasta;
+            this.linea = primeraLinea;
+            this.columnas = columnas;
+            this.ultimaColumna = Math.max(columnas[0], columnas[1]);
+        }
+
+        // Salta una línea en blanco; false si la fila tiene contenido
+        boolean filaVacia() {
+            int i = pos;
+            if (i < hasta && datos[i] == '\r') {
+                i++;
+            }
+            if (i < hasta && datos[i] != '\n') {
+                return false;
+            }
+            pos = Math.min(i + 1, hasta);
+            linea++;
+            return true;
+        }
+
+        void saltarLinea() {
+            while (pos < hasta && datos[pos] != '\n') {
+                pos++;
+            }
+            if (pos < hasta) {
+                pos++;
+                linea++;
+            }
+        }
+
+        SolicitudRegistro fila() throws FilaMalformada {
+            terminada = false;
+            Arrays.fill(inicios, -1);
+            int columna = 0;
+            while (true) {
+                int inicio;
+                int fin;
+                boolean escapado = false;
+                if (pos < hasta && datos[pos] == '"') {
+                    inicio = ++pos;
+                    while (true) {
+                        if (pos >= hasta) {
+                            throw new FilaMalformada("Comillas sin cerrar");
+                        }
+                        byte b = datos[pos];
+                        if (b == '"') {
+                            if (pos + 1 < hasta && datos[pos + 1] == '"') {
+                                escapado = true;
+                                pos += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        if (b == '\n') {
+                            linea++;
+                        }
+                        pos++;
+                    }
+                    fin = pos++;
+                    if (pos < hasta && datos[pos] == '\r') {
+                        pos++;
+                    }
+                    if (pos < hasta && datos[pos] != ',' && datos[pos] != '\n') {
+                        throw new FilaMalformada("Texto después de las comillas de cierre");
+                    }
+                } else {
+                    inicio = pos;
+                    while (pos < hasta && datos[pos] != ',' && datos[pos] != '\n') {
+                        pos++;
+                    }
+                    fin = pos;
+                    if (fin > inicio && datos[fin - 1] == '\r') {
+                        fin--;
+                    }
+                }
+                for (int c = 0; c < 3; c++) {
+                    if (columnas[c] == columna) {
+                        inicios[c] = inicio;
+                        fines[c] = fin;
+                        escapados[c] = escapado;
+                    }
+                }
+                columna++;
+                if (pos < hasta && datos[pos] == ',') {
+                    pos++;
+                    continue;
+                }
+                if (pos < hasta) {
+                    pos++;
+                    linea++;
+                }
+                terminada = true;
+                break;
+            }
+            if (columna <= ultimaColumna) {
+                throw new FilaMalformada("Faltan columnas: hay " + columna + ", se esperaban al menos "
+                        + (ultimaColumna + 1));
+            }
+            String sintomas = inicios[2] < 0 || fines[2] == inicios[2] ? null : valor(2);
+            return solicitud(valor(0), prioridad(), sintomas);
+        }
+
+        private int prioridad() throws FilaMalformada {
+            int inicio = inicios[1];
+            int fin = fines[1];
+            while (inicio < fin && datos[inicio] == ' ') {
+                inicio++;
+            }
+            while (fin > inicio && datos[fin - 1] == ' ') {
+                fin--;
+            }
+            // Un solo dígito: cualquier otra cosa no es una prioridad válida
+            if (fin - inicio != 1 || datos[inicio] < '0' || datos[inicio] > '9') {
+                throw new FilaMalformada("Prioridad inválida: '" + valor(1) + "'");
+            }
+            return datos[inicio] - '0';
+        }
+
+        private String valor(int campo) {
+            int inicio = inicios[campo];
+            int fin = fines[campo];
+            if (!escapados[campo]) {
+                return new String(datos, inicio, fin - inicio, StandardCharsets.UTF_8);
+            }
+            byte[] copia = new byte[fin - inicio];
+            int largo = 0;
+            for (int i = inicio; i < fin; i++) {
+                copia[largo++] = datos[i];
+                if (datos[i] == '"') {
+                    i++;
+                }
+            }
+            return new String(copia, 0, largo, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Analizador de un objeto JSON por línea. Reconoce los tres campos del
+     * paciente comparando los bytes de la clave y salta los demás valores
+     * sin construirlos.
+     */
+    private static final class LectorJson {
+        private final byte[] datos;
+        private int inicio;
+        private int pos;
+        private int fin;
+
+        LectorJson(byte[] datos) {
+            this.datos = datos;
+        }
+
+        /**
+         * @return la solicitud de la línea, o null si la línea está en blanco
+         */
+        SolicitudRegistro objeto(int desde, int hasta) throws FilaMalformada {
+            inicio = desde;
+            pos = desde;
+            fin = hasta;
+            espacios();
+            if (pos == fin) {
+                return null;
+            }
+            esperar('{');
+            String nombre = null;
+            String sintomas = null;
+            int prioridad = -1;
+            espacios();
+            if (pos < fin && datos[pos] == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    espacios();
+                    esperar('"');
+                    int inicioClave = pos;
+                    saltarTexto();
+                    int finClave = pos - 1;
+                    espacios();
+                    esperar(':');
+                    espacios();
+                    if (clave(inicioClave, finClave, CAMPO_NOMBRE)) {
+                        nombre = texto("nombre");
+                    } else if (clave(inicioClave, finClave, CAMPO_SINTOMAS)) {
+                        sintomas = texto("sintomas");
+                    } else if (clave(inicioClave, finClave, CAMPO_PRIORIDAD)) {
+                        prioridad = entero();
+                    } else {
+                        saltarValor();
+                    }
+                    espacios();
+                    if (pos < fin && datos[pos] == ',') {
+                        pos++;
+                        continue;
+                    }
+                    esperar('}');
+                    break;
+                }
+            }
+            espacios();
+            if (pos < fin) {
+                throw new FilaMalformada("Texto después del objeto");
+            }
+            if (nombre == null) {
+                throw new FilaMalformada("Falta el campo nombre");
+            }
+            if (prioridad < 0) {
+                throw new FilaMalformada("Falta el campo prioridad");
+            }
+            return solicitud(nombre, prioridad, sintomas);
+        }
+
+        private boolean clave(int inicio, int finClave, byte[] campo) {
+            return Arrays.equals(datos, inicio, finClave, campo, 0, campo.length);
+        }
+
+        private void espacios() {
+            while (pos < fin && espacio(datos[pos])) {
+                pos++;
+            }
+        }
+
+        private static boolean espacio(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+
+        private boolean finDeValor() {
+            return pos >= fin || datos[pos] == ',' || datos[pos] == '}' || datos[pos] == ']' || espacio(datos[pos]);
+        }
+
+        private void esperar(char esperado) throws FilaMalformada {
+            if (pos >= fin || datos[pos] != esperado) {
+                throw new FilaMalformada("JSON inválido: se esperaba '" + esperado + "' en la columna "
+                        + (pos - inicio + 1));
+            }
+            pos++;
+        }
+
+        private int entero() throws FilaMalformada {
+            int inicioNumero = pos;
+            int valor = 0;
+            while (pos < fin && datos[pos] >= '0' && datos[pos] <= '9' && pos - inicioNumero < 9) {
+                valor = valor * 10 + datos[pos++] - '0';
+            }
+            if (pos == inicioNumero || !finDeValor()) {
+                throw new FilaMalformada("La prioridad debe ser un número entero");
+            }
+            return valor;
+        }
+
+        /**
+         * Un texto JSON; null para null. Sin barras invertidas se decodifica
+         * directo de los bytes.
+         */
+        private String texto(String campo) throws FilaMalformada {
+            if (fin - pos >= 4 && datos[pos] == 'n' && datos[pos + 1] == 'u' && datos[pos + 2] == 'l'
+                    && datos[pos + 3] == 'l') {
+                pos += 4;
+                return null;
+            }
+            if (pos >= fin || datos[pos] != '"') {
+                throw new FilaMalformada("El campo " + campo + " debe ser texto");
+            }
+            int inicioTexto = ++pos;
+            boolean escapado = saltarTexto();
+            int finTexto = pos - 1;
+            if (!escapado) {
+                return new String(datos, inicioTexto, finTexto - inicioTexto, StandardCharsets.UTF_8);
+            }
+            return desescapar(inicioTexto, finTexto);
+        }
+
+        /**
+         * Avanza hasta después de la comilla de cierre
+         *
+         * @return true si el texto tiene secuencias de escape
+         */
+        private boolean saltarTexto() throws FilaMalformada {
+            boolean escapado = false;
+            while (pos < fin) {
+                byte b = datos[pos++];
+                if (b == '"') {
+                    return escapado;
+                }
+                if (b == '\\') {
+                    escapado = true;
+                    pos++;
+                }
+            }
+            throw new FilaMalformada("JSON inválido: texto sin cerrar");
+        }
+
+        private String desescapar(int inicioTexto, int finTexto) throws FilaMalformada {
+            StringBuilder texto = new StringBuilder(finTexto - inicioTexto);
+            int tramo = inicioTexto;
+            int i = inicioTexto;
+            while (i < finTexto) {
+                if (datos[i] != '\\') {
+                    i++;
+                    continue;
+                }
+                texto.append(new String(datos, tramo, i - tramo, StandardCharsets.UTF_8));
+                char c = (char) datos[i + 1];
+                i += 2;
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        texto.append(c);
+                        break;
+                    case 'b':
+                        texto.append('\b');
+                        break;
+                    case 'f':
+                        texto.append('\f');
+                        break;
+                    case 'n':
+                        texto.append('\n');
+                        break;
+                    case 'r':
+                        texto.append('\r');
+                        break;
+                    case 't':
+                        texto.append('\t');
+                        break;
+                    case 'u':
+                        if (finTexto - i < 4) {
+                            throw new FilaMalformada("JSON inválido: escape \\u incompleto");
+                        }
+                        int codigo = 0;
+                        for (int k = 0; k < 4; k++) {
+                            int digito = Character.digit(datos[i++], 16);
+                            if (digito < 0) {
+                                throw new FilaMalformada("JSON inválido: escape \\u incompleto");
+                            }
+                            codigo = codigo * 16 + digito;
+                        }
+                        texto.append((char) codigo);
+                        break;
+                    default:
+                        throw new FilaMalformada("JSON inválido: escape \\" + c + " desconocido");
+                }
+                tramo = i;
+            }
+            texto.append(new String(datos, tramo, finTexto - tramo, StandardCharsets.UTF_8));
+            return texto.toString();
+        }
+
+        // Números, literales, textos, objetos y listas, sin construirlos
+        private void saltarValor() throws FilaMalformada {
+            if (pos < fin && datos[pos] == '"') {
+                pos++;
+                saltarTexto();
+                return;
+            }
+            if (pos < fin && (datos[pos] == '{' || datos[pos] == '[')) {
+                int profundidad = 0;
+                do {
+                    if (pos >= fin) {
+                        throw new FilaMalformada("JSON inválido: valor incompleto");
+                    }
+                    byte b = datos[pos++];
+                    if (b == '"') {
+                        saltarTexto();
+                    } else if (b == '{' || b == '[') {
+                        profundidad++;
+                    } else if (b == '}' || b == ']') {
+                        profundidad--;
+                    }
+                } while (profundidad > 0);
+                return;
+            }
+            int inicioValor = pos;
+            while (!finDeValor()) {
+                pos++;
+            }
+            if (pos == inicioValor) {
+                throw new FilaMalformada("JSON inválido: valor vacío en la columna " + (pos - inicio + 1));
+            }
+        }
+    }
+
+    /**
+     * Resultado del análisis de un trozo, en el orden del archivo
+     */
+    private static final class Trozo {
+        final List<SolicitudRegistro> solicitudes;
+        final List<FilaInvalida> ejemplos = new ArrayList<>();
+        long invalidas;
+
+        Trozo(int bytes) {
+            // Unos 40 bytes por fila es una estimación razonable para ambos formatos
+            solicitudes = new ArrayList<>(bytes / 40 + 1);
+        }
+
+        void invalida(FilaInvalida fila) {
+            invalidas++;
+            if (ejemplos.size() < MAXIMO_INVALIDAS_GUARDADAS) {
+                ejemplos.add(fila);
+            }
+        }
+    }
+
+    static final class FilaInvalida {
+        private final long linea;
+        private final String motivo;
+        private final String texto;
+
+        private FilaInvalida(long linea, String motivo, String texto) {
+            this.linea = linea;
+            this.motivo = motivo;
+            this.texto = texto;
+        }
+
+        /**
+         * Línea del archivo donde empieza la fila (la primera es 1)
+         */
+        public long getLinea() {
+            return linea;
+        }
+
+        public String getMotivo() {
+            return motivo;
+        }
+
+        /**
+         * Comienzo de la fila tal como está en el archivo
+         */
+        public String getTexto() {
+            return texto;
+        }
+
+        @Override
+        public String toString() {
+            return "línea " + linea + ": " + motivo + " → " + texto;
+        }
+    }
+
+    static final class Resultado {
+        private long importados;
+        private long invalidas;
+        private long nanos;
+        private final List<FilaInvalida> ejemplos = new ArrayList<>();
+
+        public long getImportados() {
+            return importados;
+        }
+
+        public long getInvalidas() {
+            return invalidas;
+        }
+
+        /**
+         * Las primeras MAXIMO_INVALIDAS_GUARDADAS filas rechazadas, en orden
+         */
+        public List<FilaInvalida> getEjemplosInvalidas() {
+            return Collections.unmodifiableList(ejemplos);
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double filasPorSegundo() {
+            return nanos == 0 ? 0 : (importados + invalidas) * 1e9 / nanos;
+        }
+    }
+}
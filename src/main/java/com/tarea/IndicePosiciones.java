@@ -0,0 +1,202 @@
+package com.tarea;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice de posición en la fila para los pacientes en espera.
+ * Por cada nivel de prioridad mantiene un árbol de Fenwick sobre la
+ * secuencia de llegada, así "¿cuántos hay por delante de X?" es la suma
+ * de los niveles más urgentes más los de su nivel que llegaron antes,
+ * en O(log n) y sin copiar ni ordenar la cola.
+ * No es seguro para uso concurrente.
+ */
+class IndicePosiciones {
+    private final Map<Long, Paciente> porId = new HashMap<>();
+    private final ArbolFenwick[] niveles = new ArbolFenwick[ColaTriage.NIVELES];
+
+    public IndicePosiciones() {
+        for (int i = 0; i < niveles.length; i++) {
+            niveles[i] = new ArbolFenwick();
+        }
+    }
+
+    /**
+     * El paciente entra a la espera (registro o atención deshecha)
+     */
+    public void agregar(Paciente paciente) {
+        porId.put(paciente.getId(), paciente);
+        niveles[paciente.getPrioridad() - 1].agregar(paciente.getSecuenciaLlegada());
+    }
+
+    /**
+     * El paciente sale de la espera (fue atendido)
+     */
+    public void quitar(Paciente paciente) {
+        porId.remove(paciente.getId());
+        niveles[paciente.getPrioridad() - 1].quitar(paciente.getSecuenciaLlegada());
+    }
+
+    /**
+     * Cantidad de pacientes que serán atendidos antes que el indicado,
+     * o -1 si no está en espera
+     */
+    public int pacientesPorDelanteDe(long id) {
+        Paciente paciente = porId.get(id);
+        if (paciente == null) {
+            return -1;
+        }
+        int nivel = paciente.getPrioridad() - 1;
+        int porDelante = 0;
+        for (int i = 0; i < nivel; i++) {
+            porDelante += niveles[i].total();
+        }
+        return porDelante + niveles[nivel].contarMenores(paciente.getSecuenciaLlegada());
+    }
+
+    /**
+     * Casillas reservadas entre todos los niveles: crece con los que esperan,
+     * no con los que llegaron
+     */
+    int casillas() {
+        int casillas = 0;
+        for (ArbolFenwick nivel : niveles) {
+            casillas += nivel.casillas();
+        }
+        return casillas;
+    }
+
+    /**
+     * Árbol de Fenwick sobre los rangos locales del nivel: cada secuencia que
+     * entra ocupa la siguiente casilla de un arreglo ordenado, así la memoria
+     * depende de cuántos esperan en el nivel y no de cuántos llegaron (a
+     * todos los niveles) desde el más antiguo. Quien sale deja su casilla
+     * vacía, que se reusa si vuelve al deshacer; cuando las vacías superan a
+     * las ocupadas o se acaba el espacio, el arreglo se compacta en O(casillas).
+     */
+    private static final class ArbolFenwick {
+        private static final int CAPACIDAD_MINIMA = 64;
+
+        // Secuencias de las casillas usadas, en orden creciente
+        private long[] secuencias = new long[CAPACIDAD_MINIMA];
+        private int usadas;
+        private int[] arbol = new int[CAPACIDAD_MINIMA + 1];
+        private BitSet presentes = new BitSet(CAPACIDAD_MINIMA);
+        private int total;
+
+        void agregar(long secuencia) {
+            int casilla = buscar(secuencia);
+            if (casilla < usadas && secuencias[casilla] == secuencia) {
+                if (presentes.get(casilla)) {
+                    return;
+                }
+            } else if (casilla == usadas && usadas < secuencias.length) {
+                // Lo habitual: la llegada más reciente del nivel
+                secuencias[usadas++] = secuencia;
+            } else {
+                // Sin espacio, o vuelve alguien cuya casilla ya se compactó
+                reconstruir(secuencia);
+                casilla = buscar(secuencia);
+            }
+            presentes.set(casilla);
+            sumar(casilla, 1);
+            total++;
+        }
+
+        void quitar(long secuencia) {
+            int casilla = buscar(secuencia);
+            if (casilla == usadas || secuencias[casilla] != secuencia || !presentes.get(casilla)) {
+                return;
+            }
+            presentes.clear(casilla);
+            sumar(casilla, -1);
+            total--;
+            if (usadas > CAPACIDAD_MINIMA && 2 * total < usadas) {
+                reconstruir(-1);
+            }
+        }
+
+        /**
+         * Presentes con secuencia estrictamente menor
+         */
+        int contarMenores(long secuencia) {
+            int suma = 0;
+            for (int i = buscar(secuencia); i > 0; i -= i & -i) {
+                suma += arbol[i];
+            }
+            return suma;
+        }
+
+        int total() {
+            return total;
+        }
+
+        int casillas() {
+            return secuencias.length;
+        }
+
+        /**
+         * Primera casilla usada con secuencia mayor o igual (usadas si no hay)
+         */
+        private int buscar(long secuencia) {
+            int desde = 0;
+            int hasta = usadas;
+            while (desde < hasta) {
+                int medio = (desde + hasta) >>> 1;
+                if (secuencias[medio] < secuencia) {
+                    desde = medio + 1;
+                } else {
+                    hasta = medio;
+                }
+            }
+            return desde;
+        }
+
+        private void sumar(int casilla, int delta) {
+            for (int i = casilla + 1; i < arbol.length; i += i & -i) {
+                arbol[i] += delta;
+            }
+        }
+
+        /**
+         * Deja solo las casillas ocupadas (más una para la secuencia nueva, si
+         * no es negativa) con el doble de espacio del que hace falta
+         */
+        private void reconstruir(long nueva) {
+            int cantidad = total + (nueva >= 0 ? 1 : 0);
+            int capacidad = Math.max(CAPACIDAD_MINIMA, 2 * cantidad);
+            long[] nuevasSecuencias = new long[capacidad];
+            int[] nuevoArbol = new int[capacidad + 1];
+            int n = 0;
+            boolean pendiente = nueva >= 0;
+            for (int i = presentes.nextSetBit(0); i >= 0; i = presentes.nextSetBit(i + 1)) {
+                if (pendiente && nueva < secuencias[i]) {
+                    nuevasSecuencias[n++] = nueva;
+                    pendiente = false;
+                }
+                nuevoArbol[n + 1] = 1;
+                nuevasSecuencias[n++] = secuencias[i];
+            }
+            if (pendiente) {
+                nuevasSecuencias[n++] = nueva;
+            }
+            // Construcción lineal del árbol a partir de los valores puntuales
+            for (int i = 1; i <= capacidad; i++) {
+                int padre = i + (i & -i);
+                if (padre <= capacidad) {
+                    nuevoArbol[padre] += nuevoArbol[i];
+                }
+            }
+            secuencias = nuevasSecuencias;
+            usadas = n;
+            arbol = nuevoArbol;
+            BitSet nuevosPresentes = new BitSet(capacidad);
+            nuevosPresentes.set(0, n);
+            if (nueva >= 0) {
+                // La nueva la marca agregar
+                nuevosPresentes.clear(buscar(nueva));
+            }
+            presentes = nuevosPresentes;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.tarea;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Instantánea binaria compacta del estado del triage: pacientes en espera,
+ * atendidos y lo que se puede deshacer. Lo que se puede deshacer son siempre
+ * los últimos atendidos, así que solo se guarda cuántos son y, de cada uno,
+ * si continúa el lote del anterior y el instante de la atención (para la
+ * ventana de deshacer).
+ *
+ * Los textos (nombres y síntomas) se guardan una sola vez en una tabla y los
+ * pacientes son registros de ancho fijo que los referencian por índice, así
+ * los síntomas repetidos ("Resfriado común"...) no se duplican. Al final va
+ * el CRC32 de todo el archivo para descartar instantáneas incompletas.
+ */
+final class InstantaneaTriage {
+    private static final int MAGIA = 0x534E4150; // "SNAP"
+    private static final int VERSION = 2;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private InstantaneaTriage() {
+    }
+
+    /**
+     * Escribe la instantánea en un archivo temporal y la mueve al destino de
+     * forma atómica, así nunca queda a medias con el nombre definitivo. El
+     * sistema no debe cambiar mientras tanto (es la copia del compactador);
+     * los atendidos se recorren por páginas, sin copiarlos a una lista.
+     */
+    static void escribir(Path destino, SistemaTriageUrgencias sistema) throws IOException {
+        Iterable<Paciente> enEspera = sistema.enEspera();
+        Iterable<Paciente> atendidos = sistema.atendidos();
+        AnilloDeshacer deshacer = sistema.copiaDeshacer();
+
+        // Tabla de textos internados
+        Map<String, Integer> indiceTextos = new HashMap<>();
+        List<String> textos = new ArrayList<>();
+        for (Iterable<Paciente> grupo : List.of(enEspera, atendidos)) {
+            for (Paciente p : grupo) {
+                indiceTextos.computeIfAbsent(p.getNombre(), t -> agregar(textos, t));
+                indiceTextos.computeIfAbsent(p.getSintomas(), t -> agregar(textos, t));
+            }
+        }
+
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream archivo = Files.newOutputStream(temporal);
+             CheckedOutputStream verificado = new CheckedOutputStream(
+                     new BufferedOutputStream(archivo, TAMANO_BUFFER), crc);
+             DataOutputStream datos = new DataOutputStream(verificado)) {
+            datos.writeInt(MAGIA);
+            datos.writeInt(VERSION);
+            datos.writeLong(sistema.ultimaSecuenciaLlegada());
+            datos.writeLong(sistema.ultimoIdAsignado());
+
+            datos.writeInt(textos.size());
+            for (String texto : textos) {
+                datos.writeUTF(texto);
+            }
+
+            escribirRegistros(datos, sistema.totalEnEspera(), enEspera, indiceTextos);
+            escribirRegistros(datos, sistema.totalAtendidos(), atendidos, indiceTextos);
+            datos.writeInt(deshacer.tamano());
+            for (int i = 0; i < deshacer.tamano(); i++) {
+                datos.writeBoolean(deshacer.continuaLote(i));
+                datos.writeLong(deshacer.instante(i));
+            }
+
+            datos.flush();
+            // El CRC cubre todo lo anterior; se escribe sin pasar por él
+            long valor = crc.getValue();
+            archivo.write(new byte[] {
+                    (byte) (valor >>> 24), (byte) (valor >>> 16), (byte) (valor >>> 8), (byte) valor});
+            archivo.flush();
+        }
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Carga la instantánea en un sistema vacío. El CRC se verifica antes de
+     * interpretar nada, así un archivo dañado no llega a crear pacientes con
+     * datos basura ni a reservar arreglos con cantidades inventadas.
+     *
+     * @throws IOException si el archivo está dañado o incompleto
+     */
+    static void leer(Path origen, SistemaTriageUrgencias sistema) throws IOException {
+        long tamano = Files.size(origen);
+        if (tamano < 4) {
+            throw new IOException("Instantánea incompleta: " + origen);
+        }
+        verificarCrc(origen, tamano);
+        try (InputStream archivo = new BufferedInputStream(Files.newInputStream(origen), TAMANO_BUFFER);
+             DataInputStream datos = new DataInputStream(new LimitadoInputStream(archivo, tamano - 4))) {
+            if (datos.readInt() != MAGIA || datos.readInt() != VERSION) {
+                throw new IOException("El archivo " + origen + " no es una instantánea de triage válida");
+            }
+            long ultimaSecuencia = datos.readLong();
+            long ultimoId = datos.readLong();
+
+            String[] textos = new String[datos.readInt()];
+            for (int i = 0; i < textos.length; i++) {
+                textos[i] = datos.readUTF();
+            }
+
+            List<Paciente> enEspera = leerRegistros(datos, textos);
+            List<Paciente> atendidos = leerRegistros(datos, textos);
+            int cantidadDeshacer = datos.readInt();
+            if (cantidadDeshacer < 0 || cantidadDeshacer > atendidos.size()) {
+                throw new IOException("Historial de deshacer inválido en la instantánea " + origen);
+            }
+            AnilloDeshacer deshacer = new AnilloDeshacer(cantidadDeshacer);
+            List<Paciente> ultimos = atendidos.subList(atendidos.size() - cantidadDeshacer, atendidos.size());
+            for (Paciente paciente : ultimos) {
+                boolean continuaLote = datos.readBoolean();
+                deshacer.agregar(paciente, datos.readLong(), continuaLote);
+            }
+            sistema.reponerEstado(enEspera, atendidos, deshacer, ultimaSecuencia, ultimoId);
+        }
+    }
+
+    /**
+     * Compara el CRC32 de todo menos los últimos 4 bytes con esos 4 bytes
+     */
+    private static void verificarCrc(Path origen, long tamano) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream archivo = new BufferedInputStream(Files.newInputStream(origen), TAMANO_BUFFER);
+             CheckedInputStream verificado = new CheckedInputStream(
+                     new LimitadoInputStream(archivo, tamano - 4), crc)) {
+            byte[] descarte = new byte[TAMANO_BUFFER];
+            while (verificado.read(descarte) >= 0) {
+                // Solo se acumula el CRC
+            }
+            if (new DataInputStream(archivo).readInt() != (int) crc.getValue()) {
+                throw new IOException("CRC inválido en la instantánea " + origen);
+            }
+        }
+    }
+
+    private static void escribirRegistros(DataOutputStream datos, int cantidad, Iterable<Paciente> pacientes,
+                                          Map<String, Integer> indiceTextos) throws IOException {
+        datos.writeInt(cantidad);
+        int escritos = 0;
+        for (Paciente p : pacientes) {
+            if (++escritos > cantidad) {
+                break;
+            }
+            escribirRegistro(datos, p, indiceTextos);
+        }
+        if (escritos != cantidad) {
+            throw new IOException("El estado cambió mientras se escribía la instantánea");
+        }
+    }
+
+    // Registro de ancho fijo: id, secuencia, segundos, nanos, prioridad, nombre, síntomas
+    private static void escribirRegistro(DataOutputStream datos, Paciente p,
+                                         Map<String, Integer> indiceTextos) throws IOException {
+        LocalDateTime hora = p.getHoraLlegada();
+        datos.writeLong(p.getId());
+        datos.writeLong(p.getSecuenciaLlegada());
+        datos.writeLong(hora.toEpochSecond(ZoneOffset.UTC));
+        datos.writeInt(hora.getNano());
+        datos.writeByte(p.getPrioridad());
+        datos.writeInt(indiceTextos.get(p.getNombre()));
+        datos.writeInt(indiceTextos.get(p.getSintomas()));
+    }
+
+    private static List<Paciente> leerRegistros(DataInputStream datos, String[] textos) throws IOException {
+        int cantidad = datos.readInt();
+        List<Paciente> pacientes = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            long id = datos.readLong();
+            long secuencia = datos.readLong();
+            long segundos = datos.readLong();
+            int nanos = datos.readInt();
+            int prioridad = datos.readByte();
+            String nombre = textos[datos.readInt()];
+            String sintomas = textos[datos.readInt()];
+            pacientes.add(new Paciente(id, secuencia, nombre, prioridad, sintomas,
+                    LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC)));
+        }
+        return pacientes;
+    }
+
+    private static int agregar(List<String> textos, String texto) {
+        textos.add(texto);
+        return textos.size() - 1;
+    }
+
+    /**
+     * Deja leer solo los primeros bytes del flujo (todo menos el CRC final)
+     */
+    private static final class LimitadoInputStream extends InputStream {
+        private final InputStream origen;
+        private long restante;
+
+        LimitadoInputStream(InputStream origen, long limite) {
+            this.origen = origen;
+            this.restante = limite;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (restante <= 0) {
+                return -1;
+            }
+            int b = origen.read();
+            if (b >= 0) {
+                restante--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int desde, int largo) throws IOException {
+            if (restante <= 0) {
+                return -1;
+            }
+            int leidos = origen.read(b, desde, (int) Math.min(largo, restante));
+            if (leidos > 0) {
+                restante -= leidos;
+            }
+            return leidos;
+        }
+
+        @Override
+        public void close() {
+            // El archivo lo cierra el try-with-resources exterior
+        }
+    }
+}
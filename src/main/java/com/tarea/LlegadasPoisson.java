@@ -0,0 +1,37 @@
+package com.tarea;
+import java.util.SplittableRandom;
+
+/**
+ * Llegadas de Poisson con tasa constante: los intervalos entre llegadas son
+ * exponenciales e independientes
+ */
+class LlegadasPoisson implements ProcesoLlegadas {
+    private static final double NANOS_POR_HORA = 3600e9;
+
+    private final double porHora;
+    private final double mediaNanos;
+
+    /**
+     * @param porHora llegadas por hora en promedio; 0 para ninguna
+     */
+    public LlegadasPoisson(double porHora) {
+        if (!(porHora >= 0) || Double.isInfinite(porHora)) {
+            throw new IllegalArgumentException("La tasa de llegadas debe ser finita y no negativa");
+        }
+        this.porHora = porHora;
+        this.mediaNanos = porHora == 0 ? 0 : NANOS_POR_HORA / porHora;
+    }
+
+    public double getPorHora() {
+        return porHora;
+    }
+
+    @Override
+    public long siguiente(long anterior, long numero, SplittableRandom azar) {
+        if (porHora == 0) {
+            return SIN_MAS;
+        }
+        // 1 - u está en (0, 1], así el logaritmo nunca es infinito
+        return anterior + (long) (-mediaNanos * Math.log(1 - azar.nextDouble()));
+    }
+}
@@ -0,0 +1,82 @@
+package com.tarea;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Llegadas tomadas de un registro histórico: se repiten tal cual, sin azar
+ */
+class LlegadasTraza implements ProcesoLlegadas {
+    private static final double NANOS_POR_MINUTO = 60e9;
+
+    private final long[] instantes;
+
+    /**
+     * @param instantes nanosegundos desde el inicio, en cualquier orden
+     */
+    public LlegadasTraza(long[] instantes) {
+        this.instantes = instantes.clone();
+        Arrays.sort(this.instantes);
+        if (this.instantes.length > 0 && this.instantes[0] < 0) {
+            throw new IllegalArgumentException("Los instantes de llegada no pueden ser negativos");
+        }
+    }
+
+    public int cantidad() {
+        return instantes.length;
+    }
+
+    @Override
+    public long siguiente(long anterior, long numero, SplittableRandom azar) {
+        return numero < instantes.length ? instantes[(int) numero] : SIN_MAS;
+    }
+
+    /**
+     * Lee una traza con una llegada por línea, "minuto,prioridad" (el minuto
+     * desde el inicio puede tener decimales), y la separa por prioridad. Se
+     * admite una primera línea de encabezado y se ignoran las vacías.
+     *
+     * @return una traza por prioridad, de la 1 a la 3
+     * @throws IOException si no se puede leer o una línea no tiene ese formato
+     */
+    static LlegadasTraza[] leer(Path archivo) throws IOException {
+        long[][] porNivel = new long[ColaTriage.NIVELES][16];
+        int[] cantidades = new int[ColaTriage.NIVELES];
+        try (BufferedReader entrada = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            int numero = 0;
+            while ((linea = entrada.readLine()) != null) {
+                numero++;
+                if (linea.isBlank() || (numero == 1 && !Character.isDigit(linea.strip().charAt(0)))) {
+                    continue;
+                }
+                int coma = linea.indexOf(',');
+                double minuto;
+                int prioridad;
+                try {
+                    minuto = Double.parseDouble(linea.substring(0, Math.max(coma, 0)).strip());
+                    prioridad = Integer.parseInt(linea.substring(coma + 1).strip());
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    throw new IOException("Línea " + numero + " de la traza inválida: " + linea);
+                }
+                if (prioridad < 1 || prioridad > ColaTriage.NIVELES || !(minuto >= 0)) {
+                    throw new IOException("Línea " + numero + " de la traza inválida: " + linea);
+                }
+                int i = prioridad - 1;
+                if (cantidades[i] == porNivel[i].length) {
+                    porNivel[i] = Arrays.copyOf(porNivel[i], cantidades[i] * 2);
+                }
+                porNivel[i][cantidades[i]++] = (long) (minuto * NANOS_POR_MINUTO);
+            }
+        }
+        LlegadasTraza[] trazas = new LlegadasTraza[ColaTriage.NIVELES];
+        for (int i = 0; i < trazas.length; i++) {
+            trazas[i] = new LlegadasTraza(Arrays.copyOf(porNivel[i], cantidades[i]));
+        }
+        return trazas;
+    }
+}
@@ -1,414 +1,339 @@
 package com.tarea;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.*;
 
 /**
- * Clase que representa a un paciente en el sistema de urgencias
+ * Clase principal con menú interactivo
  */
-class Paciente {
-    private static int contadorId = 1;
+public class Main {
+    private static final VistaConsola vista = new VistaConsola();
+
+    // Con -Dtriage.eventos=<archivo> se guarda una bitácora de las operaciones
+    private static final String PROPIEDAD_BITACORA = "triage.eventos";
+    private static final int CAPACIDAD_BITACORA = 8192;
+
+    // Con -Dtriage.diario=<directorio> el estado sobrevive a un reinicio;
+    // -Dtriage.diario.sync=CADA_OPERACION|CADA_N_MS|SISTEMA elige el fsync
+    private static final String PROPIEDAD_DIARIO = "triage.diario";
+    private static final String PROPIEDAD_SINCRONIZACION = "triage.diario.sync";
+    private static final long INTERVALO_SINCRONIZACION_MS = 50;
+
+    // Con -Dtriage.almacen=<archivo> los pacientes se guardan fuera del heap
+    // en un archivo mapeado en memoria, que también persiste el estado
+    private static final String PROPIEDAD_ALMACEN = "triage.almacen";
+    // -Dtriage.almacen.atendidos=<n>: cuántos atendidos conserva; los
+    // registros de los más antiguos se reusan
+    private static final String PROPIEDAD_ALMACEN_ATENDIDOS = "triage.almacen.atendidos";
+    private static final int ALMACEN_ATENDIDOS = 100_000;
+
+    // Con -Dtriage.atendidos.desborde=<archivo> los atendidos más antiguos
+    // se vuelcan a ese archivo temporal en vez de quedar en el heap
+    private static final String PROPIEDAD_DESBORDE = "triage.atendidos.desborde";
+    private static final int ATENDIDOS_EN_MEMORIA = 100_000;
+
+    // -Dtriage.deshacer.max=<n> y -Dtriage.deshacer.minutos=<m> acotan
+    // cuántas atenciones y de hace cuánto tiempo se pueden deshacer
+    private static final String PROPIEDAD_DESHACER_MAXIMO = "triage.deshacer.max";
+    private static final String PROPIEDAD_DESHACER_MINUTOS = "triage.deshacer.minutos";
+
+    // Con -Dtriage.metricas.puerto=<puerto> se publican métricas de Prometheus
+    // en http://127.0.0.1:<puerto>/metrics
+    private static final String PROPIEDAD_METRICAS = "triage.metricas.puerto";
+
+    // Con -Dtriage.servidor.puerto=<puerto> las terminales remotas operan el
+    // mismo sistema por TCP (ProtocoloTriage); -Dtriage.servidor.direccion
+    // elige la interfaz, por defecto solo la local
+    private static final String PROPIEDAD_SERVIDOR = "triage.servidor.puerto";
+    private static final String PROPIEDAD_SERVIDOR_DIRECCION = "triage.servidor.direccion";
+
+    // Con -Dtriage.sesiones.puerto=<puerto> cada conexión recibe el menú
+    // completo en su propio hilo; -Dtriage.sesiones.hilos=PLATAFORMA|VIRTUAL
+    // elige el modelo (por defecto VIRTUAL si el build lo incluye). Escucha
+    // en la misma interfaz que triage.servidor.direccion
+    private static final String PROPIEDAD_SESIONES = "triage.sesiones.puerto";
+    private static final String PROPIEDAD_SESIONES_HILOS = "triage.sesiones.hilos";
+
+    // Con -Dtriage.importar=<archivo .csv o .ndjson> se importa ese archivo
+    // al iniciar, en lugar de los datos de ejemplo
+    private static final String PROPIEDAD_IMPORTAR = "triage.importar";
 
-    private final int id;
-    private final String nombre;
-    private final int prioridad; // 1=Rojo, 2=Amarillo, 3=Verde
-    private final LocalDateTime horaLlegada;
-    private final String sintomas;
+    public static void main(String[] args) {
+        System.out.println("\n╔═══════════════════════════════════════════════════════════════╗");
+        System.out.println("║       SISTEMA DE TRIAGE - SALA DE URGENCIAS HOSPITALARIA     ║");
+        System.out.println("╚═══════════════════════════════════════════════════════════════╝\n");
 
-    public Paciente(String nombre, int prioridad, String sintomas) {
-        if (prioridad < 1 || prioridad > 3) {
-            throw new IllegalArgumentException("Prioridad debe ser 1, 2 o 3");
+        SistemaTriageUrgencias sistema;
+        ColaTriageMapeada almacen = null;
+        String archivoAlmacen = System.getProperty(PROPIEDAD_ALMACEN);
+        String puertoServidor = System.getProperty(PROPIEDAD_SERVIDOR);
+        boolean conServidor = puertoServidor != null && !puertoServidor.isBlank();
+        String puertoSesiones = System.getProperty(PROPIEDAD_SESIONES);
+        boolean conSesiones = puertoSesiones != null && !puertoSesiones.isBlank();
+        if ((conServidor || conSesiones) && archivoAlmacen != null && !archivoAlmacen.isBlank()) {
+            // El almacén mapeado no admite acceso concurrente
+            System.err.println("✗ Las terminales remotas no se usan junto con el almacén mapeado; se ignoran "
+                    + PROPIEDAD_SERVIDOR + " y " + PROPIEDAD_SESIONES + ".");
+            conServidor = false;
+            conSesiones = false;
         }
-        if (nombre == null || nombre.trim().isEmpty()) {
-            throw new IllegalArgumentException("El nombre no puede estar vacío");
+        boolean recuperado = false;
+        if (archivoAlmacen != null && !archivoAlmacen.isBlank()) {
+            Path ruta = Path.of(archivoAlmacen);
+            recuperado = Files.exists(ruta);
+            try {
+                String maximo = System.getProperty(PROPIEDAD_ALMACEN_ATENDIDOS);
+                almacen = ColaTriageMapeada.abrir(ruta,
+                        maximo == null ? ALMACEN_ATENDIDOS : Integer.parseInt(maximo.trim()));
+            } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                System.err.println("✗ No se pudo abrir el almacén " + archivoAlmacen + ": " + e.getMessage());
+                return;
+            }
+            sistema = new SistemaTriageUrgencias(almacen);
+        } else {
+            // El menú y los hilos de las terminales remotas comparten el sistema
+            sistema = new SistemaTriageUrgencias(conServidor || conSesiones);
         }
 
-        this.id = contadorId++;
-        this.nombre = nombre;
-        this.prioridad = prioridad;
-        this.sintomas = sintomas != null ? sintomas : "No especificado";
-        this.horaLlegada = LocalDateTime.now();
-    }
-
-    public int getId() {
-        return id;
-    }
-
-    public String getNombre() {
-        return nombre;
-    }
-
-    public int getPrioridad() {
-        return prioridad;
-    }
-
-    public LocalDateTime getHoraLlegada() {
-        return horaLlegada;
-    }
-
-    public String getSintomas() {
-        return sintomas;
-    }
-
-    public String getNivelPrioridadTexto() {
-        switch (prioridad) {
-            case 1: return "ROJO (Emergencia)";
-            case 2: return "AMARILLO (Urgente)";
-            case 3: return "VERDE (No urgente)";
-            default: return "Desconocido";
+        DiarioTriage diario = null;
+        String archivoDiario = System.getProperty(PROPIEDAD_DIARIO);
+        if (almacen != null && archivoDiario != null && !archivoDiario.isBlank()) {
+            // El almacén ya persiste cada operación; el diario sería redundante
+            System.err.println("✗ El diario no se usa junto con el almacén mapeado; se ignora "
+                    + PROPIEDAD_DIARIO + ".");
+        } else if (archivoDiario != null && !archivoDiario.isBlank()) {
+            Path ruta = Path.of(archivoDiario);
+            recuperado = Files.exists(ruta);
+            try {
+                diario = DiarioTriage.abrir(ruta, leerPoliticaSincronizacion(),
+                        INTERVALO_SINCRONIZACION_MS, sistema);
+                sistema.usarDiario(diario);
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("✗ No se pudo abrir el diario " + archivoDiario + ": " + e.getMessage());
+                return;
+            }
         }
-    }
-
-    @Override
-    public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-        return String.format("[ID:%d] %s - %s - Llegada: %s - Síntomas: %s",
-                id, nombre, getNivelPrioridadTexto(),
-                horaLlegada.format(formatter), sintomas);
-    }
-}
-
-/**
- * Sistema de Triage de Urgencias
- */
-class SistemaTriageUrgencias {
-    // Cola de prioridad con comparador personalizado
-    private final PriorityQueue<Paciente> colaPacientes;
-
-    // Historial de pacientes atendidos (para el extra de deshacer)
-    private final Stack<Paciente> historialAtendidos;
-
-    // Listas para reportes
-    private final List<Paciente> listaAtendidos;
-
-    // Contadores por prioridad
-    private int contadorRojo;    // Prioridad 1
-    private int contadorAmarillo; // Prioridad 2
-    private int contadorVerde;    // Prioridad 3
-
-    public SistemaTriageUrgencias() {
-        // Comparador: primero por prioridad (ascendente),
-        // luego por hora de llegada (el más antiguo primero)
-        Comparator<Paciente> comparadorTriage = (p1, p2) -> {
-            int comparacionPrioridad = Integer.compare(p1.getPrioridad(), p2.getPrioridad());
-            if (comparacionPrioridad != 0) {
-                return comparacionPrioridad;
+        configurarDeshacer(sistema);
+        String archivoDesborde = System.getProperty(PROPIEDAD_DESBORDE);
+        if (archivoDesborde != null && !archivoDesborde.isBlank()) {
+            try {
+                sistema.desbordarAtendidos(Path.of(archivoDesborde), ATENDIDOS_EN_MEMORIA);
+            } catch (IOException e) {
+                System.err.println("✗ No se pudo abrir el desborde " + archivoDesborde + ": " + e.getMessage());
             }
-            // Desempate por hora de llegada (más temprano = mayor prioridad)
-            return p1.getHoraLlegada().compareTo(p2.getHoraLlegada());
-        };
+        }
+        RegistroEventosAsincrono bitacora = abrirBitacora(sistema);
+        ServidorMetricas servidorMetricas = abrirMetricas(sistema);
+        ServidorTriage servidor = conServidor ? abrirServidor(sistema, puertoServidor) : null;
+        ServidorSesiones sesiones = conSesiones ? abrirSesiones(sistema, puertoSesiones) : null;
+
+        SesionTerminal consola = new SesionTerminal(sistema, new Scanner(System.in), System.out, vista, true);
+        if (recuperado) {
+            System.out.println("Estado recuperado " + (almacen != null ? "del almacén" : "del diario") + ": " + sistema.totalEnEspera()
+                    + " paciente(s) en espera.\n");
+        }
+        String archivoImportar = System.getProperty(PROPIEDAD_IMPORTAR);
+        if (archivoImportar != null && !archivoImportar.isBlank()) {
+            importarArchivo(sistema, archivoImportar);
+        } else if (!recuperado) {
+            // Cargar datos de ejemplo para demostración
+            cargarDatosEjemplo(sistema);
+        }
 
-        this.colaPacientes = new PriorityQueue<>(comparadorTriage);
-        this.historialAtendidos = new Stack<>();
-        this.listaAtendidos = new ArrayList<>();
-        this.contadorRojo = 0;
-        this.contadorAmarillo = 0;
-        this.contadorVerde = 0;
+        consola.ejecutar();
+
+        if (servidor != null) {
+            servidor.close();
+        }
+        cerrarSesiones(sesiones);
+        cerrarBitacora(bitacora);
+        cerrarDiario(diario);
+        cerrarAlmacen(almacen);
+        cerrarDesborde(sistema);
+        if (servidorMetricas != null) {
+            servidorMetricas.close();
+        }
+        System.out.println("Cerrando sistema de triage. ¡Hasta pronto!");
     }
 
-    /**
-     * Registra la llegada de un nuevo paciente
-     */
-    public void registrarPaciente(String nombre, int prioridad, String sintomas) {
+    private static DiarioTriage.PoliticaSincronizacion leerPoliticaSincronizacion() {
+        String valor = System.getProperty(PROPIEDAD_SINCRONIZACION);
+        if (valor == null || valor.isBlank()) {
+            return DiarioTriage.PoliticaSincronizacion.CADA_OPERACION;
+        }
         try {
-            Paciente paciente = new Paciente(nombre, prioridad, sintomas);
-            colaPacientes.offer(paciente);
-
-            // Actualizar contador según prioridad
-            switch (prioridad) {
-                case 1: contadorRojo++; break;
-                case 2: contadorAmarillo++; break;
-                case 3: contadorVerde++; break;
-            }
-
-            System.out.println("✓ Paciente registrado exitosamente:");
-            System.out.println("  " + paciente);
-            System.out.println();
+            return DiarioTriage.PoliticaSincronizacion.valueOf(valor.trim().toUpperCase());
         } catch (IllegalArgumentException e) {
-            System.err.println("✗ Error al registrar paciente: " + e.getMessage());
+            System.err.println("✗ Política de sincronización desconocida: " + valor
+                    + ". Usando CADA_OPERACION.");
+            return DiarioTriage.PoliticaSincronizacion.CADA_OPERACION;
         }
     }
 
-    /**
-     * Ver el siguiente paciente a atender sin sacarlo de la cola
-     */
-    public void verSiguiente() {
-        Paciente siguiente = colaPacientes.peek();
-
-        if (siguiente == null) {
-            System.out.println("ℹ No hay pacientes en espera.");
-        } else {
-            System.out.println("→ Siguiente paciente a atender:");
-            System.out.println("  " + siguiente);
+    private static void cerrarDiario(DiarioTriage diario) {
+        if (diario == null) {
+            return;
+        }
+        try {
+            diario.close();
+        } catch (IOException e) {
+            System.err.println("✗ Error al cerrar el diario: " + e.getMessage());
         }
-        System.out.println();
     }
 
-    /**
-     * Atiende al siguiente paciente según prioridad triage
-     */
-    public void atender() {
-        Paciente paciente = colaPacientes.poll();
-
-        if (paciente == null) {
-            System.out.println("ℹ No hay pacientes para atender.");
-            System.out.println();
+    private static void cerrarAlmacen(ColaTriageMapeada almacen) {
+        if (almacen == null) {
             return;
         }
-
-        // Actualizar contadores
-        switch (paciente.getPrioridad()) {
-            case 1: contadorRojo--; break;
-            case 2: contadorAmarillo--; break;
-            case 3: contadorVerde--; break;
+        try {
+            almacen.close();
+        } catch (IOException e) {
+            System.err.println("✗ Error al cerrar el almacén: " + e.getMessage());
         }
-
-        // Guardar en historial
-        historialAtendidos.push(paciente);
-        listaAtendidos.add(paciente);
-
-        System.out.println("✓ Paciente atendido:");
-        System.out.println("  " + paciente);
-        System.out.println();
     }
 
-    /**
-     * Muestra los contadores por nivel de prioridad
-     */
-    public void mostrarContadores() {
-        System.out.println("═══════════════════════════════════════");
-        System.out.println("  CONTADORES POR NIVEL DE PRIORIDAD");
-        System.out.println("═══════════════════════════════════════");
-        System.out.println("  🔴 ROJO (Emergencia):    " + contadorRojo + " paciente(s)");
-        System.out.println("  🟡 AMARILLO (Urgente):   " + contadorAmarillo + " paciente(s)");
-        System.out.println("  🟢 VERDE (No urgente):   " + contadorVerde + " paciente(s)");
-        System.out.println("  ─────────────────────────────────────");
-        System.out.println("  TOTAL EN ESPERA:         " + (contadorRojo + contadorAmarillo + contadorVerde));
-        System.out.println("═══════════════════════════════════════");
-        System.out.println();
-    }
-
-    /**
-     * EXTRA: Deshace la última atención (reinserta al paciente)
-     */
-    public void deshacerUltimaAtencion() {
-        if (historialAtendidos.isEmpty()) {
-            System.out.println("ℹ No hay atenciones para deshacer.");
-            System.out.println();
+    private static void configurarDeshacer(SistemaTriageUrgencias sistema) {
+        String maximo = System.getProperty(PROPIEDAD_DESHACER_MAXIMO);
+        String minutos = System.getProperty(PROPIEDAD_DESHACER_MINUTOS);
+        if (maximo == null && minutos == null) {
             return;
         }
-
-        Paciente paciente = historialAtendidos.pop();
-        colaPacientes.offer(paciente);
-        listaAtendidos.remove(listaAtendidos.size() - 1);
-
-        // Actualizar contadores
-        switch (paciente.getPrioridad()) {
-            case 1: contadorRojo++; break;
-            case 2: contadorAmarillo++; break;
-            case 3: contadorVerde++; break;
+        try {
+            int capacidad = maximo == null
+                    ? SistemaTriageUrgencias.CAPACIDAD_DESHACER_POR_DEFECTO : Integer.parseInt(maximo.trim());
+            Duration ventana = minutos == null ? null : Duration.ofMinutes(Long.parseLong(minutos.trim()));
+            sistema.configurarDeshacer(capacidad, ventana);
+        } catch (IllegalArgumentException e) {
+            System.err.println("✗ Configuración de deshacer inválida: " + e.getMessage());
         }
+    }
 
-        System.out.println("↶ Atención deshecha. Paciente reinsertado:");
-        System.out.println("  " + paciente);
-        System.out.println();
+    private static void cerrarDesborde(SistemaTriageUrgencias sistema) {
+        try {
+            sistema.cerrarDesbordeAtendidos();
+        } catch (IOException e) {
+            System.err.println("✗ Error al cerrar el desborde de atendidos: " + e.getMessage());
+        }
     }
 
-    /**
-     * EXTRA: Genera un reporte completo del sistema
-     */
-    public void generarReporte() {
-        System.out.println("\n╔═══════════════════════════════════════════════════════════════╗");
-        System.out.println("║           REPORTE DEL SISTEMA DE TRIAGE - URGENCIAS          ║");
-        System.out.println("╚═══════════════════════════════════════════════════════════════╝\n");
+    private static ServidorMetricas abrirMetricas(SistemaTriageUrgencias sistema) {
+        String puerto = System.getProperty(PROPIEDAD_METRICAS);
+        if (puerto == null || puerto.isBlank()) {
+            return null;
+        }
+        try {
+            MetricasTriage metricas = new MetricasTriage();
+            ServidorMetricas servidor = new ServidorMetricas(sistema, metricas, Integer.parseInt(puerto.trim()));
+            sistema.usarMetricas(metricas);
+            System.out.println("Métricas en http://127.0.0.1:" + servidor.puerto() + "/metrics\n");
+            return servidor;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("✗ No se pudo iniciar el servidor de métricas: " + e.getMessage());
+            return null;
+        }
+    }
 
-        // Pacientes atendidos
-        System.out.println("┌─────────────────────────────────────┐");
-        System.out.println("│  PACIENTES ATENDIDOS: " + listaAtendidos.size() + "          │");
-        System.out.println("└─────────────────────────────────────┘");
-        if (listaAtendidos.isEmpty()) {
-            System.out.println("  (Ninguno)");
-        } else {
-            for (Paciente p : listaAtendidos) {
-                System.out.println("  " + p);
-            }
+    private static ServidorTriage abrirServidor(SistemaTriageUrgencias sistema, String puerto) {
+        String direccion = System.getProperty(PROPIEDAD_SERVIDOR_DIRECCION, "127.0.0.1");
+        try {
+            ServidorTriage servidor = new ServidorTriage(sistema,
+                    new InetSocketAddress(direccion, Integer.parseInt(puerto.trim())));
+            System.out.println("Terminales remotas en " + direccion + ":" + servidor.puerto() + "\n");
+            return servidor;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("✗ No se pudo iniciar el servidor de triage: " + e.getMessage());
+            return null;
         }
-        System.out.println();
+    }
 
-        // Pacientes en espera
-        System.out.println("┌─────────────────────────────────────┐");
-        System.out.println("│  PACIENTES EN ESPERA: " + colaPacientes.size() + "           │");
-        System.out.println("└─────────────────────────────────────┘");
-        if (colaPacientes.isEmpty()) {
-            System.out.println("  (Ninguno)");
-        } else {
-            // Copiar cola para no modificarla
-            List<Paciente> enEspera = new ArrayList<>(colaPacientes);
-            enEspera.sort((p1, p2) -> {
-                int cmp = Integer.compare(p1.getPrioridad(), p2.getPrioridad());
-                return cmp != 0 ? cmp : p1.getHoraLlegada().compareTo(p2.getHoraLlegada());
-            });
-            for (Paciente p : enEspera) {
-                System.out.println("  " + p);
+    private static ServidorSesiones abrirSesiones(SistemaTriageUrgencias sistema, String puerto) {
+        String direccion = System.getProperty(PROPIEDAD_SERVIDOR_DIRECCION, "127.0.0.1");
+        String hilos = System.getProperty(PROPIEDAD_SESIONES_HILOS);
+        ServidorSesiones.ModeloHilos modelo = ServidorSesiones.hilosVirtualesDisponibles()
+                ? ServidorSesiones.ModeloHilos.VIRTUAL : ServidorSesiones.ModeloHilos.PLATAFORMA;
+        ServidorSesiones sesiones = null;
+        try {
+            if (hilos != null && !hilos.isBlank()) {
+                modelo = ServidorSesiones.ModeloHilos.valueOf(hilos.trim().toUpperCase());
             }
+            sesiones = new ServidorSesiones(sistema, modelo);
+            sesiones.escuchar(new InetSocketAddress(direccion, Integer.parseInt(puerto.trim())));
+            System.out.println("Sesiones de terminal en " + direccion + ":" + sesiones.puerto()
+                    + " (hilos " + modelo.name().toLowerCase() + ")\n");
+            return sesiones;
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            System.err.println("✗ No se pudo iniciar el servidor de sesiones: " + e.getMessage());
+            cerrarSesiones(sesiones);
+            return null;
         }
-        System.out.println();
-
-        // Contadores
-        mostrarContadores();
     }
 
-    /**
-     * Muestra todos los pacientes en espera ordenados
-     */
-    public void listarPacientesEnEspera() {
-        if (colaPacientes.isEmpty()) {
-            System.out.println("ℹ No hay pacientes en espera.");
-            System.out.println();
+    private static void cerrarSesiones(ServidorSesiones sesiones) {
+        if (sesiones == null) {
             return;
         }
-
-        System.out.println("═══════════════════════════════════════");
-        System.out.println("  PACIENTES EN SALA DE ESPERA");
-        System.out.println("═══════════════════════════════════════");
-
-        List<Paciente> lista = new ArrayList<>(colaPacientes);
-        lista.sort((p1, p2) -> {
-            int cmp = Integer.compare(p1.getPrioridad(), p2.getPrioridad());
-            return cmp != 0 ? cmp : p1.getHoraLlegada().compareTo(p2.getHoraLlegada());
-        });
-
-        for (int i = 0; i < lista.size(); i++) {
-            System.out.println((i + 1) + ". " + lista.get(i));
+        try {
+            sesiones.close();
+        } catch (IOException e) {
+            System.err.println("✗ Error al cerrar las sesiones de terminal: " + e.getMessage());
         }
-        System.out.println("═══════════════════════════════════════");
-        System.out.println();
     }
-}
 
-/**
- * Clase principal con menú interactivo
- */
-public class Main {
-    private static final Scanner scanner = new Scanner(System.in);
-
-    public static void main(String[] args) {
-        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
-
-        System.out.println("\n╔═══════════════════════════════════════════════════════════════╗");
-        System.out.println("║       SISTEMA DE TRIAGE - SALA DE URGENCIAS HOSPITALARIA     ║");
-        System.out.println("╚═══════════════════════════════════════════════════════════════╝\n");
-
-        // Cargar datos de ejemplo para demostración
-        cargarDatosEjemplo(sistema);
-
-        boolean continuar = true;
-
-        while (continuar) {
-            mostrarMenu();
-            int opcion = leerOpcion();
-            System.out.println();
-
-            switch (opcion) {
-                case 1:
-                    registrarNuevoPaciente(sistema);
-                    break;
-                case 2:
-                    sistema.verSiguiente();
-                    break;
-                case 3:
-                    sistema.atender();
-                    break;
-                case 4:
-                    sistema.mostrarContadores();
-                    break;
-                case 5:
-                    sistema.listarPacientesEnEspera();
-                    break;
-                case 6:
-                    sistema.deshacerUltimaAtencion();
-                    break;
-                case 7:
-                    sistema.generarReporte();
-                    break;
-                case 0:
-                    System.out.println("Cerrando sistema de triage. ¡Hasta pronto!");
-                    continuar = false;
-                    break;
-                default:
-                    System.out.println("✗ Opción inválida. Intente nuevamente.\n");
-            }
-
-            if (continuar && opcion != 0) {
-                esperarEnter();
-            }
+    private static RegistroEventosAsincrono abrirBitacora(SistemaTriageUrgencias sistema) {
+        String archivo = System.getProperty(PROPIEDAD_BITACORA);
+        if (archivo == null || archivo.isBlank()) {
+            return null;
+        }
+        try {
+            Writer destino = Files.newBufferedWriter(Path.of(archivo), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            RegistroEventosAsincrono bitacora = new RegistroEventosAsincrono(destino,
+                    CAPACIDAD_BITACORA, RegistroEventosAsincrono.PoliticaSaturacion.BLOQUEAR);
+            sistema.agregarOyente(bitacora);
+            return bitacora;
+        } catch (IOException e) {
+            System.err.println("✗ No se pudo abrir la bitácora " + archivo + ": " + e.getMessage());
+            return null;
         }
-
-        scanner.close();
-    }
-
-    private static void mostrarMenu() {
-        System.out.println("┌───────────────────────────────────────────────────────────┐");
-        System.out.println("│                      MENÚ PRINCIPAL                       │");
-        System.out.println("├───────────────────────────────────────────────────────────┤");
-        System.out.println("│  1. Registrar nuevo paciente                              │");
-        System.out.println("│  2. Ver siguiente paciente a atender                      │");
-        System.out.println("│  3. Atender paciente                                      │");
-        System.out.println("│  4. Mostrar contadores por prioridad                      │");
-        System.out.println("│  5. Listar todos los pacientes en espera                  │");
-        System.out.println("│  6. Deshacer última atención (EXTRA)                      │");
-        System.out.println("│  7. Generar reporte completo (EXTRA)                      │");
-        System.out.println("│  0. Salir                                                 │");
-        System.out.println("└───────────────────────────────────────────────────────────┘");
-        System.out.print("Seleccione una opción: ");
     }
 
-    private static int leerOpcion() {
+    private static void cerrarBitacora(RegistroEventosAsincrono bitacora) {
+        if (bitacora == null) {
+            return;
+        }
         try {
-            return Integer.parseInt(scanner.nextLine().trim());
-        } catch (NumberFormatException e) {
-            return -1;
+            bitacora.close();
+        } catch (IOException e) {
+            System.err.println("✗ Error al escribir la bitácora: " + e.getMessage());
         }
     }
 
-    private static void registrarNuevoPaciente(SistemaTriageUrgencias sistema) {
-        System.out.println("─── REGISTRO DE NUEVO PACIENTE ───");
-
-        System.out.print("Nombre del paciente: ");
-        String nombre = scanner.nextLine().trim();
-
-        System.out.print("Prioridad (1=ROJO/Emergencia, 2=AMARILLO/Urgente, 3=VERDE/No urgente): ");
-        int prioridad;
+    private static void importarArchivo(SistemaTriageUrgencias sistema, String archivo) {
+        System.out.println("Importando " + archivo + "...\n");
         try {
-            prioridad = Integer.parseInt(scanner.nextLine().trim());
-        } catch (NumberFormatException e) {
-            System.out.println("✗ Prioridad inválida. Usando prioridad 3 (VERDE) por defecto.");
-            prioridad = 3;
+            vista.mostrarImportacion(new ImportadorPacientes(sistema).importar(Path.of(archivo)));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("✗ No se pudo importar " + archivo + ": " + e.getMessage());
         }
-
-        System.out.print("Síntomas: ");
-        String sintomas = scanner.nextLine().trim();
-
-        System.out.println();
-        sistema.registrarPaciente(nombre, prioridad, sintomas);
     }
 
     private static void cargarDatosEjemplo(SistemaTriageUrgencias sistema) {
         System.out.println("Cargando datos de ejemplo...\n");
 
-        sistema.registrarPaciente("Carlos Méndez", 2, "Dolor abdominal intenso");
-        sistema.registrarPaciente("Ana García", 1, "Paro cardíaco");
-        sistema.registrarPaciente("Luis Rodríguez", 3, "Resfriado común");
-        sistema.registrarPaciente("María López", 1, "Trauma craneal severo");
-        sistema.registrarPaciente("Pedro Sánchez", 2, "Fractura de brazo");
-        sistema.registrarPaciente("Sofía Torres", 3, "Consulta de rutina");
+        vista.mostrarRegistroLote(sistema.registrarPacientes(List.of(
+                new SolicitudRegistro("Carlos Méndez", 2, "Dolor abdominal intenso"),
+                new SolicitudRegistro("Ana García", 1, "Paro cardíaco"),
+                new SolicitudRegistro("Luis Rodríguez", 3, "Resfriado común"),
+                new SolicitudRegistro("María López", 1, "Trauma craneal severo"),
+                new SolicitudRegistro("Pedro Sánchez", 2, "Fractura de brazo"),
+                new SolicitudRegistro("Sofía Torres", 3, "Consulta de rutina"))));
 
         System.out.println("═══════════════════════════════════════\n");
     }
-
-    private static void esperarEnter() {
-        System.out.print("\nPresione ENTER para continuar...");
-        scanner.nextLine();
-        System.out.println();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package com.tarea;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores y latencias (en nanosegundos) de las operaciones del motor.
+ * El sistema los actualiza al final de cada operación exitosa, sin
+ * candados; se activan con SistemaTriageUrgencias.usarMetricas.
+ */
+class MetricasTriage {
+    enum Operacion {
+        // Las operaciones _LOTE cuentan bloques, no pacientes
+        REGISTRAR, REGISTRAR_LOTE, ATENDER, ATENDER_LOTE, DESHACER, DESHACER_LOTE, REHACER
+    }
+
+    private final LongAdder[] operaciones = new LongAdder[Operacion.values().length];
+    private final HistogramaTiempos[] latencias = new HistogramaTiempos[Operacion.values().length];
+
+    public MetricasTriage() {
+        for (int i = 0; i < operaciones.length; i++) {
+            operaciones[i] = new LongAdder();
+            latencias[i] = new HistogramaTiempos();
+        }
+    }
+
+    public void registrar(Operacion operacion, long nanos) {
+        operaciones[operacion.ordinal()].increment();
+        latencias[operacion.ordinal()].registrar(nanos);
+    }
+
+    public long operaciones(Operacion operacion) {
+        return operaciones[operacion.ordinal()].sum();
+    }
+
+    public HistogramaTiempos.Resumen latencia(Operacion operacion) {
+        return latencias[operacion.ordinal()].resumen();
+    }
+}
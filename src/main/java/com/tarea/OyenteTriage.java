@@ -0,0 +1,36 @@
+package com.tarea;
+import java.util.List;
+
+/**
+ * Recibe los eventos del sistema de triage después de cada operación.
+ * Se invoca en el hilo que hizo la operación, así que las implementaciones
+ * deben ser rápidas (por ejemplo, encolar el evento y procesarlo aparte).
+ */
+interface OyenteTriage {
+    default void pacienteRegistrado(Paciente paciente) {
+    }
+
+    /**
+     * Un bloque registrado con registrarPacientes, en orden de llegada
+     */
+    default void pacientesRegistrados(List<Paciente> pacientes) {
+        for (Paciente paciente : pacientes) {
+            pacienteRegistrado(paciente);
+        }
+    }
+
+    default void pacienteAtendido(Paciente paciente) {
+    }
+
+    /**
+     * Un lote atendido con atenderLote, en orden de atención
+     */
+    default void pacientesAtendidos(List<Paciente> pacientes) {
+        for (Paciente paciente : pacientes) {
+            pacienteAtendido(paciente);
+        }
+    }
+
+    default void atencionDeshecha(Paciente paciente) {
+    }
+}
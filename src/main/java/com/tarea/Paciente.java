@@ -0,0 +1,157 @@
+package com.tarea;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Clase que representa a un paciente en el sistema de urgencias
+ */
+class Paciente {
+    private final long id;
+    private final String nombre;
+    private final int prioridad; // 1=Rojo, 2=Amarillo, 3=Verde
+    private final long secuenciaLlegada; // Orden de llegada (desempate FIFO)
+    private final LocalDateTime horaLlegada; // Solo para mostrar
+    private final long llegadaEpochMilli; // Instante de llegada, para medir esperas
+    private final String sintomas;
+
+    public Paciente(long id, long secuenciaLlegada, String nombre, int prioridad, String sintomas) {
+        this(id, secuenciaLlegada, nombre, prioridad, sintomas, Instant.now(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Paciente que llega en el instante indicado; la hora que se muestra es
+     * la de ese instante en la zona indicada
+     */
+    public Paciente(long id, long secuenciaLlegada, String nombre, int prioridad, String sintomas,
+                    Instant llegada, ZoneId zona) {
+        this(id, secuenciaLlegada, nombre, prioridad, sintomas, LocalDateTime.ofInstant(llegada, zona),
+                llegada.toEpochMilli());
+    }
+
+    /**
+     * Reconstruye un paciente con su hora de llegada original (por ejemplo,
+     * al recuperar el estado desde el diario). Lo guardado es la hora local,
+     * así que el instante se deduce en la zona del sistema; si esa hora se
+     * repite en un cambio de horario se toma la primera.
+     */
+    public Paciente(long id, long secuenciaLlegada, String nombre, int prioridad, String sintomas,
+                    LocalDateTime horaLlegada) {
+        this(id, secuenciaLlegada, nombre, prioridad, sintomas, horaLlegada,
+                horaLlegada.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    /**
+     * Reconstruye un paciente guardado con su hora local y su instante tal cual
+     */
+    Paciente(long id, long secuenciaLlegada, String nombre, int prioridad, String sintomas,
+             LocalDateTime horaLlegada, long llegadaEpochMilli) {
+        validar(nombre, prioridad);
+
+        this.id = id;
+        this.secuenciaLlegada = secuenciaLlegada;
+        this.nombre = nombre;
+        this.prioridad = prioridad;
+        this.sintomas = sintomas != null ? sintomas : "No especificado";
+        this.horaLlegada = horaLlegada;
+        this.llegadaEpochMilli = llegadaEpochMilli;
+    }
+
+    /**
+     * @throws IllegalArgumentException si el nombre o la prioridad no son válidos
+     */
+    static void validar(String nombre, int prioridad) {
+        if (prioridad < 1 || prioridad > 3) {
+            throw new IllegalArgumentException("Prioridad debe ser 1, 2 o 3");
+        }
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre no puede estar vacío");
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getPrioridad() {
+        return prioridad;
+    }
+
+    /**
+     * Número de llegada estrictamente creciente. A diferencia de horaLlegada
+     * nunca empata, aunque dos pacientes se registren en el mismo instante.
+     */
+    public long getSecuenciaLlegada() {
+        return secuenciaLlegada;
+    }
+
+    public LocalDateTime getHoraLlegada() {
+        return horaLlegada;
+    }
+
+    /**
+     * Instante de llegada en milisegundos desde la época. Las esperas se
+     * miden desde acá y no desde horaLlegada, que es hora local y salta en
+     * los cambios de horario.
+     */
+    public long getLlegadaEpochMilli() {
+        return llegadaEpochMilli;
+    }
+
+    public String getSintomas() {
+        return sintomas;
+    }
+
+    public String getNivelPrioridadTexto() {
+        switch (prioridad) {
+            case 1: return "ROJO (Emergencia)";
+            case 2: return "AMARILLO (Urgente)";
+            case 3: return "VERDE (No urgente)";
+            default: return "Desconocido";
+        }
+    }
+
+    /**
+     * Escribe la misma línea que toString() directamente en el destino, sin
+     * String.format ni formateadores temporales, para que listados y reportes
+     * largos puedan ir a un único buffer.
+     */
+    public <A extends Appendable> A appendTo(A destino) throws IOException {
+        destino.append("[ID:").append(Long.toString(id)).append("] ")
+                .append(nombre).append(" - ")
+                .append(getNivelPrioridadTexto())
+                .append(" - Llegada: ");
+        appendDosDigitos(destino, horaLlegada.getHour()).append(':');
+        appendDosDigitos(destino, horaLlegada.getMinute()).append(':');
+        appendDosDigitos(destino, horaLlegada.getSecond());
+        destino.append(" - Síntomas: ").append(sintomas);
+        return destino;
+    }
+
+    /**
+     * Igual que appendTo(Appendable), sin IOException porque StringBuilder no la lanza
+     */
+    public StringBuilder appendTo(StringBuilder destino) {
+        try {
+            appendTo((Appendable) destino);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return destino;
+    }
+
+    private static Appendable appendDosDigitos(Appendable destino, int valor) throws IOException {
+        return destino.append((char) ('0' + valor / 10)).append((char) ('0' + valor % 10));
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(96)).toString();
+    }
+}
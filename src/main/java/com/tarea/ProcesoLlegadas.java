@@ -0,0 +1,24 @@
+package com.tarea;
+import java.util.SplittableRandom;
+
+/**
+ * Cuándo llegan los pacientes de una prioridad en una simulación. Los
+ * instantes son nanosegundos simulados desde el inicio. Las
+ * implementaciones no guardan estado de la corrida (el simulador les pasa
+ * el número de llegada y su propio generador), así la misma instancia sirve
+ * para muchas corridas a la vez.
+ */
+interface ProcesoLlegadas {
+    /**
+     * Valor de siguiente cuando ya no hay más llegadas
+     */
+    long SIN_MAS = Long.MAX_VALUE;
+
+    /**
+     * @param anterior instante de la llegada anterior (0 para la primera)
+     * @param numero   cuántas llegadas hubo antes de esta en la corrida
+     * @param azar     generador propio de este proceso en la corrida
+     * @return instante de la próxima llegada, no anterior a anterior, o SIN_MAS
+     */
+    long siguiente(long anterior, long numero, SplittableRandom azar);
+}
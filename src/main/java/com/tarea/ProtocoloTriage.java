@@ -0,0 +1,206 @@
+package com.tarea;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Protocolo de texto por líneas (UTF-8, terminadas en \n) con el que las
+ * terminales remotas operan un SistemaTriageUrgencias:
+ *
+ *   REGISTRAR &lt;prioridad&gt; &lt;nombre&gt;|&lt;síntomas&gt;  → OK &lt;id&gt;
+ *   SIGUIENTE | ATENDER | DESHACER | REHACER   → OK &lt;paciente&gt; | VACIO
+ *   CONTADORES                                 → OK &lt;rojo&gt; &lt;amarillo&gt; &lt;verde&gt;
+ *   LISTAR [límite]                            → OK, un paciente por línea y "."
+ *   REPORTE [CSV|JSON]                         → OK, el reporte y "."
+ *
+ * Los errores se responden con "ERROR &lt;mensaje&gt;". En las respuestas de
+ * varias líneas, una línea que empiece con "." se envía con un "." extra
+ * delante, como en SMTP. Los nombres y síntomas con caracteres de control se
+ * rechazan al registrar y, si llegan de un diario o almacén anterior, se
+ * envían con espacios en su lugar, así nunca parten una respuesta.
+ * No depende del transporte: recibe una línea y agrega la respuesta a un
+ * StringBuilder; el REPORTE se entrega de a páginas (RespuestaPorPaginas).
+ */
+class ProtocoloTriage {
+    static final int LIMITE_LISTAR_POR_DEFECTO = 100;
+
+    private final SistemaTriageUrgencias sistema;
+
+    public ProtocoloTriage(SistemaTriageUrgencias sistema) {
+        this.sistema = sistema;
+    }
+
+    /**
+     * Respuesta larga que se agrega de a una página por vez: el transporte
+     * pide la siguiente cuando terminó de enviar la anterior, así no se arma
+     * entera en memoria ni ocupa a su hilo más que una página seguida
+     */
+    interface RespuestaPorPaginas {
+        /**
+         * Agrega la siguiente página a la respuesta
+         *
+         * @return false si con esta se completó la respuesta
+         */
+        boolean siguiente(StringBuilder respuesta);
+    }
+
+    /**
+     * Ejecuta un comando y agrega su respuesta (terminada en \n), o su
+     * comienzo si es de las que siguen de a páginas
+     *
+     * @return el resto de la respuesta, o null si ya está completa
+     */
+    public RespuestaPorPaginas procesar(String linea, StringBuilder respuesta) {
+        int espacio = linea.indexOf(' ');
+        String comando = (espacio < 0 ? linea : linea.substring(0, espacio)).trim().toUpperCase(Locale.ROOT);
+        String argumentos = espacio < 0 ? "" : linea.substring(espacio + 1).trim();
+        try {
+            switch (comando) {
+                case "REGISTRAR":
+                    registrar(argumentos, respuesta);
+                    break;
+                case "SIGUIENTE":
+                    paciente(sistema.verSiguiente(), respuesta);
+                    break;
+                case "ATENDER":
+                    paciente(sistema.atender(), respuesta);
+                    break;
+                case "DESHACER":
+                    paciente(sistema.deshacerUltimaAtencion(), respuesta);
+                    break;
+                case "REHACER":
+                    paciente(sistema.rehacer(), respuesta);
+                    break;
+                case "CONTADORES":
+                    respuesta.append("OK");
+                    for (int prioridad = 1; prioridad <= ColaTriage.NIVELES; prioridad++) {
+                        respuesta.append(' ').append(sistema.contador(prioridad));
+                    }
+                    respuesta.append('\n');
+                    break;
+                case "LISTAR":
+                    listar(argumentos, respuesta);
+                    break;
+                case "REPORTE":
+                    return reporte(argumentos, respuesta);
+                default:
+                    respuesta.append("ERROR comando desconocido: ").append(comando).append('\n');
+            }
+        } catch (IllegalArgumentException e) {
+            respuesta.append("ERROR ").append(e.getMessage()).append('\n');
+        }
+        return null;
+    }
+
+    private void registrar(String argumentos, StringBuilder respuesta) {
+        int espacio = argumentos.indexOf(' ');
+        int barra = argumentos.indexOf('|');
+        if (espacio < 0 || barra < espacio) {
+            throw new IllegalArgumentException("uso: REGISTRAR <prioridad> <nombre>|<síntomas>");
+        }
+        int prioridad = Integer.parseInt(argumentos.substring(0, espacio));
+        String nombre = argumentos.substring(espacio + 1, barra).trim();
+        String sintomas = argumentos.substring(barra + 1).trim();
+        SolicitudRegistro solicitud = new SolicitudRegistro(nombre, prioridad, sintomas);
+        Paciente paciente = sistema.registrarPaciente(solicitud.getNombre(), solicitud.getPrioridad(),
+                solicitud.getSintomas());
+        respuesta.append("OK ").append(paciente.getId()).append('\n');
+    }
+
+    private static void paciente(Optional<Paciente> paciente, StringBuilder respuesta) {
+        if (paciente.isEmpty()) {
+            respuesta.append("VACIO\n");
+            return;
+        }
+        int inicio = respuesta.append("OK ").length();
+        paciente.get().appendTo(respuesta);
+        sinControles(respuesta, inicio).append('\n');
+    }
+
+    private void listar(String argumentos, StringBuilder respuesta) {
+        int limite = argumentos.isEmpty() ? LIMITE_LISTAR_POR_DEFECTO : Integer.parseInt(argumentos);
+        if (limite < 0) {
+            throw new IllegalArgumentException("el límite no puede ser negativo");
+        }
+        respuesta.append("OK\n");
+        int escritos = 0;
+        for (Paciente p : sistema.enEspera()) {
+            if (escritos++ == limite) {
+                break;
+            }
+            // "[ID:..." nunca empieza con '.', no hace falta escaparlo
+            int inicio = respuesta.length();
+            p.appendTo(respuesta);
+            sinControles(respuesta, inicio).append('\n');
+        }
+        respuesta.append(".\n");
+    }
+
+    /**
+     * Reemplaza por espacios los caracteres de control agregados desde inicio
+     */
+    private static StringBuilder sinControles(StringBuilder respuesta, int inicio) {
+        for (int i = inicio; i < respuesta.length(); i++) {
+            if (Character.isISOControl(respuesta.charAt(i))) {
+                respuesta.setCharAt(i, ' ');
+            }
+        }
+        return respuesta;
+    }
+
+    private RespuestaPorPaginas reporte(String argumentos, StringBuilder respuesta) {
+        ReporteTriage.Formato formato = argumentos.isEmpty()
+                ? ReporteTriage.Formato.CSV : ReporteTriage.Formato.valueOf(argumentos.toUpperCase(Locale.ROOT));
+        ReporteTriage reporte = ReporteTriage.porPaginas(sistema, formato);
+        respuesta.append("OK\n");
+        EscritorLineas escritor = new EscritorLineas();
+        return destino -> {
+            escritor.destino = destino;
+            boolean quedan;
+            try {
+                quedan = reporte.escribirPagina(escritor);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!quedan) {
+                if (!escritor.inicioLinea) {
+                    destino.append('\n');
+                }
+                destino.append(".\n");
+            }
+            return quedan;
+        };
+    }
+
+    /**
+     * Writer sobre el StringBuilder de la respuesta que duplica el "." al
+     * comienzo de cada línea; recuerda dónde quedó entre una página y otra
+     */
+    private static final class EscritorLineas extends Writer {
+        // La respuesta de la página en curso
+        StringBuilder destino;
+        boolean inicioLinea = true;
+
+        @Override
+        public void write(char[] caracteres, int desde, int largo) {
+            for (int i = desde; i < desde + largo; i++) {
+                char c = caracteres[i];
+                if (inicioLinea && c == '.') {
+                    destino.append('.');
+                }
+                destino.append(c);
+                inicioLinea = c == '\n';
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
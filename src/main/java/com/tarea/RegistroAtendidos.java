@@ -0,0 +1,79 @@
+package com.tarea;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pacientes atendidos en orden de atención, para los reportes y para
+ * deshacer. HistorialAtendidos los guarda en el heap (con desborde
+ * opcional a disco); el almacén mapeado los lee de sus propios registros.
+ * No es seguro para uso concurrente.
+ */
+interface RegistroAtendidos extends AutoCloseable {
+
+    /**
+     * Anota al paciente como el último atendido
+     *
+     * @param instante reloj.millis() de la atención, o 0 si no se conoce;
+     *                 lo guarda quien lo necesite para retomar el deshacer
+     *                 al reabrir (el almacén mapeado)
+     */
+    void agregar(Paciente paciente, long instante);
+
+    /**
+     * Anota un lote, en orden de atención, atendido en el mismo instante
+     */
+    void agregarTodos(List<Paciente> pacientes, long instante);
+
+    /**
+     * Quita la atención más reciente del paciente indicado, que al deshacer
+     * está entre las últimas
+     *
+     * @return false si el paciente no figura entre las últimas atenciones
+     */
+    boolean quitar(long id);
+
+    int tamano();
+
+    /**
+     * Copia a destino los atendidos desde la posición indicada (en orden de
+     * atención); puede copiar menos de los que quepan
+     *
+     * @return cuántos copió; 0 si desde ya está al final
+     */
+    int copiar(int desde, Paciente[] destino);
+
+    /**
+     * Copia del registro en orden de atención
+     */
+    default List<Paciente> aLista() {
+        List<Paciente> lista = new ArrayList<>(tamano());
+        Paciente[] pagina = new Paciente[HistorialAtendidos.TAMANO_BLOQUE];
+        int copiados;
+        while ((copiados = copiar(lista.size(), pagina)) > 0) {
+            for (int i = 0; i < copiados; i++) {
+                lista.add(pagina[i]);
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Cuántas de las últimas atenciones se conservan; las más antiguas se
+     * descartan y ya no se pueden deshacer
+     */
+    default int retencion() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Vuelca a un archivo temporal las atenciones antiguas cuando hay más de
+     * maximoEnMemoria en el heap. Si ya están fuera del heap no hace nada.
+     */
+    default void desbordarEn(Path archivo, int maximoEnMemoria) throws IOException {
+    }
+
+    @Override
+    void close() throws IOException;
+}
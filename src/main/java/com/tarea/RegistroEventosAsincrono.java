@@ -0,0 +1,195 @@
+package com.tarea;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bitácora asíncrona de eventos del triage. Las operaciones del sistema solo
+ * encolan el evento en un buffer acotado; un hilo escritor lo vacía por lotes,
+ * da formato y escribe cada lote de una vez, así atender() no espera a la E/S.
+ * Los eventos se escriben en el mismo orden en que se encolaron.
+ */
+class RegistroEventosAsincrono implements OyenteTriage, AutoCloseable {
+    /**
+     * Qué hacer cuando el buffer está lleno
+     */
+    enum PoliticaSaturacion {
+        BLOQUEAR,  // La operación espera a que el escritor libere espacio
+        DESCARTAR  // El evento se pierde y se cuenta en descartados()
+    }
+
+    private static final int TAMANO_LOTE = 256;
+    private static final DateTimeFormatter FORMATO_HORA =
+            DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    // Marca de fin: al sacarla el escritor termina después de vaciar lo anterior
+    private static final Evento FIN = new Evento(null, null, 0);
+
+    private final BlockingQueue<Evento> buffer;
+    private final PoliticaSaturacion politica;
+    private final Writer destino;
+    private final Thread escritor;
+    private final LongAdder descartados = new LongAdder();
+    private volatile boolean cerrado;
+    private volatile IOException errorEscritura;
+
+    /**
+     * @param destino   dónde escribir (stdout, archivo...); se cierra en close()
+     * @param capacidad eventos que caben en el buffer antes de aplicar la política
+     * @param politica  comportamiento con el buffer lleno
+     */
+    public RegistroEventosAsincrono(Writer destino, int capacidad, PoliticaSaturacion politica) {
+        if (capacidad < 1) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva");
+        }
+        this.buffer = new ArrayBlockingQueue<>(capacidad);
+        this.politica = politica;
+        this.destino = destino;
+        this.escritor = new Thread(this::vaciar, "registro-eventos-triage");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    @Override
+    public void pacienteRegistrado(Paciente paciente) {
+        publicar(new Evento("REGISTRADO", paciente, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void pacienteAtendido(Paciente paciente) {
+        publicar(new Evento("ATENDIDO", paciente, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void atencionDeshecha(Paciente paciente) {
+        publicar(new Evento("DESHECHO", paciente, System.currentTimeMillis()));
+    }
+
+    /**
+     * Eventos perdidos por tener el buffer lleno o por llegar tras close()
+     */
+    public long descartados() {
+        return descartados.sum();
+    }
+
+    private void publicar(Evento evento) {
+        if (cerrado) {
+            descartados.increment();
+            return;
+        }
+        if (politica == PoliticaSaturacion.DESCARTAR) {
+            if (!buffer.offer(evento)) {
+                descartados.increment();
+            }
+            return;
+        }
+        try {
+            buffer.put(evento);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            descartados.increment();
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: espera un evento y luego toma todo lo que haya
+     * acumulado (hasta TAMANO_LOTE) para escribirlo en una sola pasada.
+     */
+    private void vaciar() {
+        List<Evento> lote = new ArrayList<>(TAMANO_LOTE);
+        StringBuilder texto = new StringBuilder(TAMANO_LOTE * 128);
+        boolean terminar = false;
+        while (!terminar) {
+            try {
+                lote.add(buffer.take());
+            } catch (InterruptedException e) {
+                // El escritor solo termina al encontrar FIN
+                continue;
+            }
+            buffer.drainTo(lote, TAMANO_LOTE - 1);
+
+            for (Evento evento : lote) {
+                if (evento == FIN) {
+                    terminar = true;
+                    break;
+                }
+                FORMATO_HORA.formatTo(Instant.ofEpochMilli(evento.instante), texto);
+                texto.append(' ').append(evento.tipo).append(' ');
+                evento.paciente.appendTo(texto).append(System.lineSeparator());
+            }
+            escribir(texto);
+            texto.setLength(0);
+            lote.clear();
+        }
+    }
+
+    private void escribir(CharSequence texto) {
+        if (texto.length() == 0 || errorEscritura != null) {
+            return;
+        }
+        try {
+            destino.append(texto);
+            destino.flush();
+        } catch (IOException e) {
+            errorEscritura = e;
+        }
+    }
+
+    /**
+     * Deja de aceptar eventos, escribe todos los pendientes y cierra el destino
+     *
+     * @throws IOException si falló alguna escritura o el cierre del destino
+     */
+    @Override
+    public void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        boolean interrumpido = false;
+        while (true) {
+            try {
+                buffer.put(FIN);
+                break;
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        while (escritor.isAlive()) {
+            try {
+                escritor.join();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+        // Eventos que llegaron a encolarse mientras se cerraba
+        descartados.add(buffer.size());
+        buffer.clear();
+        destino.close();
+        if (errorEscritura != null) {
+            throw errorEscritura;
+        }
+    }
+
+    private static final class Evento {
+        final String tipo;
+        final Paciente paciente;
+        final long instante;
+
+        Evento(String tipo, Paciente paciente, long instante) {
+            this.tipo = tipo;
+            this.paciente = paciente;
+            this.instante = instante;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.tarea;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Reloj de una simulación: marca nanosegundos simulados desde un instante
+ * de inicio y solo avanza cuando el simulador lo mueve. Se usa desde un
+ * solo hilo (el de la simulación), así que no sincroniza.
+ */
+class RelojSimulado extends Clock {
+    private final Instant inicio;
+    private final long inicioMillis;
+    private long nanos;
+
+    public RelojSimulado(Instant inicio) {
+        this.inicio = inicio;
+        this.inicioMillis = inicio.toEpochMilli();
+    }
+
+    /**
+     * Mueve el reloj al instante simulado indicado
+     *
+     * @throws IllegalArgumentException si el instante es anterior al actual
+     */
+    public void fijar(long nanos) {
+        if (nanos < this.nanos) {
+            throw new IllegalArgumentException("El reloj simulado no puede retroceder");
+        }
+        this.nanos = nanos;
+    }
+
+    /**
+     * Nanosegundos simulados desde el inicio
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    @Override
+    public Instant instant() {
+        return inicio.plusNanos(nanos);
+    }
+
+    // Sin crear un Instant: EstadisticasTriage lo pide en cada registro
+    @Override
+    public long millis() {
+        return inicioMillis + nanos / 1_000_000;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    /**
+     * Vista en otra zona que marca los mismos nanos: avanza cuando se mueve
+     * este reloj
+     */
+    @Override
+    public Clock withZone(ZoneId zona) {
+        if (zona.equals(ZoneOffset.UTC)) {
+            return this;
+        }
+        return new EnZona(this, zona);
+    }
+
+    private static final class EnZona extends Clock {
+        private final RelojSimulado reloj;
+        private final ZoneId zona;
+
+        EnZona(RelojSimulado reloj, ZoneId zona) {
+            this.reloj = reloj;
+            this.zona = zona;
+        }
+
+        @Override
+        public Instant instant() {
+            return reloj.instant();
+        }
+
+        @Override
+        public long millis() {
+            return reloj.millis();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zona;
+        }
+
+        @Override
+        public Clock withZone(ZoneId otra) {
+            return reloj.withZone(otra);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.tarea;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Réplicas Monte Carlo de un SimuladorTriage: cada réplica es una guardia
+ * completa sobre su propio SistemaTriageUrgencias, con su flujo de azar
+ * partido del de la semilla maestra. Las réplicas no comparten estado, así
+ * que se reparten entre los hilos de un ForkJoinPool y escalan con los
+ * núcleos.
+ *
+ * El resultado depende solo de la semilla maestra y no de la cantidad de
+ * hilos: los flujos se parten en orden antes de empezar, los histogramas de
+ * espera se combinan con una suma exacta y los valores de cada réplica se
+ * guardan en su posición.
+ */
+class ReplicasSimulacion {
+    private static final double Z_95 = 1.959963984540054;
+
+    private final SimuladorTriage simulador;
+    private final Duration duracion;
+    private final int hilos;
+
+    /**
+     * Réplicas repartidas en tantos hilos como procesadores disponibles
+     */
+    public ReplicasSimulacion(SimuladorTriage simulador, Duration duracion) {
+        this(simulador, duracion, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ReplicasSimulacion(SimuladorTriage simulador, Duration duracion, int hilos) {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("Debe haber al menos un hilo");
+        }
+        this.simulador = simulador;
+        this.duracion = duracion;
+        this.hilos = hilos;
+    }
+
+    public Resultado ejecutar(int replicas, long semillaMaestra) {
+        if (replicas <= 0) {
+            throw new IllegalArgumentException("Debe haber al menos una réplica");
+        }
+        long inicioReal = System.nanoTime();
+        SplittableRandom maestro = new SplittableRandom(semillaMaestra);
+        SplittableRandom[] flujos = new SplittableRandom[replicas];
+        for (int i = 0; i < replicas; i++) {
+            flujos[i] = maestro.split();
+        }
+
+        // Cada réplica escribe solo su columna; get() publica todo al terminar
+        double[][] mediasEspera = new double[ColaTriage.NIVELES][replicas];
+        double[] utilizaciones = new double[replicas];
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        try {
+            Acumulado total = pool.submit(() -> IntStream.range(0, replicas).parallel()
+                    .mapToObj(i -> {
+                        SimuladorTriage.Resultado r = simulador.ejecutar(duracion, flujos[i]);
+                        for (int n = 0; n < ColaTriage.NIVELES; n++) {
+                            HistogramaTiempos.Resumen espera = r.espera(n + 1);
+                            mediasEspera[n][i] = espera.getTotal() == 0 ? Double.NaN : espera.getPromedio();
+                        }
+                        utilizaciones[i] = r.getUtilizacion();
+                        return new Acumulado(r);
+                    })
+                    .reduce(Acumulado.VACIO, Acumulado::combinar)).get();
+            return new Resultado(replicas, total, mediasEspera, utilizaciones, System.nanoTime() - inicioReal);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Réplicas interrumpidas", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Totales de un grupo de réplicas, combinables en cualquier orden
+     */
+    private static final class Acumulado {
+        static final Acumulado VACIO = vacio();
+
+        final long eventos;
+        final long[] llegadas;
+        final long[] enEspera;
+        final HistogramaTiempos.Resumen[] esperas;
+
+        Acumulado(long eventos, long[] llegadas, long[] enEspera, HistogramaTiempos.Resumen[] esperas) {
+            this.eventos = eventos;
+            this.llegadas = llegadas;
+            this.enEspera = enEspera;
+            this.esperas = esperas;
+        }
+
+        Acumulado(SimuladorTriage.Resultado r) {
+            this(r.getEventos(), new long[ColaTriage.NIVELES], new long[ColaTriage.NIVELES],
+                    new HistogramaTiempos.Resumen[ColaTriage.NIVELES]);
+            for (int n = 0; n < ColaTriage.NIVELES; n++) {
+                llegadas[n] = r.llegadas(n + 1);
+                enEspera[n] = r.enEspera(n + 1);
+                esperas[n] = r.espera(n + 1);
+            }
+        }
+
+        private static Acumulado vacio() {
+            HistogramaTiempos.Resumen[] esperas = new HistogramaTiempos.Resumen[ColaTriage.NIVELES];
+            for (int n = 0; n < ColaTriage.NIVELES; n++) {
+                esperas[n] = HistogramaTiempos.Resumen.vacio();
+            }
+            return new Acumulado(0, new long[ColaTriage.NIVELES], new long[ColaTriage.NIVELES], esperas);
+        }
+
+        Acumulado combinar(Acumulado otro) {
+            long[] llegadas = new long[ColaTriage.NIVELES];
+            long[] enEspera = new long[ColaTriage.NIVELES];
+            HistogramaTiempos.Resumen[] esperas = new HistogramaTiempos.Resumen[ColaTriage.NIVELES];
+            for (int n = 0; n < ColaTriage.NIVELES; n++) {
+                llegadas[n] = this.llegadas[n] + otro.llegadas[n];
+                enEspera[n] = this.enEspera[n] + otro.enEspera[n];
+                esperas[n] = this.esperas[n].combinar(otro.esperas[n]);
+            }
+            return new Acumulado(eventos + otro.eventos, llegadas, enEspera, esperas);
+        }
+    }
+
+    /**
+     * Resultado de todas las réplicas. Las esperas están en milisegundos
+     * simulados; los intervalos de confianza son del 95 % con aproximación
+     * normal, adecuada para decenas de réplicas o más.
+     */
+    static final class Resultado {
+        private final int replicas;
+        private final Acumulado total;
+        private final double[] mediaEspera;
+        private final double[] semiAnchoEspera;
+        private final double utilizacion;
+        private final double semiAnchoUtilizacion;
+        private final long nanosReales;
+
+        private Resultado(int replicas, Acumulado total, double[][] mediasEspera, double[] utilizaciones,
+                          long nanosReales) {
+            this.replicas = replicas;
+            this.total = total;
+            this.mediaEspera = new double[ColaTriage.NIVELES];
+            this.semiAnchoEspera = new double[ColaTriage.NIVELES];
+            for (int n = 0; n < ColaTriage.NIVELES; n++) {
+                double[] estimacion = mediaYSemiAncho(mediasEspera[n]);
+                mediaEspera[n] = estimacion[0];
+                semiAnchoEspera[n] = estimacion[1];
+            }
+            double[] estimacion = mediaYSemiAncho(utilizaciones);
+            this.utilizacion = estimacion[0];
+            this.semiAnchoUtilizacion = estimacion[1];
+            this.nanosReales = nanosReales;
+        }
+
+        /**
+         * Media y semiancho del intervalo de confianza de los valores, en
+         * orden de réplica (así la suma de doubles da siempre lo mismo).
+         * Los NaN son réplicas sin datos y no cuentan.
+         */
+        private static double[] mediaYSemiAncho(double[] valores) {
+            int n = 0;
+            double suma = 0;
+            for (double v : valores) {
+                if (!Double.isNaN(v)) {
+                    n++;
+                    suma += v;
+                }
+            }
+            if (n == 0) {
+                return new double[]{Double.NaN, Double.NaN};
+            }
+            double media = suma / n;
+            if (n == 1) {
+                return new double[]{media, Double.NaN};
+            }
+            double cuadrados = 0;
+            for (double v : valores) {
+                if (!Double.isNaN(v)) {
+                    cuadrados += (v - media) * (v - media);
+                }
+            }
+            return new double[]{media, Z_95 * Math.sqrt(cuadrados / (n - 1) / n)};
+        }
+
+        public int getReplicas() {
+            return replicas;
+        }
+
+        /**
+         * Llegadas más fines de atención procesados en todas las réplicas
+         */
+        public long getEventos() {
+            return total.eventos;
+        }
+
+        public long llegadas(int prioridad) {
+            return total.llegadas[prioridad - 1];
+        }
+
+        /**
+         * Esperas de todas las réplicas juntas, en milisegundos
+         */
+        public HistogramaTiempos.Resumen espera(int prioridad) {
+            return total.esperas[prioridad - 1];
+        }
+
+        /**
+         * Promedio entre réplicas de la espera media, en milisegundos. Las
+         * réplicas sin ningún paciente atendido de la prioridad no cuentan.
+         */
+        public double mediaEspera(int prioridad) {
+            return mediaEspera[prioridad - 1];
+        }
+
+        /**
+         * Semiancho del intervalo de confianza de mediaEspera, o NaN con
+         * menos de dos réplicas
+         */
+        public double semiAnchoEspera(int prioridad) {
+            return semiAnchoEspera[prioridad - 1];
+        }
+
+        /**
+         * Pacientes que seguían esperando al terminar, sumados entre réplicas
+         */
+        public long enEspera(int prioridad) {
+            return total.enEspera[prioridad - 1];
+        }
+
+        public double getUtilizacion() {
+            return utilizacion;
+        }
+
+        public double getSemiAnchoUtilizacion() {
+            return semiAnchoUtilizacion;
+        }
+
+        public long getNanosReales() {
+            return nanosReales;
+        }
+
+        public double eventosPorSegundo() {
+            return nanosReales == 0 ? 0 : total.eventos * 1e9 / nanosReales;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.tarea;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+
+/**
+ * Exporta el reporte del sistema (atendidos, en espera y contadores) en CSV
+ * o JSON directamente a un Writer. Recorre las vistas del sistema sin copiar
+ * ni ordenar las listas y escribe en bloques de TAMANO_BLOQUE caracteres, así
+ * la memoria usada no depende de la cantidad de pacientes. También se puede
+ * producir de a un bloque por vez (porPaginas), para quien no puede quedarse
+ * escribiéndolo entero.
+ */
+class ReporteTriage {
+    private static final int TAMANO_BLOQUE = 8192;
+
+    // Partes del reporte, en orden
+    private static final int CABECERA = 0;
+    private static final int ATENDIDOS = 1;
+    private static final int EN_ESPERA = 2;
+    private static final int CIERRE = 3;
+    private static final int FIN = 4;
+
+    enum Formato {
+        CSV, JSON
+    }
+
+    private final SistemaTriageUrgencias sistema;
+    private final Formato formato;
+    private final Iterator<Paciente> atendidos;
+    private final Iterator<Paciente> enEspera;
+    private final StringBuilder bloque = new StringBuilder(TAMANO_BLOQUE + 512);
+    private char[] caracteres = new char[TAMANO_BLOQUE + 512];
+    private int parte = CABECERA;
+    private int orden;
+
+    private ReporteTriage(SistemaTriageUrgencias sistema, Formato formato, Iterable<Paciente> enEspera) {
+        this.sistema = sistema;
+        this.formato = formato;
+        this.atendidos = sistema.atendidos().iterator();
+        this.enEspera = enEspera.iterator();
+    }
+
+    /**
+     * Escribe el reporte completo; no cierra el Writer, solo lo vacía
+     */
+    public static void escribir(SistemaTriageUrgencias sistema, Formato formato, Writer destino)
+            throws IOException {
+        ReporteTriage reporte = new ReporteTriage(sistema, formato, sistema.enEspera());
+        while (reporte.escribirPagina(destino)) {
+            // Cada vuelta escribe un bloque
+        }
+        destino.flush();
+    }
+
+    /**
+     * Reporte para escribir de a páginas, con el sistema cambiando entre una
+     * y otra (las terminales de ServidorTriage siguen operando). La espera se
+     * copia al empezar (solo referencias, como primerosEnEspera) porque su
+     * recorrido no admite cambios; los atendidos se leen por posición y los
+     * contadores son los del momento de la última página.
+     */
+    public static ReporteTriage porPaginas(SistemaTriageUrgencias sistema, Formato formato) {
+        return new ReporteTriage(sistema, formato, sistema.primerosEnEspera(sistema.totalEnEspera()));
+    }
+
+    /**
+     * Escribe el siguiente bloque de unos TAMANO_BLOQUE caracteres
+     *
+     * @return false si con este se terminó el reporte
+     */
+    public boolean escribirPagina(Writer destino) throws IOException {
+        while (parte != FIN && bloque.length() < TAMANO_BLOQUE) {
+            avanzar();
+        }
+        vaciar(destino);
+        return parte != FIN;
+    }
+
+    /**
+     * Agrega al bloque la siguiente fila, o la transición a la parte siguiente
+     */
+    private void avanzar() {
+        boolean json = formato == Formato.JSON;
+        switch (parte) {
+            case CABECERA:
+                bloque.append(json ? "{\"atendidos\":[" : "estado,orden,id,nombre,prioridad,nivel,llegada,sintomas\n");
+                parte = ATENDIDOS;
+                break;
+            case ATENDIDOS:
+            case EN_ESPERA:
+                Iterator<Paciente> pacientes = parte == ATENDIDOS ? atendidos : enEspera;
+                if (pacientes.hasNext()) {
+                    Paciente p = pacientes.next();
+                    if (json) {
+                        elementoJson(p);
+                    } else {
+                        filaCsv(parte == ATENDIDOS ? "ATENDIDO" : "EN_ESPERA", p);
+                    }
+                } else {
+                    if (json && parte == ATENDIDOS) {
+                        bloque.append("],\"enEspera\":[");
+                    }
+                    parte++;
+                    orden = 0;
+                }
+                break;
+            default:
+                if (json) {
+                    cierreJson();
+                }
+                parte = FIN;
+        }
+    }
+
+    // Una fila por paciente; los contadores se deducen filtrando por estado y prioridad
+    private void filaCsv(String estado, Paciente p) {
+        bloque.append(estado).append(',').append(++orden).append(',').append(p.getId()).append(',');
+        campoCsv(p.getNombre());
+        bloque.append(',').append(p.getPrioridad()).append(',');
+        campoCsv(p.getNivelPrioridadTexto());
+        bloque.append(',');
+        fecha(p.getHoraLlegada());
+        bloque.append(',');
+        campoCsv(p.getSintomas());
+        bloque.append('\n');
+    }
+
+    private void elementoJson(Paciente p) {
+        if (orden++ > 0) {
+            bloque.append(',');
+        }
+        bloque.append("\n{\"id\":").append(p.getId()).append(",\"nombre\":");
+        textoJson(p.getNombre());
+        bloque.append(",\"prioridad\":").append(p.getPrioridad()).append(",\"llegada\":\"");
+        fecha(p.getHoraLlegada());
+        bloque.append("\",\"sintomas\":");
+        textoJson(p.getSintomas());
+        bloque.append('}');
+    }
+
+    private void cierreJson() {
+        bloque.append("],\"contadores\":{");
+        for (int prioridad = 1; prioridad <= ColaTriage.NIVELES; prioridad++) {
+            if (prioridad > 1) {
+                bloque.append(',');
+            }
+            bloque.append('"').append(prioridad).append("\":").append(sistema.contador(prioridad));
+        }
+        bloque.append("},\"totalEnEspera\":").append(sistema.totalEnEspera()).append("}\n");
+    }
+
+    // Entre comillas solo si hace falta; las comillas internas se duplican
+    private void campoCsv(String texto) {
+        boolean comillas = false;
+        for (int i = 0; i < texto.length() && !comillas; i++) {
+            char c = texto.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            bloque.append(texto);
+            return;
+        }
+        bloque.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"') {
+                bloque.append('"');
+            }
+            bloque.append(c);
+        }
+        bloque.append('"');
+    }
+
+    private void textoJson(String texto) {
+        bloque.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':
+                    bloque.append("\\\"");
+                    break;
+                case '\\':
+                    bloque.append("\\\\");
+                    break;
+                case '\n':
+                    bloque.append("\\n");
+                    break;
+                case '\r':
+                    bloque.append("\\r");
+                    break;
+                case '\t':
+                    bloque.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        bloque.append("\\u00").append(Character.forDigit(c >> 4, 16))
+                                .append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        bloque.append(c);
+                    }
+            }
+        }
+        bloque.append('"');
+    }
+
+    // ISO 8601 sin fracción de segundo, sin pasar por DateTimeFormatter
+    private void fecha(LocalDateTime hora) {
+        bloque.append(hora.getYear()).append('-');
+        dosDigitos(hora.getMonthValue()).append('-');
+        dosDigitos(hora.getDayOfMonth()).append('T');
+        dosDigitos(hora.getHour()).append(':');
+        dosDigitos(hora.getMinute()).append(':');
+        dosDigitos(hora.getSecond());
+    }
+
+    private StringBuilder dosDigitos(int valor) {
+        return bloque.append((char) ('0' + valor / 10)).append((char) ('0' + valor % 10));
+    }
+
+    // Se copia a un char[] reutilizable: append(bloque) crearía un String por bloque
+    private void vaciar(Writer destino) throws IOException {
+        if (caracteres.length < bloque.length()) {
+            caracteres = new char[bloque.length()];
+        }
+        bloque.getChars(0, bloque.length(), caracteres, 0);
+        destino.write(caracteres, 0, bloque.length());
+        bloque.setLength(0);
+    }
+}
@@ -0,0 +1,181 @@
+package com.tarea;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Expone las métricas del triage en formato de texto de Prometheus en
+ * http://127.0.0.1:&lt;puerto&gt;/metrics, con el servidor HTTP del JDK.
+ * Solo escucha en la interfaz local.
+ *
+ * Cada lectura usa los contadores del sistema (que no toman el candado de la
+ * cola), los histogramas sin candados de MetricasTriage y EstadisticasTriage
+ * y los MXBeans de la JVM, así que consultar no frena a los médicos.
+ */
+class ServidorMetricas implements AutoCloseable {
+    // Límites de las cubetas de latencia: nanosegundos y su etiqueta en segundos
+    private static final long[] LIMITES_NANOS = {
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000, 100_000_000, 1_000_000_000};
+    private static final String[] LIMITES_ETIQUETA = {
+            "0.000001", "0.0000025", "0.000005", "0.00001", "0.000025", "0.00005", "0.0001", "0.00025",
+            "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.1", "1"};
+    private static final double[] CUANTILES = {0.5, 0.9, 0.99};
+
+    private final SistemaTriageUrgencias sistema;
+    private final MetricasTriage metricas;
+    private final HttpServer servidor;
+    private final ExecutorService ejecutor;
+
+    /**
+     * Empieza a escuchar de inmediato; con puerto 0 se elige uno libre
+     */
+    public ServidorMetricas(SistemaTriageUrgencias sistema, MetricasTriage metricas, int puerto)
+            throws IOException {
+        this.sistema = sistema;
+        this.metricas = metricas;
+        this.servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), 0);
+        this.ejecutor = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "triage-metricas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        servidor.createContext("/metrics", this::responder);
+        servidor.setExecutor(ejecutor);
+        servidor.start();
+    }
+
+    public int puerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+        ejecutor.shutdown();
+    }
+
+    private void responder(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            if (!"GET".equals(intercambio.getRequestMethod())) {
+                intercambio.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] cuerpo = generar().getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                salida.write(cuerpo);
+            }
+        }
+    }
+
+    /**
+     * Texto completo de las métricas en formato de exposición de Prometheus
+     */
+    String generar() {
+        StringBuilder texto = new StringBuilder(8192);
+
+        encabezado(texto, "triage_en_espera", "gauge", "Pacientes en espera por prioridad");
+        for (int prioridad = 1; prioridad <= ColaTriage.NIVELES; prioridad++) {
+            texto.append("triage_en_espera{prioridad=\"").append(prioridad).append("\"} ")
+                    .append(sistema.contador(prioridad)).append('\n');
+        }
+
+        encabezado(texto, "triage_operaciones_total", "counter", "Operaciones completadas");
+        for (MetricasTriage.Operacion operacion : MetricasTriage.Operacion.values()) {
+            texto.append("triage_operaciones_total{operacion=\"").append(etiqueta(operacion)).append("\"} ")
+                    .append(metricas.operaciones(operacion)).append('\n');
+        }
+
+        encabezado(texto, "triage_latencia_segundos", "histogram", "Latencia de cada operación");
+        for (MetricasTriage.Operacion operacion : MetricasTriage.Operacion.values()) {
+            HistogramaTiempos.Resumen latencia = metricas.latencia(operacion);
+            String etiqueta = etiqueta(operacion);
+            for (int i = 0; i < LIMITES_NANOS.length; i++) {
+                texto.append("triage_latencia_segundos_bucket{operacion=\"").append(etiqueta)
+                        .append("\",le=\"").append(LIMITES_ETIQUETA[i]).append("\"} ")
+                        .append(latencia.hasta(LIMITES_NANOS[i])).append('\n');
+            }
+            texto.append("triage_latencia_segundos_bucket{operacion=\"").append(etiqueta)
+                    .append("\",le=\"+Inf\"} ").append(latencia.getTotal()).append('\n');
+            texto.append("triage_latencia_segundos_sum{operacion=\"").append(etiqueta).append("\"} ")
+                    .append(latencia.getSuma() / 1e9).append('\n');
+            texto.append("triage_latencia_segundos_count{operacion=\"").append(etiqueta).append("\"} ")
+                    .append(latencia.getTotal()).append('\n');
+        }
+
+        EstadisticasTriage.Resumen estadisticas = sistema.estadisticas();
+        encabezado(texto, "triage_espera_segundos", "summary", "Espera desde la llegada hasta la atención");
+        for (int prioridad = 1; prioridad <= ColaTriage.NIVELES; prioridad++) {
+            HistogramaTiempos.Resumen espera = estadisticas.espera(prioridad);
+            for (double cuantil : CUANTILES) {
+                texto.append("triage_espera_segundos{prioridad=\"").append(prioridad)
+                        .append("\",quantile=\"").append(cuantil).append("\"} ")
+                        .append(espera.percentil(cuantil * 100) / 1e3).append('\n');
+            }
+            texto.append("triage_espera_segundos_sum{prioridad=\"").append(prioridad).append("\"} ")
+                    .append(espera.getSuma() / 1e3).append('\n');
+            texto.append("triage_espera_segundos_count{prioridad=\"").append(prioridad).append("\"} ")
+                    .append(espera.getTotal()).append('\n');
+        }
+
+        encabezado(texto, "triage_atenciones_ultimo_minuto", "gauge", "Atenciones del último minuto completo");
+        texto.append("triage_atenciones_ultimo_minuto ").append(estadisticas.atencionesUltimoMinuto()).append('\n');
+
+        agregarJvm(texto);
+        return texto.toString();
+    }
+
+    private static void agregarJvm(StringBuilder texto) {
+        encabezado(texto, "jvm_heap_usado_bytes", "gauge", "Heap en uso");
+        texto.append("jvm_heap_usado_bytes ")
+                .append(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed()).append('\n');
+
+        // Suma de lo asignado por los hilos vivos: los que terminan dejan de contar
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        if (hilos instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hilosSun = (com.sun.management.ThreadMXBean) hilos;
+            if (hilosSun.isThreadAllocatedMemorySupported() && hilosSun.isThreadAllocatedMemoryEnabled()) {
+                long total = 0;
+                for (long asignados : hilosSun.getThreadAllocatedBytes(hilos.getAllThreadIds())) {
+                    total += Math.max(0, asignados);
+                }
+                encabezado(texto, "jvm_bytes_asignados_hilos_vivos", "gauge",
+                        "Bytes asignados en el heap por los hilos vivos");
+                texto.append("jvm_bytes_asignados_hilos_vivos ").append(total).append('\n');
+            }
+        }
+
+        encabezado(texto, "jvm_gc_colecciones_total", "counter", "Recolecciones de basura");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            texto.append("jvm_gc_colecciones_total{gc=\"").append(gc.getName()).append("\"} ")
+                    .append(Math.max(0, gc.getCollectionCount())).append('\n');
+        }
+        encabezado(texto, "jvm_gc_segundos_total", "counter", "Tiempo acumulado en recolección de basura");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            texto.append("jvm_gc_segundos_total{gc=\"").append(gc.getName()).append("\"} ")
+                    .append(Math.max(0, gc.getCollectionTime()) / 1e3).append('\n');
+        }
+    }
+
+    private static void encabezado(StringBuilder texto, String nombre, String tipo, String ayuda) {
+        texto.append("# HELP ").append(nombre).append(' ').append(ayuda).append('\n');
+        texto.append("# TYPE ").append(nombre).append(' ').append(tipo).append('\n');
+    }
+
+    private static String etiqueta(MetricasTriage.Operacion operacion) {
+        return operacion.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,172 @@
+package com.tarea;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Terminales remotas con el menú completo (SesionTerminal), una sesión por
+ * conexión TCP y un hilo por sesión. Con ModeloHilos.VIRTUAL cada sesión
+ * corre en un hilo virtual de Java 21: una terminal ociosa queda bloqueada
+ * leyendo sin ocupar un hilo del sistema operativo ni su pila, así que miles
+ * de sesiones abiertas cuestan poco más que sus buffers.
+ *
+ * Los hilos virtuales solo existen al compilar con -P java21 (ver
+ * EjecutorVirtual); con el build de Java 17 solo está PLATAFORMA.
+ *
+ * Las sesiones remotas no tienen acceso a archivos: cualquiera que llegue
+ * al puerto podría leer o sobrescribir lo que la JVM puede tocar.
+ */
+class ServidorSesiones implements AutoCloseable {
+    enum ModeloHilos {
+        PLATAFORMA, VIRTUAL
+    }
+
+    // Clase de src/java21/java, presente solo en el build con -P java21
+    private static final String EJECUTOR_VIRTUAL = "com.tarea.EjecutorVirtual";
+    // Buffer de salida por sesión: un menú entero cabe en uno
+    private static final int TAMANO_BUFFER_SALIDA = 2048;
+    // Espera máxima al cerrar para que los hilos de las sesiones terminen
+    private static final long ESPERA_CIERRE_MS = 5000;
+
+    private final SistemaTriageUrgencias sistema;
+    private final ExecutorService ejecutor;
+    private final Set<Closeable> conexiones = ConcurrentHashMap.newKeySet();
+    private volatile ServerSocket socketServidor;
+
+    public ServidorSesiones(SistemaTriageUrgencias sistema, ModeloHilos modelo) {
+        this.sistema = sistema;
+        this.ejecutor = crearEjecutor(modelo);
+    }
+
+    /**
+     * true si este build incluye el ejecutor de hilos virtuales y la JVM los soporta
+     */
+    static boolean hilosVirtualesDisponibles() {
+        try {
+            Class.forName(EJECUTOR_VIRTUAL);
+            return Runtime.version().feature() >= 21;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService crearEjecutor(ModeloHilos modelo) {
+        if (modelo == ModeloHilos.VIRTUAL) {
+            try {
+                return (ExecutorService) Class.forName(EJECUTOR_VIRTUAL).getDeclaredMethod("crear").invoke(null);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                throw new IllegalStateException("Los hilos virtuales requieren Java 21 y compilar con -P java21", e);
+            }
+        }
+        AtomicInteger numero = new AtomicInteger();
+        return Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "triage-sesion-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Acepta conexiones en segundo plano; con puerto 0 se elige uno libre
+     */
+    public void escuchar(InetSocketAddress direccion) throws IOException {
+        ServerSocket socket = new ServerSocket();
+        try {
+            socket.bind(direccion);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        socketServidor = socket;
+        Thread aceptador = new Thread(this::aceptar, "triage-sesiones");
+        aceptador.setDaemon(true);
+        aceptador.start();
+    }
+
+    public int puerto() {
+        return socketServidor.getLocalPort();
+    }
+
+    public int sesionesActivas() {
+        return conexiones.size();
+    }
+
+    /**
+     * Abre una sesión sobre un par de flujos cualesquiera; al terminar la
+     * sesión se cierra la conexión
+     */
+    public void iniciar(InputStream entrada, OutputStream salida, Closeable conexion) {
+        conexiones.add(conexion);
+        ejecutor.execute(() -> atender(entrada, salida, conexion));
+    }
+
+    /**
+     * Deja de aceptar, corta todas las sesiones y espera (con un límite) a
+     * que sus hilos terminen
+     */
+    @Override
+    public void close() throws IOException {
+        if (socketServidor != null) {
+            socketServidor.close();
+        }
+        // Cerrar las conexiones despierta a las sesiones bloqueadas leyendo
+        for (Closeable conexion : conexiones) {
+            try {
+                conexion.close();
+            } catch (IOException e) {
+                // Se cierra igual el resto
+            }
+        }
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(ESPERA_CIERRE_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void aceptar() {
+        ServerSocket servidor = socketServidor;
+        while (!servidor.isClosed()) {
+            try {
+                Socket socket = servidor.accept();
+                socket.setTcpNoDelay(true);
+                iniciar(socket.getInputStream(), socket.getOutputStream(), socket);
+            } catch (IOException e) {
+                if (!servidor.isClosed()) {
+                    System.err.println("✗ Error al aceptar una terminal: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void atender(InputStream entrada, OutputStream salida, Closeable conexion) {
+        try (conexion) {
+            PrintStream texto = new PrintStream(new BufferedOutputStream(salida, TAMANO_BUFFER_SALIDA),
+                    false, StandardCharsets.UTF_8);
+            // Sin acceso a archivos: ver la nota de la clase
+            new SesionTerminal(sistema, new Scanner(entrada, StandardCharsets.UTF_8), texto,
+                    new VistaConsola(texto, texto), false).ejecutar();
+            texto.println("Sesión terminada.");
+            texto.flush();
+        } catch (IOException e) {
+            // La terminal ya se desconectó
+        } finally {
+            conexiones.remove(conexion);
+        }
+    }
+}
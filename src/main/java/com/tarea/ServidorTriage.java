@@ -0,0 +1,314 @@
+package com.tarea;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Servidor TCP no bloqueante para ProtocoloTriage: un único hilo con un
+ * Selector atiende todas las terminales, así el motor recibe las
+ * operaciones de a una y no hace falta un hilo por conexión.
+ *
+ * Todas las respuestas a los comandos de una misma lectura se envían juntas
+ * (los clientes pueden encadenar pedidos sin esperar). Si una terminal no
+ * lee sus respuestas y acumula más de LIMITE_SALIDA bytes pendientes, se
+ * deja de leer lo que manda hasta que los consuma. Las líneas de más de
+ * LARGO_MAXIMO_LINEA bytes cierran la conexión.
+ *
+ * El REPORTE no se arma entero: se genera una página cada vez que la
+ * anterior terminó de salir, de a una por vuelta del selector, así un
+ * reporte largo no ocupa memoria de más ni demora a las demás terminales.
+ * Mientras tanto, los comandos que esa terminal encadenó detrás esperan sin
+ * procesar (y no se le lee más) para que las respuestas salgan en orden.
+ *
+ * Los comandos corren en el hilo del selector: con un diario que sincroniza
+ * en cada operación, el fsync frena a todas las terminales a la vez.
+ */
+class ServidorTriage implements AutoCloseable {
+    static final int LARGO_MAXIMO_LINEA = 64 * 1024;
+    static final int LIMITE_SALIDA = 1 << 20;
+
+    private final ProtocoloTriage protocolo;
+    private final Selector selector;
+    private final ServerSocketChannel canalServidor;
+    private final Thread hilo;
+    private final ByteBuffer lectura = ByteBuffer.allocate(64 * 1024);
+    private final StringBuilder respuesta = new StringBuilder(4096);
+    private volatile boolean cerrado;
+
+    /**
+     * Empieza a escuchar de inmediato; con puerto 0 se elige uno libre
+     */
+    public ServidorTriage(SistemaTriageUrgencias sistema, InetSocketAddress direccion) throws IOException {
+        this.protocolo = new ProtocoloTriage(sistema);
+        this.selector = Selector.open();
+        this.canalServidor = ServerSocketChannel.open();
+        try {
+            canalServidor.bind(direccion);
+            canalServidor.configureBlocking(false);
+            canalServidor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            canalServidor.close();
+            selector.close();
+            throw e;
+        }
+        this.hilo = new Thread(this::ejecutar, "triage-servidor");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    public int puerto() {
+        return canalServidor.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        cerrado = true;
+        selector.wakeup();
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ejecutar() {
+        try {
+            while (!cerrado) {
+                selector.select();
+                Iterator<SelectionKey> listas = selector.selectedKeys().iterator();
+                while (listas.hasNext()) {
+                    SelectionKey clave = listas.next();
+                    listas.remove();
+                    if (!clave.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (clave.isAcceptable()) {
+                            aceptar();
+                        } else {
+                            if (clave.isWritable()) {
+                                escribir(clave);
+                            }
+                            if (clave.isValid() && clave.isReadable()) {
+                                leer(clave);
+                            }
+                        }
+                    } catch (IOException e) {
+                        // La terminal se desconectó o la red falló: solo cae esa conexión
+                        cerrar(clave);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("✗ El servidor de triage se detuvo: " + e.getMessage());
+        } finally {
+            for (SelectionKey clave : selector.keys()) {
+                cerrar(clave);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("✗ Error al cerrar el servidor de triage: " + e.getMessage());
+            }
+        }
+    }
+
+    private void aceptar() throws IOException {
+        SocketChannel canal;
+        while ((canal = canalServidor.accept()) != null) {
+            canal.configureBlocking(false);
+            canal.register(selector, SelectionKey.OP_READ, new Conexion());
+        }
+    }
+
+    private void leer(SelectionKey clave) throws IOException {
+        SocketChannel canal = (SocketChannel) clave.channel();
+        Conexion conexion = (Conexion) clave.attachment();
+        lectura.clear();
+        int leidos = canal.read(lectura);
+        if (leidos < 0) {
+            cerrar(clave);
+            return;
+        }
+        boolean excedida = consumir(conexion, lectura.array(), leidos);
+        escribir(clave);
+        if (excedida && clave.isValid()) {
+            cerrar(clave);
+        }
+    }
+
+    /**
+     * Procesa las líneas completas de los datos y encola sus respuestas. Si
+     * un comando deja una respuesta por páginas, lo que sigue queda retenido
+     * hasta que esa respuesta termine.
+     *
+     * @return true si se excedió el largo de línea (hay que cerrar la conexión)
+     */
+    private boolean consumir(Conexion conexion, byte[] datos, int leidos) {
+        int inicio = 0;
+        boolean excedida = false;
+        respuesta.setLength(0);
+        for (int i = 0; i < leidos && !excedida && conexion.paginas == null; i++) {
+            if (datos[i] != '\n') {
+                continue;
+            }
+            String linea = null;
+            if (conexion.largoParcial == 0) {
+                linea = new String(datos, inicio, i - inicio, StandardCharsets.UTF_8);
+            } else {
+                conexion.acumular(datos, inicio, i - inicio);
+                excedida = conexion.largoParcial > LARGO_MAXIMO_LINEA;
+                if (!excedida) {
+                    linea = new String(conexion.parcial, 0, conexion.largoParcial, StandardCharsets.UTF_8);
+                    conexion.largoParcial = 0;
+                }
+            }
+            inicio = i + 1;
+            if (linea != null) {
+                procesar(conexion, linea);
+            }
+        }
+        if (conexion.paginas != null) {
+            if (inicio < leidos) {
+                conexion.retenido = Arrays.copyOfRange(datos, inicio, leidos);
+            }
+        } else if (!excedida && inicio < leidos) {
+            conexion.acumular(datos, inicio, leidos - inicio);
+            excedida = conexion.largoParcial > LARGO_MAXIMO_LINEA;
+        }
+        if (excedida) {
+            respuesta.append("ERROR línea demasiado larga\n");
+        }
+        encolarRespuesta(conexion);
+        return excedida;
+    }
+
+    private void procesar(Conexion conexion, String linea) {
+        int largo = linea.length();
+        if (largo > 0 && linea.charAt(largo - 1) == '\r') {
+            linea = linea.substring(0, largo - 1);
+        }
+        if (linea.isBlank()) {
+            return;
+        }
+        try {
+            conexion.paginas = protocolo.procesar(linea, respuesta);
+        } catch (RuntimeException e) {
+            // Un fallo del diario o del almacén no debe tirar al servidor entero
+            respuesta.append("ERROR ").append(e.getMessage()).append('\n');
+        }
+    }
+
+    private void encolarRespuesta(Conexion conexion) {
+        if (respuesta.length() > 0) {
+            ByteBuffer bytes = ByteBuffer.wrap(respuesta.toString().getBytes(StandardCharsets.UTF_8));
+            conexion.salida.addLast(bytes);
+            conexion.pendientes += bytes.remaining();
+            respuesta.setLength(0);
+        }
+    }
+
+    /**
+     * Envía lo pendiente y, si salió todo, continúa una vez con lo que espera
+     * turno: la siguiente página de la respuesta en curso o los comandos
+     * retenidos detrás de ella
+     */
+    private void escribir(SelectionKey clave) throws IOException {
+        SocketChannel canal = (SocketChannel) clave.channel();
+        Conexion conexion = (Conexion) clave.attachment();
+        boolean excedida = false;
+        if (enviar(canal, conexion)) {
+            if (conexion.paginas != null) {
+                siguientePagina(conexion);
+                enviar(canal, conexion);
+            } else if (conexion.retenido != null) {
+                byte[] retenido = conexion.retenido;
+                conexion.retenido = null;
+                excedida = consumir(conexion, retenido, retenido.length);
+                enviar(canal, conexion);
+            }
+        }
+        boolean enCurso = conexion.paginas != null || conexion.retenido != null;
+        int interes = conexion.pendientes > LIMITE_SALIDA || enCurso ? 0 : SelectionKey.OP_READ;
+        if (!conexion.salida.isEmpty() || enCurso) {
+            interes |= SelectionKey.OP_WRITE;
+        }
+        clave.interestOps(interes);
+        if (excedida) {
+            cerrar(clave);
+        }
+    }
+
+    /**
+     * @return true si no quedó nada por enviar
+     */
+    private static boolean enviar(SocketChannel canal, Conexion conexion) throws IOException {
+        ArrayDeque<ByteBuffer> salida = conexion.salida;
+        while (!salida.isEmpty()) {
+            ByteBuffer primero = salida.peekFirst();
+            conexion.pendientes -= canal.write(primero);
+            if (primero.hasRemaining()) {
+                return false;
+            }
+            salida.pollFirst();
+        }
+        return true;
+    }
+
+    private void siguientePagina(Conexion conexion) throws IOException {
+        respuesta.setLength(0);
+        try {
+            if (!conexion.paginas.siguiente(respuesta)) {
+                conexion.paginas = null;
+            }
+        } catch (RuntimeException e) {
+            // A mitad de una respuesta ya no se puede avisar con un ERROR
+            throw new IOException("Falló la respuesta por páginas", e);
+        }
+        encolarRespuesta(conexion);
+    }
+
+    private static void cerrar(SelectionKey clave) {
+        clave.cancel();
+        try {
+            clave.channel().close();
+        } catch (IOException e) {
+            // Ya no hay nada que hacer con esa conexión
+        }
+    }
+
+    /**
+     * Estado de una terminal: la línea a medio llegar, las respuestas que
+     * todavía no se pudieron enviar, la respuesta por páginas en curso y lo
+     * recibido detrás de ella
+     */
+    private static final class Conexion {
+        byte[] parcial = new byte[256];
+        int largoParcial;
+        final ArrayDeque<ByteBuffer> salida = new ArrayDeque<>();
+        long pendientes;
+        ProtocoloTriage.RespuestaPorPaginas paginas;
+        byte[] retenido;
+
+        void acumular(byte[] datos, int desde, int largo) {
+            int necesario = largoParcial + largo;
+            if (necesario > parcial.length) {
+                // Hasta un byte más del máximo, para detectar que se excedió
+                int nuevo = Math.min(Math.max(necesario, parcial.length * 2), LARGO_MAXIMO_LINEA + 1);
+                parcial = Arrays.copyOf(parcial, nuevo);
+                largo = Math.min(largo, nuevo - largoParcial);
+            }
+            System.arraycopy(datos, desde, parcial, largoParcial, largo);
+            largoParcial += largo;
+        }
+    }
+}
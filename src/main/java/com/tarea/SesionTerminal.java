@@ -0,0 +1,268 @@
+package com.tarea;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * Menú interactivo de una terminal sobre un sistema compartido: la consola
+ * de Main o cada conexión de ServidorSesiones. Bloquea su hilo mientras
+ * espera al operador, así que cada sesión necesita el suyo.
+ *
+ * Exportar e importar archivos (opciones 10 y 13) leen y escriben con los
+ * permisos de la JVM en la ruta que indique el operador, así que solo están
+ * disponibles si la sesión se crea con accesoArchivos, como la consola
+ * local; las sesiones remotas no las muestran ni las aceptan.
+ */
+class SesionTerminal {
+    private final SistemaTriageUrgencias sistema;
+    private final Scanner entrada;
+    private final PrintStream salida;
+    private final VistaConsola vista;
+    private final boolean accesoArchivos;
+
+    /**
+     * Sesión sin acceso a archivos
+     */
+    public SesionTerminal(SistemaTriageUrgencias sistema, Scanner entrada, PrintStream salida,
+                          VistaConsola vista) {
+        this(sistema, entrada, salida, vista, false);
+    }
+
+    /**
+     * @param accesoArchivos si el operador puede exportar e importar archivos
+     *                       del sistema de archivos local
+     */
+    public SesionTerminal(SistemaTriageUrgencias sistema, Scanner entrada, PrintStream salida,
+                          VistaConsola vista, boolean accesoArchivos) {
+        this.sistema = sistema;
+        this.entrada = entrada;
+        this.salida = salida;
+        this.vista = vista;
+        this.accesoArchivos = accesoArchivos;
+    }
+
+    /**
+     * Atiende el menú hasta que el operador elige salir o se cierra la entrada
+     */
+    public void ejecutar() {
+        try {
+            while (true) {
+                mostrarMenu();
+                int opcion = leerOpcion();
+                salida.println();
+
+                switch (opcion) {
+                    case 1:
+                        registrarNuevoPaciente();
+                        break;
+                    case 2:
+                        vista.mostrarSiguiente(sistema.verSiguiente());
+                        break;
+                    case 3:
+                        vista.mostrarAtencion(sistema.atender());
+                        break;
+                    case 4:
+                        vista.mostrarContadores(sistema);
+                        break;
+                    case 5:
+                        vista.listarPacientesEnEspera(sistema);
+                        break;
+                    case 6:
+                        vista.mostrarDeshacer(sistema.deshacerUltimaAtencion());
+                        break;
+                    case 7:
+                        vista.generarReporte(sistema);
+                        break;
+                    case 8:
+                        consultarPosicion();
+                        break;
+                    case 9:
+                        vista.mostrarRehacer(sistema.rehacer());
+                        break;
+                    case 10:
+                        if (accesoArchivos) {
+                            exportarReporte();
+                        } else {
+                            salida.println("✗ Opción disponible solo en la consola local.\n");
+                        }
+                        break;
+                    case 11:
+                        atenderVarios();
+                        break;
+                    case 12:
+                        vista.mostrarDeshacerLote(sistema.deshacerUltimoLote());
+                        break;
+                    case 13:
+                        if (accesoArchivos) {
+                            importarArchivo();
+                        } else {
+                            salida.println("✗ Opción disponible solo en la consola local.\n");
+                        }
+                        break;
+                    case 0:
+                        return;
+                    default:
+                        salida.println("✗ Opción inválida. Intente nuevamente.\n");
+                }
+
+                esperarEnter();
+            }
+        } catch (NoSuchElementException e) {
+            // La terminal cerró la entrada: equivale a salir
+        } finally {
+            salida.flush();
+        }
+    }
+
+    private void registrar(String nombre, int prioridad, String sintomas) {
+        try {
+            vista.mostrarRegistro(sistema.registrarPaciente(nombre, prioridad, sintomas));
+        } catch (IllegalArgumentException e) {
+            vista.mostrarErrorRegistro(e);
+        }
+    }
+
+    private void mostrarMenu() {
+        salida.println("┌───────────────────────────────────────────────────────────┐");
+        salida.println("│                      MENÚ PRINCIPAL                       │");
+        salida.println("├───────────────────────────────────────────────────────────┤");
+        salida.println("│  1. Registrar nuevo paciente                              │");
+        salida.println("│  2. Ver siguiente paciente a atender                      │");
+        salida.println("│  3. Atender paciente                                      │");
+        salida.println("│  4. Mostrar contadores por prioridad                      │");
+        salida.println("│  5. Listar todos los pacientes en espera                  │");
+        salida.println("│  6. Deshacer última atención (EXTRA)                      │");
+        salida.println("│  7. Generar reporte completo (EXTRA)                      │");
+        salida.println("│  8. Consultar posición de un paciente                     │");
+        salida.println("│  9. Rehacer atención deshecha                             │");
+        if (accesoArchivos) {
+            salida.println("│ 10. Exportar reporte a archivo (CSV/JSON)                 │");
+        }
+        salida.println("│ 11. Atender varios pacientes a la vez                     │");
+        salida.println("│ 12. Deshacer último lote de atenciones                    │");
+        if (accesoArchivos) {
+            salida.println("│ 13. Importar pacientes desde archivo (CSV/NDJSON)         │");
+        }
+        salida.println("│  0. Salir                                                 │");
+        salida.println("└───────────────────────────────────────────────────────────┘");
+        salida.print("Seleccione una opción: ");
+    }
+
+    /**
+     * Envía lo pendiente (la pregunta puede no terminar en salto de línea)
+     * y espera la respuesta del operador
+     */
+    private String leerLinea() {
+        salida.flush();
+        return entrada.nextLine().trim();
+    }
+
+    private int leerOpcion() {
+        try {
+            return Integer.parseInt(leerLinea());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void registrarNuevoPaciente() {
+        salida.println("─── REGISTRO DE NUEVO PACIENTE ───");
+
+        salida.print("Nombre del paciente: ");
+        String nombre = leerLinea();
+
+        salida.print("Prioridad (1=ROJO/Emergencia, 2=AMARILLO/Urgente, 3=VERDE/No urgente): ");
+        int prioridad;
+        try {
+            prioridad = Integer.parseInt(leerLinea());
+        } catch (NumberFormatException e) {
+            salida.println("✗ Prioridad inválida. Usando prioridad 3 (VERDE) por defecto.");
+            prioridad = 3;
+        }
+
+        salida.print("Síntomas: ");
+        String sintomas = leerLinea();
+
+        salida.println();
+        registrar(nombre, prioridad, sintomas);
+    }
+
+    private void exportarReporte() {
+        salida.print("Formato (CSV/JSON): ");
+        ReporteTriage.Formato formato;
+        try {
+            formato = ReporteTriage.Formato.valueOf(leerLinea().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            salida.println("✗ Formato inválido.\n");
+            return;
+        }
+        salida.print("Archivo de destino: ");
+        String archivo = leerLinea();
+        if (archivo.isEmpty()) {
+            salida.println("✗ Debe indicar un archivo.\n");
+            return;
+        }
+        try (Writer destino = Files.newBufferedWriter(Path.of(archivo), StandardCharsets.UTF_8)) {
+            ReporteTriage.escribir(sistema, formato, destino);
+            salida.println("✓ Reporte exportado a " + archivo + "\n");
+        } catch (IOException | InvalidPathException e) {
+            salida.println("✗ No se pudo exportar el reporte: " + e.getMessage() + "\n");
+        }
+    }
+
+    private void atenderVarios() {
+        salida.print("Cantidad de pacientes a atender: ");
+        int cantidad;
+        try {
+            cantidad = Integer.parseInt(leerLinea());
+        } catch (NumberFormatException e) {
+            cantidad = -1;
+        }
+        if (cantidad <= 0) {
+            salida.println("✗ Cantidad inválida.\n");
+            return;
+        }
+        salida.println();
+        vista.mostrarAtencionLote(sistema.atenderLote(cantidad));
+    }
+
+    private void importarArchivo() {
+        salida.print("Archivo a importar (.csv o .ndjson): ");
+        String archivo = leerLinea();
+        if (archivo.isEmpty()) {
+            salida.println("✗ Debe indicar un archivo.\n");
+            return;
+        }
+        salida.println();
+        try {
+            vista.mostrarImportacion(new ImportadorPacientes(sistema).importar(Path.of(archivo)));
+        } catch (IOException | IllegalArgumentException e) {
+            salida.println("✗ No se pudo importar: " + e.getMessage() + "\n");
+        }
+    }
+
+    private void consultarPosicion() {
+        salida.print("ID del paciente: ");
+        long id;
+        try {
+            id = Long.parseLong(leerLinea());
+        } catch (NumberFormatException e) {
+            salida.println("✗ ID inválido.\n");
+            return;
+        }
+        salida.println();
+        vista.mostrarPosicion(id, sistema.posicionDe(id));
+    }
+
+    private void esperarEnter() {
+        salida.print("\nPresione ENTER para continuar...");
+        leerLinea();
+        salida.println();
+    }
+}
@@ -0,0 +1,374 @@
+package com.tarea;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/**
+ * Simulación de eventos discretos de una guardia sobre un
+ * SistemaTriageUrgencias real: cada prioridad tiene su proceso de llegadas
+ * (Poisson o una traza) y N médicos llaman a atender() al quedar libres,
+ * con tiempos de atención exponenciales según la prioridad. El sistema usa
+ * un RelojSimulado, así las esperas por prioridad salen de sus propias
+ * estadísticas.
+ *
+ * Los eventos pendientes son uno por proceso de llegadas y uno por médico
+ * ocupado, en un montículo de índices sobre un long[] de instantes: avanzar
+ * no crea objetos. La corrida es reproducible: cada proceso de llegadas y
+ * cada prioridad de atención tienen su propio generador derivado de la
+ * semilla, así cambiar la tasa de una prioridad no altera las llegadas ni
+ * las atenciones sorteadas de las demás.
+ *
+ * Uso: java com.tarea.SimuladorTriage &lt;médicos&gt; &lt;horas&gt;
+ *      &lt;llegadas/h rojo,amarillo,verde | archivo de traza&gt;
+ *      &lt;minutos de atención rojo,amarillo,verde&gt; [semilla]
+ *      [réplicas [hilos]]
+ *
+ * Con más de una réplica la corrida pasa a ReplicasSimulacion y se informan
+ * las esperas medias con su intervalo de confianza.
+ */
+public class SimuladorTriage {
+    // Una fecha fija: la hora de llegada de los pacientes no depende de cuándo se corre
+    private static final Instant INICIO = Instant.parse("2025-01-01T00:00:00Z");
+    private static final String NOMBRE = "Paciente simulado";
+    private static final double NANOS_POR_MINUTO = 60e9;
+
+    private final int medicos;
+    private final ProcesoLlegadas[] llegadas;
+    private final double[] mediaAtencionNanos;
+
+    /**
+     * @param llegadas             un proceso por prioridad, de la 1 a la 3
+     * @param mediaAtencionMinutos duración media de una atención por prioridad
+     */
+    public SimuladorTriage(int medicos, ProcesoLlegadas[] llegadas, double[] mediaAtencionMinutos) {
+        if (medicos <= 0) {
+            throw new IllegalArgumentException("Debe haber al menos un médico");
+        }
+        if (llegadas.length != ColaTriage.NIVELES || mediaAtencionMinutos.length != ColaTriage.NIVELES) {
+            throw new IllegalArgumentException("Se necesita un valor por cada una de las "
+                    + ColaTriage.NIVELES + " prioridades");
+        }
+        this.medicos = medicos;
+        this.llegadas = llegadas.clone();
+        this.mediaAtencionNanos = new double[ColaTriage.NIVELES];
+        for (int i = 0; i < ColaTriage.NIVELES; i++) {
+            if (!(mediaAtencionMinutos[i] > 0) || Double.isInfinite(mediaAtencionMinutos[i])) {
+                throw new IllegalArgumentException("La duración media de atención debe ser positiva");
+            }
+            mediaAtencionNanos[i] = mediaAtencionMinutos[i] * NANOS_POR_MINUTO;
+        }
+    }
+
+    /**
+     * Simula la guardia hasta duracion. Los pacientes que siguen en espera
+     * o en atención al final no cuentan en las esperas.
+     */
+    public Resultado ejecutar(Duration duracion, long semilla) {
+        return ejecutar(duracion, new SplittableRandom(semilla));
+    }
+
+    /**
+     * Igual que ejecutar(duracion, semilla), con los generadores de la
+     * corrida derivados de maestro (que queda avanzado). Para réplicas
+     * independientes, cada una recibe su propio flujo partido con split().
+     */
+    public Resultado ejecutar(Duration duracion, SplittableRandom maestro) {
+        long inicioReal = System.nanoTime();
+        long fin = duracion.toNanos();
+        SplittableRandom[] azarLlegadas = new SplittableRandom[ColaTriage.NIVELES];
+        SplittableRandom[] azarAtencion = new SplittableRandom[ColaTriage.NIVELES];
+        for (int i = 0; i < ColaTriage.NIVELES; i++) {
+            azarLlegadas[i] = maestro.split();
+            azarAtencion[i] = maestro.split();
+        }
+        RelojSimulado reloj = new RelojSimulado(INICIO);
+        SistemaTriageUrgencias sistema = SistemaTriageUrgencias.paraSimulacion(reloj);
+
+        // Fuentes de eventos: 0..NIVELES-1 son llegadas, el resto médicos
+        long[] proximo = new long[ColaTriage.NIVELES + medicos];
+        MonticuloEventos eventos = new MonticuloEventos(proximo);
+        long[] cantidadLlegadas = new long[ColaTriage.NIVELES];
+        for (int i = 0; i < ColaTriage.NIVELES; i++) {
+            proximo[i] = llegadas[i].siguiente(0, 0, azarLlegadas[i]);
+            if (proximo[i] != ProcesoLlegadas.SIN_MAS) {
+                eventos.agregar(i);
+            }
+        }
+        int[] libres = new int[medicos];
+        int cantidadLibres = medicos;
+        for (int m = 0; m < medicos; m++) {
+            libres[m] = ColaTriage.NIVELES + medicos - 1 - m;
+        }
+        long ocupado = 0;
+        long procesados = 0;
+
+        while (!eventos.vacio()) {
+            int fuente = eventos.primero();
+            long ahora = proximo[fuente];
+            if (ahora > fin) {
+                break;
+            }
+            reloj.fijar(ahora);
+            procesados++;
+            if (fuente < ColaTriage.NIVELES) {
+                sistema.registrarPaciente(NOMBRE, fuente + 1, null);
+                long siguiente = llegadas[fuente].siguiente(ahora, ++cantidadLlegadas[fuente], azarLlegadas[fuente]);
+                // Una traza o un proceso mal hecho no puede hacer retroceder el reloj
+                proximo[fuente] = siguiente == ProcesoLlegadas.SIN_MAS ? siguiente : Math.max(siguiente, ahora);
+                if (proximo[fuente] == ProcesoLlegadas.SIN_MAS) {
+                    eventos.quitarPrimero();
+                } else {
+                    eventos.reubicarPrimero();
+                }
+                if (cantidadLibres > 0) {
+                    int medico = libres[--cantidadLibres];
+                    // Quien acaba de llegar es el único en espera: se lo atiende ya
+                    ocupado += iniciarAtencion(sistema, medico, ahora, fin, proximo, azarAtencion);
+                    eventos.agregar(medico);
+                }
+            } else {
+                long atencion = iniciarAtencion(sistema, fuente, ahora, fin, proximo, azarAtencion);
+                if (atencion < 0) {
+                    eventos.quitarPrimero();
+                    libres[cantidadLibres++] = fuente;
+                } else {
+                    ocupado += atencion;
+                    eventos.reubicarPrimero();
+                }
+            }
+        }
+
+        EstadisticasTriage.Resumen estadisticas = sistema.estadisticas();
+        HistogramaTiempos.Resumen[] esperas = new HistogramaTiempos.Resumen[ColaTriage.NIVELES];
+        int[] enEspera = new int[ColaTriage.NIVELES];
+        for (int i = 0; i < ColaTriage.NIVELES; i++) {
+            esperas[i] = estadisticas.espera(i + 1);
+            enEspera[i] = sistema.contador(i + 1);
+        }
+        return new Resultado(procesados, cantidadLlegadas, enEspera, esperas,
+                (double) ocupado / ((double) medicos * fin), System.nanoTime() - inicioReal);
+    }
+
+    /**
+     * El médico atiende al siguiente en espera, si hay alguno, y su fin
+     * queda agendado en proximo
+     *
+     * @return tiempo de atención dentro de la guardia, o -1 si no había nadie
+     */
+    private long iniciarAtencion(SistemaTriageUrgencias sistema, int medico, long ahora, long fin,
+                                 long[] proximo, SplittableRandom[] azarAtencion) {
+        Optional<Paciente> atendido = sistema.atender();
+        if (atendido.isEmpty()) {
+            proximo[medico] = ProcesoLlegadas.SIN_MAS;
+            return -1;
+        }
+        int nivel = atendido.get().getPrioridad() - 1;
+        long duracion = 1 + (long) (-mediaAtencionNanos[nivel] * Math.log(1 - azarAtencion[nivel].nextDouble()));
+        proximo[medico] = ahora + duracion;
+        return Math.min(duracion, fin - ahora);
+    }
+
+    /**
+     * Montículo binario de índices de fuentes ordenado por su próximo
+     * instante; a igual instante va primero el índice menor (las llegadas
+     * antes que los fines de atención), así el orden no depende de nada más
+     */
+    private static final class MonticuloEventos {
+        private final long[] proximo;
+        private final int[] monticulo;
+        private int tamano;
+
+        MonticuloEventos(long[] proximo) {
+            this.proximo = proximo;
+            this.monticulo = new int[proximo.length];
+        }
+
+        boolean vacio() {
+            return tamano == 0;
+        }
+
+        int primero() {
+            return monticulo[0];
+        }
+
+        void agregar(int fuente) {
+            int i = tamano++;
+            while (i > 0) {
+                int padre = (i - 1) >>> 1;
+                if (!antes(fuente, monticulo[padre])) {
+                    break;
+                }
+                monticulo[i] = monticulo[padre];
+                i = padre;
+            }
+            monticulo[i] = fuente;
+        }
+
+        void quitarPrimero() {
+            int ultimo = monticulo[--tamano];
+            if (tamano > 0) {
+                bajar(ultimo);
+            }
+        }
+
+        // La primera fuente cambió su instante (siempre hacia adelante)
+        void reubicarPrimero() {
+            bajar(monticulo[0]);
+        }
+
+        private void bajar(int fuente) {
+            int i = 0;
+            while (true) {
+                int hijo = 2 * i + 1;
+                if (hijo >= tamano) {
+                    break;
+                }
+                if (hijo + 1 < tamano && antes(monticulo[hijo + 1], monticulo[hijo])) {
+                    hijo++;
+                }
+                if (!antes(monticulo[hijo], fuente)) {
+                    break;
+                }
+                monticulo[i] = monticulo[hijo];
+                i = hijo;
+            }
+            monticulo[i] = fuente;
+        }
+
+        private boolean antes(int a, int b) {
+            return proximo[a] < proximo[b] || (proximo[a] == proximo[b] && a < b);
+        }
+    }
+
+    /**
+     * Resultado de una corrida. Las esperas están en milisegundos simulados.
+     */
+    static final class Resultado {
+        private final long eventos;
+        private final long[] llegadas;
+        private final int[] enEspera;
+        private final HistogramaTiempos.Resumen[] esperas;
+        private final double utilizacion;
+        private final long nanosReales;
+
+        private Resultado(long eventos, long[] llegadas, int[] enEspera, HistogramaTiempos.Resumen[] esperas,
+                          double utilizacion, long nanosReales) {
+            this.eventos = eventos;
+            this.llegadas = llegadas;
+            this.enEspera = enEspera;
+            this.esperas = esperas;
+            this.utilizacion = utilizacion;
+            this.nanosReales = nanosReales;
+        }
+
+        /**
+         * Llegadas más fines de atención procesados
+         */
+        public long getEventos() {
+            return eventos;
+        }
+
+        public long llegadas(int prioridad) {
+            return llegadas[prioridad - 1];
+        }
+
+        /**
+         * Pacientes que pasaron a atención, con su espera en milisegundos
+         */
+        public HistogramaTiempos.Resumen espera(int prioridad) {
+            return esperas[prioridad - 1];
+        }
+
+        /**
+         * Pacientes que seguían esperando al terminar la guardia
+         */
+        public int enEspera(int prioridad) {
+            return enEspera[prioridad - 1];
+        }
+
+        /**
+         * Fracción del tiempo de los médicos dedicada a atender (0 a 1)
+         */
+        public double getUtilizacion() {
+            return utilizacion;
+        }
+
+        public long getNanosReales() {
+            return nanosReales;
+        }
+
+        public double eventosPorSegundo() {
+            return nanosReales == 0 ? 0 : eventos * 1e9 / nanosReales;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Uso: SimuladorTriage <médicos> <horas> <llegadas/h rojo,amarillo,verde"
+                    + " | archivo de traza> <minutos de atención rojo,amarillo,verde> [semilla]"
+                    + " [réplicas [hilos]]");
+            System.exit(2);
+        }
+        int medicos = Integer.parseInt(args[0]);
+        Duration duracion = Duration.ofMinutes(Math.round(Double.parseDouble(args[1]) * 60));
+        ProcesoLlegadas[] llegadas;
+        if (Files.isRegularFile(Path.of(args[2]))) {
+            llegadas = LlegadasTraza.leer(Path.of(args[2]));
+        } else {
+            double[] tasas = porPrioridad(args[2]);
+            llegadas = new ProcesoLlegadas[ColaTriage.NIVELES];
+            for (int i = 0; i < llegadas.length; i++) {
+                llegadas[i] = new LlegadasPoisson(tasas[i]);
+            }
+        }
+        long semilla = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        int replicas = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        SimuladorTriage simulador = new SimuladorTriage(medicos, llegadas, porPrioridad(args[3]));
+        String[] colores = {"ROJO", "AMARILLO", "VERDE"};
+
+        if (replicas > 1) {
+            int hilos = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+            ReplicasSimulacion.Resultado total = new ReplicasSimulacion(simulador, duracion, hilos)
+                    .ejecutar(replicas, semilla);
+            System.out.printf("%-9s %9s %9s %17s %9s %9s %9s%n", "Prioridad", "Llegadas", "Atendidos",
+                    "Espera media min", "p50 min", "p90 min", "p99 min");
+            for (int p = 1; p <= ColaTriage.NIVELES; p++) {
+                HistogramaTiempos.Resumen espera = total.espera(p);
+                System.out.printf("%-9s %9d %9d %8.2f ± %6.2f %9.1f %9.1f %9.1f%n", colores[p - 1],
+                        total.llegadas(p), espera.getTotal(), total.mediaEspera(p) / 60e3,
+                        total.semiAnchoEspera(p) / 60e3, espera.percentil(50) / 60e3,
+                        espera.percentil(90) / 60e3, espera.percentil(99) / 60e3);
+            }
+            System.out.printf("Réplicas: %d en %d hilos  utilización: %.1f%% ± %.1f  eventos: %d  (%.0f eventos/s)%n",
+                    total.getReplicas(), hilos, total.getUtilizacion() * 100,
+                    total.getSemiAnchoUtilizacion() * 100, total.getEventos(), total.eventosPorSegundo());
+            return;
+        }
+
+        Resultado r = simulador.ejecutar(duracion, semilla);
+        System.out.printf("%-9s %9s %9s %9s %9s %9s %9s %9s%n", "Prioridad", "Llegadas", "Atendidos",
+                "En espera", "p50 min", "p90 min", "p99 min", "Máx min");
+        for (int p = 1; p <= ColaTriage.NIVELES; p++) {
+            HistogramaTiempos.Resumen espera = r.espera(p);
+            System.out.printf("%-9s %9d %9d %9d %9.1f %9.1f %9.1f %9.1f%n", colores[p - 1], r.llegadas(p),
+                    espera.getTotal(), r.enEspera(p), espera.percentil(50) / 60e3, espera.percentil(90) / 60e3,
+                    espera.percentil(99) / 60e3, espera.getMaximo() / 60e3);
+        }
+        System.out.printf("Utilización de los médicos: %.1f%%  eventos: %d  (%.0f eventos/s)%n",
+                r.getUtilizacion() * 100, r.getEventos(), r.eventosPorSegundo());
+    }
+
+    private static double[] porPrioridad(String valores) {
+        String[] partes = valores.split(",");
+        if (partes.length != ColaTriage.NIVELES) {
+            throw new IllegalArgumentException("Se esperaban " + ColaTriage.NIVELES + " valores separados por coma: "
+                    + valores);
+        }
+        return Arrays.stream(partes).mapToDouble(s -> Double.parseDouble(s.strip())).toArray();
+    }
+}
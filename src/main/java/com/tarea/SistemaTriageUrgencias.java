@@ -0,0 +1,975 @@
+package com.tarea;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Sistema de Triage de Urgencias
+ */
+class SistemaTriageUrgencias {
+    // Cola de triage: un buffer FIFO por nivel de prioridad.
+    // Los contadores por prioridad salen directamente de la cola.
+    private final ColaTriage colaPacientes;
+
+    // Posición en la fila por ID; null en modo concurrente (se recorre la vista)
+    private final IndicePosiciones indicePosiciones;
+
+    // Atendidos en orden de atención, para los reportes; los registros del
+    // almacén si lo hay, y null en las simulaciones, que solo necesitan las
+    // estadísticas
+    private final RegistroAtendidos historialAtendidos;
+
+    // Atenciones recientes que se pueden deshacer (acotadas en cantidad y
+    // tiempo) y atenciones deshechas que se pueden rehacer; de capacidad 0
+    // si no hay historial. Los instantes son reloj.millis() de la atención.
+    private AnilloDeshacer anilloDeshacer;
+    private AnilloDeshacer anilloRehacer;
+    private long ventanaDeshacerMillis = Long.MAX_VALUE;
+
+    // Protege al historial y a los anillos. Deshacer, rehacer y las
+    // consultas del historial lo toman; atender y registrar nunca esperan
+    // por él (ver marcarAtendido)
+    private final ReentrantLock candadoAtendidos = new ReentrantLock();
+    private final boolean concurrente;
+
+    // Solo en modo concurrente: atenciones ya sacadas de la cola que todavía
+    // no pasaron al historial ni al anillo de deshacer. Se anexan con un CAS
+    // y las asienta quien tome el candado.
+    private final ConcurrentLinkedQueue<AtencionPendiente> pendientes = new ConcurrentLinkedQueue<>();
+
+    // Asigna los IDs de los pacientes registrados en este sistema
+    private final GeneradorId generadorId;
+
+    // Orden de llegada: define el FIFO dentro de cada nivel de prioridad
+    private final AtomicLong secuenciaLlegada = new AtomicLong();
+
+    // Se toma para asignar la secuencia, anotar en el diario y encolar, así
+    // dos registros simultáneos quedan en cada nivel (y en el diario) en el
+    // orden de sus secuencias. No cubre la espera al disco.
+    private final ReentrantLock candadoRegistro = new ReentrantLock();
+
+    // Hora de llegada de los pacientes y base de las estadísticas; un
+    // RelojSimulado en las simulaciones
+    private final Clock reloj;
+
+    // Esperas por prioridad, atenciones y profundidad por minuto
+    private final EstadisticasTriage estadisticas;
+
+    // Copia al escribir: recorrer un arreglo vacío no cuesta nada
+    private volatile OyenteTriage[] oyentes = new OyenteTriage[0];
+
+    // Diario de escritura anticipada; null si el estado solo vive en memoria
+    private volatile DiarioTriage diario;
+
+    // Contadores y latencias por operación; null si no se miden
+    private volatile MetricasTriage metricas;
+
+    static final int CAPACIDAD_DESHACER_POR_DEFECTO = 1000;
+
+    public SistemaTriageUrgencias() {
+        this(false);
+    }
+
+    /**
+     * @param concurrente si es true, registrarPaciente y atender pueden
+     *                    llamarse desde varios hilos sin un candado global
+     */
+    public SistemaTriageUrgencias(boolean concurrente) {
+        this(concurrente, concurrente ? new GeneradorIdPorRangos() : new GeneradorIdAtomico());
+    }
+
+    /**
+     * @param concurrente si es true, registrarPaciente y atender pueden
+     *                    llamarse desde varios hilos sin un candado global
+     * @param generadorId estrategia de asignación de IDs de pacientes
+     */
+    public SistemaTriageUrgencias(boolean concurrente, GeneradorId generadorId) {
+        this(concurrente, generadorId, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param reloj da la hora de llegada de cada paciente y mide las esperas
+     */
+    public SistemaTriageUrgencias(boolean concurrente, GeneradorId generadorId, Clock reloj) {
+        // Orden: primero por prioridad (ascendente), luego por secuencia
+        // de llegada (el más antiguo primero; la hora de reloj puede empatar)
+        this(concurrente ? new ColaTriageConcurrente() : new ColaTriageSecuencial(),
+                concurrente ? null : new IndicePosiciones(), concurrente, generadorId, reloj,
+                new HistorialAtendidos());
+    }
+
+    /**
+     * Sistema secuencial para simulaciones: sin índice de posiciones (nadie
+     * las consulta, y mantenerlo es buena parte del costo de cada evento),
+     * sin historial de atendidos ni deshacer (una corrida larga los haría
+     * crecer sin límite), con IDs propios desde 1 y la hora del reloj indicado
+     */
+    static SistemaTriageUrgencias paraSimulacion(Clock reloj) {
+        return new SistemaTriageUrgencias(new ColaTriageSecuencial(), null, false, new GeneradorIdAtomico(),
+                reloj, null);
+    }
+
+    /**
+     * Sistema cuyos pacientes viven en un almacén mapeado fuera del heap.
+     * Retoma la espera, los atendidos, el historial de deshacer y la
+     * numeración guardados en el almacén. Los atendidos se leen de sus
+     * registros; en el heap solo quedan los últimos que caben en el anillo
+     * de deshacer. No usa índice de posiciones (sería una copia en el heap
+     * de toda la cola) ni es concurrente.
+     */
+    public SistemaTriageUrgencias(ColaTriageMapeada almacen) {
+        this(almacen, null, false, new GeneradorIdAtomico(), Clock.systemDefaultZone(), almacen.historial());
+        RegistroAtendidos atendidos = almacen.historial();
+        int desde = atendidos.tamano() - Math.min(anilloDeshacer.capacidad(), atendidos.tamano());
+        List<Paciente> ultimos = new ArrayList<>(atendidos.tamano() - desde);
+        Paciente[] pagina = new Paciente[HistorialAtendidos.TAMANO_BLOQUE];
+        int copiados;
+        while ((copiados = atendidos.copiar(desde + ultimos.size(), pagina)) > 0) {
+            ultimos.addAll(Arrays.asList(pagina).subList(0, copiados));
+        }
+        for (int i = 0; i < ultimos.size(); i++) {
+            anilloDeshacer.agregar(ultimos.get(i), almacen.instanteAtencion(desde + i),
+                    almacen.continuaLote(desde + i));
+        }
+        secuenciaLlegada.set(almacen.ultimaSecuencia());
+        generadorId.continuarDesde(almacen.ultimoId());
+    }
+
+    private SistemaTriageUrgencias(ColaTriage colaPacientes, IndicePosiciones indicePosiciones,
+                                   boolean concurrente, GeneradorId generadorId, Clock reloj,
+                                   RegistroAtendidos historialAtendidos) {
+        this.colaPacientes = colaPacientes;
+        this.indicePosiciones = indicePosiciones;
+        this.concurrente = concurrente;
+        this.generadorId = generadorId;
+        this.reloj = reloj;
+        this.estadisticas = new EstadisticasTriage(reloj);
+        this.historialAtendidos = historialAtendidos;
+        int capacidadDeshacer = historialAtendidos == null ? 0
+                : Math.min(CAPACIDAD_DESHACER_POR_DEFECTO, historialAtendidos.retencion());
+        this.anilloDeshacer = new AnilloDeshacer(capacidadDeshacer);
+        this.anilloRehacer = new AnilloDeshacer(capacidadDeshacer);
+    }
+
+    /**
+     * Suscribe un oyente a los eventos de registro, atención y deshacer
+     */
+    public synchronized void agregarOyente(OyenteTriage oyente) {
+        OyenteTriage[] nuevos = Arrays.copyOf(oyentes, oyentes.length + 1);
+        nuevos[oyentes.length] = oyente;
+        oyentes = nuevos;
+    }
+
+    /**
+     * Anota cada operación en el diario antes de aplicarla. Se asocia después
+     * de reconstruir el estado (ver DiarioTriage.abrir).
+     */
+    public void usarDiario(DiarioTriage diario) {
+        this.diario = diario;
+    }
+
+    /**
+     * Mide cada operación (cantidad y latencia). Sin métricas no se lee el reloj.
+     */
+    public void usarMetricas(MetricasTriage metricas) {
+        this.metricas = metricas;
+    }
+
+    /**
+     * Registra la llegada de un nuevo paciente. Con diario, el paciente ya
+     * está en espera mientras se espera al disco: una atención suya se anota
+     * después que su registro, así que un fallo pierde ambas o ninguna.
+     *
+     * @return el paciente registrado, con su ID y secuencia de llegada
+     * @throws IllegalArgumentException si el nombre o la prioridad no son válidos
+     */
+    public Paciente registrarPaciente(String nombre, int prioridad, String sintomas) {
+        MetricasTriage metricas = this.metricas;
+        long inicio = metricas == null ? 0 : System.nanoTime();
+        colaPacientes.validarTextos(nombre, sintomas);
+        long id = generadorId.siguienteId();
+        Instant llegada = reloj.instant();
+        DiarioTriage diario = this.diario;
+        Paciente paciente;
+        long finDiario = 0;
+        candadoRegistro.lock();
+        try {
+            paciente = new Paciente(id, secuenciaLlegada.incrementAndGet(), nombre, prioridad, sintomas,
+                    llegada, reloj.getZone());
+            if (diario != null) {
+                finDiario = diario.anotarRegistro(paciente);
+            }
+            encolar(paciente);
+        } finally {
+            candadoRegistro.unlock();
+        }
+        if (diario != null) {
+            diario.esperar(finDiario);
+        }
+        estadisticas.registro(colaPacientes.size());
+        for (OyenteTriage oyente : oyentes) {
+            oyente.pacienteRegistrado(paciente);
+        }
+        if (metricas != null) {
+            metricas.registrar(MetricasTriage.Operacion.REGISTRAR, System.nanoTime() - inicio);
+        }
+        return paciente;
+    }
+
+    /**
+     * Registra un bloque de pacientes de una vez (por ejemplo, el manifiesto
+     * de una ambulancia en un incidente con múltiples víctimas). Las
+     * solicitudes ya vienen validadas y la cola revisa antes que quepan sus
+     * textos, así que un dato inválido no deja el bloque registrado a
+     * medias. IDs y secuencias se reservan en un bloque,
+     * el diario espera al disco una sola vez y cada nivel de la cola recibe a
+     * sus pacientes juntos.
+     *
+     * @return los pacientes registrados, en el orden de las solicitudes
+     */
+    public List<Paciente> registrarPacientes(Collection<SolicitudRegistro> solicitudes) {
+        MetricasTriage metricas = this.metricas;
+        long inicio = metricas == null ? 0 : System.nanoTime();
+        int cantidad = solicitudes.size();
+        if (cantidad == 0) {
+            return List.of();
+        }
+        for (SolicitudRegistro solicitud : solicitudes) {
+            colaPacientes.validarTextos(solicitud.getNombre(), solicitud.getSintomas());
+        }
+        long[] ids = new long[cantidad];
+        generadorId.siguientesIds(ids);
+        // Llegan juntos: comparten el instante y el orden lo da la secuencia
+        Instant llegada = reloj.instant();
+        ZoneId zona = reloj.getZone();
+        DiarioTriage diario = this.diario;
+        List<Paciente> pacientes = new ArrayList<>(cantidad);
+        long finDiario = 0;
+        candadoRegistro.lock();
+        try {
+            long primeraSecuencia = secuenciaLlegada.getAndAdd(cantidad) + 1;
+            int i = 0;
+            for (SolicitudRegistro solicitud : solicitudes) {
+                pacientes.add(new Paciente(ids[i], primeraSecuencia + i, solicitud.getNombre(),
+                        solicitud.getPrioridad(), solicitud.getSintomas(), llegada, zona));
+                i++;
+            }
+            if (diario != null) {
+                finDiario = diario.anotarRegistros(pacientes);
+            }
+            colaPacientes.offerTodos(pacientes);
+            if (indicePosiciones != null) {
+                for (Paciente paciente : pacientes) {
+                    indicePosiciones.agregar(paciente);
+                }
+            }
+        } finally {
+            candadoRegistro.unlock();
+        }
+        if (diario != null) {
+            diario.esperar(finDiario);
+        }
+        estadisticas.registro(colaPacientes.size());
+        for (OyenteTriage oyente : oyentes) {
+            oyente.pacientesRegistrados(pacientes);
+        }
+        if (metricas != null) {
+            metricas.registrar(MetricasTriage.Operacion.REGISTRAR_LOTE, System.nanoTime() - inicio);
+        }
+        return pacientes;
+    }
+
+    /**
+     * Igual que registrarPacientes(Collection); el flujo se junta antes de
+     * registrar para reservar IDs y secuencias de una vez
+     */
+    public List<Paciente> registrarPacientes(Stream<SolicitudRegistro> solicitudes) {
+        return registrarPacientes(solicitudes.collect(Collectors.toList()));
+    }
+
+    /**
+     * Ver el siguiente paciente a atender sin sacarlo de la cola
+     */
+    public Optional<Paciente> verSiguiente() {
+        return Optional.ofNullable(colaPacientes.peek());
+    }
+
+    /**
+     * Atiende al siguiente paciente según prioridad triage
+     *
+     * @return el paciente atendido, o vacío si no había nadie en espera
+     */
+    public Optional<Paciente> atender() {
+        MetricasTriage metricas = this.metricas;
+        long inicio = metricas == null ? 0 : System.nanoTime();
+        Paciente paciente = colaPacientes.poll();
+        if (paciente == null) {
+            return Optional.empty();
+        }
+        long instante = reloj.millis();
+        DiarioTriage diario = this.diario;
+        if (diario != null) {
+            try {
+                diario.atencion(paciente, instante);
+            } catch (RuntimeException e) {
+                // Sin anotar no se atiende: el paciente vuelve a su lugar
+                colaPacientes.reinsertar(paciente);
+                throw e;
+            }
+        }
+        marcarAtendido(paciente, instante);
+        estadisticas.atencion(paciente, colaPacientes.size());
+        for (OyenteTriage oyente : oyentes) {
+            oyente.pacienteAtendido(paciente);
+        }
+        if (metricas != null) {
+            metricas.registrar(MetricasTriage.Operacion.ATENDER, System.nanoTime() - inicio);
+        }
+        return Optional.of(paciente);
+    }
+
+    /**
+     * Atiende de una vez a los siguientes k pacientes (por ejemplo, al
+     * empezar un turno o cuando se liberan varios médicos), en el mismo orden
+     * que k llamadas a atender(). La cola descuenta cada nivel una sola vez,
+     * el diario espera al disco una sola vez y el historial recibe el lote
+     * por bloques. El lote se deshace entero con deshacerUltimoLote().
+     *
+     * @return los pacientes atendidos en orden; menos de k si se vació la cola
+     */
+    public List<Paciente> atenderLote(int k) {
+        MetricasTriage metricas = this.metricas;
+        long inicio = metricas == null ? 0 : System.nanoTime();
+        List<Paciente> pacientes = colaPacientes.pollTodos(k);
+        if (pacientes.isEmpty()) {
+            return pacientes;
+        }
+        long instante = reloj.millis();
+        DiarioTriage diario = this.diario;
+        if (diario != null) {
+            try {
+                diario.atencionLote(pacientes, instante);
+            } catch (RuntimeException e) {
+                // Al revés, para que cada uno vuelva delante del que lo seguía
+                for (int i = pacientes.size() - 1; i >= 0; i--) {
+                    colaPacientes.reinsertar(pacientes.get(i));
+                }
+                throw e;
+            }
+        }
+        marcarAtendidos(pacientes, instante);
+        estadisticas.atencionLote(pacientes, colaPacientes.size());
+        for (OyenteTriage oyente : oyentes) {
+            oyente.pacientesAtendidos(pacientes);
+        }
+        if (metricas != null) {
+            metricas.registrar(MetricasTriage.Operacion.ATENDER_LOTE, System.nanoTime() - inicio);
+        }
+        return pacientes;
+    }
+
+    /**
+     * Los siguientes k pacientes a atender, sin sacarlos de la cola
+     */
+    public List<Paciente> verSiguientes(int k) {
+        return colaPacientes.primeros(k);
+    }
+
+    /**
+     * Cantidad de pacientes en espera con la prioridad indicada (1..3)
+     */
+    public int contador(int prioridad) {
+        return colaPacientes.tamano(prioridad);
+    }
+
+    public int totalEnEspera() {
+        return colaPacientes.size();
+    }
+
+    /**
+     * Foto de los tiempos de espera por prioridad (en milisegundos) y de las
+     * atenciones y la profundidad de la cola por minuto. Rehacer y reproducir
+     * el diario no cuentan como atenciones nuevas.
+     */
+    public EstadisticasTriage.Resumen estadisticas() {
+        return estadisticas.resumen();
+    }
+
+    /**
+     * EXTRA: Deshace la última atención (reinserta al paciente). Solo se
+     * pueden deshacer las atenciones que siguen en el anillo y dentro de la
+     * ventana de tiempo configurada.
+     *
+     * @return el paciente reinsertado, o vacío si no había atenciones
+     */
+    public Optional<Paciente> deshacerUltimaAtencion() {
+        MetricasTriage metricas = this.metricas;
+        long inicio = metricas == null ? 0 : System.nanoTime();
+        bloquearAtendidos();
+        try {
+            if (anilloDeshacer.isEmpty()) {
+                return Optional.empty();
+            }
+            long instante = anilloDeshacer.instanteUltimo();
+            if (reloj.millis() - instante > ventanaDeshacerMillis) {
+                // El anillo está en orden: si la última venció, todas vencieron
+                anilloDeshacer.vaciar();
+                return Optional.empty();
+            }
+            boolean continua = anilloDeshacer.ultimoContinuaLote();
+            Paciente paciente = anilloDeshacer.quitarUltimo();
+            DiarioTriage diario = this.diario;
+            if (diario != null) {
+                try {
+                    diario.deshacer(paciente);
+                } catch (RuntimeException e) {
+                    // Vuelve tal como estaba, también si era parte de un lote
+                    anilloDeshacer.agregar(paciente, instante, continua);
+                    throw e;
+                }
+            }
+
+            // Es la última del historial: se quita en O(1)
+            historialAtendidos.quitar(paciente.getId());
+            devolverAEspera(paciente);
+            anilloRehacer.agregar(paciente, instante);
+            for (OyenteTriage oyente : oyentes) {
+                oyente.atencionDeshecha(paciente);
+            }
+            if (metricas != null) {
+                metricas.registrar(MetricasTriage.Operacion.DESHACER, System.nanoTime() - inicio);
+            }
+            return Optional.of(paciente);
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Deshace de una vez la última operación de atención: el lote entero si
+     * fue atenderLote, o una sola atención si fue atender(). Si el lote era
+     * más grande que el anillo, solo vuelven los que seguían en él. Cada
+     * paciente vuelve a su lugar y rehacer() los atiende de nuevo de a uno,
+     * en el orden original. Las atenciones restauradas del diario se
+     * deshacen de a una.
+     *
+     * @return los pacientes reinsertados en el orden en que se habían
+     *         atendido, o una lista vacía si no había atenciones
+     */
+    public List<Paciente> deshacerUltimoLote() {
+        MetricasTriage metricas = this.metricas;
+        long inicio = metricas == null ? 0 : System.nanoTime();
+        bloquearAtendidos();
+        try {
+            if (anilloDeshacer.isEmpty()) {
+                return List.of();
+            }
+            long instante = anilloDeshacer.instanteUltimo();
+            if (reloj.millis() - instante > ventanaDeshacerMillis) {
+                anilloDeshacer.vaciar();
+                return List.of();
+            }
+            // Del último atendido al primero, que es el orden en que se
+            // reinsertan y en que el diario los debe reproducir
+            List<Paciente> lote = new ArrayList<>();
+            boolean continua;
+            do {
+                continua = anilloDeshacer.ultimoContinuaLote();
+                lote.add(anilloDeshacer.quitarUltimo());
+            } while (continua);
+            DiarioTriage diario = this.diario;
+            if (diario != null) {
+                try {
+                    diario.deshacerLote(lote);
+                } catch (RuntimeException e) {
+                    for (int i = lote.size() - 1; i >= 0; i--) {
+                        anilloDeshacer.agregar(lote.get(i), instante, i < lote.size() - 1);
+                    }
+                    throw e;
+                }
+            }
+
+            // Cada uno es el último del historial y vuelve delante del que lo
+            // seguía en la cola; el primero atendido queda arriba en rehacer
+            for (Paciente paciente : lote) {
+                historialAtendidos.quitar(paciente.getId());
+                devolverAEspera(paciente);
+                anilloRehacer.agregar(paciente, instante);
+                for (OyenteTriage oyente : oyentes) {
+                    oyente.atencionDeshecha(paciente);
+                }
+            }
+            if (metricas != null) {
+                metricas.registrar(MetricasTriage.Operacion.DESHACER_LOTE, System.nanoTime() - inicio);
+            }
+            Collections.reverse(lote);
+            return lote;
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Vuelve a atender al último paciente cuya atención se deshizo. Una
+     * atención nueva descarta lo que se podía rehacer.
+     *
+     * @return el paciente atendido de nuevo, o vacío si no hay nada que rehacer
+     */
+    public Optional<Paciente> rehacer() {
+        MetricasTriage metricas = this.metricas;
+        long inicio = metricas == null ? 0 : System.nanoTime();
+        bloquearAtendidos();
+        try {
+            Paciente paciente = anilloRehacer.quitarUltimo();
+            if (paciente == null) {
+                return Optional.empty();
+            }
+            // Quedó primero en su nivel, así que quitarlo no recorre la cola;
+            // en modo concurrente otro médico pudo haberlo atendido ya
+            if (!colaPacientes.quitar(paciente)) {
+                anilloRehacer.vaciar();
+                return Optional.empty();
+            }
+            long ahora = reloj.millis();
+            DiarioTriage diario = this.diario;
+            if (diario != null) {
+                try {
+                    diario.atencion(paciente, ahora);
+                } catch (RuntimeException e) {
+                    colaPacientes.reinsertar(paciente);
+                    anilloRehacer.agregar(paciente, 0);
+                    throw e;
+                }
+            }
+
+            // Cuenta como una atención nueva para la ventana de deshacer
+            anotarAtencion(paciente, ahora, false);
+            for (OyenteTriage oyente : oyentes) {
+                oyente.pacienteAtendido(paciente);
+            }
+            if (metricas != null) {
+                metricas.registrar(MetricasTriage.Operacion.REHACER, System.nanoTime() - inicio);
+            }
+            return Optional.of(paciente);
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Limita el deshacer a las últimas capacidad atenciones y, si ventana no
+     * es null, a las hechas hace menos de ese tiempo
+     */
+    public void configurarDeshacer(int capacidad, Duration ventana) {
+        if (ventana != null && (ventana.isNegative() || ventana.isZero())) {
+            throw new IllegalArgumentException("La ventana de deshacer debe ser positiva");
+        }
+        if (historialAtendidos == null && capacidad > 0) {
+            throw new IllegalStateException("Este sistema no guarda atendidos: no se puede deshacer");
+        }
+        if (historialAtendidos != null && capacidad > historialAtendidos.retencion()) {
+            throw new IllegalArgumentException("Solo se conservan los últimos "
+                    + historialAtendidos.retencion() + " atendidos: no se pueden deshacer más");
+        }
+        AnilloDeshacer nuevoDeshacer = new AnilloDeshacer(capacidad);
+        bloquearAtendidos();
+        try {
+            nuevoDeshacer.copiarDe(anilloDeshacer);
+            AnilloDeshacer nuevoRehacer = new AnilloDeshacer(capacidad);
+            nuevoRehacer.copiarDe(anilloRehacer);
+            anilloDeshacer = nuevoDeshacer;
+            anilloRehacer = nuevoRehacer;
+            ventanaDeshacerMillis = ventana == null ? Long.MAX_VALUE : ventana.toMillis();
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Reaplica un registro leído del diario (sin volver a anotarlo ni notificar)
+     */
+    void reponerRegistro(Paciente paciente) {
+        encolar(paciente);
+        secuenciaLlegada.accumulateAndGet(paciente.getSecuenciaLlegada(), Math::max);
+        generadorId.continuarDesde(paciente.getId());
+    }
+
+    /**
+     * Reaplica una atención leída del diario. En modo concurrente el diario
+     * puede tener las atenciones en otro orden que la cola, por eso se saca
+     * al paciente indicado y no simplemente al siguiente.
+     *
+     * @param continuaLote true si siguió a la atención anterior en un mismo
+     *                     atenderLote, para que se deshagan juntas
+     * @param instante     reloj.millis() de la atención original, para la
+     *                     ventana de deshacer
+     */
+    void reponerAtencion(Paciente paciente, boolean continuaLote, long instante) {
+        if (colaPacientes.peek() == paciente) {
+            colaPacientes.poll();
+        } else if (!colaPacientes.quitar(paciente)) {
+            throw new IllegalStateException("El paciente " + paciente.getId() + " no está en espera");
+        }
+        bloquearAtendidos();
+        try {
+            anilloRehacer.vaciar();
+            anotarAtencion(paciente, instante, continuaLote);
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Reaplica una atención deshecha leída del diario
+     */
+    void reponerDeshacer(Paciente paciente) {
+        bloquearAtendidos();
+        try {
+            if (!historialAtendidos.quitar(paciente.getId())) {
+                throw new IllegalStateException("El paciente " + paciente.getId() + " no fue atendido");
+            }
+            // Si ya salió del anillo (otra capacidad al reproducir) no importa
+            anilloDeshacer.quitar(paciente.getId());
+        } finally {
+            candadoAtendidos.unlock();
+        }
+        devolverAEspera(paciente);
+    }
+
+    /**
+     * Carga el estado completo leído de una instantánea en un sistema vacío.
+     * deshacer trae las últimas atenciones que se podían deshacer, con sus
+     * lotes y los instantes en que se hicieron.
+     */
+    void reponerEstado(List<Paciente> enEspera, List<Paciente> atendidos, AnilloDeshacer deshacer,
+                       long ultimaSecuencia, long ultimoId) {
+        for (Paciente paciente : enEspera) {
+            encolar(paciente);
+        }
+        historialAtendidos.agregarTodos(atendidos, 0);
+        for (int i = 0; i < deshacer.tamano(); i++) {
+            anilloDeshacer.agregar(deshacer.paciente(i), deshacer.instante(i), deshacer.continuaLote(i));
+        }
+        secuenciaLlegada.accumulateAndGet(ultimaSecuencia, Math::max);
+        generadorId.continuarDesde(ultimoId);
+    }
+
+    /**
+     * Copia de las atenciones que se pueden deshacer, para la instantánea;
+     * son las últimas del historial
+     */
+    AnilloDeshacer copiaDeshacer() {
+        bloquearAtendidos();
+        try {
+            AnilloDeshacer copia = new AnilloDeshacer(anilloDeshacer.tamano());
+            copia.copiarDe(anilloDeshacer);
+            return copia;
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    long ultimaSecuenciaLlegada() {
+        return secuenciaLlegada.get();
+    }
+
+    long ultimoIdAsignado() {
+        return generadorId.ultimoAsignado();
+    }
+
+    private void encolar(Paciente paciente) {
+        colaPacientes.offer(paciente);
+        if (indicePosiciones != null) {
+            indicePosiciones.agregar(paciente);
+        }
+    }
+
+    /**
+     * Pasa al historial a un paciente que ya salió de la cola. En modo
+     * concurrente la atención queda pendiente y se asienta ahora solo si el
+     * candado está libre: los médicos nunca se esperan entre sí.
+     */
+    private void marcarAtendido(Paciente paciente, long instante) {
+        if (concurrente) {
+            pendientes.offer(new AtencionPendiente(paciente, null, instante));
+            asentarSiEstaLibre();
+        } else {
+            // Una atención nueva invalida lo que se podía rehacer
+            anilloRehacer.vaciar();
+            anotarAtencion(paciente, instante, false);
+        }
+    }
+
+    /**
+     * Pasa al historial un lote que ya salió de la cola; en el anillo de
+     * deshacer el lote queda marcado para deshacerse junto
+     */
+    private void marcarAtendidos(List<Paciente> pacientes, long instante) {
+        if (concurrente) {
+            pendientes.offer(new AtencionPendiente(null, pacientes, instante));
+            asentarSiEstaLibre();
+        } else {
+            anilloRehacer.vaciar();
+            anotarAtenciones(pacientes, instante);
+        }
+    }
+
+    /**
+     * Toma el candado de los atendidos con las atenciones pendientes ya
+     * asentadas; se libera con candadoAtendidos.unlock()
+     */
+    private void bloquearAtendidos() {
+        candadoAtendidos.lock();
+        try {
+            asentarPendientes();
+        } catch (RuntimeException e) {
+            candadoAtendidos.unlock();
+            throw e;
+        }
+    }
+
+    private void asentarSiEstaLibre() {
+        if (candadoAtendidos.tryLock()) {
+            try {
+                asentarPendientes();
+            } finally {
+                candadoAtendidos.unlock();
+            }
+        }
+    }
+
+    /**
+     * Asienta en el historial y en el anillo las atenciones pendientes, en
+     * el orden en que se anexaron. Requiere el candado.
+     */
+    private void asentarPendientes() {
+        AtencionPendiente pendiente = pendientes.poll();
+        if (pendiente == null) {
+            return;
+        }
+        anilloRehacer.vaciar();
+        do {
+            if (pendiente.lote == null) {
+                anotarAtencion(pendiente.paciente, pendiente.instante, false);
+            } else {
+                anotarAtenciones(pendiente.lote, pendiente.instante);
+            }
+        } while ((pendiente = pendientes.poll()) != null);
+    }
+
+    private void anotarAtenciones(List<Paciente> pacientes, long instante) {
+        if (indicePosiciones != null) {
+            for (Paciente paciente : pacientes) {
+                indicePosiciones.quitar(paciente);
+            }
+        }
+        if (historialAtendidos != null) {
+            historialAtendidos.agregarTodos(pacientes, instante);
+        }
+        for (int i = 0; i < pacientes.size(); i++) {
+            anilloDeshacer.agregar(pacientes.get(i), instante, i > 0);
+        }
+    }
+
+    private void anotarAtencion(Paciente paciente, long instante, boolean continuaLote) {
+        if (indicePosiciones != null) {
+            indicePosiciones.quitar(paciente);
+        }
+        if (historialAtendidos != null) {
+            historialAtendidos.agregar(paciente, instante);
+        }
+        anilloDeshacer.agregar(paciente, instante, continuaLote);
+    }
+
+    /**
+     * Una atención (paciente) o un lote (lote) sacados de la cola, con el
+     * instante en que se atendieron
+     */
+    private static final class AtencionPendiente {
+        final Paciente paciente;
+        final List<Paciente> lote;
+        final long instante;
+
+        AtencionPendiente(Paciente paciente, List<Paciente> lote, long instante) {
+            this.paciente = paciente;
+            this.lote = lote;
+            this.instante = instante;
+        }
+    }
+
+    /**
+     * Reinserta en la espera a un paciente que ya salió del historial
+     */
+    private void devolverAEspera(Paciente paciente) {
+        colaPacientes.reinsertar(paciente);
+        if (indicePosiciones != null) {
+            indicePosiciones.agregar(paciente);
+        }
+    }
+
+    /**
+     * Pacientes atendidos en orden de atención; vacío si el sistema no
+     * guarda atendidos
+     */
+    public List<Paciente> pacientesAtendidos() {
+        if (historialAtendidos == null) {
+            return new ArrayList<>();
+        }
+        bloquearAtendidos();
+        try {
+            return historialAtendidos.aLista();
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Vista de solo lectura de los atendidos en orden de atención. Se copia
+     * por páginas de HistorialAtendidos.TAMANO_BLOQUE, así recorrer un turno
+     * completo no duplica la lista; con atenciones simultáneas es débilmente
+     * consistente, como la vista de espera.
+     */
+    public Iterable<Paciente> atendidos() {
+        return () -> new Iterator<Paciente>() {
+            private final Paciente[] pagina = new Paciente[HistorialAtendidos.TAMANO_BLOQUE];
+            private int enPagina;
+            private int posicion;
+            private int siguiente;
+
+            @Override
+            public boolean hasNext() {
+                if (posicion < enPagina) {
+                    return true;
+                }
+                if (historialAtendidos == null) {
+                    return false;
+                }
+                bloquearAtendidos();
+                try {
+                    enPagina = historialAtendidos.copiar(siguiente, pagina);
+                } finally {
+                    candadoAtendidos.unlock();
+                }
+                siguiente += enPagina;
+                posicion = 0;
+                return enPagina > 0;
+            }
+
+            @Override
+            public Paciente next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Paciente paciente = pagina[posicion];
+                pagina[posicion++] = null;
+                return paciente;
+            }
+        };
+    }
+
+    /**
+     * Cantidad de atendidos en el historial; 0 si el sistema no los guarda
+     */
+    public int totalAtendidos() {
+        if (historialAtendidos == null) {
+            return 0;
+        }
+        bloquearAtendidos();
+        try {
+            return historialAtendidos.tamano();
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Desde aquí, los atendidos más antiguos que excedan maximoEnMemoria se
+     * guardan en un archivo temporal en vez de en el heap
+     */
+    public void desbordarAtendidos(Path archivo, int maximoEnMemoria) throws IOException {
+        if (historialAtendidos == null) {
+            return;
+        }
+        bloquearAtendidos();
+        try {
+            historialAtendidos.desbordarEn(archivo, maximoEnMemoria);
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Borra el archivo de desborde de atendidos, si lo hay
+     */
+    public void cerrarDesbordeAtendidos() throws IOException {
+        if (historialAtendidos == null) {
+            return;
+        }
+        bloquearAtendidos();
+        try {
+            historialAtendidos.close();
+        } finally {
+            candadoAtendidos.unlock();
+        }
+    }
+
+    /**
+     * Pacientes en espera ordenados por triage (copia)
+     */
+    public List<Paciente> pacientesEnEspera() {
+        return colaPacientes.aLista();
+    }
+
+    /**
+     * Vista de solo lectura de los pacientes en espera en orden de triage.
+     * No copia ni ordena: recorre la cola en vivo nivel por nivel. En modo
+     * concurrente el recorrido es débilmente consistente.
+     */
+    public Iterable<Paciente> enEspera() {
+        return colaPacientes::iterator;
+    }
+
+    /**
+     * Cantidad de pacientes que serán atendidos antes que el indicado, o -1
+     * si no está en espera. O(log n) en modo secuencial; en modo concurrente
+     * recorre la vista en vivo.
+     */
+    public int pacientesPorDelanteDe(long id) {
+        if (indicePosiciones != null) {
+            return indicePosiciones.pacientesPorDelanteDe(id);
+        }
+        int porDelante = 0;
+        for (Paciente paciente : colaPacientes) {
+            if (paciente.getId() == id) {
+                return porDelante;
+            }
+            porDelante++;
+        }
+        return -1;
+    }
+
+    /**
+     * Posición en la fila empezando en 1 (el siguiente a atender), o vacío
+     * si el paciente no está en espera
+     */
+    public OptionalInt posicionDe(long id) {
+        int porDelante = pacientesPorDelanteDe(id);
+        return porDelante < 0 ? OptionalInt.empty() : OptionalInt.of(porDelante + 1);
+    }
+
+    /**
+     * Los primeros k pacientes en espera (por ejemplo, "los 50 siguientes"), en O(k)
+     */
+    public List<Paciente> primerosEnEspera(int k) {
+        return colaPacientes.primeros(k);
+    }
+}
@@ -0,0 +1,51 @@
+package com.tarea;
+
+/**
+ * Datos de un paciente por registrar, sin ID ni secuencia (los asigna el
+ * sistema al registrarlo). Se valida al crearse con las mismas reglas que
+ * Paciente, así un bloque de solicitudes ya armado no puede fallar a mitad
+ * del registro. Además rechaza los caracteres de control en el nombre y los
+ * síntomas: un salto de línea (que el importador acepta entre comillas)
+ * partiría las respuestas por líneas de ProtocoloTriage.
+ */
+final class SolicitudRegistro {
+    private final String nombre;
+    private final int prioridad;
+    private final String sintomas;
+
+    /**
+     * @throws IllegalArgumentException si el nombre o la prioridad no son
+     *                                  válidos, o si algún texto tiene caracteres de control
+     */
+    public SolicitudRegistro(String nombre, int prioridad, String sintomas) {
+        Paciente.validar(nombre, prioridad);
+        validarSinControles("El nombre", nombre);
+        validarSinControles("Los síntomas", sintomas);
+        this.nombre = nombre;
+        this.prioridad = prioridad;
+        this.sintomas = sintomas;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public int getPrioridad() {
+        return prioridad;
+    }
+
+    public String getSintomas() {
+        return sintomas;
+    }
+
+    private static void validarSinControles(String campo, String texto) {
+        if (texto == null) {
+            return;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (Character.isISOControl(texto.charAt(i))) {
+                throw new IllegalArgumentException(campo + " no puede tener caracteres de control");
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.tarea;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Presenta en consola los resultados del sistema de triage.
+ * El motor (SistemaTriageUrgencias) no imprime nada; el menú llama a esta
+ * vista con lo que devuelve cada operación.
+ */
+class VistaConsola {
+    // Los listados se acumulan en un buffer y se escriben en bloques de este tamaño
+    private static final int TAMANO_BLOQUE = 8192;
+    private static final int FILAS_INVALIDAS_MOSTRADAS = 10;
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    public VistaConsola() {
+        this(System.out, System.err);
+    }
+
+    public VistaConsola(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public void mostrarRegistro(Paciente paciente) {
+        out.println("✓ Paciente registrado exitosamente:");
+        out.println("  " + paciente);
+        out.println();
+    }
+
+    /**
+     * Una sola línea para todo el bloque: cantidad, rango de IDs y cuántos
+     * de cada color
+     */
+    public void mostrarRegistroLote(List<Paciente> pacientes) {
+        if (pacientes.isEmpty()) {
+            out.println("ℹ No había pacientes para registrar.");
+            return;
+        }
+        int[] porNivel = new int[ColaTriage.NIVELES];
+        long primerId = Long.MAX_VALUE;
+        long ultimoId = Long.MIN_VALUE;
+        for (Paciente p : pacientes) {
+            porNivel[p.getPrioridad() - 1]++;
+            primerId = Math.min(primerId, p.getId());
+            ultimoId = Math.max(ultimoId, p.getId());
+        }
+        out.println("✓ " + pacientes.size() + " paciente(s) registrado(s), IDs " + primerId + " a " + ultimoId
+                + ": " + porNivel[0] + " rojo, " + porNivel[1] + " amarillo, " + porNivel[2] + " verde");
+    }
+
+    /**
+     * Resumen de una importación y las primeras filas rechazadas, sin una
+     * línea de error por cada fila
+     */
+    public void mostrarImportacion(ImportadorPacientes.Resultado resultado) {
+        out.printf("✓ %d paciente(s) importado(s) en %d ms (%.0f filas/s)%n", resultado.getImportados(),
+                resultado.getNanos() / 1_000_000, resultado.filasPorSegundo());
+        if (resultado.getInvalidas() == 0) {
+            out.println();
+            return;
+        }
+        List<ImportadorPacientes.FilaInvalida> ejemplos = resultado.getEjemplosInvalidas();
+        int mostradas = Math.min(ejemplos.size(), FILAS_INVALIDAS_MOSTRADAS);
+        out.println("✗ " + resultado.getInvalidas() + " fila(s) inválida(s) omitida(s):");
+        for (int i = 0; i < mostradas; i++) {
+            out.println("  " + ejemplos.get(i));
+        }
+        if (resultado.getInvalidas() > mostradas) {
+            out.println("  ... y " + (resultado.getInvalidas() - mostradas) + " más");
+        }
+        out.println();
+    }
+
+    public void mostrarErrorRegistro(IllegalArgumentException e) {
+        err.println("✗ Error al registrar paciente: " + e.getMessage());
+    }
+
+    public void mostrarSiguiente(Optional<Paciente> siguiente) {
+        if (siguiente.isEmpty()) {
+            out.println("ℹ No hay pacientes en espera.");
+        } else {
+            out.println("→ Siguiente paciente a atender:");
+            out.println("  " + siguiente.get());
+        }
+        out.println();
+    }
+
+    public void mostrarAtencion(Optional<Paciente> atendido) {
+        if (atendido.isEmpty()) {
+            out.println("ℹ No hay pacientes para atender.");
+            out.println();
+            return;
+        }
+
+        out.println("✓ Paciente atendido:");
+        out.println("  " + atendido.get());
+        out.println();
+    }
+
+    public void mostrarAtencionLote(List<Paciente> atendidos) {
+        if (atendidos.isEmpty()) {
+            out.println("ℹ No hay pacientes para atender.");
+            out.println();
+            return;
+        }
+
+        out.println("✓ " + atendidos.size() + " paciente(s) atendido(s):");
+        for (Paciente p : atendidos) {
+            out.println("  " + p);
+        }
+        out.println();
+    }
+
+    public void mostrarDeshacerLote(List<Paciente> reinsertados) {
+        if (reinsertados.isEmpty()) {
+            out.println("ℹ No hay atenciones para deshacer.");
+            out.println();
+            return;
+        }
+
+        out.println("↶ " + reinsertados.size() + " atención(es) deshecha(s). Pacientes reinsertados:");
+        for (Paciente p : reinsertados) {
+            out.println("  " + p);
+        }
+        out.println();
+    }
+
+    public void mostrarDeshacer(Optional<Paciente> reinsertado) {
+        if (reinsertado.isEmpty()) {
+            out.println("ℹ No hay atenciones para deshacer.");
+            out.println();
+            return;
+        }
+
+        out.println("↶ Atención deshecha. Paciente reinsertado:");
+        out.println("  " + reinsertado.get());
+        out.println();
+    }
+
+    public void mostrarRehacer(Optional<Paciente> atendido) {
+        if (atendido.isEmpty()) {
+            out.println("ℹ No hay atenciones para rehacer.");
+            out.println();
+            return;
+        }
+
+        out.println("↷ Atención rehecha. Paciente atendido nuevamente:");
+        out.println("  " + atendido.get());
+        out.println();
+    }
+
+    public void mostrarPosicion(long id, OptionalInt posicion) {
+        if (posicion.isEmpty()) {
+            out.println("ℹ El paciente " + id + " no está en espera.");
+        } else {
+            int lugar = posicion.getAsInt();
+            out.println("→ Paciente " + id + ": posición " + lugar
+                    + " en la fila (" + (lugar - 1) + " por delante).");
+        }
+        out.println();
+    }
+
+    /**
+     * Muestra los contadores por nivel de prioridad
+     */
+    public void mostrarContadores(SistemaTriageUrgencias sistema) {
+        int contadorRojo = sistema.contador(1);
+        int contadorAmarillo = sistema.contador(2);
+        int contadorVerde = sistema.contador(3);
+
+        out.println("═══════════════════════════════════════");
+        out.println("  CONTADORES POR NIVEL DE PRIORIDAD");
+        out.println("═══════════════════════════════════════");
+        out.println("  🔴 ROJO (Emergencia):    " + contadorRojo + " paciente(s)");
+        out.println("  🟡 AMARILLO (Urgente):   " + contadorAmarillo + " paciente(s)");
+        out.println("  🟢 VERDE (No urgente):   " + contadorVerde + " paciente(s)");
+        out.println("  ─────────────────────────────────────");
+        out.println("  TOTAL EN ESPERA:         " + (contadorRojo + contadorAmarillo + contadorVerde));
+        out.println("═══════════════════════════════════════");
+        out.println();
+    }
+
+    /**
+     * Muestra todos los pacientes en espera ordenados
+     */
+    public void listarPacientesEnEspera(SistemaTriageUrgencias sistema) {
+        listarPacientesEnEspera(sistema, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Muestra solo los primeros pacientes en espera; el costo es O(limite)
+     */
+    public void listarPacientesEnEspera(SistemaTriageUrgencias sistema, int limite) {
+        int total = sistema.totalEnEspera();
+        if (total == 0) {
+            out.println("ℹ No hay pacientes en espera.");
+            out.println();
+            return;
+        }
+
+        out.println("═══════════════════════════════════════");
+        out.println("  PACIENTES EN SALA DE ESPERA");
+        out.println("═══════════════════════════════════════");
+
+        int mostrados = imprimirPacientes(sistema.enEspera(), true, limite);
+        if (mostrados < total) {
+            out.println("  ... y " + (total - mostrados) + " más");
+        }
+        out.println("═══════════════════════════════════════");
+        out.println();
+    }
+
+    /**
+     * EXTRA: Genera un reporte completo del sistema
+     */
+    public void generarReporte(SistemaTriageUrgencias sistema) {
+        out.println("\n╔═══════════════════════════════════════════════════════════════╗");
+        out.println("║           REPORTE DEL SISTEMA DE TRIAGE - URGENCIAS          ║");
+        out.println("╚═══════════════════════════════════════════════════════════════╝\n");
+
+        // Pacientes atendidos
+        int atendidos = sistema.totalAtendidos();
+        out.println("┌─────────────────────────────────────┐");
+        out.println("│  PACIENTES ATENDIDOS: " + atendidos + "          │");
+        out.println("└─────────────────────────────────────┘");
+        if (atendidos == 0) {
+            out.println("  (Ninguno)");
+        } else {
+            imprimirPacientes(sistema.atendidos(), false, Integer.MAX_VALUE);
+        }
+        out.println();
+
+        // Pacientes en espera
+        int enEspera = sistema.totalEnEspera();
+        out.println("┌─────────────────────────────────────┐");
+        out.println("│  PACIENTES EN ESPERA: " + enEspera + "           │");
+        out.println("└─────────────────────────────────────┘");
+        if (enEspera == 0) {
+            out.println("  (Ninguno)");
+        } else {
+            imprimirPacientes(sistema.enEspera(), false, Integer.MAX_VALUE);
+        }
+        out.println();
+
+        // Contadores
+        mostrarContadores(sistema);
+
+        // Tiempos de espera y ritmo de atención
+        mostrarEstadisticas(sistema.estadisticas());
+    }
+
+    public void mostrarEstadisticas(EstadisticasTriage.Resumen resumen) {
+        out.println("═══════════════════════════════════════");
+        out.println("  TIEMPOS DE ESPERA POR PRIORIDAD");
+        out.println("═══════════════════════════════════════");
+        String[] etiquetas = {"  🔴 ROJO:     ", "  🟡 AMARILLO: ", "  🟢 VERDE:    "};
+        StringBuilder linea = new StringBuilder(128);
+        for (int prioridad = 1; prioridad <= ColaTriage.NIVELES; prioridad++) {
+            HistogramaTiempos.Resumen espera = resumen.espera(prioridad);
+            linea.setLength(0);
+            linea.append(etiquetas[prioridad - 1]).append(espera.getTotal()).append(" atendido(s)");
+            if (espera.getTotal() > 0) {
+                duracion(linea.append("  p50 "), espera.percentil(50));
+                duracion(linea.append("  p90 "), espera.percentil(90));
+                duracion(linea.append("  p99 "), espera.percentil(99));
+                duracion(linea.append("  máx "), espera.getMaximo());
+            }
+            out.println(linea);
+        }
+        out.println("  ─────────────────────────────────────");
+        long[] atenciones = resumen.atencionesPorMinuto();
+        long[] profundidad = resumen.profundidadPorMinuto();
+        out.println("  Atenciones en el minuto en curso: " + atenciones[0]);
+        out.println("  Atenciones en el último minuto:   " + atenciones[1]);
+        linea.setLength(0);
+        linea.append("  Máximo en espera (últimos 10 min, del más reciente):");
+        for (int i = 0; i < 10; i++) {
+            linea.append(' ').append(profundidad[i]);
+        }
+        out.println(linea);
+        out.println("═══════════════════════════════════════");
+        out.println();
+    }
+
+    // h:mm:ss a partir de milisegundos
+    private static void duracion(StringBuilder destino, long milisegundos) {
+        long segundos = milisegundos / 1000;
+        long minutos = segundos / 60 % 60;
+        destino.append(segundos / 3600).append(':')
+                .append((char) ('0' + minutos / 10)).append((char) ('0' + minutos % 10)).append(':')
+                .append((char) ('0' + segundos % 60 / 10)).append((char) ('0' + segundos % 10));
+    }
+
+    /**
+     * Escribe hasta limite pacientes, uno por línea, numerado ("1. ") o con
+     * sangría ("  "), usando un solo StringBuilder en lugar de un String por
+     * paciente. Devuelve cuántos escribió.
+     */
+    private int imprimirPacientes(Iterable<Paciente> pacientes, boolean numerar, int limite) {
+        StringBuilder bloque = new StringBuilder(TAMANO_BLOQUE + 256);
+        String finLinea = System.lineSeparator();
+        int escritos = 0;
+        for (Paciente p : pacientes) {
+            if (escritos == limite) {
+                break;
+            }
+            escritos++;
+            if (numerar) {
+                bloque.append(escritos).append(". ");
+            } else {
+                bloque.append("  ");
+            }
+            p.appendTo(bloque).append(finLinea);
+            if (bloque.length() >= TAMANO_BLOQUE) {
+                out.append(bloque);
+                bloque.setLength(0);
+            }
+        }
+        out.append(bloque);
+        return escritos;
+    }
+}
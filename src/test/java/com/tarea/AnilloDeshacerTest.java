@@ -0,0 +1,173 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El anillo de deshacer pisa a las atenciones más antiguas, la ventana de
+ * tiempo se mide con el reloj del sistema (también con las atenciones
+ * recuperadas del diario, de una instantánea o del almacén) y rehacer
+ * vuelve a atender lo deshecho hasta la próxima atención nueva.
+ */
+class AnilloDeshacerTest {
+    private static final long MINUTO_NANOS = Duration.ofMinutes(1).toNanos();
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void alLlenarsePisaALaMasAntigua() {
+        AnilloDeshacer anillo = new AnilloDeshacer(3);
+        for (int i = 1; i <= 5; i++) {
+            anillo.agregar(paciente(i), 100 * i, i >= 4);
+        }
+        assertEquals(3, anillo.tamano());
+        assertEquals(3, anillo.paciente(0).getId());
+        assertEquals(300, anillo.instante(0));
+        assertEquals(500, anillo.instanteUltimo());
+
+        // Una copia más chica conserva las más recientes
+        AnilloDeshacer copia = new AnilloDeshacer(2);
+        copia.copiarDe(anillo);
+        assertEquals(4, copia.paciente(0).getId());
+        assertEquals(5, copia.ultimo().getId());
+
+        // El lote 3-4-5 se corta donde empieza el anillo
+        assertTrue(anillo.ultimoContinuaLote());
+        assertEquals(5, anillo.quitarUltimo().getId());
+        assertTrue(anillo.ultimoContinuaLote());
+        assertEquals(4, anillo.quitarUltimo().getId());
+        assertFalse(anillo.ultimoContinuaLote());
+        assertEquals(3, anillo.quitarUltimo().getId());
+        assertNull(anillo.quitarUltimo());
+    }
+
+    @Test
+    void laVentanaSeMideConElRelojDelSistema() {
+        RelojSimulado reloj = new RelojSimulado(Instant.parse("2024-03-01T08:00:00Z"));
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), reloj);
+        sistema.configurarDeshacer(10, Duration.ofMinutes(5));
+        registrar(sistema, 3);
+
+        Paciente primero = sistema.atender().orElseThrow();
+        reloj.fijar(4 * MINUTO_NANOS);
+        assertEquals(primero.getId(), sistema.deshacerUltimaAtencion().orElseThrow().getId());
+
+        sistema.atender();
+        reloj.fijar(9 * MINUTO_NANOS + 1_000_000);
+        assertTrue(sistema.deshacerUltimaAtencion().isEmpty());
+        assertTrue(sistema.deshacerUltimoLote().isEmpty());
+        assertEquals(1, sistema.totalAtendidos());
+    }
+
+    @Test
+    void laVentanaCuentaDesdeLaAtencionAlReabrirElDiario() throws IOException {
+        RelojSimulado reloj = new RelojSimulado(Instant.parse("2024-03-01T08:00:00Z"));
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), reloj);
+        DiarioTriage diario = DiarioTriage.abrir(directorio, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0,
+                DiarioTriage.TAMANO_SEGMENTO_DEFECTO, sistema);
+        sistema.usarDiario(diario);
+        registrar(sistema, 3);
+        sistema.atender();
+        reloj.fijar(10 * MINUTO_NANOS);
+        Paciente reciente = sistema.atender().orElseThrow();
+        diario.close();
+
+        SistemaTriageUrgencias reabierto = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), reloj);
+        reabierto.configurarDeshacer(10, Duration.ofMinutes(5));
+        DiarioTriage.abrir(directorio, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0,
+                DiarioTriage.TAMANO_SEGMENTO_DEFECTO, reabierto).close();
+        assertDeshaceSoloLaReciente(reabierto, reciente);
+    }
+
+    @Test
+    void laVentanaCuentaDesdeLaAtencionAlLeerUnaInstantanea() throws IOException {
+        RelojSimulado reloj = new RelojSimulado(Instant.parse("2024-03-01T08:00:00Z"));
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), reloj);
+        registrar(sistema, 3);
+        sistema.atender();
+        reloj.fijar(10 * MINUTO_NANOS);
+        Paciente reciente = sistema.atender().orElseThrow();
+        Path archivo = directorio.resolve("instantanea-1.snap");
+        InstantaneaTriage.escribir(archivo, sistema);
+
+        SistemaTriageUrgencias leido = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), reloj);
+        leido.configurarDeshacer(10, Duration.ofMinutes(5));
+        InstantaneaTriage.leer(archivo, leido);
+        assertDeshaceSoloLaReciente(leido, reciente);
+    }
+
+    @Test
+    void elAlmacenGuardaElInstanteDeCadaAtencion() throws IOException {
+        Path archivo = directorio.resolve("almacen.bin");
+        long antes;
+        long despues;
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo)) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            registrar(sistema, 4);
+            antes = System.currentTimeMillis();
+            sistema.atender();
+            sistema.atenderLote(2);
+            despues = System.currentTimeMillis();
+        }
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo)) {
+            for (int i = 0; i < 3; i++) {
+                long instante = almacen.instanteAtencion(i);
+                assertTrue(instante >= antes && instante <= despues, "instante " + instante);
+            }
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            sistema.configurarDeshacer(10, Duration.ofMinutes(5));
+            assertEquals(2, sistema.deshacerUltimoLote().size());
+        }
+    }
+
+    @Test
+    void rehacerVuelveAAtenderHastaLaProximaAtencion() {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        registrar(sistema, 4);
+        Paciente primero = sistema.atender().orElseThrow();
+        Paciente segundo = sistema.atender().orElseThrow();
+        sistema.deshacerUltimaAtencion();
+        sistema.deshacerUltimaAtencion();
+
+        assertEquals(primero.getId(), sistema.rehacer().orElseThrow().getId());
+        assertEquals(segundo.getId(), sistema.rehacer().orElseThrow().getId());
+        assertTrue(sistema.rehacer().isEmpty());
+        assertEquals(List.of(primero.getId(), segundo.getId()), ids(sistema.pacientesAtendidos()));
+
+        // Una atención nueva descarta lo que se podía rehacer
+        sistema.deshacerUltimaAtencion();
+        sistema.atender();
+        assertTrue(sistema.rehacer().isEmpty());
+    }
+
+    private static void assertDeshaceSoloLaReciente(SistemaTriageUrgencias sistema, Paciente reciente) {
+        assertEquals(reciente.getId(), sistema.deshacerUltimaAtencion().orElseThrow().getId());
+        assertTrue(sistema.deshacerUltimaAtencion().isEmpty());
+        assertEquals(1, sistema.totalAtendidos());
+    }
+
+    private static void registrar(SistemaTriageUrgencias sistema, int cantidad) {
+        for (int i = 1; i <= cantidad; i++) {
+            sistema.registrarPaciente("Paciente " + i, 2, "Prueba");
+        }
+    }
+
+    private static Paciente paciente(long id) {
+        return new Paciente(id, id, "Paciente " + id, 2, "Prueba");
+    }
+
+    private static List<Long> ids(List<Paciente> pacientes) {
+        return pacientes.stream().map(Paciente::getId).toList();
+    }
+}
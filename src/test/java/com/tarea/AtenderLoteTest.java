@@ -0,0 +1,158 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * atenderLote atiende en el mismo orden que k llamadas a atender() y el
+ * lote se deshace entero, también después de un fallo del diario y de
+ * reabrir el diario, una instantánea o el almacén mapeado.
+ */
+class AtenderLoteTest {
+    // Reloj fijo: todos llegan en el mismo instante y solo la secuencia desempata
+    private static final Clock RELOJ = Clock.fixed(Instant.parse("2024-03-01T08:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void atenderLoteAtiendeComoAtenderUnoPorUno() {
+        for (boolean concurrente : new boolean[] {false, true}) {
+            SistemaTriageUrgencias enLote = new SistemaTriageUrgencias(concurrente, new GeneradorIdAtomico(), RELOJ);
+            SistemaTriageUrgencias deAUno = new SistemaTriageUrgencias(concurrente, new GeneradorIdAtomico(), RELOJ);
+            for (SistemaTriageUrgencias sistema : List.of(enLote, deAUno)) {
+                registrarMezcla(sistema);
+            }
+            for (int k : new int[] {1, 5, 12, 50}) {
+                List<Long> esperados = new ArrayList<>();
+                for (int i = 0; i < k; i++) {
+                    deAUno.atender().ifPresent(p -> esperados.add(p.getId()));
+                }
+                assertEquals(esperados, ids(enLote.atenderLote(k)), "concurrente=" + concurrente + " k=" + k);
+            }
+            assertEquals(ids(deAUno.pacientesAtendidos()), ids(enLote.pacientesAtendidos()));
+        }
+    }
+
+    @Test
+    void deshacerUltimoLoteDeshaceSoloLaUltimaOperacion() {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), RELOJ);
+        registrarMezcla(sistema);
+        List<Long> espera = ids(sistema.pacientesEnEspera());
+
+        List<Paciente> lote = sistema.atenderLote(3);
+        Paciente suelto = sistema.atender().orElseThrow();
+        assertEquals(List.of(suelto.getId()), ids(sistema.deshacerUltimoLote()));
+        assertEquals(ids(lote), ids(sistema.deshacerUltimoLote()));
+        assertEquals(espera, ids(sistema.pacientesEnEspera()));
+        assertEquals(0, sistema.totalAtendidos());
+
+        // Rehacer los vuelve a atender de a uno, en el orden original
+        List<Long> rehechos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rehechos.add(sistema.rehacer().orElseThrow().getId());
+        }
+        assertEquals(espera.subList(0, 4), rehechos);
+    }
+
+    @Test
+    void unFalloDelDiarioAlDeshacerConservaElLote() throws IOException {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), RELOJ);
+        DiarioTriage diario = DiarioTriage.abrir(directorio, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0,
+                DiarioTriage.TAMANO_SEGMENTO_DEFECTO, sistema);
+        sistema.usarDiario(diario);
+        registrarMezcla(sistema);
+        List<Paciente> lote = sistema.atenderLote(3);
+
+        diario.close();
+        assertThrows(RuntimeException.class, sistema::deshacerUltimaAtencion);
+        sistema.usarDiario(null);
+        assertEquals(ids(lote), ids(sistema.deshacerUltimoLote()));
+    }
+
+    @Test
+    void elLoteSeDeshaceEnteroDespuesDeReabrirElDiario() throws IOException {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), RELOJ);
+        DiarioTriage diario = DiarioTriage.abrir(directorio, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0,
+                DiarioTriage.TAMANO_SEGMENTO_DEFECTO, sistema);
+        sistema.usarDiario(diario);
+        registrarMezcla(sistema);
+        List<Paciente> lote = sistema.atenderLote(3);
+        Paciente suelto = sistema.atender().orElseThrow();
+        diario.close();
+
+        SistemaTriageUrgencias reabierto = new SistemaTriageUrgencias();
+        DiarioTriage.abrir(directorio, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0,
+                DiarioTriage.TAMANO_SEGMENTO_DEFECTO, reabierto).close();
+        assertDeshaceSueltoYLote(reabierto, suelto, lote);
+    }
+
+    @Test
+    void elLoteSeDeshaceEnteroDespuesDeLeerUnaInstantanea() throws IOException {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), RELOJ);
+        registrarMezcla(sistema);
+        sistema.atender();
+        List<Paciente> lote = sistema.atenderLote(3);
+        Paciente suelto = sistema.atender().orElseThrow();
+        Path archivo = directorio.resolve("instantanea-1.snap");
+        InstantaneaTriage.escribir(archivo, sistema);
+
+        SistemaTriageUrgencias leido = new SistemaTriageUrgencias();
+        InstantaneaTriage.leer(archivo, leido);
+        assertDeshaceSueltoYLote(leido, suelto, lote);
+    }
+
+    @Test
+    void elLoteSeDeshaceEnteroDespuesDeReabrirElAlmacen() throws IOException {
+        Path archivo = directorio.resolve("almacen.bin");
+        List<Paciente> lote;
+        Paciente suelto;
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo)) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            registrarMezcla(sistema);
+            lote = sistema.atenderLote(3);
+            suelto = sistema.atender().orElseThrow();
+        }
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo)) {
+            assertDeshaceSueltoYLote(new SistemaTriageUrgencias(almacen), suelto, lote);
+        }
+    }
+
+    private static void assertDeshaceSueltoYLote(SistemaTriageUrgencias sistema, Paciente suelto,
+                                                 List<Paciente> lote) {
+        assertEquals(List.of(suelto.getId()), ids(sistema.deshacerUltimoLote()));
+        assertEquals(ids(lote), ids(sistema.deshacerUltimoLote()));
+    }
+
+    /**
+     * Un bloque con las tres prioridades (empatadas en la hora) y sueltos después
+     */
+    private static void registrarMezcla(SistemaTriageUrgencias sistema) {
+        List<SolicitudRegistro> bloque = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            bloque.add(new SolicitudRegistro("Bloque " + i, 1 + i % 3, "Prueba"));
+        }
+        sistema.registrarPacientes(bloque);
+        for (int i = 0; i < 10; i++) {
+            sistema.registrarPaciente("Suelto " + i, 3 - i % 3, "Prueba");
+        }
+    }
+
+    private static List<Long> ids(List<Paciente> pacientes) {
+        List<Long> ids = new ArrayList<>();
+        for (Paciente paciente : pacientes) {
+            ids.add(paciente.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,111 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.tarea.InstantaneaTriageTest.describir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Cerrar y reabrir el almacén mapeado recupera la espera, los atendidos,
+ * el deshacer y la numeración, también cuando los registros de atendidos
+ * antiguos ya se reusaron; los textos que no caben se rechazan.
+ */
+class ColaTriageMapeadaTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void reabrirConservaEsperaAtendidosYDeshacer() throws IOException {
+        Path archivo = directorio.resolve("almacen.bin");
+        List<String> enEspera;
+        List<String> atendidos;
+        long ultimoId;
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo)) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            for (int i = 1; i <= 8; i++) {
+                sistema.registrarPaciente("Paciente " + i, i % 3 + 1, "Síntoma " + i);
+            }
+            sistema.atender();
+            sistema.atenderLote(3);
+            sistema.deshacerUltimaAtencion();
+            sistema.atender();
+            enEspera = describir(sistema.enEspera());
+            atendidos = describir(sistema.atendidos());
+            ultimoId = sistema.ultimoIdAsignado();
+        }
+
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo)) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            assertEquals(enEspera, describir(sistema.enEspera()));
+            assertEquals(atendidos, describir(sistema.atendidos()));
+            assertEquals(ultimoId, sistema.ultimoIdAsignado());
+
+            // Las atenciones recuperadas se pueden deshacer, de la última a la primera
+            Paciente ultimo = sistema.pacientesAtendidos().get(atendidos.size() - 1);
+            assertEquals(ultimo.getId(), sistema.deshacerUltimaAtencion().orElseThrow().getId());
+            assertEquals(ultimo.getId(), sistema.verSiguiente().orElseThrow().getId());
+            assertEquals(atendidos.subList(0, atendidos.size() - 1), describir(sistema.atendidos()));
+            assertEquals(ultimoId + 1, sistema.registrarPaciente("Nuevo", 1, "Tos").getId());
+        }
+    }
+
+    @Test
+    void losAtendidosAntiguosSeLiberanYSusRegistrosSeReusan() throws IOException {
+        Path archivo = directorio.resolve("reuso.bin");
+        List<String> enEspera;
+        List<String> atendidos;
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo, 3)) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            assertThrows(IllegalArgumentException.class, () -> sistema.configurarDeshacer(4, null));
+            for (int i = 1; i <= 6; i++) {
+                sistema.registrarPaciente("Primero " + i, 3, "Síntoma " + i);
+            }
+            sistema.atenderLote(5);
+            assertEquals(3, sistema.totalAtendidos());
+            // Los nuevos ocupan los registros liberados, antes que el que sigue esperando
+            for (int i = 1; i <= 2; i++) {
+                sistema.registrarPaciente("Segundo " + i, 3, "Síntoma " + i);
+            }
+            enEspera = describir(sistema.enEspera());
+            atendidos = describir(sistema.atendidos());
+            assertEquals(3, enEspera.size());
+        }
+
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo, 3)) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            assertEquals(enEspera, describir(sistema.enEspera()));
+            assertEquals(atendidos, describir(sistema.atendidos()));
+        }
+        // Al reabrir conservando menos se liberan los sobrantes
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(archivo, 1)) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            assertEquals(atendidos.subList(2, 3), describir(sistema.atendidos()));
+        }
+    }
+
+    @Test
+    void losTextosQueNoCabenSeRechazan() throws IOException {
+        try (ColaTriageMapeada almacen = ColaTriageMapeada.abrir(directorio.resolve("textos.bin"))) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(almacen);
+            String nombreLargo = "ñ".repeat(ColaTriageMapeada.MAX_NOMBRE / 2 + 1);
+            String sintomasLargos = "x".repeat(ColaTriageMapeada.MAX_SINTOMAS + 1);
+            assertThrows(IllegalArgumentException.class,
+                    () -> sistema.registrarPaciente(nombreLargo, 1, "Tos"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> sistema.registrarPacientes(List.of(new SolicitudRegistro("Ana", 2, "Tos"),
+                            new SolicitudRegistro("Luis", 2, sintomasLargos))));
+            assertEquals(0, sistema.totalEnEspera());
+            assertEquals(0, sistema.ultimoIdAsignado());
+
+            String justo = "x".repeat(ColaTriageMapeada.MAX_NOMBRE);
+            assertEquals(justo, sistema.registrarPaciente(justo, 1, "Tos").getNombre());
+            assertEquals(justo, sistema.verSiguiente().orElseThrow().getNombre());
+        }
+    }
+}
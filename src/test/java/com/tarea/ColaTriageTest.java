@@ -0,0 +1,136 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Las colas por niveles deben atender en el mismo orden que la
+ * PriorityQueue original ordenada por (prioridad, llegada), con cualquier
+ * mezcla de registros y atenciones sueltas o en bloque.
+ */
+class ColaTriageTest {
+    private static final Comparator<Paciente> ORDEN_TRIAGE = Comparator
+            .comparingInt(Paciente::getPrioridad)
+            .thenComparingLong(Paciente::getSecuenciaLlegada);
+    private static final int OPERACIONES = 50_000;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void secuencialAtiendeComoPriorityQueue() {
+        for (long semilla = 1; semilla <= 5; semilla++) {
+            compararConPriorityQueue(new ColaTriageSecuencial(), semilla);
+        }
+    }
+
+    @Test
+    void concurrenteAtiendeComoPriorityQueue() {
+        for (long semilla = 1; semilla <= 5; semilla++) {
+            compararConPriorityQueue(new ColaTriageConcurrente(), semilla);
+        }
+    }
+
+    @Test
+    void mapeadaAtiendeComoPriorityQueue() throws IOException {
+        try (ColaTriageMapeada cola = ColaTriageMapeada.abrir(directorio.resolve("cola.bin"))) {
+            compararConPriorityQueue(cola, 42);
+        }
+    }
+
+    @Test
+    void mapeadaQueReusaRegistrosAtiendeComoPriorityQueue() throws IOException {
+        // Con pocos atendidos conservados casi todo registro nuevo reusa uno liberado
+        try (ColaTriageMapeada cola = ColaTriageMapeada.abrir(directorio.resolve("reuso.bin"), 10)) {
+            compararConPriorityQueue(cola, 7);
+            assertEquals(10, cola.historial().tamano());
+        }
+    }
+
+    @Test
+    void reinsertarRespetaLlegadaEnCualquierOrden() throws IOException {
+        try (ColaTriageMapeada mapeada = ColaTriageMapeada.abrir(directorio.resolve("reinsertar.bin"))) {
+            for (ColaTriage cola : List.of(new ColaTriageSecuencial(), new ColaTriageConcurrente(), mapeada)) {
+                List<Paciente> pacientes = new ArrayList<>();
+                for (long secuencia = 1; secuencia <= 6; secuencia++) {
+                    Paciente paciente = new Paciente(secuencia, secuencia, "P" + secuencia, 2, "Prueba");
+                    pacientes.add(paciente);
+                    cola.offer(paciente);
+                }
+                // Dos médicos atienden a 1 y 2 pero deshacen en el orden inverso al del anillo
+                Paciente primero = cola.poll();
+                Paciente segundo = cola.poll();
+                cola.reinsertar(primero);
+                cola.reinsertar(segundo);
+                for (Paciente esperado : pacientes) {
+                    assertMismo(esperado, cola.poll());
+                }
+                assertNull(cola.poll());
+                assertEquals(0, cola.size());
+            }
+        }
+    }
+
+    private static void compararConPriorityQueue(ColaTriage cola, long semilla) {
+        SplittableRandom azar = new SplittableRandom(semilla);
+        PriorityQueue<Paciente> esperado = new PriorityQueue<>(ORDEN_TRIAGE);
+        long secuencia = 0;
+
+        for (int op = 0; op < OPERACIONES; op++) {
+            int tirada = azar.nextInt(100);
+            if (tirada < 50) {
+                Paciente paciente = nuevo(++secuencia, azar);
+                cola.offer(paciente);
+                esperado.add(paciente);
+            } else if (tirada < 55) {
+                List<Paciente> bloque = new ArrayList<>();
+                for (int i = azar.nextInt(50); i > 0; i--) {
+                    bloque.add(nuevo(++secuencia, azar));
+                }
+                cola.offerTodos(bloque);
+                esperado.addAll(bloque);
+            } else if (tirada < 95) {
+                assertMismo(esperado.peek(), cola.peek());
+                assertMismo(esperado.poll(), cola.poll());
+            } else {
+                List<Paciente> lote = cola.pollTodos(azar.nextInt(20));
+                for (Paciente paciente : lote) {
+                    assertMismo(esperado.poll(), paciente);
+                }
+            }
+            assertEquals(esperado.size(), cola.size());
+            if (op % 5_000 == 0) {
+                List<Paciente> ordenado = new ArrayList<>(esperado);
+                ordenado.sort(ORDEN_TRIAGE);
+                List<Paciente> lista = cola.aLista();
+                assertEquals(ordenado.size(), lista.size());
+                for (int i = 0; i < ordenado.size(); i++) {
+                    assertMismo(ordenado.get(i), lista.get(i));
+                }
+            }
+        }
+        while (!esperado.isEmpty()) {
+            assertMismo(esperado.poll(), cola.poll());
+        }
+        assertNull(cola.poll());
+    }
+
+    private static Paciente nuevo(long secuencia, SplittableRandom azar) {
+        return new Paciente(secuencia, secuencia, "Paciente " + secuencia, 1 + azar.nextInt(3), "Prueba");
+    }
+
+    // La cola mapeada devuelve copias, así que se compara por ID
+    private static void assertMismo(Paciente esperado, Paciente obtenido) {
+        assertEquals(esperado == null ? null : esperado.getId(), obtenido == null ? null : obtenido.getId());
+    }
+}
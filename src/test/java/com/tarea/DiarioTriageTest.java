@@ -0,0 +1,260 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.tarea.InstantaneaTriageTest.describir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El diario reconstruye el estado al reabrirse con cualquier política de
+ * sincronización, también después de rotar segmentos y compactarlos en
+ * instantáneas; una última entrada truncada o dañada se descarta.
+ */
+class DiarioTriageTest {
+    private static final long SEGMENTO_CHICO = 16 * 1024;
+    private static final String SEGMENTO_UNO = String.format("diario-%016d.wal", 1);
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void rotarSegmentosDejaUnaInstantaneaYUnaColaCorta() throws IOException {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        DiarioTriage diario = DiarioTriage.abrir(directorio, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0,
+                SEGMENTO_CHICO, sistema);
+        sistema.usarDiario(diario);
+        for (int i = 0; i < 3_000; i++) {
+            sistema.registrarPaciente("Paciente " + i, 1 + i % 3, "Prueba");
+            if (i % 3 == 0) {
+                sistema.atender();
+            }
+        }
+        sistema.atenderLote(50);
+        sistema.deshacerUltimoLote();
+        diario.close();
+        assertNull(diario.errorCompactacion());
+
+        List<String> archivos = archivos();
+        List<String> instantaneas = new ArrayList<>(archivos);
+        instantaneas.removeIf(nombre -> !nombre.endsWith(".snap"));
+        assertEquals(1, instantaneas.size(), archivos.toString());
+        // Solo quedan los segmentos posteriores a la instantánea
+        long base = numero(instantaneas.get(0));
+        for (String nombre : archivos) {
+            assertTrue(numero(nombre) >= base, archivos.toString());
+        }
+
+        SistemaTriageUrgencias reabierto = new SistemaTriageUrgencias();
+        DiarioTriage.abrir(directorio, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0, SEGMENTO_CHICO,
+                reabierto).close();
+        assertEquals(describir(sistema.enEspera()), describir(reabierto.enEspera()));
+        assertEquals(describir(sistema.atendidos()), describir(reabierto.atendidos()));
+        assertEquals(sistema.ultimoIdAsignado(), reabierto.ultimoIdAsignado());
+    }
+
+    @Test
+    void reabrirReproduceRegistrosAtencionesDeshacerYLotes() throws IOException {
+        for (DiarioTriage.PoliticaSincronizacion politica : DiarioTriage.PoliticaSincronizacion.values()) {
+            Path carpeta = directorio.resolve(politica.name());
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+            DiarioTriage diario = DiarioTriage.abrir(carpeta, politica, 5, sistema);
+            sistema.usarDiario(diario);
+            operarMezcla(sistema);
+            diario.close();
+            sistema.usarDiario(null);
+
+            SistemaTriageUrgencias reabierto = new SistemaTriageUrgencias();
+            DiarioTriage.abrir(carpeta, politica, 5, reabierto).close();
+            assertMismoEstado(sistema, reabierto, politica.name());
+            // Los IDs siguen desde el mismo punto y deshacer ve los mismos lotes
+            assertEquals(sistema.registrarPaciente("Nuevo", 2, "Prueba").getId(),
+                    reabierto.registrarPaciente("Nuevo", 2, "Prueba").getId(), politica.name());
+            assertEquals(ids(sistema.deshacerUltimoLote()), ids(reabierto.deshacerUltimoLote()), politica.name());
+            assertEquals(ids(sistema.deshacerUltimoLote()), ids(reabierto.deshacerUltimoLote()), politica.name());
+        }
+    }
+
+    @Test
+    void unaUltimaEntradaTruncadaODaniadaSeDescarta() throws IOException {
+        Path carpeta = directorio.resolve("diario");
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        DiarioTriage diario = DiarioTriage.abrir(carpeta, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0, sistema);
+        sistema.usarDiario(diario);
+        operarMezcla(sistema);
+        List<String> espera = describir(sistema.enEspera());
+        List<String> atendidos = describir(sistema.atendidos());
+        long ultimoId = sistema.ultimoIdAsignado();
+        sistema.registrarPaciente("Último", 1, "Se pierde");
+        diario.close();
+
+        byte[] segmento = Files.readAllBytes(carpeta.resolve(SEGMENTO_UNO));
+        int tamano = segmento.length;
+        for (int caso = 0; caso < 2; caso++) {
+            Path copia = copiar(carpeta, directorio.resolve("copia-" + caso));
+            try (FileChannel canal = FileChannel.open(copia.resolve(SEGMENTO_UNO), StandardOpenOption.WRITE)) {
+                if (caso == 0) {
+                    // Escritura a medias: falta el final de la entrada
+                    canal.truncate(tamano - 3);
+                } else {
+                    // Un byte cambiado: el CRC ya no coincide
+                    canal.write(ByteBuffer.wrap(new byte[] {(byte) (segmento[tamano - 1] ^ 0x20)}), tamano - 1);
+                }
+            }
+            SistemaTriageUrgencias reabierto = new SistemaTriageUrgencias();
+            DiarioTriage.abrir(copia, DiarioTriage.PoliticaSincronizacion.SISTEMA, 0, reabierto).close();
+            assertEquals(espera, describir(reabierto.enEspera()), "caso " + caso);
+            assertEquals(atendidos, describir(reabierto.atendidos()), "caso " + caso);
+            assertEquals(ultimoId, reabierto.ultimoIdAsignado(), "caso " + caso);
+        }
+    }
+
+    @Test
+    void cadaOperacionSincronizaAntesDeVolverYAgrupaLasConcurrentes() throws Exception {
+        Path carpeta = directorio.resolve("diario");
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(true, new GeneradorIdAtomico(),
+                Clock.systemUTC());
+        DiarioTriage diario = DiarioTriage.abrir(carpeta, DiarioTriage.PoliticaSincronizacion.CADA_OPERACION, 0,
+                sistema);
+        sistema.usarDiario(diario);
+        for (int i = 0; i < 10; i++) {
+            sistema.registrarPaciente("Paciente " + i, 1 + i % 3, "Prueba");
+            assertEquals(i + 1, diario.sincronizaciones());
+        }
+
+        int hilos = 4;
+        int porHilo = 200;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                tareas.add(ejecutor.submit(() -> {
+                    for (int i = 0; i < porHilo; i++) {
+                        sistema.registrarPaciente("Hilo " + hilo + "-" + i, 1 + i % 3, "Prueba");
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            ejecutor.shutdown();
+        }
+        // A lo sumo un fsync por operación; con varios hilos en espera se comparten
+        assertTrue(diario.sincronizaciones() <= 10 + hilos * porHilo, "fsync " + diario.sincronizaciones());
+
+        // Lo que devolvió ya está en disco: una copia sin cerrar el diario lo tiene todo
+        SistemaTriageUrgencias copia = new SistemaTriageUrgencias();
+        DiarioTriage.abrir(copiar(carpeta, directorio.resolve("copia")),
+                DiarioTriage.PoliticaSincronizacion.SISTEMA, 0, copia).close();
+        diario.close();
+        assertEquals(10 + hilos * porHilo, copia.totalEnEspera());
+        Set<Long> unicos = new HashSet<>(ids(copia.pacientesEnEspera()));
+        assertEquals(10 + hilos * porHilo, unicos.size());
+    }
+
+    @Test
+    void cadaNmsSincronizaEnSegundoPlanoYSistemaSoloEntregaAlSistemaOperativo() throws Exception {
+        for (DiarioTriage.PoliticaSincronizacion politica : List.of(
+                DiarioTriage.PoliticaSincronizacion.CADA_N_MS, DiarioTriage.PoliticaSincronizacion.SISTEMA)) {
+            Path carpeta = directorio.resolve(politica.name());
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+            DiarioTriage diario = DiarioTriage.abrir(carpeta, politica, 5, sistema);
+            sistema.usarDiario(diario);
+            for (int i = 0; i < 100; i++) {
+                sistema.registrarPaciente("Paciente " + i, 1 + i % 3, "Prueba");
+            }
+            if (politica == DiarioTriage.PoliticaSincronizacion.CADA_N_MS) {
+                // El hilo de sincronización escribe y hace fsync sin que nadie cierre
+                long limite = System.nanoTime() + 5_000_000_000L;
+                while (diario.sincronizaciones() == 0 && System.nanoTime() < limite) {
+                    Thread.sleep(5);
+                }
+                assertTrue(diario.sincronizaciones() > 0);
+            } else {
+                assertEquals(0, diario.sincronizaciones());
+            }
+
+            SistemaTriageUrgencias copia = new SistemaTriageUrgencias();
+            DiarioTriage.abrir(copiar(carpeta, directorio.resolve("copia-" + politica.name())),
+                    DiarioTriage.PoliticaSincronizacion.SISTEMA, 0, copia).close();
+            diario.close();
+            assertEquals(describir(sistema.enEspera()), describir(copia.enEspera()), politica.name());
+        }
+    }
+
+    private static void assertMismoEstado(SistemaTriageUrgencias esperado, SistemaTriageUrgencias reabierto,
+                                          String caso) {
+        assertEquals(describir(esperado.enEspera()), describir(reabierto.enEspera()), caso);
+        assertEquals(describir(esperado.atendidos()), describir(reabierto.atendidos()), caso);
+        assertEquals(esperado.ultimoIdAsignado(), reabierto.ultimoIdAsignado(), caso);
+    }
+
+    /**
+     * Registros sueltos y en bloque, atenciones sueltas y en lote, y deshacer de ambas
+     */
+    private static void operarMezcla(SistemaTriageUrgencias sistema) {
+        List<SolicitudRegistro> bloque = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            bloque.add(new SolicitudRegistro("Bloque " + i, 1 + i % 3, "Síntoma " + i % 4));
+        }
+        sistema.registrarPacientes(bloque);
+        for (int i = 0; i < 10; i++) {
+            sistema.registrarPaciente("Suelto " + i, 3 - i % 3, "Prueba");
+        }
+        sistema.atender();
+        sistema.atenderLote(4);
+        sistema.deshacerUltimaAtencion();
+        sistema.atender();
+        sistema.atenderLote(3);
+        sistema.deshacerUltimoLote();
+        sistema.atenderLote(5);
+        sistema.atender();
+    }
+
+    private static Path copiar(Path origen, Path destino) throws IOException {
+        Files.createDirectories(destino);
+        try (DirectoryStream<Path> contenido = Files.newDirectoryStream(origen)) {
+            for (Path archivo : contenido) {
+                Files.copy(archivo, destino.resolve(archivo.getFileName()));
+            }
+        }
+        return destino;
+    }
+
+    private static List<Long> ids(List<Paciente> pacientes) {
+        return pacientes.stream().map(Paciente::getId).toList();
+    }
+
+    private List<String> archivos() throws IOException {
+        List<String> nombres = new ArrayList<>();
+        try (DirectoryStream<Path> contenido = Files.newDirectoryStream(directorio)) {
+            for (Path archivo : contenido) {
+                nombres.add(archivo.getFileName().toString());
+            }
+        }
+        return nombres;
+    }
+
+    private static long numero(String nombre) {
+        return Long.parseLong(nombre.replaceAll("\\D", ""));
+    }
+}
@@ -0,0 +1,93 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EstadisticasTriageTest {
+    // En Madrid, el 30/03/2025 a las 01:00 UTC los relojes pasan de 02:00 a 03:00
+    private static final ZoneId MADRID = ZoneId.of("Europe/Madrid");
+    private static final Instant ANTES_DEL_CAMBIO = Instant.parse("2025-03-30T00:30:00Z");
+
+    @Test
+    void laEsperaNoSaltaConElCambioDeHorario() {
+        RelojAjustable reloj = new RelojAjustable(ANTES_DEL_CAMBIO, MADRID);
+        EstadisticasTriage estadisticas = new EstadisticasTriage(reloj);
+        Paciente paciente = new Paciente(1, 1, "Ana", 2, "Fiebre", reloj.instant(), MADRID);
+
+        // 01:30 -> 03:30 en hora local, pero pasó una hora
+        reloj.avanzar(Duration.ofHours(1));
+        estadisticas.atencion(paciente, 0);
+
+        assertEquals(Duration.ofHours(1).toMillis(), estadisticas.resumen().espera(2).getMaximo());
+    }
+
+    @Test
+    void laProfundidadSeArrastraALosMinutosSinOperaciones() {
+        RelojAjustable reloj = new RelojAjustable(ANTES_DEL_CAMBIO, ZoneId.of("UTC"));
+        EstadisticasTriage estadisticas = new EstadisticasTriage(reloj);
+        for (int enEspera = 1; enEspera <= 5; enEspera++) {
+            estadisticas.registro(enEspera);
+        }
+        reloj.avanzar(Duration.ofMinutes(10));
+        estadisticas.atencion(new Paciente(1, 1, "Ana", 3, "Tos", ANTES_DEL_CAMBIO, ZoneId.of("UTC")), 4);
+        reloj.avanzar(Duration.ofMinutes(3));
+
+        long[] profundidad = estadisticas.resumen().profundidadPorMinuto();
+        // Tras la atención quedaron 4, aunque nadie operó en los últimos 3 minutos
+        for (int i = 0; i < 3; i++) {
+            assertEquals(4, profundidad[i], "minuto -" + i);
+        }
+        // El minuto de la atención empezó con 5 en espera
+        assertEquals(5, profundidad[3]);
+        for (int i = 4; i <= 13; i++) {
+            assertEquals(5, profundidad[i], "minuto -" + i);
+        }
+        assertEquals(0, profundidad[14]);
+    }
+
+    @Test
+    void laProfundidadArrastraDesdeAntesDeLaVentana() {
+        RelojAjustable reloj = new RelojAjustable(ANTES_DEL_CAMBIO, ZoneId.of("UTC"));
+        EstadisticasTriage estadisticas = new EstadisticasTriage(reloj);
+        estadisticas.registro(7);
+        reloj.avanzar(Duration.ofMinutes(2 * EstadisticasTriage.MINUTOS));
+
+        for (long enEspera : estadisticas.resumen().profundidadPorMinuto()) {
+            assertEquals(7, enEspera);
+        }
+    }
+
+    private static final class RelojAjustable extends Clock {
+        private Instant ahora;
+        private final ZoneId zona;
+
+        RelojAjustable(Instant ahora, ZoneId zona) {
+            this.ahora = ahora;
+            this.zona = zona;
+        }
+
+        void avanzar(Duration tiempo) {
+            ahora = ahora.plus(tiempo);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zona;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            return new RelojAjustable(ahora, zona);
+        }
+
+        @Override
+        public Instant instant() {
+            return ahora;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.tarea.InstantaneaTriageTest.describir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El registro de atendidos se recorre, se pagina y se deshace igual con
+ * los bloques antiguos volcados a disco que en memoria.
+ */
+class HistorialAtendidosTest {
+    private static final int BLOQUE = HistorialAtendidos.TAMANO_BLOQUE;
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void recorrerYPaginarCruzandoElDesborde() throws IOException {
+        List<Paciente> esperados = pacientes(3 * BLOQUE + 17);
+        try (HistorialAtendidos historial = new HistorialAtendidos()) {
+            historial.desbordarEn(directorio.resolve("atendidos.tmp"), BLOQUE);
+            historial.agregarTodos(esperados.subList(0, BLOQUE + 5));
+            for (Paciente p : esperados.subList(BLOQUE + 5, esperados.size())) {
+                historial.agregar(p);
+            }
+
+            assertEquals(esperados.size(), historial.tamano());
+            assertEquals(describir(esperados), describir(historial));
+            assertEquals(describir(esperados), describir(historial.aLista()));
+            assertEquals(esperados.get(0).getLlegadaEpochMilli(),
+                    historial.iterator().next().getLlegadaEpochMilli());
+
+            // Páginas que empiezan en disco y terminan en memoria
+            List<Paciente> paginado = new ArrayList<>();
+            Paciente[] pagina = new Paciente[1000];
+            int copiados;
+            while ((copiados = historial.copiar(paginado.size(), pagina)) > 0) {
+                for (int i = 0; i < copiados; i++) {
+                    paginado.add(pagina[i]);
+                }
+            }
+            assertEquals(describir(esperados), describir(paginado));
+        }
+    }
+
+    @Test
+    void quitarUltimoRecuperaLosBloquesVolcados() throws IOException {
+        List<Paciente> esperados = pacientes(3 * BLOQUE + 2);
+        try (HistorialAtendidos historial = new HistorialAtendidos()) {
+            historial.desbordarEn(directorio.resolve("atendidos.tmp"), BLOQUE);
+            historial.agregarTodos(esperados);
+
+            for (int i = esperados.size() - 1; i >= BLOQUE / 2; i--) {
+                assertEquals(esperados.get(i).toString(), historial.quitarUltimo().toString());
+            }
+            assertEquals(describir(esperados.subList(0, BLOQUE / 2)), describir(historial));
+
+            // Se puede volver a crecer y a volcar después de recuperar
+            historial.agregarTodos(esperados.subList(BLOQUE / 2, esperados.size()));
+            assertEquals(describir(esperados), describir(historial));
+            while (!historial.isEmpty()) {
+                historial.quitarUltimo();
+            }
+            assertNull(historial.quitarUltimo());
+        }
+    }
+
+    @Test
+    void quitarPorIdBuscaSoloEntreLasUltimas() throws IOException {
+        List<Paciente> esperados = pacientes(2 * BLOQUE + 3);
+        try (HistorialAtendidos historial = new HistorialAtendidos()) {
+            historial.desbordarEn(directorio.resolve("atendidos.tmp"), BLOQUE);
+            historial.agregarTodos(esperados);
+
+            // Una atención que cruza el límite entre bloques en memoria
+            Paciente quitado = esperados.remove(esperados.size() - 5);
+            assertTrue(historial.quitar(quitado.getId()));
+            assertEquals(describir(esperados), describir(historial));
+
+            // Ni uno que no está ni uno fuera del límite cambian nada
+            assertFalse(historial.quitar(quitado.getId()));
+            assertFalse(historial.quitar(esperados.get(0).getId()));
+            assertEquals(esperados.size(), historial.tamano());
+            assertEquals(describir(esperados), describir(historial));
+        }
+    }
+
+    private static List<Paciente> pacientes(int cantidad) {
+        List<Paciente> lista = new ArrayList<>(cantidad);
+        for (int i = 1; i <= cantidad; i++) {
+            lista.add(new Paciente(i, i, "Paciente " + i, i % 3 + 1, "Síntoma " + i,
+                    INICIO.plusSeconds(i).plusNanos(i)));
+        }
+        return lista;
+    }
+}
@@ -0,0 +1,144 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El importador entiende BOM, CRLF, comillas y escapes, también en filas
+ * que cruzan el límite de un trozo, y las filas rechazadas informan la
+ * línea del archivo donde empiezan.
+ */
+class ImportadorPacientesTest {
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    // El tamaño de trozo del importador
+    private static final int TROZO = 4 << 20;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void csvConBomCrlfYComillas() throws IOException {
+        Path archivo = escribir("llegadas.csv", true, "nombre,prioridad,sintomas\r\n"
+                + "Ana,1,Fiebre\r\n"
+                + "\"Pérez, Luis\",2,\"Dolor \"\"fuerte\"\"\"\r\n"
+                + "\r\n"
+                + "Eva,3,\r\n");
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        ImportadorPacientes.Resultado resultado = new ImportadorPacientes(sistema, 1).importar(archivo);
+
+        assertEquals(3, resultado.getImportados());
+        assertEquals(0, resultado.getInvalidas());
+        List<Paciente> espera = sistema.pacientesEnEspera();
+        assertEquals("Ana", espera.get(0).getNombre());
+        assertEquals("Fiebre", espera.get(0).getSintomas());
+        assertEquals("Pérez, Luis", espera.get(1).getNombre());
+        assertEquals("Dolor \"fuerte\"", espera.get(1).getSintomas());
+        assertEquals("No especificado", espera.get(2).getSintomas());
+    }
+
+    @Test
+    void unaFilaQueCruzaElLimiteDelTrozoNoCorreLasLineas() throws IOException {
+        StringBuilder csv = new StringBuilder("nombre,prioridad,sintomas\n");
+        int linea = 1;
+        int relleno = 0;
+        String fila = "Paciente de relleno,2,Prueba\n";
+        while (csv.length() + fila.length() < TROZO - 10) {
+            csv.append(fila);
+            linea++;
+            relleno++;
+        }
+        // Empieza antes del límite del trozo y termina después; el salto entre
+        // comillas la hace inválida, pero cuenta como dos líneas
+        csv.append("\"Nombre partido\nen dos líneas\",1,").append("x".repeat(40)).append('\n');
+        int lineaPartida = ++linea;
+        linea++;
+        assertTrue(csv.length() > TROZO, "la fila debe cruzar el límite");
+        csv.append("Después del límite,1,Prueba\n");
+        linea++;
+        csv.append("Mala,9,Prueba\n");
+        int lineaMala = ++linea;
+        csv.append("Último,3,Prueba\n");
+        Path archivo = escribir("grande.csv", false, csv.toString());
+
+        for (int hilos : new int[] {1, 4}) {
+            SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+            ImportadorPacientes.Resultado resultado = new ImportadorPacientes(sistema, hilos).importar(archivo);
+            assertEquals(List.of((long) lineaPartida, (long) lineaMala), lineas(resultado), "hilos=" + hilos);
+            assertTrue(resultado.getEjemplosInvalidas().get(0).getMotivo().contains("caracteres de control"));
+            assertEquals(relleno + 2, resultado.getImportados(), "hilos=" + hilos);
+            List<Paciente> espera = sistema.pacientesEnEspera();
+            assertEquals("Después del límite", espera.get(0).getNombre());
+            assertEquals("Último", espera.get(espera.size() - 1).getNombre());
+        }
+    }
+
+    @Test
+    void comillasSinCerrarDescartanSoloSuLinea() throws IOException {
+        Path archivo = escribir("llegadas.csv", false, "nombre,prioridad\n"
+                + "Ana,1\n"
+                + "\"Sin cerrar,2\n"
+                + "Luis,3\n");
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        ImportadorPacientes.Resultado resultado = new ImportadorPacientes(sistema, 1).importar(archivo);
+
+        assertEquals(2, resultado.getImportados());
+        assertEquals(List.of(3L), lineas(resultado));
+        ImportadorPacientes.FilaInvalida invalida = resultado.getEjemplosInvalidas().get(0);
+        assertEquals("Comillas sin cerrar", invalida.getMotivo());
+        assertEquals("\"Sin cerrar,2", invalida.getTexto());
+    }
+
+    @Test
+    void ndjsonConEscapesBomYCrlf() throws IOException {
+        Path archivo = escribir("llegadas.ndjson", true,
+                "{\"nombre\": \"Ana \\\"la\\\" \\\\ P\\u00e9rez\", \"prioridad\": 1, \"sintomas\": \"Dolor\\/tos\"}\r\n"
+                        + "{\"nombre\":\"Dos\\nlíneas\",\"prioridad\":2}\r\n"
+                        + "\r\n"
+                        + "{\"nombre\":\"Eva\",\"extra\":{\"a\":[1,\"}\"]},\"prioridad\":3,\"sintomas\":null}\n"
+                        + "{\"nombre\":\"Texto\",\"prioridad\":\"1\"}\n"
+                        + "{\"nombre\":\"Roto\",\"prioridad\":1,\"sintomas\":\"\\q\"}\n"
+                        + "{\"nombre\":\"Sin fin\"");
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        ImportadorPacientes.Resultado resultado = new ImportadorPacientes(sistema, 2).importar(archivo);
+
+        assertEquals(2, resultado.getImportados());
+        assertEquals(List.of(2L, 5L, 6L, 7L), lineas(resultado));
+        List<Paciente> espera = sistema.pacientesEnEspera();
+        assertEquals("Ana \"la\" \\ Pérez", espera.get(0).getNombre());
+        assertEquals("Dolor/tos", espera.get(0).getSintomas());
+        assertEquals("Eva", espera.get(1).getNombre());
+        assertEquals("No especificado", espera.get(1).getSintomas());
+        List<String> motivos = new ArrayList<>();
+        resultado.getEjemplosInvalidas().forEach(fila -> motivos.add(fila.getMotivo()));
+        assertTrue(motivos.get(0).contains("caracteres de control"), motivos.toString());
+        assertEquals("La prioridad debe ser un número entero", motivos.get(1));
+        assertTrue(motivos.get(2).contains("escape \\q"), motivos.toString());
+    }
+
+    private Path escribir(String nombre, boolean conBom, String contenido) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (conBom) {
+            bytes.write(BOM);
+        }
+        bytes.write(contenido.getBytes(StandardCharsets.UTF_8));
+        Path archivo = directorio.resolve(nombre);
+        Files.write(archivo, bytes.toByteArray());
+        return archivo;
+    }
+
+    private static List<Long> lineas(ImportadorPacientes.Resultado resultado) {
+        List<Long> lineas = new ArrayList<>();
+        resultado.getEjemplosInvalidas().forEach(fila -> lineas.add(fila.getLinea()));
+        return lineas;
+    }
+}
@@ -0,0 +1,96 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * La posición que da el índice coincide con recorrer la fila, también al
+ * deshacer atenciones cuyas casillas ya se compactaron, y la memoria
+ * depende de cuántos esperan y no de cuántos llegaron.
+ */
+class IndicePosicionesTest {
+    // Reloj fijo: todos llegan en el mismo instante y solo la secuencia desempata
+    private static final Clock RELOJ = Clock.fixed(Instant.parse("2024-03-01T08:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void coincideConRecorrerLaFila() {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), RELOJ);
+        sistema.configurarDeshacer(1_000, Duration.ofDays(1));
+        Random azar = new Random(42);
+        List<Long> atendidos = new ArrayList<>();
+        for (int paso = 0; paso < 3_000; paso++) {
+            int accion = azar.nextInt(10);
+            if (accion < 5) {
+                sistema.registrarPaciente("Paciente " + paso, 1 + azar.nextInt(3), "Prueba");
+            } else if (accion < 7) {
+                sistema.atender().ifPresent(p -> atendidos.add(p.getId()));
+            } else if (accion == 7) {
+                sistema.atenderLote(1 + azar.nextInt(20)).forEach(p -> atendidos.add(p.getId()));
+            } else if (accion == 8) {
+                sistema.deshacerUltimaAtencion();
+            } else {
+                sistema.deshacerUltimoLote();
+            }
+            if (paso % 50 == 0) {
+                assertCoincide(sistema, atendidos, "paso " + paso);
+            }
+        }
+        // Se vacía y se deshace todo lo que permite el anillo
+        sistema.atenderLote(sistema.totalEnEspera());
+        assertCoincide(sistema, atendidos, "vacía");
+        // Los que vuelven ocupan casillas ya compactadas
+        int deshechos = 0;
+        for (List<Paciente> lote = sistema.deshacerUltimoLote(); !lote.isEmpty();
+             lote = sistema.deshacerUltimoLote()) {
+            deshechos += lote.size();
+        }
+        assertTrue(deshechos > 0);
+        assertCoincide(sistema, atendidos, "deshecho");
+    }
+
+    @Test
+    void laMemoriaNoCreceConLasLlegadasMientrasAlguienEspera() {
+        IndicePosiciones indice = new IndicePosiciones();
+        Paciente verde = new Paciente(0, 0, "Verde", 3, "Prueba");
+        indice.agregar(verde);
+        for (long secuencia = 1; secuencia <= 200_000; secuencia++) {
+            Paciente rojo = new Paciente(secuencia, secuencia, "Rojo", 1, "Prueba");
+            indice.agregar(rojo);
+            if (secuencia % 100 != 0) {
+                indice.quitar(rojo);
+            }
+        }
+        // Quedan el verde y 2000 rojos: se paga por ellos, no por las 200000 llegadas
+        assertEquals(2_000, indice.pacientesPorDelanteDe(verde.getId()));
+        assertTrue(indice.casillas() < 10_000, "casillas " + indice.casillas());
+        assertEquals(1_999, indice.pacientesPorDelanteDe(200_000));
+        assertEquals(0, indice.pacientesPorDelanteDe(100));
+        assertEquals(-1, indice.pacientesPorDelanteDe(99));
+    }
+
+    private static void assertCoincide(SistemaTriageUrgencias sistema, List<Long> atendidos, String caso) {
+        List<Paciente> fila = sistema.pacientesEnEspera();
+        for (int i = 0; i < fila.size(); i++) {
+            assertEquals(OptionalInt.of(i + 1), sistema.posicionDe(fila.get(i).getId()), caso);
+        }
+        Set<Long> enFila = new HashSet<>();
+        fila.forEach(p -> enFila.add(p.getId()));
+        for (long id : atendidos) {
+            if (!enFila.contains(id)) {
+                assertEquals(OptionalInt.empty(), sistema.posicionDe(id), caso);
+            }
+        }
+    }
+}
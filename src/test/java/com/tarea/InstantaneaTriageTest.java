@@ -0,0 +1,74 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Una instantánea escrita y vuelta a leer reproduce la espera, los
+ * atendidos y la numeración; una dañada se rechaza.
+ */
+class InstantaneaTriageTest {
+    private static final String[] SINTOMAS = {"Fiebre", "Dolor torácico", "Resfriado común"};
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void escribirYLeerConservaElEstado() throws IOException {
+        SistemaTriageUrgencias original = sistemaConHistoria();
+        Path archivo = directorio.resolve("instantanea-1.snap");
+        InstantaneaTriage.escribir(archivo, original);
+
+        SistemaTriageUrgencias leido = new SistemaTriageUrgencias();
+        InstantaneaTriage.leer(archivo, leido);
+
+        assertEquals(describir(original.enEspera()), describir(leido.enEspera()));
+        assertEquals(describir(original.atendidos()), describir(leido.atendidos()));
+        assertEquals(original.ultimaSecuenciaLlegada(), leido.ultimaSecuenciaLlegada());
+        assertEquals(original.ultimoIdAsignado(), leido.ultimoIdAsignado());
+        // La numeración sigue donde quedó
+        assertEquals(original.registrarPaciente("Nuevo", 1, "Tos").getId(),
+                leido.registrarPaciente("Nuevo", 1, "Tos").getId());
+    }
+
+    @Test
+    void unaInstantaneaDanadaSeRechaza() throws IOException {
+        Path archivo = directorio.resolve("instantanea-1.snap");
+        InstantaneaTriage.escribir(archivo, sistemaConHistoria());
+        byte[] bytes = Files.readAllBytes(archivo);
+        bytes[bytes.length / 2] ^= 0x40;
+        Files.write(archivo, bytes);
+
+        assertThrows(IOException.class, () -> InstantaneaTriage.leer(archivo, new SistemaTriageUrgencias()));
+    }
+
+    private static SistemaTriageUrgencias sistemaConHistoria() {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        for (int i = 0; i < 300; i++) {
+            sistema.registrarPaciente("Paciente " + i + (i % 7 == 0 ? " Muñoz" : ""), 1 + i % 3,
+                    SINTOMAS[i % SINTOMAS.length]);
+        }
+        for (int i = 0; i < 100; i++) {
+            sistema.atender();
+        }
+        sistema.atenderLote(20);
+        sistema.deshacerUltimaAtencion();
+        return sistema;
+    }
+
+    static List<String> describir(Iterable<Paciente> pacientes) {
+        List<String> descripciones = new ArrayList<>();
+        for (Paciente p : pacientes) {
+            descripciones.add(p.getSecuenciaLlegada() + " " + p.getHoraLlegada() + " " + p);
+        }
+        return descripciones;
+    }
+}
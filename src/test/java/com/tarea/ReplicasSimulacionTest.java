@@ -0,0 +1,55 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El resultado de las réplicas depende solo de la semilla maestra, no de
+ * cuántos hilos las ejecuten.
+ */
+class ReplicasSimulacionTest {
+
+    @Test
+    void mismaSemillaDaLoMismoConUnoOVariosHilos() {
+        // Cargada lo justo para que haya esperas en las tres prioridades
+        SimuladorTriage simulador = new SimuladorTriage(2,
+                new ProcesoLlegadas[] {new LlegadasPoisson(1.5), new LlegadasPoisson(4), new LlegadasPoisson(6)},
+                new double[] {30, 15, 8});
+        Duration duracion = Duration.ofHours(12);
+        ReplicasSimulacion.Resultado base = new ReplicasSimulacion(simulador, duracion, 1).ejecutar(12, 2024);
+        assertTrue(base.espera(3).getTotal() > 0);
+
+        for (int hilos : new int[] {2, 3, 8}) {
+            ReplicasSimulacion.Resultado otro = new ReplicasSimulacion(simulador, duracion, hilos).ejecutar(12, 2024);
+            String caso = "hilos=" + hilos;
+            assertEquals(base.getEventos(), otro.getEventos(), caso);
+            for (int prioridad = 1; prioridad <= ColaTriage.NIVELES; prioridad++) {
+                assertMismoHistograma(base.espera(prioridad), otro.espera(prioridad), caso);
+                assertEquals(base.llegadas(prioridad), otro.llegadas(prioridad), caso);
+                assertEquals(base.enEspera(prioridad), otro.enEspera(prioridad), caso);
+                // Iguales bit a bit, no solo aproximadamente
+                assertEquals(base.mediaEspera(prioridad), otro.mediaEspera(prioridad), 0, caso);
+                assertEquals(base.semiAnchoEspera(prioridad), otro.semiAnchoEspera(prioridad), 0, caso);
+            }
+            assertEquals(base.getUtilizacion(), otro.getUtilizacion(), 0, caso);
+            assertEquals(base.getSemiAnchoUtilizacion(), otro.getSemiAnchoUtilizacion(), 0, caso);
+        }
+    }
+
+    /**
+     * Mismos totales y misma cantidad de muestras hasta el límite de cada cubeta
+     */
+    static void assertMismoHistograma(HistogramaTiempos.Resumen esperado, HistogramaTiempos.Resumen real,
+                                      String caso) {
+        assertEquals(esperado.getTotal(), real.getTotal(), caso);
+        assertEquals(esperado.getSuma(), real.getSuma(), caso);
+        assertEquals(esperado.getMaximo(), real.getMaximo(), caso);
+        for (int i = 0; HistogramaTiempos.limiteInferior(i) <= esperado.getMaximo(); i++) {
+            long limite = HistogramaTiempos.limiteInferior(i);
+            assertEquals(esperado.hasta(limite), real.hasta(limite), caso + " hasta " + limite);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Los reportes CSV y JSON se vuelven a leer con un analizador estricto y
+ * devuelven exactamente los textos registrados, con comas, comillas, saltos
+ * de línea, barras invertidas y caracteres de control.
+ */
+class ReporteTriageTest {
+    private static final Clock RELOJ = Clock.fixed(Instant.parse("2024-03-01T08:05:09Z"), ZoneOffset.UTC);
+    private static final String[] NOMBRES = {
+            "Ana", "Pérez, Luis", "Eva \"la rápida\"", "Dos\nlíneas", "Barra \\ invertida",
+            "Control \u0001 y tab\t", "\"\"", "Retorno\r\nfinal"};
+
+    @Test
+    void elCsvSeLeeIgualQueLoRegistrado() throws IOException {
+        SistemaTriageUrgencias sistema = sistemaConTextosDificiles();
+        StringWriter csv = new StringWriter();
+        ReporteTriage.escribir(sistema, ReporteTriage.Formato.CSV, csv);
+
+        List<List<String>> filas = leerCsv(csv.toString());
+        assertEquals(List.of("estado", "orden", "id", "nombre", "prioridad", "nivel", "llegada", "sintomas"),
+                filas.get(0));
+        List<Paciente> esperados = new ArrayList<>(sistema.pacientesAtendidos());
+        esperados.addAll(sistema.pacientesEnEspera());
+        assertEquals(esperados.size() + 1, filas.size());
+        int atendidos = sistema.totalAtendidos();
+        for (int i = 0; i < esperados.size(); i++) {
+            Paciente p = esperados.get(i);
+            List<String> fila = filas.get(i + 1);
+            boolean atendido = i < atendidos;
+            assertEquals(List.of(atendido ? "ATENDIDO" : "EN_ESPERA",
+                    String.valueOf(atendido ? i + 1 : i - atendidos + 1), String.valueOf(p.getId()),
+                    p.getNombre(), String.valueOf(p.getPrioridad()), p.getNivelPrioridadTexto(),
+                    "2024-03-01T08:05:09", p.getSintomas()), fila);
+        }
+    }
+
+    @Test
+    void elJsonSeLeeIgualQueLoRegistrado() throws IOException {
+        SistemaTriageUrgencias sistema = sistemaConTextosDificiles();
+        StringWriter json = new StringWriter();
+        ReporteTriage.escribir(sistema, ReporteTriage.Formato.JSON, json);
+        String texto = json.toString();
+        // Ningún carácter de control sin escapar fuera de los saltos entre elementos
+        for (char c : texto.toCharArray()) {
+            assertTrue(c >= 0x20 || c == '\n', "control sin escapar: " + (int) c);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> reporte = (Map<String, Object>) new LectorJson(texto).valor();
+        assertPacientes(sistema.pacientesAtendidos(), reporte.get("atendidos"));
+        assertPacientes(sistema.pacientesEnEspera(), reporte.get("enEspera"));
+        Map<String, Object> contadores = new LinkedHashMap<>();
+        for (int prioridad = 1; prioridad <= ColaTriage.NIVELES; prioridad++) {
+            contadores.put(String.valueOf(prioridad), (long) sistema.contador(prioridad));
+        }
+        assertEquals(contadores, reporte.get("contadores"));
+        assertEquals((long) sistema.totalEnEspera(), reporte.get("totalEnEspera"));
+    }
+
+    private static void assertPacientes(List<Paciente> esperados, Object leidos) {
+        List<Object> lista = new ArrayList<>();
+        for (Paciente p : esperados) {
+            Map<String, Object> objeto = new LinkedHashMap<>();
+            objeto.put("id", p.getId());
+            objeto.put("nombre", p.getNombre());
+            objeto.put("prioridad", (long) p.getPrioridad());
+            objeto.put("llegada", "2024-03-01T08:05:09");
+            objeto.put("sintomas", p.getSintomas());
+            lista.add(objeto);
+        }
+        assertEquals(lista, leidos);
+    }
+
+    /**
+     * Cada nombre difícil con prioridades variadas y síntomas igual de
+     * difíciles; la mitad queda atendida
+     */
+    private static SistemaTriageUrgencias sistemaConTextosDificiles() {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(false, new GeneradorIdAtomico(), RELOJ);
+        for (int i = 0; i < NOMBRES.length; i++) {
+            sistema.registrarPaciente(NOMBRES[i], 1 + i % 3, NOMBRES[NOMBRES.length - 1 - i] + ",\"\\");
+        }
+        sistema.atenderLote(NOMBRES.length / 2);
+        return sistema;
+    }
+
+    /**
+     * CSV según RFC 4180: campos entre comillas con comillas dobladas y
+     * saltos de línea adentro; cada fila termina en \n
+     */
+    private static List<List<String>> leerCsv(String texto) {
+        List<List<String>> filas = new ArrayList<>();
+        List<String> fila = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        int i = 0;
+        while (i < texto.length()) {
+            char c = texto.charAt(i++);
+            if (c == '"' && campo.length() == 0) {
+                while (true) {
+                    char d = texto.charAt(i++);
+                    if (d == '"') {
+                        if (i < texto.length() && texto.charAt(i) == '"') {
+                            campo.append('"');
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                    campo.append(d);
+                }
+                char siguiente = texto.charAt(i);
+                assertTrue(siguiente == ',' || siguiente == '\n', "texto después de las comillas");
+            } else if (c == ',') {
+                fila.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n') {
+                fila.add(campo.toString());
+                campo.setLength(0);
+                filas.add(fila);
+                fila = new ArrayList<>();
+            } else {
+                assertTrue(c != '"' && c != '\r', "comilla o retorno fuera de comillas");
+                campo.append(c);
+            }
+        }
+        assertTrue(fila.isEmpty() && campo.length() == 0, "la última fila debe terminar en \\n");
+        return filas;
+    }
+
+    /**
+     * JSON estricto y mínimo: objetos, listas, textos, enteros y null
+     */
+    private static final class LectorJson {
+        private final String texto;
+        private int pos;
+
+        LectorJson(String texto) {
+            this.texto = texto;
+        }
+
+        Object valor() {
+            espacios();
+            char c = texto.charAt(pos);
+            if (c == '{') {
+                pos++;
+                Map<String, Object> objeto = new LinkedHashMap<>();
+                espacios();
+                if (texto.charAt(pos) == '}') {
+                    pos++;
+                    return objeto;
+                }
+                do {
+                    espacios();
+                    String clave = (String) valor();
+                    espacios();
+                    esperar(':');
+                    objeto.put(clave, valor());
+                    espacios();
+                } while (texto.charAt(pos++) == ',');
+                assertEquals('}', texto.charAt(pos - 1));
+                return objeto;
+            }
+            if (c == '[') {
+                pos++;
+                List<Object> lista = new ArrayList<>();
+                espacios();
+                if (texto.charAt(pos) == ']') {
+                    pos++;
+                    return lista;
+                }
+                do {
+                    lista.add(valor());
+                    espacios();
+                } while (texto.charAt(pos++) == ',');
+                assertEquals(']', texto.charAt(pos - 1));
+                return lista;
+            }
+            if (c == '"') {
+                return textoJson();
+            }
+            if (texto.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            int inicio = pos;
+            while (pos < texto.length() && (Character.isDigit(texto.charAt(pos)) || texto.charAt(pos) == '-')) {
+                pos++;
+            }
+            return Long.parseLong(texto.substring(inicio, pos));
+        }
+
+        private String textoJson() {
+            esperar('"');
+            StringBuilder valor = new StringBuilder();
+            while (true) {
+                char c = texto.charAt(pos++);
+                assertTrue(c >= 0x20, "control sin escapar en un texto");
+                if (c == '"') {
+                    return valor.toString();
+                }
+                if (c != '\\') {
+                    valor.append(c);
+                    continue;
+                }
+                char escape = texto.charAt(pos++);
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        valor.append(escape);
+                        break;
+                    case 'n':
+                        valor.append('\n');
+                        break;
+                    case 'r':
+                        valor.append('\r');
+                        break;
+                    case 't':
+                        valor.append('\t');
+                        break;
+                    case 'b':
+                        valor.append('\b');
+                        break;
+                    case 'f':
+                        valor.append('\f');
+                        break;
+                    case 'u':
+                        valor.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        throw new AssertionError("escape inválido \\" + escape);
+                }
+            }
+        }
+
+        private void espacios() {
+            while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private void esperar(char esperado) {
+            assertEquals(esperado, texto.charAt(pos++));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.tarea;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Prueba de integración de /metrics: levanta el servidor en un puerto libre
+ * de la interfaz local y lo consulta por HTTP como lo haría Prometheus.
+ */
+class ServidorMetricasTest {
+    private static final Pattern MUESTRA = Pattern.compile(
+            "([a-zA-Z_:][a-zA-Z0-9_:]*)(\\{[a-zA-Z_][a-zA-Z0-9_]*=\"[^\"]*\"(,[a-zA-Z_][a-zA-Z0-9_]*=\"[^\"]*\")*\\})?"
+                    + " (-?[0-9.]+([eE][-+]?[0-9]+)?|NaN|[+-]Inf)");
+
+    private SistemaTriageUrgencias sistema;
+    private ServidorMetricas servidor;
+    private HttpClient cliente;
+
+    @BeforeEach
+    void levantar() throws IOException {
+        sistema = new SistemaTriageUrgencias();
+        MetricasTriage metricas = new MetricasTriage();
+        sistema.usarMetricas(metricas);
+        servidor = new ServidorMetricas(sistema, metricas, 0);
+        cliente = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void cerrar() {
+        servidor.close();
+    }
+
+    @Test
+    void exponeContadoresEnFormatoPrometheus() throws Exception {
+        sistema.registrarPaciente("Ana", 1, "Dolor torácico");
+        sistema.registrarPaciente("Luis", 1, "Disnea");
+        for (int i = 0; i < 3; i++) {
+            sistema.registrarPaciente("Verde " + i, 3, "Control");
+        }
+        sistema.atender();
+        sistema.atender();
+        sistema.deshacerUltimaAtencion();
+
+        HttpResponse<String> respuesta = consultar("GET");
+        assertEquals(200, respuesta.statusCode());
+        assertTrue(respuesta.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+
+        Map<String, Double> muestras = leerExposicion(respuesta.body());
+        assertEquals(5, muestras.get("triage_operaciones_total{operacion=\"registrar\"}"));
+        assertEquals(2, muestras.get("triage_operaciones_total{operacion=\"atender\"}"));
+        assertEquals(1, muestras.get("triage_operaciones_total{operacion=\"deshacer\"}"));
+        assertEquals(0, muestras.get("triage_operaciones_total{operacion=\"rehacer\"}"));
+        assertEquals(1, muestras.get("triage_en_espera{prioridad=\"1\"}"));
+        assertEquals(0, muestras.get("triage_en_espera{prioridad=\"2\"}"));
+        assertEquals(3, muestras.get("triage_en_espera{prioridad=\"3\"}"));
+        // Deshacer no descuenta las esperas ya medidas
+        assertEquals(2, muestras.get("triage_espera_segundos_count{prioridad=\"1\"}"));
+
+        // Las cubetas son acumulativas y +Inf coincide con count
+        double anterior = 0;
+        for (String limite : new String[]{"0.000001", "0.00001", "0.001", "1", "+Inf"}) {
+            double acumulado = muestras.get("triage_latencia_segundos_bucket{operacion=\"registrar\",le=\"" + limite + "\"}");
+            assertTrue(acumulado >= anterior, limite);
+            anterior = acumulado;
+        }
+        assertEquals(5, anterior);
+        assertEquals(5, muestras.get("triage_latencia_segundos_count{operacion=\"registrar\"}"));
+    }
+
+    @Test
+    void rechazaOtrosMetodos() throws Exception {
+        assertEquals(405, consultar("POST").statusCode());
+    }
+
+    private HttpResponse<String> consultar(String metodo) throws IOException, InterruptedException {
+        HttpRequest pedido = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + servidor.puerto() + "/metrics"))
+                .method(metodo, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return cliente.send(pedido, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Valida cada línea del formato de texto (HELP y TYPE antes de las
+     * muestras de cada familia) y devuelve las muestras por nombre y etiquetas
+     */
+    private static Map<String, Double> leerExposicion(String cuerpo) {
+        Map<String, Double> muestras = new HashMap<>();
+        Set<String> conAyuda = new HashSet<>();
+        Map<String, String> tipos = new HashMap<>();
+        for (String linea : cuerpo.split("\n")) {
+            if (linea.startsWith("# HELP ")) {
+                assertTrue(conAyuda.add(linea.split(" ")[2]), "HELP repetido: " + linea);
+            } else if (linea.startsWith("# TYPE ")) {
+                String[] partes = linea.split(" ");
+                assertTrue(conAyuda.contains(partes[2]), "TYPE sin HELP: " + linea);
+                assertTrue(Set.of("counter", "gauge", "histogram", "summary").contains(partes[3]), linea);
+                tipos.put(partes[2], partes[3]);
+            } else {
+                Matcher m = MUESTRA.matcher(linea);
+                if (!m.matches()) {
+                    fail("Línea fuera de formato: " + linea);
+                }
+                String nombre = m.group(1);
+                String familia = nombre.replaceFirst("_(bucket|sum|count)$", "");
+                assertTrue(tipos.containsKey(nombre) || tipos.containsKey(familia), "Muestra sin TYPE: " + linea);
+                String clave = nombre + (m.group(2) == null ? "" : m.group(2));
+                assertTrue(muestras.put(clave, Double.parseDouble(m.group(4))) == null, "Muestra repetida: " + linea);
+            }
+        }
+        return muestras;
+    }
+}
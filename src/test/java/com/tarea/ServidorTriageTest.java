@@ -0,0 +1,172 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ProtocoloTriage responde cada comando con una línea (o varias terminadas
+ * en "." y con los "." iniciales duplicados), el REPORTE sale de a páginas
+ * idéntico al de ReporteTriage, y ServidorTriage respeta el orden de las
+ * respuestas aunque el cliente encadene pedidos detrás de un reporte.
+ */
+class ServidorTriageTest {
+
+    @Test
+    void respondeCadaComandoEnUnaLinea() {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        ProtocoloTriage protocolo = new ProtocoloTriage(sistema);
+
+        assertEquals(List.of("VACIO"), responder(protocolo, "ATENDER"));
+        assertEquals(List.of("OK 1"), responder(protocolo, "REGISTRAR 2 Ana|Fiebre alta"));
+        assertEquals(List.of("OK 2"), responder(protocolo, "registrar 1 Luis|Disnea"));
+        assertTrue(responder(protocolo, "REGISTRAR 2 Ana sin síntomas").get(0).startsWith("ERROR uso:"));
+        assertTrue(responder(protocolo, "REGISTRAR 4 Eva|Tos").get(0).startsWith("ERROR Prioridad"));
+        assertTrue(responder(protocolo, "REGISTRAR 2 Eva\tTab|Tos").get(0).startsWith("ERROR El nombre"));
+        assertEquals(List.of("OK 1 1 0"), responder(protocolo, "CONTADORES"));
+        assertTrue(responder(protocolo, "SIGUIENTE").get(0).startsWith("OK [ID:2] Luis"));
+
+        List<String> lista = responder(protocolo, "LISTAR 1");
+        assertEquals(3, lista.size());
+        assertEquals("OK", lista.get(0));
+        assertTrue(lista.get(1).startsWith("[ID:2] Luis"));
+        assertEquals(".", lista.get(2));
+        assertTrue(responder(protocolo, "LISTAR -1").get(0).startsWith("ERROR"));
+
+        assertTrue(responder(protocolo, "ATENDER").get(0).startsWith("OK [ID:2]"));
+        assertTrue(responder(protocolo, "DESHACER").get(0).startsWith("OK [ID:2]"));
+        assertTrue(responder(protocolo, "REHACER").get(0).startsWith("OK [ID:2]"));
+        assertEquals(List.of("ERROR comando desconocido: BORRAR"), responder(protocolo, "BORRAR 1"));
+        assertTrue(responder(protocolo, "REPORTE XML").get(0).startsWith("ERROR"));
+    }
+
+    @Test
+    void losControlesDeTextosAnterioresNoPartenLaRespuesta() {
+        // registrarPaciente no pasa por SolicitudRegistro: así llegan textos de un diario anterior
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        sistema.registrarPaciente("Ana\n.", 1, "Fiebre\r\nalta");
+        sistema.registrarPaciente("Luis", 2, "Tos");
+        ProtocoloTriage protocolo = new ProtocoloTriage(sistema);
+
+        List<String> lista = responder(protocolo, "LISTAR");
+        assertEquals(4, lista.size(), lista.toString());
+        assertTrue(lista.get(1).startsWith("[ID:1] Ana . - "), lista.get(1));
+        assertTrue(lista.get(1).endsWith("Fiebre  alta"), lista.get(1));
+        assertEquals(1, responder(protocolo, "SIGUIENTE").size());
+    }
+
+    @Test
+    void elReporteSaleDeAPaginasIgualAlDeReporteTriage() throws IOException {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        // Un campo CSV entre comillas con un salto de línea seguido de "."
+        sistema.registrarPaciente("Punto\n.final", 1, "Prueba");
+        for (int i = 0; i < 2_000; i++) {
+            sistema.registrarPaciente("Paciente " + i, 1 + i % 3, "Síntoma, \"citado\"");
+        }
+        sistema.atenderLote(500);
+        ProtocoloTriage protocolo = new ProtocoloTriage(sistema);
+
+        for (ReporteTriage.Formato formato : ReporteTriage.Formato.values()) {
+            StringWriter esperado = new StringWriter();
+            ReporteTriage.escribir(sistema, formato, esperado);
+
+            StringBuilder respuesta = new StringBuilder();
+            ProtocoloTriage.RespuestaPorPaginas paginas = protocolo.procesar("REPORTE " + formato, respuesta);
+            assertEquals("OK\n", respuesta.toString());
+            int cantidad = 0;
+            boolean quedan = true;
+            while (quedan) {
+                quedan = paginas.siguiente(respuesta);
+                cantidad++;
+            }
+            assertTrue(cantidad > 10, formato + " en " + cantidad + " páginas");
+            assertTrue(respuesta.toString().endsWith("\n.\n"), formato.toString());
+            assertEquals(esperado.toString(), sinRelleno(respuesta.substring(3, respuesta.length() - 2)),
+                    formato.toString());
+        }
+        // En CSV el salto de línea va tal cual dentro de las comillas y el "." se duplica
+        StringBuilder csv = new StringBuilder();
+        ProtocoloTriage.RespuestaPorPaginas paginas = protocolo.procesar("REPORTE", csv);
+        while (paginas.siguiente(csv)) {
+            assertTrue(csv.length() > 0);
+        }
+        assertTrue(csv.toString().contains("\n..final\""), csv.substring(0, 200));
+    }
+
+    @Test
+    void lasRespuestasSalenEnOrdenDetrasDeUnReporte() throws IOException {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+        for (int i = 0; i < 5_000; i++) {
+            sistema.registrarPaciente("Paciente " + i, 1 + i % 3, "Prueba");
+        }
+        StringWriter esperado = new StringWriter();
+        ReporteTriage.escribir(sistema, ReporteTriage.Formato.CSV, esperado);
+
+        try (ServidorTriage servidor = new ServidorTriage(sistema,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), servidor.puerto())) {
+            OutputStream salida = socket.getOutputStream();
+            BufferedReader entrada = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            // Todo en una escritura; el último pedido llega partido y con CRLF
+            salida.write("REPORTE CSV\nCONTADORES\nREGISTRAR 1 Nuevo|Tos\nLISTAR 0\nSIGU"
+                    .getBytes(StandardCharsets.UTF_8));
+            salida.flush();
+
+            assertEquals("OK", entrada.readLine());
+            StringBuilder reporte = new StringBuilder();
+            for (String linea = entrada.readLine(); !linea.equals("."); linea = entrada.readLine()) {
+                reporte.append(linea).append('\n');
+            }
+            assertEquals(esperado.toString(), sinRelleno(reporte.toString()));
+            // Los contadores son del momento en que se procesó, después del reporte
+            assertEquals("OK 1667 1667 1666", entrada.readLine());
+            assertEquals("OK 5001", entrada.readLine());
+            assertEquals("OK", entrada.readLine());
+            assertEquals(".", entrada.readLine());
+
+            salida.write("IENTE\r\n".getBytes(StandardCharsets.UTF_8));
+            salida.flush();
+            assertTrue(entrada.readLine().startsWith("OK [ID:1] Paciente 0"));
+
+            // Una línea demasiado larga recibe un error y cierra la conexión (justo
+            // un byte de más, así el servidor lee todo y cierra sin reiniciarla)
+            salida.write(new byte[ServidorTriage.LARGO_MAXIMO_LINEA + 1]);
+            salida.flush();
+            assertEquals("ERROR línea demasiado larga", entrada.readLine());
+            assertNull(entrada.readLine());
+        }
+    }
+
+    private static List<String> responder(ProtocoloTriage protocolo, String linea) {
+        StringBuilder respuesta = new StringBuilder();
+        assertNull(protocolo.procesar(linea, respuesta));
+        List<String> lineas = new ArrayList<>(List.of(respuesta.toString().split("\n", -1)));
+        assertEquals("", lineas.remove(lineas.size() - 1), "la respuesta termina en \\n");
+        return lineas;
+    }
+
+    /**
+     * Quita el "." duplicado al comienzo de las líneas (sin el terminador)
+     */
+    private static String sinRelleno(String texto) {
+        List<String> lineas = new ArrayList<>();
+        for (String linea : texto.split("\n", -1)) {
+            lineas.add(linea.startsWith(".") ? linea.substring(1) : linea);
+        }
+        return String.join("\n", lineas);
+    }
+}
@@ -0,0 +1,67 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SesionTerminalTest {
+    private static final String SOLO_LOCAL = "Opción disponible solo en la consola local";
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void laSesionRemotaNoTocaArchivos() throws Exception {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(true);
+
+        String salida;
+        try (ServidorSesiones servidor = new ServidorSesiones(sistema, ServidorSesiones.ModeloHilos.PLATAFORMA)) {
+            servidor.escuchar(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), servidor.puerto())) {
+                OutputStream hacia = socket.getOutputStream();
+                // Si la opción se aceptara, la línea siguiente sería el formato o el archivo
+                hacia.write(("10\n\n13\n\n0\n").getBytes(StandardCharsets.UTF_8));
+                hacia.flush();
+                socket.shutdownOutput();
+                InputStream desde = socket.getInputStream();
+                salida = new String(desde.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+        assertEquals(2, salida.split(SOLO_LOCAL, -1).length - 1, salida);
+        assertFalse(salida.contains("Exportar reporte a archivo"));
+        assertFalse(salida.contains("Importar pacientes desde archivo"));
+        assertEquals(0, sistema.totalEnEspera());
+    }
+
+    @Test
+    void laConsolaLocalExportaEImporta() throws Exception {
+        Path destino = directorio.resolve("reporte.csv");
+        Path origen = directorio.resolve("pacientes.csv");
+        Files.writeString(origen, "nombre,prioridad,sintomas\nAna,1,Dolor\n");
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream salida = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        String entrada = "13\n" + origen + "\n\n10\nCSV\n" + destino + "\n\n0\n";
+        new SesionTerminal(sistema, new Scanner(entrada), salida, new VistaConsola(salida, salida), true).ejecutar();
+
+        assertFalse(bytes.toString(StandardCharsets.UTF_8).contains(SOLO_LOCAL));
+        assertEquals(1, sistema.totalEnEspera());
+        assertTrue(Files.readString(destino).contains("Ana"));
+    }
+}
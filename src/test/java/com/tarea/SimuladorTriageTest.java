@@ -0,0 +1,111 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El simulador es reproducible con la misma semilla, cada prioridad tiene
+ * su propio flujo de azar (cambiar una no altera las muestras de las otras)
+ * y su reloj se puede ver en cualquier zona.
+ */
+class SimuladorTriageTest {
+    private static final Duration GUARDIA = Duration.ofHours(24);
+    private static final double[] ATENCION = {30, 15, 8};
+
+    @Test
+    void elSistemaDeSimulacionNoGuardaAtendidos() {
+        SistemaTriageUrgencias sistema = SistemaTriageUrgencias.paraSimulacion(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+        for (int i = 0; i < 10_000; i++) {
+            sistema.registrarPaciente("Paciente", i % ColaTriage.NIVELES + 1, null);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            assertTrue(sistema.atender().isPresent());
+        }
+        assertEquals(4_000, sistema.atenderLote(4_000).size());
+
+        assertEquals(1_000, sistema.totalEnEspera());
+        assertEquals(0, sistema.totalAtendidos());
+        assertEquals(List.of(), sistema.pacientesAtendidos());
+        assertTrue(sistema.deshacerUltimaAtencion().isEmpty());
+        assertTrue(sistema.deshacerUltimoLote().isEmpty());
+        assertEquals(9_000, sistema.estadisticas().atencionesPorMinuto()[0]);
+        assertThrows(IllegalStateException.class, () -> sistema.configurarDeshacer(10, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void mismaSemillaDaElMismoResultado() {
+        SimuladorTriage simulador = new SimuladorTriage(2,
+                new ProcesoLlegadas[] {new LlegadasPoisson(1.5), new LlegadasPoisson(3), new LlegadasPoisson(5)},
+                ATENCION);
+        SimuladorTriage.Resultado primero = simulador.ejecutar(GUARDIA, 7);
+        SimuladorTriage.Resultado segundo = simulador.ejecutar(GUARDIA, 7);
+
+        assertEquals(primero.getEventos(), segundo.getEventos());
+        for (int prioridad = 1; prioridad <= ColaTriage.NIVELES; prioridad++) {
+            assertEquals(primero.llegadas(prioridad), segundo.llegadas(prioridad));
+            assertEquals(primero.enEspera(prioridad), segundo.enEspera(prioridad));
+            ReplicasSimulacionTest.assertMismoHistograma(primero.espera(prioridad), segundo.espera(prioridad),
+                    "prioridad " + prioridad);
+        }
+        assertEquals(primero.getUtilizacion(), segundo.getUtilizacion(), 0);
+        assertTrue(simulador.ejecutar(GUARDIA, 8).getEventos() != primero.getEventos());
+    }
+
+    @Test
+    void duplicarLosRojosNoCambiaLasLlegadasDeLasDemasPrioridades() {
+        List<List<Long>> base = llegadasAmarillasYVerdes(new LlegadasPoisson(1.5));
+        List<List<Long>> conMasRojos = llegadasAmarillasYVerdes(new LlegadasPoisson(3));
+        assertEquals(base, conMasRojos);
+        assertTrue(base.get(0).size() > 50 && base.get(1).size() > 50);
+    }
+
+    @Test
+    void elRelojSimuladoSeVeEnOtraZonaConLosMismosNanos() {
+        RelojSimulado reloj = new RelojSimulado(Instant.parse("2025-01-01T00:00:00Z"));
+        ZoneId zona = ZoneId.of("America/Argentina/Buenos_Aires");
+        Clock local = reloj.withZone(zona);
+        assertEquals(zona, local.getZone());
+        assertSame(reloj, reloj.withZone(ZoneOffset.UTC));
+
+        reloj.fijar(Duration.ofMinutes(90).toNanos());
+        assertEquals(reloj.instant(), local.instant());
+        assertEquals(reloj.millis(), local.millis());
+        assertEquals(LocalDateTime.parse("2024-12-31T22:30:00"), LocalDateTime.now(local));
+        assertEquals(reloj.instant(), local.withZone(ZoneOffset.UTC).instant());
+    }
+
+    /**
+     * Instantes de llegada amarillos y verdes dentro de la guardia, con la
+     * misma semilla y el proceso de rojos indicado
+     */
+    private static List<List<Long>> llegadasAmarillasYVerdes(ProcesoLlegadas rojos) {
+        List<List<Long>> instantes = List.of(new ArrayList<>(), new ArrayList<>());
+        ProcesoLlegadas[] llegadas = {rojos, anotando(new LlegadasPoisson(3), instantes.get(0)),
+                anotando(new LlegadasPoisson(5), instantes.get(1))};
+        new SimuladorTriage(2, llegadas, ATENCION).ejecutar(GUARDIA, 7);
+        for (List<Long> lista : instantes) {
+            lista.removeIf(instante -> instante > GUARDIA.toNanos());
+        }
+        return instantes;
+    }
+
+    private static ProcesoLlegadas anotando(ProcesoLlegadas proceso, List<Long> instantes) {
+        return (anterior, numero, azar) -> {
+            long siguiente = proceso.siguiente(anterior, numero, azar);
+            instantes.add(siguiente);
+            return siguiente;
+        };
+    }
+}
@@ -0,0 +1,213 @@
+package com.tarea;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga del modo concurrente: varios puestos registran y varios
+ * médicos atienden a la vez, ningún paciente se pierde ni se atiende dos
+ * veces y cada nivel se atiende en orden de llegada.
+ */
+class SistemaTriageConcurrenteTest {
+    private static final int REGISTRADORES = 8;
+    private static final int MEDICOS = 8;
+    private static final int PACIENTES_POR_REGISTRADOR = 25_000;
+
+    @Test
+    void registrarYAtenderSinPerderNiDuplicar() throws Exception {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(true);
+        ExecutorService hilos = Executors.newFixedThreadPool(REGISTRADORES + MEDICOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger registradoresActivos = new AtomicInteger(REGISTRADORES);
+        List<Future<List<Long>>> registrados = new ArrayList<>();
+        List<Future<List<Long>>> atendidos = new ArrayList<>();
+        try {
+            for (int r = 0; r < REGISTRADORES; r++) {
+                int puesto = r;
+                registrados.add(hilos.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    largada.await();
+                    try {
+                        for (int i = 0; i < PACIENTES_POR_REGISTRADOR; i++) {
+                            if (i % 100 == 0) {
+                                List<SolicitudRegistro> bloque = new ArrayList<>();
+                                for (int j = 0; j < 10; j++) {
+                                    bloque.add(new SolicitudRegistro("Bloque " + puesto, 1 + j % 3, "Prueba"));
+                                }
+                                for (Paciente paciente : sistema.registrarPacientes(bloque)) {
+                                    ids.add(paciente.getId());
+                                }
+                            }
+                            ids.add(sistema.registrarPaciente("Puesto " + puesto, 1 + i % 3, "Prueba").getId());
+                        }
+                    } finally {
+                        registradoresActivos.decrementAndGet();
+                    }
+                    return ids;
+                }));
+            }
+            for (int m = 0; m < MEDICOS; m++) {
+                atendidos.add(hilos.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    // Cada médico saca de las colas en orden: dentro de un
+                    // nivel, sus atenciones tienen secuencias crecientes
+                    long[] ultimaSecuencia = new long[ColaTriage.NIVELES];
+                    List<Paciente> lote = new ArrayList<>();
+                    largada.await();
+                    while (registradoresActivos.get() > 0 || sistema.totalEnEspera() > 0) {
+                        lote.clear();
+                        if (ThreadLocalRandom.current().nextInt(20) == 0) {
+                            lote.addAll(sistema.atenderLote(5));
+                        } else {
+                            sistema.atender().ifPresent(lote::add);
+                        }
+                        for (Paciente paciente : lote) {
+                            int nivel = paciente.getPrioridad() - 1;
+                            assertTrue(paciente.getSecuenciaLlegada() > ultimaSecuencia[nivel],
+                                    "Atendido fuera de orden de llegada: " + paciente.getSecuenciaLlegada());
+                            ultimaSecuencia[nivel] = paciente.getSecuenciaLlegada();
+                            ids.add(paciente.getId());
+                        }
+                    }
+                    return ids;
+                }));
+            }
+            largada.countDown();
+
+            Set<Long> idsRegistrados = new HashSet<>();
+            for (Future<List<Long>> ids : registrados) {
+                for (long id : ids.get(2, TimeUnit.MINUTES)) {
+                    assertTrue(idsRegistrados.add(id), "ID repetido al registrar: " + id);
+                }
+            }
+            Set<Long> idsAtendidos = new HashSet<>();
+            for (Future<List<Long>> ids : atendidos) {
+                for (long id : ids.get(2, TimeUnit.MINUTES)) {
+                    assertTrue(idsAtendidos.add(id), "Paciente atendido dos veces: " + id);
+                }
+            }
+            assertEquals(idsRegistrados, idsAtendidos);
+            assertEquals(0, sistema.totalEnEspera());
+            assertEquals(idsRegistrados.size(), sistema.totalAtendidos());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void registrarEnParaleloConservaElOrdenDeLlegadaEnCadaNivel() throws Exception {
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(true);
+        ExecutorService hilos = Executors.newFixedThreadPool(REGISTRADORES);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            for (int r = 0; r < REGISTRADORES; r++) {
+                tareas.add(hilos.submit(() -> {
+                    largada.await();
+                    for (int i = 0; i < PACIENTES_POR_REGISTRADOR; i++) {
+                        if (i % 100 == 0) {
+                            sistema.registrarPacientes(List.of(new SolicitudRegistro("Bloque", 1, "Prueba"),
+                                    new SolicitudRegistro("Bloque", 2, "Prueba")));
+                        }
+                        sistema.registrarPaciente("Puesto", 1 + i % 2, "Prueba");
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        long[] ultimaSecuencia = new long[ColaTriage.NIVELES];
+        for (Paciente paciente : sistema.enEspera()) {
+            int nivel = paciente.getPrioridad() - 1;
+            assertTrue(paciente.getSecuenciaLlegada() > ultimaSecuencia[nivel],
+                    "En espera fuera de orden de llegada: " + paciente.getSecuenciaLlegada());
+            ultimaSecuencia[nivel] = paciente.getSecuenciaLlegada();
+        }
+    }
+
+    @Test
+    void deshacerYRehacerMientrasSeAtiendeConservanElHistorial() throws Exception {
+        int pacientes = 50_000;
+        SistemaTriageUrgencias sistema = new SistemaTriageUrgencias(true);
+        List<SolicitudRegistro> solicitudes = new ArrayList<>();
+        for (int i = 0; i < pacientes; i++) {
+            solicitudes.add(new SolicitudRegistro("Paciente " + i, 1 + i % 3, "Prueba"));
+        }
+        sistema.registrarPacientes(solicitudes);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(MEDICOS + 2);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger medicosActivos = new AtomicInteger(MEDICOS);
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            for (int m = 0; m < MEDICOS; m++) {
+                tareas.add(hilos.submit(() -> {
+                    largada.await();
+                    try {
+                        while (sistema.totalEnEspera() > 0) {
+                            if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                                sistema.atenderLote(3);
+                            } else {
+                                sistema.atender();
+                            }
+                        }
+                    } finally {
+                        medicosActivos.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (int d = 0; d < 2; d++) {
+                tareas.add(hilos.submit(() -> {
+                    largada.await();
+                    while (medicosActivos.get() > 0) {
+                        int tirada = ThreadLocalRandom.current().nextInt(3);
+                        if (tirada == 0) {
+                            sistema.deshacerUltimaAtencion();
+                        } else if (tirada == 1) {
+                            sistema.deshacerUltimoLote();
+                        } else {
+                            sistema.rehacer();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        // Lo que quedó deshecho al final se atiende ahora
+        sistema.atenderLote(sistema.totalEnEspera());
+
+        Set<Long> ids = new HashSet<>();
+        for (Paciente paciente : sistema.atendidos()) {
+            assertTrue(ids.add(paciente.getId()), "Paciente repetido en el historial: " + paciente.getId());
+        }
+        assertEquals(pacientes, ids.size());
+        assertEquals(pacientes, sistema.totalAtendidos());
+        assertEquals(0, sistema.totalEnEspera());
+    }
+}